@@ -0,0 +1,117 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.googlecode.flickrjandroid.Parameter;
+import com.googlecode.flickrjandroid.oauth.OAuthTokenParameter;
+import com.googlecode.flickrjandroid.oauth.OAuthUtils;
+import com.googlecode.flickrjandroid.util.UrlUtilities;
+
+/**
+ * Time and allocations of the OAuth signature base string of a typical
+ * search request, compared with sorting a copy of the list and encoding the
+ * formatted parameters a second time, as OAuthUtils did before. The
+ * allocation rate is reported by the GC profiler, run it with:
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar BaseString -prof gc
+ * </pre>
+ *
+ * The main method runs it with the profiler as well. Look at
+ * <code>gc.alloc.rate.norm</code>, the bytes allocated per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BaseStringBenchmark {
+    private static final String URL = "https://api.flickr.com/services/rest";
+
+    private final List<Parameter> parameters = new ArrayList<Parameter>();
+
+    @Setup
+    public void setUp() {
+        parameters.add(new Parameter("method", "flickr.photos.search"));
+        parameters.add(new Parameter("oauth_consumer_key", "0123456789abcdef0123456789abcdef"));
+        parameters.add(new Parameter("text", "golden gate bridge at night"));
+        parameters.add(new Parameter("tags", "sanfrancisco,bridge,night"));
+        parameters.add(new Parameter("extras", "date_taken,owner_name,icon_server,original_format,geo,tags,url_sq"));
+        parameters.add(new Parameter("per_page", "500"));
+        parameters.add(new Parameter("page", "3"));
+        parameters.add(new OAuthTokenParameter("72157627792455850-c19f903ae947320d"));
+        parameters.add(new Parameter("nojsoncallback", "1"));
+        parameters.add(new Parameter("format", "json"));
+        OAuthUtils.addBasicOAuthParams(parameters);
+    }
+
+    @Benchmark
+    public String onePass() throws Exception {
+        return OAuthUtils.getRequestBaseString(OAuthUtils.REQUEST_METHOD_POST, URL, parameters);
+    }
+
+    @Benchmark
+    public String sortAndEncodeTwice() throws Exception {
+        List<Parameter> sorted = new ArrayList<Parameter>(parameters);
+        Collections.sort(sorted, new Comparator<Parameter>() {
+            @Override
+            public int compare(Parameter o1, Parameter o2) {
+                int result = o1.getName().compareTo(o2.getName());
+                if (result == 0) {
+                    result = o1.getValue().toString().compareTo(o2.getValue().toString());
+                }
+                return result;
+            }
+        });
+        StringBuffer result = new StringBuffer();
+        result.append(OAuthUtils.REQUEST_METHOD_POST).append('&').append(UrlUtilities.encode(URL)).append('&');
+        StringBuilder formatted = new StringBuilder();
+        for (Parameter parameter : sorted) {
+            if (formatted.length() > 0) {
+                formatted.append('&');
+            }
+            formatted.append(UrlUtilities.encode(parameter.getName())).append('=')
+                .append(UrlUtilities.encode(String.valueOf(parameter.getValue())));
+        }
+        return result.append(UrlUtilities.encode(formatted.toString())).toString();
+    }
+
+    @Benchmark
+    public String signature() throws Exception {
+        return OAuthUtils.getSignature(OAuthUtils.REQUEST_METHOD_POST, URL, parameters,
+                "0123456789abcdef", "cab9750af25612e8");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(BaseStringBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,46 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the options of the JMH command line, writing the
+ * results as JSON to <code>jmh-result.json</code> unless <code>-rf</code> or
+ * <code>-rff</code> say otherwise, so that they can be compared between
+ * releases:
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar
+ * java -jar target/benchmarks.jar ResponseBenchmark -p photos=500 -rff photos-500.json
+ * </pre>
+ */
+public final class Benchmarks {
+    public static final String RESULT_FILE = "jmh-result.json";
+
+    private Benchmarks() {
+        super();
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp() || commandLine.shouldList()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            options.result(RESULT_FILE);
+        }
+        new Runner(options.build()).run();
+    }
+
+}
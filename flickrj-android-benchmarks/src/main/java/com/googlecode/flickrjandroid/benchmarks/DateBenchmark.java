@@ -0,0 +1,67 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.benchmarks;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.googlecode.flickrjandroid.util.FlickrDates;
+
+/**
+ * Cost of reading and writing the <code>yyyy-MM-dd HH:mm:ss</code> dates of
+ * the API, such as the date taken of every photo of a page, with a
+ * SimpleDateFormat and with FlickrDates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DateBenchmark {
+    private static final String DATE_TAKEN = "2012-02-02 01:01:07";
+
+    private DateFormat format;
+    private long time;
+
+    @Setup
+    public void setUp() throws Exception {
+        format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        time = format.parse(DATE_TAKEN).getTime();
+    }
+
+    @Benchmark
+    public long parseSimpleDateFormat() throws Exception {
+        return format.parse(DATE_TAKEN).getTime();
+    }
+
+    @Benchmark
+    public long parseFlickrDates() throws Exception {
+        return FlickrDates.parseDateTime(DATE_TAKEN);
+    }
+
+    @Benchmark
+    public String formatSimpleDateFormat() {
+        return format.format(new Date(time));
+    }
+
+    @Benchmark
+    public String formatFlickrDates() {
+        return FlickrDates.formatDateTime(time);
+    }
+
+}
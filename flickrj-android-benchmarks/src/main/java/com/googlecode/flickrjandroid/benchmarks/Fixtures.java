@@ -0,0 +1,34 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.googlecode.flickrjandroid.util.IOUtilities;
+
+/**
+ * Canned responses of <code>flickr.photos.search</code> with all extras,
+ * holding 100, 250 or 500 photos.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+        super();
+    }
+
+    /**
+     * @param photos The number of photos, 100, 250 or 500
+     * @return the JSON response
+     */
+    static String photos(int photos) throws IOException {
+        String name = "/fixtures/photos-" + photos + ".json";
+        InputStream in = Fixtures.class.getResourceAsStream(name);
+        if (in == null) {
+            throw new IOException("No fixture " + name);
+        }
+        return IOUtilities.readLines(in, "UTF-8");
+    }
+
+}
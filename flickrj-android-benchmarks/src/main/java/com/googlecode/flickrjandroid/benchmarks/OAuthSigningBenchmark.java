@@ -0,0 +1,68 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.googlecode.flickrjandroid.oauth.OAuthSigner;
+import com.googlecode.flickrjandroid.util.Base64;
+
+/**
+ * Signatures per second of the cached signing keys, compared with looking up
+ * and initialising a {@link Mac} for every request and encoding under one
+ * global lock, as OAuthUtils did before. Run with an increasing number of
+ * threads to see the throughput scale with the cores:
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar OAuthSigning -t 1
+ * java -jar target/benchmarks.jar OAuthSigning -t 4
+ * java -jar target/benchmarks.jar OAuthSigning -t max
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OAuthSigningBenchmark {
+    private static final String BASE_STRING = "POST&https%3A%2F%2Fapi.flickr.com%2Fservices%2Frest"
+            + "&format%3Djson%26method%3Dflickr.photos.getInfo%26nojsoncallback%3D1"
+            + "%26oauth_consumer_key%3D0123456789abcdef0123456789abcdef"
+            + "%26oauth_nonce%3D1234567890123%26oauth_signature_method%3DHMAC-SHA1"
+            + "%26oauth_timestamp%3D1349046000%26oauth_token%3D72157627792455850-c19f903ae947320d"
+            + "%26oauth_version%3D1.0%26photo_id%3D8072519587";
+    private static final String CONSUMER_SECRET = "0123456789abcdef";
+    private static final String TOKEN_SECRET = "cab9750af25612e8";
+    private static final Object BASE64_LOCK = new Object();
+
+    @Benchmark
+    public String cachedMac() throws Exception {
+        return OAuthSigner.sign(BASE_STRING, CONSUMER_SECRET, TOKEN_SECRET);
+    }
+
+    @Benchmark
+    public String macPerRequest() throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA1");
+        mac.init(new SecretKeySpec((CONSUMER_SECRET + "&" + TOKEN_SECRET).getBytes("UTF-8"), "HmacSHA1"));
+        byte[] signature = mac.doFinal(BASE_STRING.getBytes("UTF-8"));
+        synchronized (BASE64_LOCK) {
+            return new String(Base64.encode(signature), "UTF-8");
+        }
+    }
+
+}
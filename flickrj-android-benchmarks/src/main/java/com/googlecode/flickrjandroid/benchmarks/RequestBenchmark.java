@@ -0,0 +1,77 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.benchmarks;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.googlecode.flickrjandroid.Flickr;
+import com.googlecode.flickrjandroid.Parameter;
+import com.googlecode.flickrjandroid.REST;
+import com.googlecode.flickrjandroid.oauth.OAuthTokenParameter;
+import com.googlecode.flickrjandroid.oauth.OAuthUtils;
+import com.googlecode.flickrjandroid.util.UrlUtilities;
+
+/**
+ * Cost of preparing a signed <code>flickr.photos.search</code> request:
+ * the signature, the GET URL and the POST body.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestBenchmark {
+    private static final String URL = "https://api.flickr.com/services/rest";
+
+    private final List<Parameter> parameters = new ArrayList<Parameter>();
+
+    @Setup
+    public void setUp() throws Exception {
+        parameters.add(new Parameter("method", "flickr.photos.search"));
+        parameters.add(new Parameter("oauth_consumer_key", "0123456789abcdef0123456789abcdef"));
+        parameters.add(new Parameter("text", "golden gate bridge at night"));
+        parameters.add(new Parameter("tags", "sanfrancisco,bridge,night"));
+        parameters.add(new Parameter("extras", "date_taken,owner_name,icon_server,original_format,geo,tags,url_sq"));
+        parameters.add(new Parameter("per_page", "500"));
+        parameters.add(new Parameter("page", "3"));
+        parameters.add(new OAuthTokenParameter("72157627792455850-c19f903ae947320d"));
+        parameters.add(new Parameter("nojsoncallback", "1"));
+        parameters.add(new Parameter("format", "json"));
+        OAuthUtils.addBasicOAuthParams(parameters);
+        parameters.add(new Parameter("oauth_signature", OAuthUtils.getSignature(
+                OAuthUtils.REQUEST_METHOD_POST, URL, parameters, "0123456789abcdef", "cab9750af25612e8")));
+    }
+
+    @Benchmark
+    public String getSignature() throws Exception {
+        return OAuthUtils.getSignature(OAuthUtils.REQUEST_METHOD_POST, URL, parameters,
+                "0123456789abcdef", "cab9750af25612e8");
+    }
+
+    @Benchmark
+    public URL buildUrl() throws Exception {
+        return UrlUtilities.buildUrl(Flickr.DEFAULT_API_HOST, 443, REST.PATH, parameters);
+    }
+
+    @Benchmark
+    public String encodeParameters() {
+        return REST.encodeParameters(parameters);
+    }
+
+}
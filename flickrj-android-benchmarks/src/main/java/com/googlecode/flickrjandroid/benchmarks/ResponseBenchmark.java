@@ -0,0 +1,111 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.benchmarks;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.googlecode.flickrjandroid.RESTResponse;
+import com.googlecode.flickrjandroid.RequestContext;
+import com.googlecode.flickrjandroid.photos.ColumnarPhotoList;
+import com.googlecode.flickrjandroid.photos.CompactPhotoList;
+import com.googlecode.flickrjandroid.photos.Photo;
+import com.googlecode.flickrjandroid.photos.PhotoList;
+import com.googlecode.flickrjandroid.photos.PhotoUtils;
+import com.googlecode.flickrjandroid.util.JSONReader;
+
+/**
+ * Cost of turning a page of search results into photos: parsing the JSON
+ * response, creating the photos (or compact or columnar ones) from the parsed
+ * response, and both at once from the streamed response.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResponseBenchmark {
+
+    @Param({"100", "250", "500"})
+    public int photos;
+
+    private String json;
+    private JSONObject data;
+
+    @Setup
+    public void setUp() throws Exception {
+        json = Fixtures.photos(photos);
+        data = new RESTResponse(json).getData();
+    }
+
+    @Benchmark
+    public RESTResponse parse() throws Exception {
+        return new RESTResponse(json);
+    }
+
+    @Benchmark
+    public PhotoList createPhotoList() throws Exception {
+        return PhotoUtils.createPhotoList(data);
+    }
+
+    @Benchmark
+    public CompactPhotoList createCompactPhotoList() throws Exception {
+        return PhotoUtils.createCompactPhotoList(data);
+    }
+
+    @Benchmark
+    public ColumnarPhotoList createColumnarPhotoList() throws Exception {
+        return PhotoUtils.createColumnarPhotoList(data);
+    }
+
+    @Benchmark
+    public PhotoList createLazyPhotoList() throws Exception {
+        RequestContext requestContext = RequestContext.getRequestContext();
+        requestContext.setLazyPhotos(true);
+        try {
+            PhotoList result = PhotoUtils.createPhotoList(data);
+            // what a thumbnail grid reads
+            for (Photo photo : result) {
+                photo.getSmallSquareUrl();
+            }
+            return result;
+        } finally {
+            requestContext.setLazyPhotos(false);
+        }
+    }
+
+    @Benchmark
+    public PhotoList streamPhotoList() throws Exception {
+        JSONReader reader = new JSONReader(new StringReader(json));
+        try {
+            PhotoList result = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("photos".equals(reader.nextName())) {
+                    result = PhotoUtils.createPhotoList(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            return result;
+        } finally {
+            reader.close();
+        }
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.googlecode.flickrjandroidj.sample.android;
 
+import java.io.File;
 import java.util.Locale;
 
 import org.slf4j.Logger;
@@ -23,6 +24,7 @@ import android.widget.Toast;
 import com.googlecode.flickrjandroid.oauth.OAuth;
 import com.googlecode.flickrjandroid.oauth.OAuthToken;
 import com.googlecode.flickrjandroid.people.User;
+import com.googlecode.flickrjandroidj.sample.android.images.ImageUtils;
 import com.googlecode.flickrjandroidj.sample.android.tasks.GetOAuthTokenTask;
 import com.googlecode.flickrjandroidj.sample.android.tasks.LoadPhotostreamTask;
 import com.googlecode.flickrjandroidj.sample.android.tasks.LoadUserTask;
@@ -51,6 +53,7 @@ public class FlickrjAndroidSampleActivity extends Activity {
 	public void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
 		setContentView(R.layout.main);
+		ImageUtils.setCacheDirectory(new File(getCacheDir(), "images")); //$NON-NLS-1$
 
 		this.textUserTitle = (TextView) this.findViewById(R.id.profilePageTitle);
 		this.textUserName = (TextView) this.findViewById(R.id.userScreenName);
@@ -85,6 +88,7 @@ public class FlickrjAndroidSampleActivity extends Activity {
     @Override
     public void onDestroy() {
     	listView.setAdapter(null);
+    	ImageUtils.flushCache();
         super.onDestroy();
     }
     
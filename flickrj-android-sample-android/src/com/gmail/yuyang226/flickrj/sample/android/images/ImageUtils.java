@@ -1,35 +1,68 @@
 package com.googlecode.flickrjandroidj.sample.android.images;
 
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
-import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
-import org.apache.http.HttpStatus;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpGet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.drawable.ColorDrawable;
-import android.net.http.AndroidHttpClient;
 import android.util.Log;
 
+import com.googlecode.flickrjandroid.http.CachingHttpEngine;
+import com.googlecode.flickrjandroid.http.DiskCache;
+import com.googlecode.flickrjandroid.http.HttpEngine;
+import com.googlecode.flickrjandroid.http.HttpRequest;
+import com.googlecode.flickrjandroid.http.HttpResponse;
+import com.googlecode.flickrjandroid.http.PooledHttpEngine;
 import com.googlecode.flickrjandroidj.sample.android.tasks.ImageDownloadTask;
 
 
 public final class ImageUtils {
 	private static final Logger logger = LoggerFactory.getLogger(ImageUtils.class);
+	private static final long DISK_CACHE_SIZE = 20 * 1024 * 1024;
+
+	private static volatile HttpEngine httpEngine = PooledHttpEngine.getDefault();
 
 	private static Map<String, SoftReference<Bitmap>> imageCache = new ConcurrentHashMap<String, SoftReference<Bitmap>>(
 			20);
 
+	/**
+	 * Keep the downloaded images in a directory, so they are not downloaded
+	 * again after a restart.
+	 * 
+	 * @param directory
+	 */
+	public static synchronized void setCacheDirectory(File directory) {
+		if (httpEngine instanceof CachingHttpEngine) {
+			// already open, e.g. when the activity is created again
+			return;
+		}
+		try {
+			httpEngine = new CachingHttpEngine(PooledHttpEngine.getDefault(),
+					new DiskCache(directory, DISK_CACHE_SIZE));
+		} catch (IOException e) {
+			logger.warn("Cannot use image cache " + directory, e); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Write the index of the image cache, e.g. when the activity is stopped.
+	 */
+	public static void flushCache() {
+		if (httpEngine instanceof CachingHttpEngine) {
+			((CachingHttpEngine) httpEngine).getCache().flush();
+		}
+	}
+
 	/**
 	 * This method must be called in a thread other than UI.
 	 * 
@@ -37,49 +70,25 @@ public final class ImageUtils {
 	 * @return
 	 */
 	public static Bitmap downloadImage(String url) {
-		// final int IO_BUFFER_SIZE = 4 * 1024;
-
-		// AndroidHttpClient is not allowed to be used from the main thread
-		final HttpClient client = AndroidHttpClient.newInstance("Android"); //$NON-NLS-1$
-		final HttpGet getRequest = new HttpGet(url);
-
+		HttpResponse response = null;
 		try {
-			HttpResponse response = client.execute(getRequest);
-			final int statusCode = response.getStatusLine().getStatusCode();
-			if (statusCode != HttpStatus.SC_OK) {
+			response = httpEngine.execute(new HttpRequest(HttpRequest.METHOD_GET, new URL(url)));
+			final int statusCode = response.getCode();
+			if (statusCode != HttpURLConnection.HTTP_OK) {
 				Log.w("ImageDownloader", "Error " + statusCode //$NON-NLS-1$//$NON-NLS-2$
 						+ " while retrieving bitmap from " + url); //$NON-NLS-1$
 				return null;
 			}
-
-			final HttpEntity entity = response.getEntity();
-			if (entity != null) {
-				InputStream inputStream = null;
-				try {
-					inputStream = entity.getContent();
-					// return BitmapFactory.decodeStream(inputStream);
-					// Bug on slow connections, fixed in future release.
-					return BitmapFactory.decodeStream(new FlushedInputStream(
-							inputStream));
-				} finally {
-					if (inputStream != null) {
-						inputStream.close();
-					}
-					entity.consumeContent();
-				}
-			}
+			// Bug on slow connections, fixed in future release.
+			return BitmapFactory.decodeStream(new FlushedInputStream(
+					response.getBody()));
 		} catch (IOException e) {
-			getRequest.abort();
 			logger.warn("I/O error while retrieving bitmap from " + url, e); //$NON-NLS-1$
-		} catch (IllegalStateException e) {
-			getRequest.abort();
-			logger.warn("Incorrect URL:" + url, e); //$NON-NLS-1$
 		} catch (Exception e) {
-			getRequest.abort();
 			logger.warn("Error while retrieving bitmap from " + url, e); //$NON-NLS-1$
 		} finally {
-			if ((client instanceof AndroidHttpClient)) {
-				((AndroidHttpClient) client).close();
+			if (response != null) {
+				response.close();
 			}
 		}
 		return null;
@@ -0,0 +1,175 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.googlecode.flickrjandroid.http.AbortSignal;
+
+/**
+ * Runs calls against a {@link Flickr} instance on a small pool of worker
+ * threads and hands back a {@link FlickrFuture} or notifies a
+ * {@link FlickrCallback}, so that the submitting thread never blocks on the
+ * network.<p>
+ *
+ * Any method of any Interface class can be run asynchronously by wrapping it
+ * in a {@link FlickrCall}. The {@link RequestContext} of the submitting thread,
+ * i.e. its OAuth token, is carried over to the worker thread.<p>
+ *
+ * The worker threads share the pooled connections of the {@link Transport},
+ * the default pool size is therefore the default number of connections per host.
+ */
+public class AsyncFlickr {
+    public static final int DEFAULT_THREADS = 8;
+
+    private static final AtomicInteger POOL_SEQUENCE = new AtomicInteger();
+
+    private final Flickr flickr;
+    private final ExecutorService executor;
+    private final boolean ownExecutor;
+    private ScheduledExecutorService timer;
+    private long defaultTimeout = 0;
+
+    /**
+     * @param flickr The Flickr instance the calls are run with
+     */
+    public AsyncFlickr(Flickr flickr) {
+        this(flickr, DEFAULT_THREADS);
+    }
+
+    /**
+     * @param flickr The Flickr instance the calls are run with
+     * @param threads The number of worker threads
+     */
+    public AsyncFlickr(Flickr flickr, int threads) {
+        this(flickr, Executors.newFixedThreadPool(threads, new WorkerThreadFactory("flickrj-async")), true);
+    }
+
+    /**
+     * @param flickr The Flickr instance the calls are run with
+     * @param executor The executor running the calls, it is not shut down by this class
+     */
+    public AsyncFlickr(Flickr flickr, ExecutorService executor) {
+        this(flickr, executor, false);
+    }
+
+    private AsyncFlickr(Flickr flickr, ExecutorService executor, boolean ownExecutor) {
+        super();
+        if (flickr == null || executor == null) {
+            throw new IllegalArgumentException("Flickr and executor must not be null");
+        }
+        this.flickr = flickr;
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+    }
+
+    public Flickr getFlickr() {
+        return flickr;
+    }
+
+    public long getDefaultTimeout() {
+        return defaultTimeout;
+    }
+
+    /**
+     * @param defaultTimeout The time budget in milliseconds of calls submitted
+     * without an explicit timeout, 0 for none
+     */
+    public void setDefaultTimeout(long defaultTimeout) {
+        this.defaultTimeout = defaultTimeout;
+    }
+
+    /**
+     * Run the call asynchronously.
+     *
+     * @param call The call
+     * @return the pending result
+     */
+    public <T> FlickrFuture<T> submit(FlickrCall<T> call) {
+        return submit(call, null);
+    }
+
+    /**
+     * Run the call asynchronously.
+     *
+     * @param call The call
+     * @param callback Notified once the call completes, may be null
+     * @return the pending result
+     */
+    public <T> FlickrFuture<T> submit(FlickrCall<T> call, FlickrCallback<T> callback) {
+        return submit(call, callback, defaultTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Run the call asynchronously and cancel it if it has not completed within
+     * the given time, the connection in use is closed.
+     *
+     * @param call The call
+     * @param callback Notified once the call completes, may be null
+     * @param timeout The time budget of the call, 0 for none
+     * @param unit The unit of the timeout
+     * @return the pending result
+     */
+    public <T> FlickrFuture<T> submit(FlickrCall<T> call, FlickrCallback<T> callback,
+            long timeout, TimeUnit unit) {
+        final FlickrFuture<T> future = new FlickrFuture<T>(flickr, call,
+                RequestContext.getRequestContext().copy(), new AbortSignal(), callback);
+        executor.execute(future);
+        if (timeout > 0) {
+            future.setTimeoutTask(getTimer().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    future.timeout();
+                }
+            }, timeout, unit));
+        }
+        return future;
+    }
+
+    private synchronized ScheduledExecutorService getTimer() {
+        if (timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(new WorkerThreadFactory("flickrj-timeout"));
+        }
+        return timer;
+    }
+
+    /**
+     * Stop accepting calls, the worker threads are stopped once the pending
+     * calls complete if they are owned by this instance.
+     */
+    public synchronized void shutdown() {
+        if (ownExecutor) {
+            executor.shutdown();
+        }
+        if (timer != null) {
+            timer.shutdown();
+        }
+    }
+
+    /**
+     * Creates named daemon threads, so that idle workers never keep the
+     * process alive.
+     */
+    static final class WorkerThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger sequence = new AtomicInteger();
+
+        WorkerThreadFactory(String name) {
+            this.prefix = name + "-" + POOL_SEQUENCE.incrementAndGet() + "-";
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import com.googlecode.flickrjandroid.util.IOUtilities;
+
+/**
+ * Records the operations of a batch which succeeded in a file, one
+ * {@link BatchOperation#getId() id} per line followed by its checksum, so that a {@link BatchExecutor}
+ * run again after an interruption skips them. Every id is written as soon
+ * as its operation succeeded.<p>
+ *
+ * Delete the file once the batch is complete, or to run it again from the
+ * start.
+ */
+public class BatchCheckpoint implements Closeable {
+    private static final String UTF8 = "UTF-8";
+
+    private final File file;
+    private final Set<String> completed = new HashSet<String>();
+    private Writer out;
+
+    /**
+     * @param file The checkpoint file, read if it exists
+     * @throws IOException if the file can not be read
+     */
+    public BatchCheckpoint(File file) throws IOException {
+        super();
+        this.file = file;
+        if (file.isFile()) {
+            Reader in = new InputStreamReader(new FileInputStream(file), UTF8);
+            try {
+                BufferedReader reader = new BufferedReader(in);
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int end = line.lastIndexOf('\t');
+                    // a line cut off by a crash has no valid checksum
+                    if (end >= 0 && line.substring(end + 1).equals(checksum(line.substring(0, end)))) {
+                        completed.add(line.substring(0, end));
+                    }
+                }
+            } finally {
+                IOUtilities.close(in);
+            }
+        }
+    }
+
+    /**
+     * @param id The id of an operation
+     * @return true if the operation succeeded before
+     */
+    public synchronized boolean isCompleted(String id) {
+        return completed.contains(id);
+    }
+
+    /**
+     * Record that an operation succeeded.
+     *
+     * @param id The id of the operation
+     * @throws IOException if the file can not be written
+     */
+    public synchronized void completed(String id) throws IOException {
+        if (!completed.add(id)) {
+            return;
+        }
+        if (out == null) {
+            out = new OutputStreamWriter(new FileOutputStream(file, true), UTF8);
+        }
+        out.write(id);
+        out.write('\t');
+        out.write(checksum(id));
+        out.write('\n');
+        out.flush();
+    }
+
+    private static String checksum(String id) throws UnsupportedEncodingException {
+        CRC32 crc = new CRC32();
+        crc.update(id.getBytes(UTF8));
+        return Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * @return the number of operations which succeeded
+     */
+    public synchronized int size() {
+        return completed.size();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /* (non-Javadoc)
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public synchronized void close() {
+        IOUtilities.close(out);
+        out = null;
+    }
+
+    /**
+     * Close and delete the file, forgetting the completed operations.
+     */
+    public synchronized void delete() {
+        close();
+        completed.clear();
+        file.delete();
+    }
+
+}
@@ -0,0 +1,246 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Runs a large number of changes, e.g. tagging or moving thousands of
+ * photos, through an {@link AsyncFlickr}:
+ *
+ * <pre>
+ * List&lt;BatchOperation&gt; operations = new ArrayList&lt;BatchOperation&gt;();
+ * for (Photo photo : photos) {
+ *     operations.add(BatchOperations.addTags(photo.getId(), new String[] {"holiday"}));
+ * }
+ * BatchExecutor executor = new BatchExecutor(asyncFlickr);
+ * executor.setCheckpoint(new BatchCheckpoint(new File(dir, "tagging.batch")));
+ * BatchExecutor.Report report = executor.run(operations);
+ * </pre>
+ *
+ * At most {@link #getParallelism()} operations are in flight at any time,
+ * and the operations are only taken from the iterable as they are run. The
+ * calls are paced by the {@link com.googlecode.flickrjandroid.transport.RateLimiter}
+ * of the transport, if any.<p>
+ *
+ * A failed operation does not stop the batch, every outcome is passed to the
+ * {@link Listener} and the failures are part of the {@link Report}. With a
+ * {@link BatchCheckpoint}, the operations which succeeded are recorded, and
+ * skipped when the batch is run again after an interruption or to retry the
+ * failures.
+ */
+public class BatchExecutor {
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * Receives the outcome of every operation, always on the thread calling
+     * {@link BatchExecutor#run(Iterable)}.
+     */
+    public interface Listener {
+
+        /**
+         * @param operation The operation which succeeded
+         */
+        void onSuccess(BatchOperation operation);
+
+        /**
+         * @param operation The operation which failed
+         * @param error The exception thrown by the operation
+         */
+        void onFailure(BatchOperation operation, Throwable error);
+    }
+
+    private final AsyncFlickr async;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private BatchCheckpoint checkpoint;
+    private Listener listener;
+
+    /**
+     * @param async Runs the operations
+     */
+    public BatchExecutor(AsyncFlickr async) {
+        super();
+        if (async == null) {
+            throw new IllegalArgumentException("AsyncFlickr must not be null");
+        }
+        this.async = async;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @param parallelism The maximum number of operations run concurrently
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    public BatchCheckpoint getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * @param checkpoint Records the operations which succeeded, null to run
+     * every operation
+     */
+    public void setCheckpoint(BatchCheckpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    public Listener getListener() {
+        return listener;
+    }
+
+    /**
+     * @param listener Receives the outcome of every operation, may be null
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Run the operations, except those recorded by the checkpoint.
+     *
+     * @param operations The operations
+     * @return the outcome of the batch
+     * @throws InterruptedException if interrupted, the operations in flight
+     * are cancelled
+     * @throws IOException if the checkpoint can not be written, the
+     * operations in flight are cancelled
+     */
+    public Report run(Iterable<? extends BatchOperation> operations) throws InterruptedException, IOException {
+        Report report = new Report();
+        BlockingQueue<Outcome> completed = new LinkedBlockingQueue<Outcome>();
+        Map<Integer, FlickrFuture<Void>> inFlight = new HashMap<Integer, FlickrFuture<Void>>();
+        Iterator<? extends BatchOperation> pending = operations.iterator();
+        int sequence = 0;
+        try {
+            while (pending.hasNext() || !inFlight.isEmpty()) {
+                while (inFlight.size() < parallelism && pending.hasNext()) {
+                    BatchOperation operation = pending.next();
+                    if (checkpoint != null && checkpoint.isCompleted(operation.getId())) {
+                        report.skipped++;
+                        continue;
+                    }
+                    int id = sequence++;
+                    inFlight.put(Integer.valueOf(id), submit(id, operation, completed));
+                }
+                if (inFlight.isEmpty()) {
+                    continue;
+                }
+                Outcome outcome = completed.take();
+                inFlight.remove(Integer.valueOf(outcome.sequence));
+                if (outcome.error == null) {
+                    if (checkpoint != null) {
+                        checkpoint.completed(outcome.operation.getId());
+                    }
+                    report.succeeded++;
+                    if (listener != null) {
+                        listener.onSuccess(outcome.operation);
+                    }
+                } else {
+                    report.failures.put(outcome.operation, outcome.error);
+                    if (listener != null) {
+                        listener.onFailure(outcome.operation, outcome.error);
+                    }
+                }
+            }
+        } finally {
+            for (FlickrFuture<Void> future : inFlight.values()) {
+                future.cancel(true);
+            }
+        }
+        return report;
+    }
+
+    private FlickrFuture<Void> submit(final int sequence, final BatchOperation operation,
+            final BlockingQueue<Outcome> completed) {
+        return async.submit(new FlickrCall<Void>() {
+            @Override
+            public Void call(Flickr flickr) throws Exception {
+                operation.execute(flickr);
+                return null;
+            }
+        }, new FlickrCallback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                completed.add(new Outcome(sequence, operation, null));
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+                completed.add(new Outcome(sequence, operation, error));
+            }
+        });
+    }
+
+    private static final class Outcome {
+        final int sequence;
+        final BatchOperation operation;
+        final Throwable error;
+
+        Outcome(int sequence, BatchOperation operation, Throwable error) {
+            this.sequence = sequence;
+            this.operation = operation;
+            this.error = error;
+        }
+    }
+
+    /**
+     * The outcome of a batch.
+     */
+    public static class Report {
+        private int succeeded = 0;
+        private int skipped = 0;
+        private final Map<BatchOperation, Throwable> failures = new LinkedHashMap<BatchOperation, Throwable>();
+
+        /**
+         * @return the number of operations which succeeded
+         */
+        public int getSucceeded() {
+            return succeeded;
+        }
+
+        /**
+         * @return the number of operations skipped as recorded by the
+         * checkpoint
+         */
+        public int getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * @return the operations which failed with their exception, in the
+         * order they failed
+         */
+        public Map<BatchOperation, Throwable> getFailures() {
+            return Collections.unmodifiableMap(failures);
+        }
+
+        /**
+         * @return true if no operation failed
+         */
+        public boolean isSuccessful() {
+            return failures.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return "Report [succeeded=" + succeeded + ", skipped=" + skipped + ", failed=" + failures.size() + "]";
+        }
+    }
+
+}
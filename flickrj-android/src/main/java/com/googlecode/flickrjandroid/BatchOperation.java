@@ -0,0 +1,25 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid;
+
+/**
+ * One change run by a {@link BatchExecutor}, e.g. tagging a photo. See
+ * {@link BatchOperations} for the common ones.
+ */
+public interface BatchOperation {
+
+    /**
+     * @return the identity of the operation, unique within its batch and the
+     * same every time the batch is built, it is written to the checkpoint
+     * once the operation succeeded. It must not contain line breaks
+     */
+    String getId();
+
+    /**
+     * @param flickr The Flickr instance to run the operation with
+     * @throws Exception
+     */
+    void execute(Flickr flickr) throws Exception;
+
+}
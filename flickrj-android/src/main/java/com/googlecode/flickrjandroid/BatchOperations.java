@@ -0,0 +1,137 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid;
+
+import com.googlecode.flickrjandroid.photos.Permissions;
+import com.googlecode.flickrjandroid.util.UrlUtilities;
+
+/**
+ * Creates the {@link BatchOperation}s for the common bulk edits of a photo
+ * library.
+ */
+public final class BatchOperations {
+
+    private BatchOperations() {
+    }
+
+    /**
+     * @see com.googlecode.flickrjandroid.photos.PhotosInterface#addTags(String, String[])
+     */
+    public static BatchOperation addTags(final String photoId, final String[] tags) {
+        return new Operation("flickr.photos.addTags", photoId, join(tags)) {
+            @Override
+            public void execute(Flickr flickr) throws Exception {
+                flickr.getPhotosInterface().addTags(photoId, tags);
+            }
+        };
+    }
+
+    /**
+     * @see com.googlecode.flickrjandroid.photos.PhotosInterface#setTags(String, String[])
+     */
+    public static BatchOperation setTags(final String photoId, final String[] tags) {
+        return new Operation("flickr.photos.setTags", photoId, join(tags)) {
+            @Override
+            public void execute(Flickr flickr) throws Exception {
+                flickr.getPhotosInterface().setTags(photoId, tags);
+            }
+        };
+    }
+
+    /**
+     * @see com.googlecode.flickrjandroid.photos.PhotosInterface#setMeta(String, String, String)
+     */
+    public static BatchOperation setMeta(final String photoId, final String title, final String description) {
+        return new Operation("flickr.photos.setMeta", photoId, title, description) {
+            @Override
+            public void execute(Flickr flickr) throws Exception {
+                flickr.getPhotosInterface().setMeta(photoId, title, description);
+            }
+        };
+    }
+
+    /**
+     * @see com.googlecode.flickrjandroid.photos.PhotosInterface#setPerms(String, Permissions)
+     */
+    public static BatchOperation setPerms(final String photoId, final Permissions permissions) {
+        return new Operation("flickr.photos.setPerms", photoId,
+                String.valueOf(permissions.isPublicFlag()), String.valueOf(permissions.isFriendFlag()),
+                String.valueOf(permissions.isFamilyFlag()), String.valueOf(permissions.getComment()),
+                String.valueOf(permissions.getAddmeta())) {
+            @Override
+            public void execute(Flickr flickr) throws Exception {
+                flickr.getPhotosInterface().setPerms(photoId, permissions);
+            }
+        };
+    }
+
+    /**
+     * @see com.googlecode.flickrjandroid.photosets.PhotosetsInterface#addPhoto(String, String)
+     */
+    public static BatchOperation addToPhotoset(final String photosetId, final String photoId) {
+        return new Operation("flickr.photosets.addPhoto", photosetId, photoId) {
+            @Override
+            public void execute(Flickr flickr) throws Exception {
+                flickr.getPhotosetsInterface().addPhoto(photosetId, photoId);
+            }
+        };
+    }
+
+    /**
+     * @see com.googlecode.flickrjandroid.groups.pools.PoolsInterface#add(String, String)
+     */
+    public static BatchOperation addToPool(final String photoId, final String groupId) {
+        return new Operation("flickr.groups.pools.add", photoId, groupId) {
+            @Override
+            public void execute(Flickr flickr) throws Exception {
+                flickr.getPoolsInterface().add(photoId, groupId);
+            }
+        };
+    }
+
+    /**
+     * Join the tags as Flickr reads them, quoting the tags of several words,
+     * so that <code>"a b"</code> and <code>a b</code> are different operations.
+     */
+    private static String join(String[] tags) {
+        StringBuilder joined = new StringBuilder();
+        for (String tag : tags) {
+            if (joined.length() > 0) {
+                joined.append(' ');
+            }
+            if (tag.indexOf(' ') >= 0) {
+                joined.append('"').append(tag).append('"');
+            } else {
+                joined.append(tag);
+            }
+        }
+        return joined.toString();
+    }
+
+    /**
+     * An operation identified by its method and arguments.
+     */
+    private abstract static class Operation implements BatchOperation {
+        private final String id;
+
+        Operation(String method, String... arguments) {
+            StringBuilder id = new StringBuilder(method);
+            for (String argument : arguments) {
+                id.append(' ').append(argument == null ? "" : UrlUtilities.encode(argument));
+            }
+            this.id = id.toString();
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String toString() {
+            return id;
+        }
+    }
+
+}
@@ -28,6 +28,7 @@ import com.googlecode.flickrjandroid.photos.geo.GeoInterface;
 import com.googlecode.flickrjandroid.photos.licenses.LicensesInterface;
 import com.googlecode.flickrjandroid.photos.notes.NotesInterface;
 import com.googlecode.flickrjandroid.photos.transform.TransformInterface;
+import com.googlecode.flickrjandroid.photos.upload.UploadInterface;
 import com.googlecode.flickrjandroid.photosets.PhotosetsInterface;
 import com.googlecode.flickrjandroid.photosets.comments.PhotosetsCommentsInterface;
 import com.googlecode.flickrjandroid.places.PlacesInterface;
@@ -99,6 +100,7 @@ public class Flickr {
     private TestInterface testInterface;
     private TransformInterface transformInterface;
     private Uploader uploader;
+    private UploadInterface uploadInterface;
     private UrlsInterface urlsInterface;
 
     /**
@@ -546,6 +548,13 @@ public class Flickr {
         return uploader;
     }
 
+    public UploadInterface getUploadInterface() {
+        if (uploadInterface == null) {
+            uploadInterface = new UploadInterface(apiKey, sharedSecret, transport);
+        }
+        return uploadInterface;
+    }
+
     public UrlsInterface getUrlsInterface() {
         if (urlsInterface == null) {
             urlsInterface = new UrlsInterface(apiKey, sharedSecret, transport);
@@ -0,0 +1,29 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid;
+
+/**
+ * A unit of work against the Flickr API, executed asynchronously by
+ * {@link AsyncFlickr}. Typically wraps one call of an Interface class:
+ *
+ * <pre>
+ * new FlickrCall&lt;PhotoList&gt;() {
+ *     public PhotoList call(Flickr flickr) throws Exception {
+ *         return flickr.getPhotosInterface().search(params, 100, 1);
+ *     }
+ * }
+ * </pre>
+ *
+ * @param <T> The type of the result
+ */
+public interface FlickrCall<T> {
+
+    /**
+     * @param flickr The Flickr instance to run the call with
+     * @return the result of the call
+     * @throws Exception
+     */
+    T call(Flickr flickr) throws Exception;
+
+}
@@ -0,0 +1,27 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid;
+
+/**
+ * Notified once an asynchronous {@link FlickrCall} completes. The methods are
+ * invoked on the worker thread which ran the call, or on the thread which
+ * cancelled it.
+ *
+ * @param <T> The type of the result
+ */
+public interface FlickrCallback<T> {
+
+    /**
+     * @param result The result of the call
+     */
+    void onSuccess(T result);
+
+    /**
+     * @param error The exception thrown by the call, a
+     * {@link java.util.concurrent.CancellationException} if it has been
+     * cancelled or a {@link java.util.concurrent.TimeoutException} if it timed out
+     */
+    void onFailure(Throwable error);
+
+}
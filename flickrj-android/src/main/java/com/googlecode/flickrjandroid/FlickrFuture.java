@@ -0,0 +1,116 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeoutException;
+
+import com.googlecode.flickrjandroid.http.AbortSignal;
+
+/**
+ * The pending result of a {@link FlickrCall} submitted to {@link AsyncFlickr}.<p>
+ *
+ * Cancelling the future, or reaching its timeout, closes the connection the
+ * call is blocked on so that the worker thread is released right away.
+ *
+ * @param <T> The type of the result
+ */
+public class FlickrFuture<T> extends FutureTask<T> {
+
+    private final AbortSignal signal;
+    private final FlickrCallback<T> callback;
+    private volatile boolean timedOut = false;
+    private volatile ScheduledFuture<?> timeoutTask;
+
+    FlickrFuture(final Flickr flickr, final FlickrCall<T> call, final RequestContext requestContext,
+            final AbortSignal signal, FlickrCallback<T> callback) {
+        super(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                RequestContext.setRequestContext(requestContext);
+                AbortSignal.bind(signal);
+                try {
+                    return call.call(flickr);
+                } finally {
+                    AbortSignal.bind(null);
+                    RequestContext.resetThreadLocals();
+                }
+            }
+        });
+        this.signal = signal;
+        this.callback = callback;
+    }
+
+    /* (non-Javadoc)
+     * @see java.util.concurrent.FutureTask#cancel(boolean)
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+            signal.abort();
+        }
+        return cancelled;
+    }
+
+    void setTimeoutTask(ScheduledFuture<?> timeoutTask) {
+        this.timeoutTask = timeoutTask;
+        if (isDone()) {
+            timeoutTask.cancel(false);
+        }
+    }
+
+    /**
+     * Cancel the call because it exceeded its time budget.
+     */
+    void timeout() {
+        timedOut = true;
+        if (!cancel(true)) {
+            timedOut = false;
+        }
+    }
+
+    /**
+     * @return true if the call has been cancelled because of its timeout
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /* (non-Javadoc)
+     * @see java.util.concurrent.FutureTask#done()
+     */
+    @Override
+    protected void done() {
+        ScheduledFuture<?> task = timeoutTask;
+        if (task != null && !timedOut) {
+            task.cancel(false);
+        }
+        if (callback == null) {
+            return;
+        }
+        if (isCancelled()) {
+            callback.onFailure(timedOut ? new TimeoutException("The Flickr call timed out")
+                    : new CancellationException("The Flickr call has been cancelled"));
+            return;
+        }
+        T result;
+        try {
+            result = get();
+        } catch (ExecutionException e) {
+            callback.onFailure(e.getCause());
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            callback.onFailure(e);
+            return;
+        }
+        callback.onSuccess(result);
+    }
+
+}
@@ -0,0 +1,28 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid;
+
+/**
+ * Thrown by the iterator of a {@link PagedIterable} when a page could not be
+ * fetched, the cause is the IOException, FlickrException or JSONException of
+ * the request.
+ */
+public class PageFetchException extends RuntimeException {
+    private static final long serialVersionUID = -2312874913357447211L;
+
+    private final int page;
+
+    public PageFetchException(int page, Throwable cause) {
+        super("Failed to fetch page " + page + ": " + cause, cause);
+        this.page = page;
+    }
+
+    /**
+     * @return the page which could not be fetched
+     */
+    public int getPage() {
+        return page;
+    }
+
+}
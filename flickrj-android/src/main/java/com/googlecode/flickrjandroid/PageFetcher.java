@@ -0,0 +1,28 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid;
+
+import java.io.IOException;
+
+import org.json.JSONException;
+
+/**
+ * Fetches one page of a paginated list endpoint, see {@link PagedIterable}.
+ * The Interface classes provide fetchers for their list methods, e.g.
+ * {@link com.googlecode.flickrjandroid.photos.PhotosInterface#iterateSearch}.
+ *
+ * @param <E> The type of the list elements
+ */
+public interface PageFetcher<E> {
+
+    /**
+     * @param page The page to fetch, starting with 1
+     * @return the page, with the number of pages set
+     * @throws IOException
+     * @throws FlickrException
+     * @throws JSONException
+     */
+    SearchResultList<E> getPage(int page) throws IOException, FlickrException, JSONException;
+
+}
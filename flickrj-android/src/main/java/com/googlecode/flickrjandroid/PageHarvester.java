@@ -0,0 +1,270 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Fetches all pages of a paginated list endpoint, requesting the pages after
+ * the first one concurrently through an {@link AsyncFlickr}:
+ *
+ * <pre>
+ * PageHarvester&lt;Photo&gt; harvester = new PageHarvester&lt;Photo&gt;(
+ *         flickr.getPeopleInterface().getPhotosFetcher(userId, extras, 500), asyncFlickr);
+ * harvester.setKeyExtractor(PhotoUtils.PHOTO_ID);
+ * PhotoList photos = harvester.harvest(new PhotoList());
+ * </pre>
+ *
+ * The first page is fetched on the calling thread, it tells how many pages
+ * there are. At most {@link #getParallelism()} of the remaining pages are in
+ * flight at any time. The elements are either merged in page order, or
+ * passed to a {@link Sink} page by page. In page order, a page is only
+ * requested while it is less than twice the parallelism ahead of the next
+ * page to pass on, so that a slow page holds back a bounded number of the
+ * pages after it.<p>
+ *
+ * Flickr shifts elements between pages while they are being fetched, e.g.
+ * when photos are added to a search result, so the same element can show up
+ * on two pages. Duplicates are dropped, based on the key returned by the
+ * {@link KeyExtractor}, or on {@link Object#equals(Object)} without one.<p>
+ *
+ * A failure of any page cancels the pages in flight and is thrown as a
+ * {@link PageFetchException}.
+ *
+ * @param <E> The type of the list elements
+ */
+public class PageHarvester<E> {
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * Returns the identity of an element, used to drop duplicates.
+     */
+    public interface KeyExtractor<E> {
+        Object getKey(E element);
+    }
+
+    /**
+     * Receives the elements of the harvested pages, always on the thread
+     * calling {@link PageHarvester#harvest(Sink, boolean)}.
+     */
+    public interface Sink<E> {
+
+        /**
+         * @param page The page number
+         * @param elements The elements of the page which have not been
+         * received before, may be empty
+         */
+        void onPage(int page, List<E> elements);
+    }
+
+    private final PageFetcher<E> fetcher;
+    private final AsyncFlickr async;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private KeyExtractor<E> keyExtractor;
+
+    /**
+     * @param fetcher Fetches the pages
+     * @param async Runs the requests for the pages after the first one
+     */
+    public PageHarvester(PageFetcher<E> fetcher, AsyncFlickr async) {
+        super();
+        if (fetcher == null || async == null) {
+            throw new IllegalArgumentException("Fetcher and AsyncFlickr must not be null");
+        }
+        this.fetcher = fetcher;
+        this.async = async;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @param parallelism The maximum number of pages requested concurrently
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    public KeyExtractor<E> getKeyExtractor() {
+        return keyExtractor;
+    }
+
+    /**
+     * @param keyExtractor Returns the identity of an element, null to compare
+     * the elements themselves
+     */
+    public void setKeyExtractor(KeyExtractor<E> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+    }
+
+    /**
+     * Fetch all pages and merge them in page order.
+     *
+     * @param result The list the elements are added to, its page count and
+     * total are set from the first page
+     * @return the result list
+     * @throws PageFetchException if a page could not be fetched
+     */
+    public <L extends SearchResultList<E>> L harvest(final L result) {
+        SearchResultList<E> first = harvest(new Sink<E>() {
+            @Override
+            public void onPage(int page, List<E> elements) {
+                result.addAll(elements);
+            }
+        }, true);
+        if (first != null) {
+            result.setPage(1);
+            result.setPages(first.getPages());
+            result.setPerPage(first.getPerPage());
+            result.setTotal(first.getTotal());
+        }
+        return result;
+    }
+
+    /**
+     * Fetch all pages and pass them to the sink.
+     *
+     * @param sink Receives the elements of each page
+     * @param ordered True to pass the pages in page order, pages which arrive
+     * early are held back until the pages before them have arrived. False to
+     * pass them as soon as they arrive
+     * @return the first page
+     * @throws PageFetchException if a page could not be fetched
+     */
+    public SearchResultList<E> harvest(Sink<E> sink, boolean ordered) {
+        SearchResultList<E> first;
+        try {
+            first = fetcher.getPage(1);
+        } catch (Exception e) {
+            throw new PageFetchException(1, e);
+        }
+        Receiver receiver = new Receiver(sink, ordered);
+        receiver.received(1, first);
+        if (first != null && !first.isEmpty()) {
+            fetchRemaining(first.getPages(), receiver);
+        }
+        return first;
+    }
+
+    private void fetchRemaining(int pages, Receiver receiver) {
+        final BlockingQueue<PageResult<E>> completed = new LinkedBlockingQueue<PageResult<E>>();
+        Map<Integer, FlickrFuture<SearchResultList<E>>> inFlight =
+            new HashMap<Integer, FlickrFuture<SearchResultList<E>>>();
+        int next = 2;
+        try {
+            while (next <= pages || !inFlight.isEmpty()) {
+                while (inFlight.size() < parallelism && next <= pages && receiver.canRequest(next)) {
+                    int page = next++;
+                    inFlight.put(Integer.valueOf(page), submit(page, completed));
+                }
+                PageResult<E> result = completed.take();
+                inFlight.remove(Integer.valueOf(result.page));
+                if (result.error != null) {
+                    throw new PageFetchException(result.page, result.error);
+                }
+                receiver.received(result.page, result.list);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PageFetchException(next, e);
+        } finally {
+            for (FlickrFuture<SearchResultList<E>> future : inFlight.values()) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private FlickrFuture<SearchResultList<E>> submit(final int page,
+            final BlockingQueue<PageResult<E>> completed) {
+        return async.submit(new FlickrCall<SearchResultList<E>>() {
+            @Override
+            public SearchResultList<E> call(Flickr flickr) throws Exception {
+                return fetcher.getPage(page);
+            }
+        }, new FlickrCallback<SearchResultList<E>>() {
+            @Override
+            public void onSuccess(SearchResultList<E> result) {
+                completed.add(new PageResult<E>(page, result, null));
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+                completed.add(new PageResult<E>(page, null, error));
+            }
+        });
+    }
+
+    private static final class PageResult<E> {
+        final int page;
+        final SearchResultList<E> list;
+        final Throwable error;
+
+        PageResult(int page, SearchResultList<E> list, Throwable error) {
+            this.page = page;
+            this.list = list;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Drops the duplicates and passes the pages to the sink, in page order
+     * if requested.
+     */
+    private final class Receiver {
+        private final Sink<E> sink;
+        private final boolean ordered;
+        private final Set<Object> seen = new HashSet<Object>();
+        private final Map<Integer, SearchResultList<E>> heldBack = new HashMap<Integer, SearchResultList<E>>();
+        private int nextPage = 1;
+
+        Receiver(Sink<E> sink, boolean ordered) {
+            this.sink = sink;
+            this.ordered = ordered;
+        }
+
+        /**
+         * @return false if the page is too far ahead of the next page to
+         * pass on, it would be held back too long
+         */
+        boolean canRequest(int page) {
+            return !ordered || page - nextPage < 2L * parallelism;
+        }
+
+        void received(int page, SearchResultList<E> list) {
+            if (!ordered) {
+                deliver(page, list);
+                return;
+            }
+            heldBack.put(Integer.valueOf(page), list);
+            while (heldBack.containsKey(Integer.valueOf(nextPage))) {
+                deliver(nextPage, heldBack.remove(Integer.valueOf(nextPage)));
+                nextPage++;
+            }
+        }
+
+        private void deliver(int page, SearchResultList<E> list) {
+            List<E> elements = new ArrayList<E>(list == null ? 0 : list.size());
+            if (list != null) {
+                for (E element : list) {
+                    if (seen.add(keyExtractor == null ? element : keyExtractor.getKey(element))) {
+                        elements.add(element);
+                    }
+                }
+            }
+            sink.onPage(page, elements);
+        }
+    }
+
+}
@@ -0,0 +1,260 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Iterates over all elements of a paginated list endpoint, fetching the
+ * pages lazily as the iteration advances:
+ *
+ * <pre>
+ * PagedIterable&lt;Photo&gt; photos = flickr.getPhotosInterface().iterateSearch(params, 250);
+ * photos.setPrefetch(asyncFlickr, 2);
+ * PagedIterable.PageIterator&lt;Photo&gt; it = photos.iterator();
+ * try {
+ *     while (it.hasNext()) {
+ *         Photo photo = it.next();
+ *     }
+ * } finally {
+ *     it.close();
+ * }
+ * </pre>
+ *
+ * Without prefetch every page is fetched on the iterating thread when it is
+ * reached. With prefetch the next pages are requested through an
+ * {@link AsyncFlickr} while the current page is consumed, at most
+ * <code>depth</code> pages ahead, so a slow consumer never causes more than
+ * that many pages to be buffered. Closing the iterator cancels the pending
+ * pages and stops all further requests, an iterator reaching the end closes
+ * itself.<p>
+ *
+ * The iterator throws a {@link PageFetchException} if a page cannot be
+ * fetched. Iteration ends at the last page reported by Flickr or at the
+ * first empty page.
+ *
+ * @param <E> The type of the list elements
+ */
+public class PagedIterable<E> implements Iterable<E> {
+    private final PageFetcher<E> fetcher;
+    private AsyncFlickr async;
+    private int prefetch = 0;
+    private int startPage = 1;
+
+    /**
+     * @param fetcher Fetches the pages
+     */
+    public PagedIterable(PageFetcher<E> fetcher) {
+        super();
+        if (fetcher == null) {
+            throw new IllegalArgumentException("Fetcher must not be null");
+        }
+        this.fetcher = fetcher;
+    }
+
+    /**
+     * Fetch up to <code>depth</code> pages ahead of the page being consumed.
+     *
+     * @param async Runs the requests for the next pages, null disables prefetch
+     * @param depth The number of pages fetched ahead, 0 disables prefetch
+     */
+    public void setPrefetch(AsyncFlickr async, int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("Prefetch depth must not be negative");
+        }
+        this.async = async;
+        this.prefetch = async == null ? 0 : depth;
+    }
+
+    public int getPrefetch() {
+        return prefetch;
+    }
+
+    public int getStartPage() {
+        return startPage;
+    }
+
+    /**
+     * @param startPage The first page to fetch, 1 by default
+     */
+    public void setStartPage(int startPage) {
+        if (startPage < 1) {
+            throw new IllegalArgumentException("Pages start at 1");
+        }
+        this.startPage = startPage;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Iterable#iterator()
+     */
+    @Override
+    public PageIterator<E> iterator() {
+        return new PageIterator<E>(fetcher, async, prefetch, startPage);
+    }
+
+    /**
+     * Iterator over the elements of all pages, which should be closed if the
+     * iteration is abandoned before the end.
+     *
+     * @param <E> The type of the list elements
+     */
+    public static final class PageIterator<E> implements Iterator<E>, Closeable {
+        private final PageFetcher<E> fetcher;
+        private final AsyncFlickr async;
+        private final int prefetch;
+        private final LinkedList<FlickrFuture<SearchResultList<E>>> pending =
+            new LinkedList<FlickrFuture<SearchResultList<E>>>();
+        private int nextPage;
+        private int pages = -1;
+        private Iterator<E> current;
+        private boolean closed = false;
+        /** a page was taken, the window moves once it is consumed */
+        private boolean refill = false;
+
+        PageIterator(PageFetcher<E> fetcher, AsyncFlickr async, int prefetch, int startPage) {
+            super();
+            this.fetcher = fetcher;
+            this.async = async;
+            this.prefetch = prefetch;
+            this.nextPage = startPage;
+        }
+
+        /* (non-Javadoc)
+         * @see java.util.Iterator#hasNext()
+         */
+        @Override
+        public boolean hasNext() {
+            while (current == null || !current.hasNext()) {
+                if (closed) {
+                    return false;
+                }
+                SearchResultList<E> page = nextPage();
+                if (page == null || page.isEmpty()) {
+                    close();
+                    return false;
+                }
+                current = page.iterator();
+            }
+            return true;
+        }
+
+        /* (non-Javadoc)
+         * @see java.util.Iterator#next()
+         */
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (refill) {
+                // the page taken by hasNext() is consumed from now on
+                refill = false;
+                schedule();
+            }
+            return current.next();
+        }
+
+        /* (non-Javadoc)
+         * @see java.util.Iterator#remove()
+         */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * @return the number of pages reported by the last page fetched, -1
+         * before the first page has been fetched
+         */
+        public int getPages() {
+            return pages;
+        }
+
+        /**
+         * Stop the iteration, pending page requests are cancelled.
+         */
+        @Override
+        public void close() {
+            closed = true;
+            current = null;
+            while (!pending.isEmpty()) {
+                pending.removeFirst().cancel(true);
+            }
+        }
+
+        private boolean hasMorePages() {
+            return pages < 0 || nextPage <= pages;
+        }
+
+        private SearchResultList<E> nextPage() {
+            if (prefetch == 0) {
+                if (!hasMorePages()) {
+                    return null;
+                }
+                int page = nextPage++;
+                try {
+                    return received(fetcher.getPage(page));
+                } catch (Exception e) {
+                    close();
+                    throw new PageFetchException(page, e);
+                }
+            }
+
+            schedule();
+            if (pending.isEmpty()) {
+                return null;
+            }
+            FlickrFuture<SearchResultList<E>> future = pending.removeFirst();
+            SearchResultList<E> page;
+            try {
+                page = received(future.get());
+            } catch (ExecutionException e) {
+                close();
+                throw new PageFetchException(nextPage - pending.size() - 1, e.getCause());
+            } catch (CancellationException e) {
+                close();
+                throw new PageFetchException(nextPage - pending.size() - 1, e);
+            } catch (InterruptedException e) {
+                close();
+                Thread.currentThread().interrupt();
+                throw new PageFetchException(nextPage - pending.size() - 1, e);
+            }
+            refill = true;
+            return page;
+        }
+
+        private SearchResultList<E> received(SearchResultList<E> page) {
+            if (page != null) {
+                pages = page.getPages();
+            }
+            return page;
+        }
+
+        /**
+         * Request pages until <code>prefetch</code> pages are pending beyond
+         * the page being consumed, i.e. the page of the last element returned
+         * by {@link #next()}. Until
+         * the first page has arrived the number of pages is unknown, so only
+         * one page is requested.
+         */
+        private void schedule() {
+            while (!closed && hasMorePages() && pending.size() < prefetch
+                    && (pages >= 0 || pending.isEmpty())) {
+                final int page = nextPage++;
+                pending.addLast(async.submit(new FlickrCall<SearchResultList<E>>() {
+                    @Override
+                    public SearchResultList<E> call(Flickr flickr) throws Exception {
+                        return fetcher.getPage(page);
+                    }
+                }));
+            }
+        }
+    }
+
+}
@@ -3,35 +3,36 @@
  */
 package com.googlecode.flickrjandroid;
 
-import java.io.BufferedReader;
-import java.io.DataOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLDecoder;
+import java.nio.channels.FileChannel;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.json.JSONException;
+import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
+import com.googlecode.flickrjandroid.http.HttpRequest;
+import com.googlecode.flickrjandroid.http.HttpResponse;
+import com.googlecode.flickrjandroid.http.HttpStatusException;
+import com.googlecode.flickrjandroid.http.MultipartBody;
 import com.googlecode.flickrjandroid.oauth.OAuthUtils;
 import com.googlecode.flickrjandroid.uploader.ImageParameter;
 import com.googlecode.flickrjandroid.uploader.UploaderResponse;
 import com.googlecode.flickrjandroid.util.Base64;
 import com.googlecode.flickrjandroid.util.IOUtilities;
+import com.googlecode.flickrjandroid.util.JSONReader;
 import com.googlecode.flickrjandroid.util.StringUtilities;
 import com.googlecode.flickrjandroid.util.UrlUtilities;
 
@@ -49,27 +50,24 @@ public class REST extends Transport {
     private boolean proxyAuth = false;
     private String proxyUser = "";
     private String proxyPassword = "";
-    private DocumentBuilder builder;
 
     /**
      * Construct a new REST transport instance.
      *
-     * @throws ParserConfigurationException
+     * @throws ParserConfigurationException never, declared for compatibility
      */
     public REST() throws ParserConfigurationException {
         setTransportType(REST);
         setHost(Flickr.DEFAULT_API_HOST);
         setPath(PATH);
         setResponseClass(RESTResponse.class);
-        DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
-        builder = builderFactory.newDocumentBuilder();
     }
 
     /**
      * Construct a new REST transport instance using the specified host endpoint.
      *
      * @param host The host endpoint
-     * @throws ParserConfigurationException
+     * @throws ParserConfigurationException never, declared for compatibility
      */
     public REST(String host) throws ParserConfigurationException {
         this();
@@ -81,7 +79,7 @@ public class REST extends Transport {
      *
      * @param host The host endpoint
      * @param port The port
-     * @throws ParserConfigurationException
+     * @throws ParserConfigurationException never, declared for compatibility
      */
     public REST(String host, int port) throws ParserConfigurationException {
         this();
@@ -119,39 +117,51 @@ public class REST extends Transport {
         proxyPassword = password;
     }
 
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.Transport#createResponse(java.io.InputStream)
+     */
+    @Override
+    protected Response createResponse(InputStream in) throws IOException, JSONException {
+        if (isRetainRawResponse()) {
+            return new RESTResponse(IOUtilities.readLines(in, UTF8).trim());
+        }
+        return new RESTResponse(readJSON(in));
+    }
+
     /**
-     * Invoke an HTTP GET request on a remote host.  You must close the InputStream after you are done with.
-     *
-     * @param path The request path
-     * @param parameters The parameters (collection of Parameter objects)
-     * @return The Response
-     * @throws IOException
-     * @throws JSONException
+     * Parse the response straight from the connection, without buffering it
+     * into a String, the stream is closed.
      */
-    public Response get(String path, List<Parameter> parameters) throws IOException, JSONException {
-        parameters.add(new Parameter("nojsoncallback", "1"));
-        parameters.add(new Parameter("format", "json"));
-        String data = getLine(path, parameters);
-        return new RESTResponse(data);
+    private JSONObject readJSON(InputStream in) throws IOException, JSONException {
+        JSONReader reader = new JSONReader(new InputStreamReader(in, UTF8));
+        try {
+            return reader.readObject();
+        } finally {
+            reader.close();
+        }
     }
 
-    private InputStream getInputStream(String path, List<Parameter> parameters) throws IOException {
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.Transport#getStream(java.lang.String, java.util.List)
+     */
+    @Override
+    protected InputStream getStream(String path, List<Parameter> parameters) throws IOException {
         URL url = UrlUtilities.buildUrl(getHost(), getPort(), path, parameters);
         if (logger.isDebugEnabled()) {
             logger.debug("GET URL: {}", url.toString());
         }
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.addRequestProperty("Cache-Control", "no-cache,max-age=0"); 
-        conn.addRequestProperty("Pragma", "no-cache"); 
-        conn.setRequestMethod("GET");
+        HttpRequest request = new HttpRequest(HttpRequest.METHOD_GET, url);
+        request.setHeader("Cache-Control", "no-cache,max-age=0");
+        request.setHeader("Pragma", "no-cache");
         if (proxyAuth) {
-            conn.setRequestProperty(
+            request.setHeader(
                     "Proxy-Authorization",
                     "Basic " + getProxyCredentials()
             );
         }
-        conn.connect();
-        return conn.getInputStream();
+        HttpResponse response = getHttpEngine().execute(request);
+        checkResponseCode(response);
+        return response.getBody();
     }
 
     /**
@@ -163,22 +173,7 @@ public class REST extends Transport {
      * @throws IOException
      */
     public String getLine(String path, List<Parameter> parameters) throws IOException {
-        InputStream in = null;
-        BufferedReader rd = null;
-        try {
-            in = getInputStream(path, parameters);
-            rd = new BufferedReader(new InputStreamReader(in, OAuthUtils.ENC));
-            final StringBuffer buf = new StringBuffer();
-            String line;
-            while ((line = rd.readLine()) != null) {
-                buf.append(line);
-            }
-
-            return buf.toString();
-        } finally {
-            IOUtilities.close(in);
-            IOUtilities.close(rd);
-        }
+        return IOUtilities.readLines(getStream(path, parameters), OAuthUtils.ENC);
     }
 
     /**
@@ -218,144 +213,111 @@ public class REST extends Transport {
         if (logger.isDebugEnabled()) {
             logger.debug("Send Upload Input Params: path '{}'; parameters {}", path, parameters);
         }
-        HttpURLConnection conn = null;
-        DataOutputStream out = null;
-        String data = null;
+        HttpResponse response = null;
         try {
             URL url = UrlUtilities.buildPostUrl(getHost(), getPort(), path);
             if (logger.isDebugEnabled()) {
                 logger.debug("Post URL: {}", url.toString());
             }
-            conn = (HttpURLConnection)url.openConnection();
-            conn.setRequestMethod("POST");
-            String boundary = "---------------------------7d273f7a0d3";
-            conn.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
-            conn.setRequestProperty("Host", "api.flickr.com");
-            conn.setDoInput(true);
-            conn.setDoOutput(true);
-            conn.connect();
-            out = new DataOutputStream(conn.getOutputStream());
-            boundary = "--" + boundary;
-            out.writeBytes(boundary);
-            Iterator<?> iter = parameters.iterator();
-            while (iter.hasNext()) {
-                Parameter p = (Parameter) iter.next();
-                writeParam(p, out, boundary);
+            // the image goes last, signing no longer sorts the parameters
+            MultipartBody body = new MultipartBody("---------------------------7d273f7a0d3");
+            for (Parameter p : parameters) {
+                if (!(p instanceof ImageParameter)) {
+                    body.addText(p.getName(), (String) p.getValue());
+                }
             }
-            out.writeBytes("--\r\n\r\n");
-            out.flush();
-            out.close();
-
-            int responseCode = HttpURLConnection.HTTP_OK;
-            try {
-                responseCode = conn.getResponseCode();
-            } catch (IOException e) {
-                logger.error("Failed to get the POST response code", e);
-                if (conn.getErrorStream() != null) {
-                    responseCode = conn.getResponseCode();
+            ImageParameter image = null;
+            for (Parameter p : parameters) {
+                if (p instanceof ImageParameter) {
+                    image = (ImageParameter) p;
+                    addImage(body, image);
+                    body.setDigest(image.getDigest());
                 }
             }
-            if ((responseCode != HttpURLConnection.HTTP_OK)) {
-                String errorMessage = readFromStream(conn.getErrorStream());
-                throw new IOException("Connection Failed. Response Code: "
-                        + responseCode + ", Response Message: " + conn.getResponseMessage()
-                        + ", Error: " + errorMessage);
+
+            HttpRequest request = new HttpRequest(HttpRequest.METHOD_POST, url);
+            request.setHeader("Content-Type", body.getContentType());
+            request.setBody(body);
+            response = getHttpEngine().execute(request);
+            if (image != null && image.getDigest() != null) {
+                // the whole body was written through the digest
+                image.setDigested(true);
             }
-            UploaderResponse response = new UploaderResponse();
-            Document document = builder.parse(conn.getInputStream());
-            response.parse(document);
-            return response;
+            checkResponseCode(response);
+
+            UploaderResponse uploaderResponse = new UploaderResponse();
+            uploaderResponse.parse(response.getBody());
+            return uploaderResponse;
         } finally {
-            IOUtilities.close(out);
-            if (conn != null)
-                conn.disconnect() ;
-            if (logger.isDebugEnabled()) {
-                logger.debug("Send Upload Result: {}", data);
+            if (response != null) {
+                response.close();
             }
         }
     }
 
     public String sendPost(String path, List<Parameter> parameters) throws IOException{
-        if (logger.isDebugEnabled()) {
-            logger.debug("Send Post Input Params: path '{}'; parameters {}", path, parameters);
-        }
-        HttpURLConnection conn = null;
-        DataOutputStream out = null;
         String data = null;
         try {
-            URL url = UrlUtilities.buildPostUrl(getHost(), getPort(), path);
-            if (logger.isDebugEnabled()) {
-                logger.debug("Post URL: {}", url.toString());
-            }
-            conn = (HttpURLConnection)url.openConnection();
-            conn.setRequestMethod("POST");
-            String postParam = encodeParameters(parameters);
-            byte[] bytes = postParam.getBytes(UTF8);
-            conn.setRequestProperty("Content-Length", Integer.toString(bytes.length));
-            conn.addRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-            conn.addRequestProperty("Cache-Control", "no-cache,max-age=0"); 
-            conn.addRequestProperty("Pragma", "no-cache");
-            conn.setUseCaches(false);
-            conn.setDoOutput(true);
-            conn.setDoInput(true);
-            conn.connect();
-            out = new DataOutputStream(conn.getOutputStream());
-            out.write(bytes);
-            out.flush();
-            out.close();
-
-            int responseCode = HttpURLConnection.HTTP_OK;
-            try {
-                responseCode = conn.getResponseCode();
-            } catch (IOException e) {
-                logger.error("Failed to get the POST response code", e);
-                if (conn.getErrorStream() != null) {
-                    responseCode = conn.getResponseCode();
-                }
-            }
-            if ((responseCode != HttpURLConnection.HTTP_OK)) {
-                String errorMessage = readFromStream(conn.getErrorStream());
-                throw new IOException("Connection Failed. Response Code: "
-                        + responseCode + ", Response Message: " + conn.getResponseMessage()
-                        + ", Error: " + errorMessage);
-            }
-
-            String result = readFromStream(conn.getInputStream());
-            data = result.trim();
+            data = IOUtilities.readLines(postStream(path, parameters), UTF8).trim();
             return data;
         } finally {
-            IOUtilities.close(out);
-            if (conn != null)
-                conn.disconnect() ;
             if (logger.isDebugEnabled()) {
                 logger.debug("Send Post Result: {}", data);
             }
         }
     }
 
-    private String readFromStream(InputStream input) throws IOException {
-        BufferedReader reader = null;
-        try {
-            reader = new BufferedReader(new InputStreamReader(input));
-            StringBuffer buffer = new StringBuffer();
-            String line = null;
-            while ((line = reader.readLine()) != null) {
-                buffer.append(line);
-            }
-            return buffer.toString();
-        }finally {
-            IOUtilities.close(input);
-            IOUtilities.close(reader);
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.Transport#postStream(java.lang.String, java.util.List)
+     */
+    @Override
+    protected InputStream postStream(String path, List<Parameter> parameters) throws IOException {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Send Post Input Params: path '{}'; parameters {}", path, parameters);
         }
+        URL url = UrlUtilities.buildPostUrl(getHost(), getPort(), path);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Post URL: {}", url.toString());
+        }
+        String postParam = encodeParameters(parameters);
+        HttpRequest request = new HttpRequest(HttpRequest.METHOD_POST, url);
+        request.setHeader("Content-Type", "application/x-www-form-urlencoded");
+        request.setHeader("Cache-Control", "no-cache,max-age=0");
+        request.setHeader("Pragma", "no-cache");
+        request.setBody(postParam.getBytes(UTF8));
+        HttpResponse response = getHttpEngine().execute(request);
+        checkResponseCode(response);
+        return response.getBody();
     }
 
-    /* (non-Javadoc)
-     * @see com.googlecode.flickrjandroid.Transport#post(java.lang.String, java.util.List, boolean)
+    /**
+     * Fail with an IOException unless the response is 200 OK, the error body is
+     * part of the message.
      */
-    @Override
-    public Response post(String path, List<Parameter> parameters) throws IOException, JSONException {
-        String data = sendPost(path, parameters);
-        return new RESTResponse(data);
+    private void checkResponseCode(HttpResponse response) throws IOException {
+        int responseCode = response.getCode();
+        if (responseCode != HttpURLConnection.HTTP_OK) {
+            String errorMessage = response.readBody(UTF8);
+            throw new HttpStatusException(responseCode, "Connection Failed. Response Code: "
+                    + responseCode + ", Response Message: " + response.getMessage()
+                    + ", Error: " + errorMessage, getRetryAfter(response));
+        }
+    }
+
+    /**
+     * @return the delay in milliseconds of the <code>Retry-After</code>
+     * header, -1 if missing or given as a date
+     */
+    private static long getRetryAfter(HttpResponse response) {
+        String retryAfter = response.getHeader("Retry-After");
+        if (retryAfter != null) {
+            try {
+                return Math.max(0, Long.parseLong(retryAfter.trim())) * 1000;
+            } catch (NumberFormatException e) {
+                // HTTP date, not used by Flickr
+            }
+        }
+        return -1;
     }
 
     public boolean isProxyAuth() {
@@ -390,31 +352,19 @@ public class REST extends Transport {
         return buf.toString();
     }
     
-    private void writeParam(Parameter param, DataOutputStream out, String boundary)
-            throws IOException {
-        String name = param.getName();
-        out.writeBytes("\r\n");
-        if (param instanceof ImageParameter) {
-            ImageParameter imageParam = (ImageParameter)param; 
-            Object value = param.getValue();
-            out.writeBytes(String.format(Locale.US, "Content-Disposition: form-data; name=\"%s\"; filename=\"%s\";\r\n", name, imageParam.getImageName()));
-            out.writeBytes(String.format(Locale.US, "Content-Type: image/%s\r\n\r\n", imageParam.getImageType()));
-            if (value instanceof InputStream) {
-                InputStream in = (InputStream) value;
-                byte[] buf = new byte[512];
-                int res = -1;
-                while ((res = in.read(buf)) != -1) {
-                    out.write(buf,0,res);
-                }
-            } else if (value instanceof byte[]) {
-                out.write((byte[]) value);
-            }
+    private static void addImage(MultipartBody body, ImageParameter image) throws IOException {
+        String contentType = "image/" + image.getImageType();
+        Object value = image.getValue();
+        if (value instanceof byte[]) {
+            body.addBytes(image.getName(), image.getImageName(), contentType, (byte[]) value);
+        } else if (value instanceof File) {
+            body.addFile(image.getName(), image.getImageName(), contentType, (File) value);
+        } else if (value instanceof FileChannel) {
+            body.addChannel(image.getName(), image.getImageName(), contentType, (FileChannel) value);
+        } else if (value instanceof InputStream) {
+            body.addStream(image.getName(), image.getImageName(), contentType, (InputStream) value, -1);
         } else {
-            out.writeBytes("Content-Disposition: form-data; name=\"" + name + "\"\r\n");
-            out.writeBytes("Content-Type: text/plain; charset=UTF-8\r\n\r\n");
-            out.write(((String) param.getValue()).getBytes("UTF-8"));
+            throw new IllegalArgumentException("Unsupported image: " + value);
         }
-        out.writeBytes("\r\n");
-        out.writeBytes(boundary);
     }
 }
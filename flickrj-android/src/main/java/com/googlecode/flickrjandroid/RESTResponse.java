@@ -26,8 +26,16 @@ public class RESTResponse implements Response {
      */
     public RESTResponse(String rawResponse) throws JSONException {
         super();
-        this.rawResponse = rawResponse;
-        parse(this.rawResponse);
+        parse(rawResponse);
+    }
+
+    /**
+     * @param data The parsed response, the raw response is not available
+     * @throws JSONException
+     */
+    public RESTResponse(JSONObject data) throws JSONException {
+        super();
+        parse(data);
     }
 
     /* (non-Javadoc)
@@ -36,7 +44,11 @@ public class RESTResponse implements Response {
     @Override
     public void parse(String rawMessage) throws JSONException {
         this.rawResponse = rawMessage;
-        this.jsonObj = new JSONObject(rawMessage);
+        parse(new JSONObject(rawMessage));
+    }
+
+    private void parse(JSONObject data) throws JSONException {
+        this.jsonObj = data;
         stat = this.jsonObj.getString("stat");
         if ("ok".equals(stat)) {
             
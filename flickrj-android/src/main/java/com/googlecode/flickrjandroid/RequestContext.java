@@ -11,6 +11,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.googlecode.flickrjandroid.oauth.OAuth;
+import com.googlecode.flickrjandroid.util.StringDictionary;
 
 /**
  * A thread local variable used to hold contextual information used in requests.  To get an instance of this class use
@@ -27,6 +28,8 @@ public class RequestContext {
 
     private OAuth auth;
     private List<String> extras;
+    private StringDictionary stringDictionary;
+    private boolean lazyPhotos = false;
 
     /**
      * Get the RequestContext instance for the current Thread.
@@ -37,12 +40,41 @@ public class RequestContext {
         return (RequestContext) threadLocal.get();
     }
     
+    /**
+     * Make the given context the RequestContext of the current Thread, e.g. to
+     * run a call on a worker thread on behalf of the thread which submitted it.
+     *
+     * @param requestContext The context, null resets it
+     */
+    public static void setRequestContext(RequestContext requestContext) {
+        if (requestContext == null) {
+            resetThreadLocals();
+        } else {
+            threadLocal.set(requestContext);
+        }
+    }
+
     public static void resetThreadLocals() {
         if( threadLocal.get() != null) {
             threadLocal.remove();
         }
     }
 
+    /**
+     * @return a new context with the same OAuth, extras and parsing
+     * settings, which can be handed over to another thread
+     */
+    public RequestContext copy() {
+        RequestContext copy = new RequestContext();
+        copy.auth = auth;
+        copy.stringDictionary = stringDictionary;
+        copy.lazyPhotos = lazyPhotos;
+        if (extras != null) {
+            copy.extras = new ArrayList<String>(extras);
+        }
+        return copy;
+    }
+
     public OAuth getOAuth() {
         return auth;
     }
@@ -66,6 +98,35 @@ public class RequestContext {
         this.extras = extras;
     }
 
+    /**
+     * @return the dictionary shared by the responses parsed, or null for a
+     * new one per response
+     */
+    public StringDictionary getStringDictionary() {
+        return stringDictionary;
+    }
+
+    /**
+     * @param stringDictionary The dictionary shared by the responses parsed,
+     * e.g. by all the requests of a client, null for a new one per response
+     */
+    public void setStringDictionary(StringDictionary stringDictionary) {
+        this.stringDictionary = stringDictionary;
+    }
+
+    public boolean isLazyPhotos() {
+        return lazyPhotos;
+    }
+
+    /**
+     * @param lazyPhotos True to read the photos of the lists parsed on first
+     * access to their attributes, see
+     * {@link com.googlecode.flickrjandroid.photos.LazyPhoto}
+     */
+    public void setLazyPhotos(boolean lazyPhotos) {
+        this.lazyPhotos = lazyPhotos;
+    }
+
     private static class RequestContextThreadLocal extends ThreadLocal<RequestContext> {
 
         protected RequestContext initialValue() {
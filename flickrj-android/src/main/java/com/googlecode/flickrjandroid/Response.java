@@ -22,6 +22,10 @@ public interface Response {
     
     JSONObject getData();
     
+    /**
+     * @return the text of the response, null unless the transport retains it
+     * @see Transport#setRetainRawResponse(boolean)
+     */
     String getRawResponse();
     
 }
@@ -0,0 +1,36 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid;
+
+import java.io.IOException;
+
+import org.json.JSONException;
+
+import com.googlecode.flickrjandroid.util.JSONReader;
+
+/**
+ * Reads the payload of a response while it is streamed from the server,
+ * see {@link Transport#get(String, java.util.List, ResponseHandler)}.<p>
+ *
+ * The handler is called with each member of the response object other than
+ * <code>stat</code>, <code>code</code> and <code>message</code>, until it
+ * returns a result. Handlers hold no state and can be shared.
+ *
+ * @param <T> The type of the result
+ */
+public interface ResponseHandler<T> {
+
+    /**
+     * Read the value of a member of the response object. The value must be
+     * consumed, either read or skipped with {@link JSONReader#skipValue()}.
+     *
+     * @param name The name of the member, e.g. <code>photos</code>
+     * @param reader The reader positioned at the value
+     * @return the result, or null if the member is not the payload
+     * @throws IOException
+     * @throws JSONException
+     */
+    T handle(String name, JSONReader reader) throws IOException, JSONException;
+
+}
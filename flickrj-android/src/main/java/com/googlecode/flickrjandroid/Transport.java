@@ -3,16 +3,34 @@
  */
 package com.googlecode.flickrjandroid;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.json.JSONException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.xml.sax.SAXException;
 
+import com.googlecode.flickrjandroid.http.AbortSignal;
+import com.googlecode.flickrjandroid.http.HttpEngine;
+import com.googlecode.flickrjandroid.http.HttpStatusException;
+import com.googlecode.flickrjandroid.http.PooledHttpEngine;
 import com.googlecode.flickrjandroid.oauth.OAuthInterface;
 import com.googlecode.flickrjandroid.oauth.OAuthTokenParameter;
 import com.googlecode.flickrjandroid.oauth.OAuthUtils;
+import com.googlecode.flickrjandroid.transport.ConcurrencyLimiter;
+import com.googlecode.flickrjandroid.transport.RateLimiter;
+import com.googlecode.flickrjandroid.transport.RequestCoalescer;
+import com.googlecode.flickrjandroid.transport.ResponseCache;
+import com.googlecode.flickrjandroid.transport.RetryPolicy;
 import com.googlecode.flickrjandroid.uploader.Uploader;
+import com.googlecode.flickrjandroid.util.IOUtilities;
+import com.googlecode.flickrjandroid.util.JSONReader;
 
 /**
  * The abstract Transport class provides a common interface for transporting requests to the Flickr servers. Flickr
@@ -23,6 +41,7 @@ import com.googlecode.flickrjandroid.uploader.Uploader;
  * @author Anthony Eden
  */
 public abstract class Transport {
+    private static final Logger logger = LoggerFactory.getLogger(Transport.class);
 
     public static final String REST = "REST";
 
@@ -31,6 +50,13 @@ public abstract class Transport {
     private String path;
     private String host;
     private int port = 443;
+    private HttpEngine httpEngine;
+    private boolean retainRawResponse = false;
+    private volatile RateLimiter rateLimiter;
+    private volatile ConcurrencyLimiter concurrencyLimiter;
+    private volatile RetryPolicy retryPolicy;
+    private volatile ResponseCache responseCache;
+    private volatile RequestCoalescer requestCoalescer;
 
     public String getHost() {
         return host;
@@ -48,6 +74,98 @@ public abstract class Transport {
         this.port = port;
     }
 
+    /**
+     * @return the engine executing the HTTP requests, the shared
+     * {@link PooledHttpEngine#getDefault()} unless configured otherwise
+     */
+    public HttpEngine getHttpEngine() {
+        return httpEngine != null ? httpEngine : PooledHttpEngine.getDefault();
+    }
+
+    /**
+     * @param httpEngine The engine executing the HTTP requests, null restores the default
+     */
+    public void setHttpEngine(HttpEngine httpEngine) {
+        this.httpEngine = httpEngine;
+    }
+
+    /**
+     * @return true if the {@link Response} objects keep the raw response text
+     */
+    public boolean isRetainRawResponse() {
+        return retainRawResponse;
+    }
+
+    /**
+     * By default responses are parsed straight from the connection and
+     * {@link Response#getRawResponse()} returns null, enable this to keep
+     * the text of every response, e.g. for debugging.
+     *
+     * @param retainRawResponse True to keep the raw response text
+     */
+    public void setRetainRawResponse(boolean retainRawResponse) {
+        this.retainRawResponse = retainRawResponse;
+    }
+
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * @param rateLimiter Paces the API calls, null for no limit
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * @param concurrencyLimiter Limits the number of concurrent API calls and
+     * backs off when Flickr is overloaded, null for no limit
+     */
+    public void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * @param retryPolicy Retries the calls which failed for a transient
+     * reason, null to never retry
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * @param responseCache Keeps the responses of read-only methods, null to
+     * send every request to Flickr
+     */
+    public void setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    public RequestCoalescer getRequestCoalescer() {
+        return requestCoalescer;
+    }
+
+    /**
+     * @param requestCoalescer Shares one request between concurrent
+     * identical calls, null to send a request for every call
+     */
+    public void setRequestCoalescer(RequestCoalescer requestCoalescer) {
+        this.requestCoalescer = requestCoalescer;
+    }
+
     public String getTransportType() {
         return transportType;
     }
@@ -65,7 +183,21 @@ public abstract class Transport {
      * @throws IOException
      * @throws JSONException
      */
-    public abstract Response get(String path, List<Parameter> parameters) throws IOException, JSONException;
+    public Response get(final String path, final List<Parameter> parameters) throws IOException, JSONException {
+        parameters.add(new Parameter("nojsoncallback", "1"));
+        parameters.add(new Parameter("format", "json"));
+        try {
+            return invokeCached(path, parameters, new BodySource() {
+                @Override
+                public InputStream open() throws IOException {
+                    return getStream(path, parameters);
+                }
+            }, responseReader);
+        } catch (FlickrException e) {
+            // not thrown, Flickr errors are part of the Response
+            throw new IllegalStateException(e);
+        }
+    }
 
     /**
      * Invoke an HTTP POST request on a remote host.
@@ -76,7 +208,109 @@ public abstract class Transport {
      * @throws IOException
      * @throws JSONException
      */
-    protected abstract Response post(String path, List<Parameter> parameters) throws IOException, JSONException;
+    public Response post(final String path, final List<Parameter> parameters) throws IOException, JSONException {
+        return invokeForResponse(parameters, new Exchange<Response>() {
+            @Override
+            public Response run() throws IOException, JSONException {
+                return createResponse(postStream(path, parameters));
+            }
+        });
+    }
+
+    /**
+     * Parse a response body, the stream is closed.
+     *
+     * @param in The response body
+     * @return The Response object
+     * @throws IOException
+     * @throws JSONException
+     */
+    protected abstract Response createResponse(InputStream in) throws IOException, JSONException;
+
+    /**
+     * Invoke an HTTP GET request on a remote host and return the response body.
+     *
+     * @param path The request path
+     * @param parameters The parameters (collection of Parameter objects)
+     * @return The body, which must be closed
+     * @throws IOException
+     */
+    protected abstract InputStream getStream(String path, List<Parameter> parameters) throws IOException;
+
+    /**
+     * Invoke an HTTP POST request on a remote host and return the response body.
+     *
+     * @param path The request path
+     * @param parameters The parameters (collection of Parameter objects)
+     * @return The body, which must be closed
+     * @throws IOException
+     */
+    protected abstract InputStream postStream(String path, List<Parameter> parameters) throws IOException;
+
+    /**
+     * Invoke an HTTP GET request on a remote host and let the handler read
+     * the payload while the response is streamed, instead of building a
+     * {@link Response} holding the whole document.
+     *
+     * @param path The request path
+     * @param parameters The parameters (collection of Parameter objects)
+     * @param handler Reads the payload
+     * @return The result of the handler
+     * @throws IOException
+     * @throws JSONException if the response has no payload
+     * @throws FlickrException if Flickr returned an error
+     */
+    public <T> T get(final String path, final List<Parameter> parameters, final ResponseHandler<T> handler)
+            throws IOException, JSONException, FlickrException {
+        parameters.add(new Parameter("nojsoncallback", "1"));
+        parameters.add(new Parameter("format", "json"));
+        return invokeCached(path, parameters, new BodySource() {
+            @Override
+            public InputStream open() throws IOException {
+                return getStream(path, parameters);
+            }
+        }, new HandlerReader<T>(handler));
+    }
+
+    /**
+     * Read a streamed response, the stream is closed.
+     */
+    protected <T> T readResponse(InputStream in, ResponseHandler<T> handler)
+            throws IOException, JSONException, FlickrException {
+        JSONReader reader = new JSONReader(new InputStreamReader(in, OAuthUtils.ENC));
+        try {
+            T result = null;
+            String stat = null;
+            String errorCode = null;
+            String errorMessage = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("stat".equals(name)) {
+                    stat = reader.nextString();
+                } else if ("code".equals(name)) {
+                    errorCode = reader.nextString();
+                } else if ("message".equals(name)) {
+                    errorMessage = reader.nextString();
+                } else if (result == null) {
+                    result = handler.handle(name, reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if ("fail".equals(stat)) {
+                throw new FlickrException(errorCode, errorMessage);
+            }
+            if (result == null) {
+                // as reading the payload from the parsed response used to
+                throw new JSONException("The response has no payload");
+            }
+            return result;
+        } finally {
+            reader.close();
+        }
+    }
     
     public Response upload(String apiSharedSecret, 
             List<Parameter> parameters) throws IOException, FlickrException, SAXException {
@@ -96,8 +330,45 @@ public abstract class Transport {
     
     protected abstract Response sendUpload(String path, List<Parameter> parameters) throws IOException, FlickrException, SAXException;
     
-    public Response postJSON(String apiSharedSecret, 
-            List<Parameter> parameters) throws IOException, JSONException, FlickrException {
+    public Response postJSON(final String apiSharedSecret,
+            final List<Parameter> parameters) throws IOException, JSONException, FlickrException {
+        final boolean isOAuth = addJSONPostParams(parameters);
+        return invokeCached(OAuthInterface.PATH_REST, parameters, new BodySource() {
+            @Override
+            public InputStream open() throws IOException, FlickrException {
+                return postStream(OAuthInterface.PATH_REST, sign(apiSharedSecret, parameters, isOAuth));
+            }
+        }, responseReader);
+    }
+
+    /**
+     * Invoke a signed HTTP POST request and let the handler read the payload
+     * while the response is streamed.
+     *
+     * @param apiSharedSecret The shared secret signing the request
+     * @param parameters The parameters (collection of Parameter objects)
+     * @param handler Reads the payload
+     * @return The result of the handler
+     * @throws IOException
+     * @throws JSONException if the response has no payload
+     * @throws FlickrException if Flickr returned an error
+     * @see #get(String, List, ResponseHandler)
+     */
+    public <T> T postJSON(final String apiSharedSecret, final List<Parameter> parameters,
+            final ResponseHandler<T> handler) throws IOException, JSONException, FlickrException {
+        final boolean isOAuth = addJSONPostParams(parameters);
+        return invokeCached(OAuthInterface.PATH_REST, parameters, new BodySource() {
+            @Override
+            public InputStream open() throws IOException, FlickrException {
+                return postStream(OAuthInterface.PATH_REST, sign(apiSharedSecret, parameters, isOAuth));
+            }
+        }, new HandlerReader<T>(handler));
+    }
+
+    /**
+     * @return true if the request carries an OAuth token and must be signed
+     */
+    private boolean addJSONPostParams(List<Parameter> parameters) {
         boolean isOAuth = false;
         for (int i = parameters.size() - 1; i >= 0; i--) {
             if (parameters.get(i) instanceof OAuthTokenParameter) {
@@ -107,10 +378,267 @@ public abstract class Transport {
         }
         parameters.add(new Parameter("nojsoncallback", "1"));
         parameters.add(new Parameter("format", "json"));
-        if (isOAuth) {
-            OAuthUtils.addOAuthParams(apiSharedSecret, OAuthInterface.URL_REST, parameters);
+        return isOAuth;
+    }
+
+    /**
+     * Sign a copy of the parameters, every attempt of a call needs a nonce
+     * and timestamp of its own.
+     */
+    private List<Parameter> sign(String apiSharedSecret, List<Parameter> parameters, boolean isOAuth)
+            throws FlickrException {
+        if (!isOAuth) {
+            return parameters;
+        }
+        List<Parameter> signed = new ArrayList<Parameter>(parameters);
+        OAuthUtils.addOAuthParams(apiSharedSecret, OAuthInterface.URL_REST, signed);
+        return signed;
+    }
+
+    /**
+     * One exchange with the API, run by {@link Transport#invoke(List, Exchange)}.
+     */
+    protected interface Exchange<T> {
+        T run() throws IOException, JSONException, FlickrException;
+    }
+
+    /**
+     * Sends a request and returns the response body, for every attempt.
+     */
+    protected interface BodySource {
+        InputStream open() throws IOException, FlickrException;
+    }
+
+    /**
+     * Reads a response body and closes it.
+     */
+    protected interface BodyReader<T> {
+        T read(InputStream in) throws IOException, JSONException, FlickrException;
+    }
+
+    private final BodyReader<Response> responseReader = new BodyReader<Response>() {
+        @Override
+        public Response read(InputStream in) throws IOException, JSONException {
+            return createResponse(in);
+        }
+    };
+
+    private final class HandlerReader<T> implements BodyReader<T> {
+        private final ResponseHandler<T> handler;
+
+        HandlerReader(ResponseHandler<T> handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public T read(InputStream in) throws IOException, JSONException, FlickrException {
+            return readResponse(in, handler);
+        }
+
+        @Override
+        public int hashCode() {
+            return handler.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof HandlerReader && ((HandlerReader<?>) obj).handler.equals(handler);
+        }
+    }
+
+    /**
+     * Run an API call, answering it from the {@link ResponseCache} if the
+     * response of its method is cached. The response bodies of cached
+     * methods are read completely before they are parsed, so that they can
+     * be kept. Concurrent identical calls share one request if coalesced by
+     * the {@link RequestCoalescer}.
+     *
+     * @param path The request path, part of the cache key
+     * @param parameters The unsigned parameters of the call
+     * @param source Sends the request
+     * @param reader Reads the response body
+     * @return The result of the reader
+     * @throws IOException
+     * @throws JSONException
+     * @throws FlickrException
+     */
+    protected <T> T invokeCached(String path, final List<Parameter> parameters,
+            final BodySource source, final BodyReader<T> reader)
+            throws IOException, JSONException, FlickrException {
+        final ResponseCache cache = this.responseCache;
+        final String method = getMethod(parameters);
+        final Exchange<T> exchange;
+        if (cache == null || !cache.isCacheable(method)) {
+            exchange = new Exchange<T>() {
+                @Override
+                public T run() throws IOException, JSONException, FlickrException {
+                    return reader.read(source.open());
+                }
+            };
+        } else {
+            final String key = cache.getKey(path, parameters);
+            byte[] cached = cache.get(key);
+            if (cached != null) {
+                return reader.read(new ByteArrayInputStream(cached));
+            }
+            exchange = new Exchange<T>() {
+                @Override
+                public T run() throws IOException, JSONException, FlickrException {
+                    byte[] body = IOUtilities.readBytes(source.open());
+                    T result = reader.read(new ByteArrayInputStream(body));
+                    if (!(result instanceof Response) || !((Response) result).isError()) {
+                        cache.put(key, method, body);
+                    }
+                    return result;
+                }
+            };
+        }
+        RequestCoalescer coalescer = this.requestCoalescer;
+        if (coalescer == null || !coalescer.isCoalesced(method)) {
+            return invoke(parameters, exchange);
+        }
+        return coalescer.execute(path, parameters, reader, new RequestCoalescer.Call<T>() {
+            @Override
+            public T run() throws IOException, JSONException, FlickrException {
+                return invoke(parameters, exchange);
+            }
+        });
+    }
+
+    /**
+     * Run an API call through the rate limiter and the concurrency limiter,
+     * retrying it as allowed by the {@link RetryPolicy}. The exchange is run
+     * again for every attempt.
+     *
+     * @param parameters The parameters of the call, the <code>method</code>
+     * parameter selects the weight of the call and whether it may be retried
+     * @param exchange The exchange with the API
+     * @return The result of the exchange
+     * @throws IOException
+     * @throws JSONException
+     * @throws FlickrException
+     */
+    protected <T> T invoke(List<Parameter> parameters, Exchange<T> exchange)
+            throws IOException, JSONException, FlickrException {
+        String method = getMethod(parameters);
+        RetryPolicy retryPolicy = this.retryPolicy;
+        if (retryPolicy == null) {
+            return attempt(method, exchange);
+        }
+        retryPolicy.onCall();
+        if (!retryPolicy.isRetryable(method)) {
+            return attempt(method, exchange);
+        }
+        for (int attempt = 1; ; attempt++) {
+            Exception failure;
+            try {
+                T result = attempt(method, exchange);
+                if (!(result instanceof Response)
+                        || !retryPolicy.isRetryableErrorCode(((Response) result).getErrorCode())
+                        || !mayRetry(retryPolicy, attempt)) {
+                    return result;
+                }
+                failure = null;
+            } catch (IOException e) {
+                if (!retryPolicy.isRetryable(e) || !mayRetry(retryPolicy, attempt)) {
+                    throw e;
+                }
+                failure = e;
+            } catch (FlickrException e) {
+                if (!retryPolicy.isRetryable(e) || !mayRetry(retryPolicy, attempt)) {
+                    throw e;
+                }
+                failure = e;
+            }
+            long delay = retryPolicy.getDelay(attempt, failure);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Retrying {} in {}ms after attempt {} failed: {}",
+                        new Object[] {method, Long.valueOf(delay), Integer.valueOf(attempt), failure});
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to retry " + method);
+            }
+        }
+    }
+
+    private static boolean mayRetry(RetryPolicy retryPolicy, int attempt) {
+        if (attempt >= retryPolicy.getMaxAttempts() || Thread.currentThread().isInterrupted()) {
+            return false;
+        }
+        AbortSignal signal = AbortSignal.current();
+        if (signal != null && signal.isAborted()) {
+            return false;
+        }
+        return retryPolicy.acquireRetry();
+    }
+
+    private <T> T attempt(String method, Exchange<T> exchange)
+            throws IOException, JSONException, FlickrException {
+        RateLimiter rateLimiter = this.rateLimiter;
+        ConcurrencyLimiter concurrencyLimiter = this.concurrencyLimiter;
+        try {
+            if (rateLimiter != null) {
+                rateLimiter.acquire(method);
+            }
+            if (concurrencyLimiter != null) {
+                concurrencyLimiter.acquire();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the limiter");
+        }
+        if (concurrencyLimiter == null) {
+            return exchange.run();
+        }
+        // anything thrown but the overload signals leaves the limit unchanged
+        int outcome = ConcurrencyLimiter.FAILED;
+        try {
+            T result = exchange.run();
+            if (result instanceof Response && ((Response) result).isError()) {
+                outcome = outcome(concurrencyLimiter.isOverloadErrorCode(((Response) result).getErrorCode()));
+            } else {
+                outcome = ConcurrencyLimiter.SUCCEEDED;
+            }
+            return result;
+        } catch (HttpStatusException e) {
+            outcome = outcome(concurrencyLimiter.isOverloadStatus(e.getCode()));
+            throw e;
+        } catch (FlickrException e) {
+            outcome = outcome(concurrencyLimiter.isOverloadErrorCode(e.getErrorCode()));
+            throw e;
+        } finally {
+            concurrencyLimiter.release(outcome);
+        }
+    }
+
+    private static int outcome(boolean overloaded) {
+        return overloaded ? ConcurrencyLimiter.OVERLOADED : ConcurrencyLimiter.FAILED;
+    }
+
+    private Response invokeForResponse(List<Parameter> parameters, Exchange<Response> exchange)
+            throws IOException, JSONException {
+        try {
+            return invoke(parameters, exchange);
+        } catch (FlickrException e) {
+            // not thrown, Flickr errors are part of the Response
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param parameters The parameters of a call
+     * @return the value of the <code>method</code> parameter, or null
+     */
+    protected static String getMethod(List<Parameter> parameters) {
+        for (Parameter parameter : parameters) {
+            if ("method".equals(parameter.getName())) {
+                return String.valueOf(parameter.getValue());
+            }
         }
-        return post(OAuthInterface.PATH_REST, parameters);
+        return null;
     }
 
     /**
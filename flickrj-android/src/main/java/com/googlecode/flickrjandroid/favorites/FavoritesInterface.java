@@ -14,11 +14,15 @@ import java.util.Set;
 import org.json.JSONException;
 
 import com.googlecode.flickrjandroid.FlickrException;
+import com.googlecode.flickrjandroid.PageFetcher;
+import com.googlecode.flickrjandroid.PagedIterable;
 import com.googlecode.flickrjandroid.Parameter;
 import com.googlecode.flickrjandroid.Response;
+import com.googlecode.flickrjandroid.SearchResultList;
 import com.googlecode.flickrjandroid.Transport;
 import com.googlecode.flickrjandroid.oauth.OAuthInterface;
 import com.googlecode.flickrjandroid.oauth.OAuthUtils;
+import com.googlecode.flickrjandroid.photos.Photo;
 import com.googlecode.flickrjandroid.photos.PhotoContext;
 import com.googlecode.flickrjandroid.photos.PhotoList;
 import com.googlecode.flickrjandroid.photos.PhotoUtils;
@@ -144,11 +148,30 @@ public class FavoritesInterface {
         }
         OAuthUtils.addOAuthToken(parameters);
 
-        Response response = transportAPI.postJSON(sharedSecret, parameters);
-        if (response.isError()) {
-            throw new FlickrException(response.getErrorCode(), response.getErrorMessage());
-        }
-        return PhotoUtils.createPhotoList(response.getData());
+        return transportAPI.postJSON(sharedSecret, parameters, PhotoUtils.PHOTO_LIST_HANDLER);
+    }
+
+    /**
+     * Iterate over the favorites of the calling user or the specified user ID,
+     * the pages are fetched as the iteration advances.
+     *
+     * @param userId The optional user ID.  Null value will be ignored.
+     * @param minFaveDate The optional minimum date that a photo was favorited on.
+     * @param maxFaveDate The optional maximum date that a photo was favorited on.
+     * @param perPage The number of photos to fetch per page
+     * @param extras a Set Strings representing extra parameters to send
+     * @return The photos of all pages
+     * @see PagedIterable
+     */
+    public PagedIterable<Photo> iterateList(final String userId, final Date minFaveDate,
+            final Date maxFaveDate, final int perPage, final Set<String> extras) {
+        return new PagedIterable<Photo>(new PageFetcher<Photo>() {
+            @Override
+            public SearchResultList<Photo> getPage(int page)
+                    throws IOException, FlickrException, JSONException {
+                return getList(userId, minFaveDate, maxFaveDate, perPage, page, extras);
+            }
+        });
     }
 
     /**
@@ -191,11 +214,7 @@ public class FavoritesInterface {
             parameters.add(new Parameter("page", new Integer(page)));
         }
 
-        Response response = transportAPI.get(transportAPI.getPath(), parameters);
-        if (response.isError()) {
-            throw new FlickrException(response.getErrorCode(), response.getErrorMessage());
-        }
-        return PhotoUtils.createPhotoList(response.getData());
+        return transportAPI.get(transportAPI.getPath(), parameters, PhotoUtils.PHOTO_LIST_HANDLER);
     }
 
     /**
@@ -196,12 +196,7 @@ public class GalleriesInterface {
                     .join(extras, ","))); //$NON-NLS-1$
         }
 
-        Response response = mTransport.get(mTransport.getPath(), parameters);
-        if (response.isError()) {
-            throw new FlickrException(response.getErrorCode(),
-                    response.getErrorMessage());
-        }
-        return PhotoUtils.createPhotoList(response.getData());
+        return mTransport.get(mTransport.getPath(), parameters, PhotoUtils.PHOTO_LIST_HANDLER);
     }
     
     /**
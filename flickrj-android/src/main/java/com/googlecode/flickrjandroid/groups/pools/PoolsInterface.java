@@ -15,13 +15,17 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import com.googlecode.flickrjandroid.FlickrException;
+import com.googlecode.flickrjandroid.PageFetcher;
+import com.googlecode.flickrjandroid.PagedIterable;
 import com.googlecode.flickrjandroid.Parameter;
 import com.googlecode.flickrjandroid.Response;
+import com.googlecode.flickrjandroid.SearchResultList;
 import com.googlecode.flickrjandroid.Transport;
 import com.googlecode.flickrjandroid.groups.Group;
 import com.googlecode.flickrjandroid.oauth.OAuthInterface;
 import com.googlecode.flickrjandroid.oauth.OAuthUtils;
 import com.googlecode.flickrjandroid.photos.Extras;
+import com.googlecode.flickrjandroid.photos.Photo;
 import com.googlecode.flickrjandroid.photos.PhotoContext;
 import com.googlecode.flickrjandroid.photos.PhotoList;
 import com.googlecode.flickrjandroid.photos.PhotoUtils;
@@ -233,13 +237,35 @@ public class PoolsInterface {
 			parameters.add(new Parameter("api_key", apiKey));
 		}
 
-		Response response = signed ? transport.postJSON(sharedSecret,
-				parameters) : transport.get(transport.getPath(), parameters);
-		if (response.isError()) {
-			throw new FlickrException(response.getErrorCode(),
-					response.getErrorMessage());
-		}
-		return PhotoUtils.createPhotoList(response.getData());
+		return signed ? transport.postJSON(sharedSecret, parameters,
+				PhotoUtils.PHOTO_LIST_HANDLER) : transport.get(
+				transport.getPath(), parameters, PhotoUtils.PHOTO_LIST_HANDLER);
+	}
+
+	/**
+	 * Iterate over the photos of the specified group pool, the pages are
+	 * fetched as the iteration advances.
+	 * 
+	 * @param groupId
+	 *            The group ID
+	 * @param tags
+	 *            The optional tags (may be null)
+	 * @param extras
+	 *            Set of extra-attributes to include (may be null)
+	 * @param perPage
+	 *            The number of photos to fetch per page
+	 * @return The photos of all pages
+	 * @see PagedIterable
+	 */
+	public PagedIterable<Photo> iteratePhotos(final String groupId,
+			final String[] tags, final Set<String> extras, final int perPage) {
+		return new PagedIterable<Photo>(new PageFetcher<Photo>() {
+			@Override
+			public SearchResultList<Photo> getPage(int page)
+					throws IOException, FlickrException, JSONException {
+				return getPhotos(groupId, tags, extras, perPage, page);
+			}
+		});
 	}
 
 	/**
@@ -0,0 +1,102 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * Lets another thread abort the HTTP exchange a thread is blocked in.<p>
+ *
+ * A signal is bound to the thread running a call, the {@link HttpEngine}
+ * attaches the connection it is using while a request is in flight and
+ * detaches it once the response has been released. {@link #abort()} closes
+ * the attached connection, which unblocks any pending read or write.
+ */
+public final class AbortSignal {
+    private static final ThreadLocal<AbortSignal> CURRENT = new ThreadLocal<AbortSignal>();
+
+    private Closeable inFlight;
+    private boolean aborted;
+
+    public AbortSignal() {
+        super();
+    }
+
+    /**
+     * @return the signal bound to the current thread, or null
+     */
+    public static AbortSignal current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Bind the signal to the current thread, null unbinds it.
+     *
+     * @param signal The signal
+     */
+    public static void bind(AbortSignal signal) {
+        if (signal == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(signal);
+        }
+    }
+
+    /**
+     * Register the resource of the exchange in flight.
+     *
+     * @param resource Closed when the signal is aborted
+     * @throws InterruptedIOException if the signal has been aborted already,
+     * the resource is closed
+     */
+    public void attach(Closeable resource) throws InterruptedIOException {
+        synchronized (this) {
+            if (!aborted) {
+                inFlight = resource;
+                return;
+            }
+        }
+        closeQuietly(resource);
+        throw new InterruptedIOException("The request has been aborted");
+    }
+
+    /**
+     * @param resource The resource registered through {@link #attach(Closeable)}
+     */
+    public synchronized void detach(Closeable resource) {
+        if (inFlight == resource) {
+            inFlight = null;
+        }
+    }
+
+    /**
+     * Abort the exchange in flight, and every exchange attached later.
+     */
+    public void abort() {
+        Closeable resource;
+        synchronized (this) {
+            aborted = true;
+            resource = inFlight;
+            inFlight = null;
+        }
+        closeQuietly(resource);
+    }
+
+    public synchronized boolean isAborted() {
+        return aborted;
+    }
+
+    private static void closeQuietly(Closeable resource) {
+        if (resource != null) {
+            try {
+                resource.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+}
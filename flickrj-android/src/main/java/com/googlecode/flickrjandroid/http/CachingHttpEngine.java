@@ -0,0 +1,348 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.http;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.googlecode.flickrjandroid.util.IOUtilities;
+
+/**
+ * Keeps the responses to GET requests in a {@link DiskCache}, so images and
+ * other static content survive a restart of the process:
+ *
+ * <pre>
+ * DiskCache cache = new DiskCache(new File(context.getCacheDir(), "flickr"), 20 * 1024 * 1024);
+ * flickr.getTransport().setHttpEngine(new CachingHttpEngine(PooledHttpEngine.getDefault(), cache));
+ * </pre>
+ *
+ * A response is kept if it is 200 OK, not marked <code>no-store</code>, and
+ * either fresh for some time, by <code>Cache-Control: max-age</code>,
+ * <code>Expires</code> or its age since <code>Last-Modified</code>, or has
+ * a validator. Fresh entries are answered from the disk. Stale entries, and
+ * all entries if the request says <code>no-cache</code> as the API requests
+ * do, are revalidated with <code>If-None-Match</code> and
+ * <code>If-Modified-Since</code>, a <code>304 Not Modified</code> is then
+ * answered from the disk as well.<p>
+ *
+ * Responses are read to the disk before they are returned, and read back
+ * from a memory mapping of the file. POST requests go to the delegate.
+ */
+public class CachingHttpEngine implements HttpEngine {
+    private static final Logger logger = LoggerFactory.getLogger(CachingHttpEngine.class);
+
+    /** The longest time a response is considered fresh from its Last-Modified date */
+    private static final long MAX_HEURISTIC_AGE = 24 * 60 * 60 * 1000L;
+    private static final String HTTP_DATE = "EEE, dd MMM yyyy HH:mm:ss zzz";
+
+    private final HttpEngine delegate;
+    private final DiskCache cache;
+    private long hits = 0;
+    private long revalidated = 0;
+    private long misses = 0;
+
+    /**
+     * @param delegate The engine executing the requests which are not
+     * answered from the cache
+     * @param cache The cache to keep the responses in
+     */
+    public CachingHttpEngine(HttpEngine delegate, DiskCache cache) {
+        super();
+        if (delegate == null || cache == null) {
+            throw new IllegalArgumentException("The engine and the cache must not be null");
+        }
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.http.HttpEngine#execute(com.googlecode.flickrjandroid.http.HttpRequest)
+     */
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        if (!HttpRequest.METHOD_GET.equals(request.getMethod()) || request.getRequestBody() != null
+                || hasDirective(request.getHeader("Cache-Control"), "no-store")) {
+            return delegate.execute(request);
+        }
+        String key = request.getUrl().toString();
+        DiskCache.Entry entry = cache.get(key);
+        boolean noCache = hasDirective(request.getHeader("Cache-Control"), "no-cache")
+                || hasDirective(request.getHeader("Pragma"), "no-cache");
+        if (entry != null && !noCache && entry.isFresh(System.currentTimeMillis())) {
+            HttpResponse cached = open(entry);
+            if (cached != null) {
+                countHit(false);
+                return cached;
+            }
+            entry = null;
+        }
+
+        HttpRequest conditional = request;
+        if (entry != null && entry.hasValidator()) {
+            conditional = new HttpRequest(request.getMethod(), request.getUrl());
+            conditional.getHeaders().putAll(request.getHeaders());
+            if (entry.getEtag() != null) {
+                conditional.setHeader("If-None-Match", entry.getEtag());
+            }
+            if (entry.getLastModified() != null) {
+                conditional.setHeader("If-Modified-Since", entry.getLastModified());
+            }
+        }
+        HttpResponse response = delegate.execute(conditional);
+        if (response.getCode() == HttpURLConnection.HTTP_NOT_MODIFIED && conditional != request) {
+            response.close();
+            entry = cache.update(entry, response.getHeader("ETag"), response.getHeader("Last-Modified"),
+                    getExpires(response, entry.getLastModified()));
+            HttpResponse cached = open(entry);
+            if (cached != null) {
+                countHit(true);
+                return cached;
+            }
+            // removed in the meantime, fetch it again
+            return delegate.execute(request);
+        }
+        synchronized (this) {
+            misses++;
+        }
+        if (response.getCode() != HttpURLConnection.HTTP_OK) {
+            return response;
+        }
+        if (hasDirective(response.getHeader("Cache-Control"), "no-store")) {
+            cache.remove(key);
+            return response;
+        }
+        String lastModified = response.getHeader("Last-Modified");
+        long expires = getExpires(response, lastModified);
+        String etag = response.getHeader("ETag");
+        if ((etag == null && lastModified == null && expires - System.currentTimeMillis() <= 0)
+                || getContentLength(response) > cache.getMaxBytes()) {
+            return response;
+        }
+        return store(key, response, etag, lastModified, expires);
+    }
+
+    /**
+     * Read the body to a file and pass it to the cache.
+     *
+     * @return a response reading the body from a memory mapping of the
+     * file, which is still readable if the cache did not keep the file or
+     * another thread evicted it already
+     */
+    private HttpResponse store(String key, HttpResponse response, String etag, String lastModified,
+            long expires) throws IOException {
+        File temp = cache.createTempFile();
+        boolean complete = false;
+        InputStream in = response.getBody();
+        OutputStream out = new FileOutputStream(temp);
+        try {
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            out.close();
+            complete = true;
+        } finally {
+            IOUtilities.close(out);
+            response.close();
+            if (!complete) {
+                temp.delete();
+            }
+        }
+        InputStream body;
+        try {
+            body = DiskCache.map(temp);
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+        String contentType = response.getHeader("Content-Type");
+        DiskCache.Entry entry = cache.put(key, temp, etag, lastModified, contentType, expires);
+        if (entry == null) {
+            // too large for the cache, the mapping outlives the file
+            logger.debug("Response of {} not cached", key);
+            entry = new DiskCache.Entry(key, temp.getName(), body.available(), etag, lastModified, contentType,
+                    expires);
+        }
+        return createResponse(entry, body);
+    }
+
+    /**
+     * @return a response reading the body of the entry, or null if its file
+     * was removed since
+     */
+    private HttpResponse open(DiskCache.Entry entry) throws IOException {
+        InputStream body;
+        try {
+            body = cache.open(entry);
+        } catch (FileNotFoundException e) {
+            logger.debug("Cached body of {} is gone", entry.getKey());
+            cache.remove(entry.getKey());
+            return null;
+        }
+        return createResponse(entry, body);
+    }
+
+    private static HttpResponse createResponse(DiskCache.Entry entry, InputStream body) {
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("content-length", Long.toString(entry.getLength()));
+        if (entry.getContentType() != null) {
+            headers.put("content-type", entry.getContentType());
+        }
+        if (entry.getEtag() != null) {
+            headers.put("etag", entry.getEtag());
+        }
+        if (entry.getLastModified() != null) {
+            headers.put("last-modified", entry.getLastModified());
+        }
+        return new HttpResponse(HttpURLConnection.HTTP_OK, "OK", headers, body);
+    }
+
+    private synchronized void countHit(boolean revalidation) {
+        if (revalidation) {
+            revalidated++;
+        } else {
+            hits++;
+        }
+    }
+
+    /**
+     * @return the time in milliseconds until which the response is fresh,
+     * now if it must be revalidated every time
+     */
+    static long getExpires(HttpResponse response, String lastModified) {
+        long now = System.currentTimeMillis();
+        String cacheControl = response.getHeader("Cache-Control");
+        if (hasDirective(cacheControl, "no-cache")) {
+            return now;
+        }
+        String maxAge = getDirective(cacheControl, "max-age");
+        if (maxAge != null) {
+            try {
+                return now + Long.parseLong(maxAge) * 1000L;
+            } catch (NumberFormatException e) {
+                return now;
+            }
+        }
+        String expires = response.getHeader("Expires");
+        if (expires != null) {
+            long time = parseDate(expires);
+            return time > 0 ? time : now;
+        }
+        long modified = lastModified != null ? parseDate(lastModified) : 0;
+        if (modified > 0 && modified < now) {
+            // a tenth of the age of the content, as browsers do
+            return now + Math.min((now - modified) / 10, MAX_HEURISTIC_AGE);
+        }
+        return now;
+    }
+
+    private static long getContentLength(HttpResponse response) {
+        String length = response.getHeader("Content-Length");
+        if (length != null) {
+            try {
+                return Long.parseLong(length.trim());
+            } catch (NumberFormatException e) {
+                // unknown
+            }
+        }
+        return -1;
+    }
+
+    static boolean hasDirective(String header, String directive) {
+        if (header != null) {
+            for (String token : header.split(",")) {
+                if (token.trim().equalsIgnoreCase(directive)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String getDirective(String header, String directive) {
+        if (header != null) {
+            for (String token : header.split(",")) {
+                int eq = token.indexOf('=');
+                if (eq > 0 && token.substring(0, eq).trim().equalsIgnoreCase(directive)) {
+                    return token.substring(eq + 1).trim();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the time of a HTTP date in milliseconds, 0 if not a date
+     */
+    static long parseDate(String date) {
+        SimpleDateFormat format = new SimpleDateFormat(HTTP_DATE, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return format.parse(date.trim()).getTime();
+        } catch (ParseException e) {
+            return 0;
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.http.HttpEngine#shutdown()
+     */
+    @Override
+    public void shutdown() {
+        cache.flush();
+        delegate.shutdown();
+    }
+
+    public HttpEngine getDelegate() {
+        return delegate;
+    }
+
+    public DiskCache getCache() {
+        return cache;
+    }
+
+    /**
+     * @return the number of requests answered from fresh entries
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of requests answered from entries revalidated with
+     * a 304 Not Modified
+     */
+    public synchronized long getRevalidated() {
+        return revalidated;
+    }
+
+    /**
+     * @return the number of requests answered with a full response
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CachingHttpEngine [hits=" + hits + ", revalidated=" + revalidated + ", misses=" + misses
+            + ", cache=" + cache + "]";
+    }
+
+}
@@ -0,0 +1,54 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.http;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a request body of unknown length with the chunked transfer coding,
+ * one chunk per write. The stream of the connection is not closed.
+ */
+final class ChunkedOutputStream extends FilterOutputStream {
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    ChunkedOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            // an empty chunk would end the body
+            return;
+        }
+        out.write(Integer.toHexString(len).getBytes("ISO-8859-1"));
+        out.write(CRLF);
+        out.write(b, off, len);
+        out.write(CRLF);
+    }
+
+    /**
+     * Write the last chunk, ending the body.
+     *
+     * @throws IOException
+     */
+    void finish() throws IOException {
+        out.write('0');
+        out.write(CRLF);
+        out.write(CRLF);
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+    }
+
+}
@@ -0,0 +1,202 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decompresses a response body sent with the gzip or deflate content coding
+ * while it is read, counting the bytes received and the bytes decoded. The
+ * counts are added to a {@link TransferMeter} once the body is read to the
+ * end or closed.
+ */
+final class DecodingInputStream extends InputStream {
+    private static final Logger logger = LoggerFactory.getLogger(DecodingInputStream.class);
+
+    /** The value of the Accept-Encoding header sent by the engines */
+    static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final PushbackInputStream wire;
+    private final String encoding;
+    private final TransferMeter meter;
+    private final Object request;
+    /** The buffer of {@link #read()} */
+    private final byte[] single = new byte[1];
+    private InputStream decoded;
+    private Inflater inflater;
+    private long wireBytes = 0;
+    private long decodedBytes = 0;
+    private boolean recorded = false;
+
+    private DecodingInputStream(InputStream body, String encoding, TransferMeter meter, Object request) {
+        super();
+        this.wire = new PushbackInputStream(new CountingInputStream(body), 2);
+        this.encoding = encoding;
+        this.meter = meter;
+        this.request = request;
+    }
+
+    /**
+     * Decode the body of a response to a request sent with
+     * {@link #ACCEPT_ENCODING}. The Content-Encoding and Content-Length
+     * headers of a compressed response are removed, as they do not apply to
+     * the decoded body.
+     *
+     * @param response The response as received
+     * @param meter Counts the bytes of the body
+     * @param request The request, for logging
+     * @return the response with a decoded body
+     */
+    static HttpResponse decode(HttpResponse response, TransferMeter meter, Object request) {
+        String encoding = response.getHeader("Content-Encoding");
+        encoding = encoding == null ? null : encoding.trim().toLowerCase(Locale.US);
+        Map<String, String> headers = response.getHeaders();
+        if ("gzip".equals(encoding) || "x-gzip".equals(encoding) || "deflate".equals(encoding)) {
+            headers = new HashMap<String, String>(headers);
+            headers.remove("content-encoding");
+            headers.remove("content-length");
+        } else {
+            encoding = null;
+        }
+        return new HttpResponse(response.getCode(), response.getMessage(), headers,
+                new DecodingInputStream(response.getBody(), encoding, meter, request));
+    }
+
+    private InputStream decoded() throws IOException {
+        if (decoded == null) {
+            int first = encoding == null ? -1 : wire.read();
+            if (first == -1) {
+                // an empty body has no gzip header
+                decoded = wire;
+            } else if (encoding.equals("deflate")) {
+                int second = wire.read();
+                // the zlib wrapper is often left out
+                boolean zlib = second != -1 && (first & 0x0f) == 8 && ((first << 8) | second) % 31 == 0;
+                if (second != -1) {
+                    wire.unread(second);
+                }
+                wire.unread(first);
+                inflater = new Inflater(!zlib);
+                decoded = new InflaterInputStream(wire, inflater, BUFFER_SIZE);
+            } else {
+                wire.unread(first);
+                decoded = new GZIPInputStream(wire, BUFFER_SIZE);
+            }
+        }
+        return decoded;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int n = read(single, 0, 1);
+        return n == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        int n = decoded().read(b, off, len);
+        if (n == -1) {
+            if (decoded != wire) {
+                // read the rest of the entity, so the connection is released
+                byte[] rest = new byte[256];
+                while (wire.read(rest) != -1) {
+                    // nothing
+                }
+            }
+            record();
+        } else {
+            decodedBytes += n;
+        }
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return decoded == null ? 0 : decoded.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        record();
+        try {
+            if (decoded != null) {
+                decoded.close();
+            } else {
+                wire.close();
+            }
+        } finally {
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+    }
+
+    private void record() {
+        if (!recorded) {
+            recorded = true;
+            meter.record(wireBytes, decodedBytes, encoding != null);
+            if (encoding != null && logger.isDebugEnabled()) {
+                logger.debug("{}: {} bytes {}, {} bytes decoded", new Object[] {request, Long.valueOf(wireBytes),
+                        encoding, Long.valueOf(decodedBytes)});
+            }
+        }
+    }
+
+    long getWireBytes() {
+        return wireBytes;
+    }
+
+    long getDecodedBytes() {
+        return decodedBytes;
+    }
+
+    private final class CountingInputStream extends FilterInputStream {
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b != -1) {
+                wireBytes++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                wireBytes += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            wireBytes += skipped;
+            return skipped;
+        }
+    }
+
+}
@@ -0,0 +1,497 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.http;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.googlecode.flickrjandroid.util.IOUtilities;
+
+/**
+ * Keeps response bodies in files of a directory, together with the
+ * validators needed to revalidate them, within a size budget. The least
+ * recently used files are deleted once the budget is exceeded.<p>
+ *
+ * The entries are listed in an index file, so opening the cache reads one
+ * small file instead of every entry. The index is written after a number of
+ * changes and by {@link #flush()}, files written after the last index are
+ * not known to the next process and are deleted when it opens the cache.<p>
+ *
+ * Bodies are read back through a memory mapping of the file, without
+ * copying them into the heap first. See {@link CachingHttpEngine} for the
+ * HTTP caching rules.
+ */
+public class DiskCache {
+    private static final Logger logger = LoggerFactory.getLogger(DiskCache.class);
+
+    static final String INDEX = "index";
+    private static final String INDEX_HEADER = "flickrj-disk-cache 1";
+    private static final String TEMP_SUFFIX = ".tmp";
+    /** The number of changes after which the index is written */
+    private static final int INDEX_INTERVAL = 16;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final File directory;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private long bytes = 0;
+    private int changes = 0;
+    private long evictions = 0;
+
+    /**
+     * Open the cache in a directory, reading its index.
+     *
+     * @param directory The directory of the cache, created if missing. It
+     * must not be used by anything else.
+     * @param maxBytes The maximum size of the cached bodies
+     * @throws IOException if the directory can not be created
+     */
+    public DiskCache(File directory, long maxBytes) throws IOException {
+        super();
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("The cache must hold at least one byte");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create cache directory " + directory);
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        readIndex();
+    }
+
+    private void readIndex() {
+        File index = new File(directory, INDEX);
+        if (index.isFile()) {
+            Reader in = null;
+            try {
+                in = new InputStreamReader(new FileInputStream(index), "UTF-8");
+                BufferedReader reader = new BufferedReader(in);
+                if (INDEX_HEADER.equals(reader.readLine())) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        Entry entry = Entry.parse(line);
+                        if (entry != null) {
+                            entries.put(entry.key, entry);
+                            bytes += entry.length;
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                logger.warn("Cannot read cache index {}, starting empty", index, e);
+                entries.clear();
+                bytes = 0;
+            } finally {
+                IOUtilities.close(in);
+            }
+        }
+        // files not in the index were written after it, or are left over
+        Set<String> known = new HashSet<String>();
+        known.add(INDEX);
+        for (Entry entry : entries.values()) {
+            known.add(entry.file);
+        }
+        String[] names = directory.list();
+        if (names != null) {
+            for (String name : names) {
+                if (!known.contains(name)) {
+                    new File(directory, name).delete();
+                }
+            }
+        }
+        trim();
+        if (changes > 0) {
+            // the evicted entries must not be listed by the index anymore
+            flush();
+        }
+    }
+
+    /**
+     * @param key The key of the entry, usually the URL
+     * @return the entry, or null if not cached
+     */
+    public synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Open the body of an entry. The file is mapped into memory, reading the
+     * stream does not copy it into the heap first.
+     *
+     * @param entry An entry of the cache
+     * @return the body of the entry
+     * @throws IOException if the file was removed since
+     */
+    public InputStream open(Entry entry) throws IOException {
+        return map(getFile(entry));
+    }
+
+    /**
+     * @return a stream reading a memory mapping of the file, which stays
+     * readable once the file is deleted
+     */
+    static InputStream map(File body) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(body, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedInputStream(buffer);
+        } finally {
+            // the mapping stays valid once the file is closed
+            file.close();
+        }
+    }
+
+    /**
+     * Copy the body of an entry to a channel, e.g. a socket or another file,
+     * letting the operating system transfer the bytes.
+     *
+     * @param entry An entry of the cache
+     * @param target The channel to write to
+     * @return the number of bytes transferred
+     * @throws IOException
+     */
+    public long transferTo(Entry entry, WritableByteChannel target) throws IOException {
+        FileInputStream in = new FileInputStream(getFile(entry));
+        try {
+            FileChannel channel = in.getChannel();
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
+            }
+            return position;
+        } finally {
+            IOUtilities.close(in);
+        }
+    }
+
+    /**
+     * @return a new file of the cache directory to write a body to, before
+     * it is passed to {@link #put(String, File, String, String, String, long)}
+     * @throws IOException
+     */
+    public File createTempFile() throws IOException {
+        return File.createTempFile("body", TEMP_SUFFIX, directory);
+    }
+
+    /**
+     * Add or replace an entry. The body file is moved into the cache, and is
+     * deleted if it is larger than the cache.
+     *
+     * @param key The key of the entry, usually the URL
+     * @param body A file created by {@link #createTempFile()}
+     * @param etag The ETag of the response, may be null
+     * @param lastModified The Last-Modified header of the response, may be null
+     * @param contentType The Content-Type of the response, may be null
+     * @param expires The time in milliseconds until which the entry is fresh
+     * @return the entry, or null if it was not kept
+     */
+    public synchronized Entry put(String key, File body, String etag, String lastModified,
+            String contentType, long expires) {
+        long length = body.length();
+        remove(key);
+        if (length > maxBytes) {
+            body.delete();
+            return null;
+        }
+        Entry entry = new Entry(key, toFileName(key), length, etag, lastModified, contentType, expires);
+        File file = getFile(entry);
+        if (!body.renameTo(file)) {
+            file.delete();
+            if (!body.renameTo(file)) {
+                logger.warn("Cannot move {} to {}", body, file);
+                body.delete();
+                return null;
+            }
+        }
+        entries.put(key, entry);
+        bytes += length;
+        trim();
+        changed();
+        return entry;
+    }
+
+    /**
+     * Replace the validators and the freshness of an entry after it was
+     * revalidated, keeping its body.
+     *
+     * @param entry The revalidated entry
+     * @param etag The new ETag, null to keep the previous one
+     * @param lastModified The new Last-Modified header, null to keep the previous one
+     * @param expires The time in milliseconds until which the entry is fresh
+     * @return the updated entry
+     */
+    public synchronized Entry update(Entry entry, String etag, String lastModified, long expires) {
+        Entry updated = new Entry(entry.key, entry.file, entry.length,
+                etag != null ? etag : entry.etag,
+                lastModified != null ? lastModified : entry.lastModified,
+                entry.contentType, expires);
+        if (entries.get(entry.key) == entry) {
+            entries.put(entry.key, updated);
+            changed();
+        }
+        return updated;
+    }
+
+    /**
+     * Remove an entry and delete its body.
+     *
+     * @param key The key of the entry
+     */
+    public synchronized void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            bytes -= entry.length;
+            getFile(entry).delete();
+            changed();
+        }
+    }
+
+    private void trim() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            Entry entry = eldest.next();
+            eldest.remove();
+            bytes -= entry.length;
+            getFile(entry).delete();
+            evictions++;
+            changed();
+        }
+    }
+
+    private void changed() {
+        if (++changes >= INDEX_INTERVAL) {
+            flush();
+        }
+    }
+
+    /**
+     * Write the index, so that the entries are known to the next process.
+     */
+    public synchronized void flush() {
+        File temp = new File(directory, INDEX + TEMP_SUFFIX);
+        Writer out = null;
+        try {
+            out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), "UTF-8"));
+            out.write(INDEX_HEADER);
+            out.write('\n');
+            // eldest first, the order is restored when read
+            for (Entry entry : entries.values()) {
+                entry.write(out);
+                out.write('\n');
+            }
+            out.close();
+            out = null;
+            File index = new File(directory, INDEX);
+            if (!temp.renameTo(index)) {
+                index.delete();
+                if (!temp.renameTo(index)) {
+                    throw new IOException("Cannot move " + temp + " to " + index);
+                }
+            }
+            changes = 0;
+        } catch (IOException e) {
+            logger.warn("Cannot write cache index", e);
+        } finally {
+            IOUtilities.close(out);
+        }
+    }
+
+    /**
+     * Remove all entries and delete their bodies.
+     */
+    public synchronized void clear() {
+        for (Entry entry : entries.values()) {
+            getFile(entry).delete();
+        }
+        entries.clear();
+        bytes = 0;
+        flush();
+    }
+
+    File getFile(Entry entry) {
+        return new File(directory, entry.file);
+    }
+
+    private static String toFileName(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes("UTF-8"));
+            char[] name = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                name[2 * i] = HEX[(digest[i] >> 4) & 0xf];
+                name[2 * i + 1] = HEX[digest[i] & 0xf];
+            }
+            return new String(name);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the size of the cached bodies
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the number of entries evicted to make room
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "DiskCache [directory=" + directory + ", entries=" + entries.size() + ", bytes=" + bytes
+            + ", evictions=" + evictions + "]";
+    }
+
+    /**
+     * A cached body and the headers needed to revalidate it. Entries are
+     * immutable, they are replaced when revalidated.
+     */
+    public static final class Entry {
+        final String key;
+        final String file;
+        final long length;
+        final String etag;
+        final String lastModified;
+        final String contentType;
+        final long expires;
+
+        Entry(String key, String file, long length, String etag, String lastModified,
+                String contentType, long expires) {
+            this.key = key;
+            this.file = file;
+            this.length = length;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.contentType = contentType;
+            this.expires = expires;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * @return the time in milliseconds until which the entry is fresh
+         */
+        public long getExpires() {
+            return expires;
+        }
+
+        /**
+         * @param now The current time in milliseconds
+         * @return true if the entry may be used without revalidating it
+         */
+        public boolean isFresh(long now) {
+            return expires - now > 0;
+        }
+
+        /**
+         * @return true if the entry can be revalidated by a conditional request
+         */
+        public boolean hasValidator() {
+            return etag != null || lastModified != null;
+        }
+
+        void write(Writer out) throws IOException {
+            out.write(file);
+            out.write('\t');
+            out.write(Long.toString(length));
+            out.write('\t');
+            out.write(Long.toString(expires));
+            out.write('\t');
+            out.write(etag != null ? etag : "");
+            out.write('\t');
+            out.write(lastModified != null ? lastModified : "");
+            out.write('\t');
+            out.write(contentType != null ? contentType : "");
+            out.write('\t');
+            out.write(key);
+        }
+
+        static Entry parse(String line) {
+            String[] fields = line.split("\t", 7);
+            if (fields.length != 7) {
+                return null;
+            }
+            try {
+                return new Entry(fields[6], fields[0], Long.parseLong(fields[1]),
+                        emptyToNull(fields[3]), emptyToNull(fields[4]), emptyToNull(fields[5]),
+                        Long.parseLong(fields[2]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        private static String emptyToNull(String value) {
+            return value.length() == 0 ? null : value;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry [key=" + key + ", length=" + length + ", etag=" + etag
+                + ", lastModified=" + lastModified + ", expires=" + expires + "]";
+        }
+    }
+
+}
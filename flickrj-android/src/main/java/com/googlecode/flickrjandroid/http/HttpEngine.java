@@ -0,0 +1,38 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.http;
+
+import java.io.IOException;
+
+/**
+ * The low level HTTP client used by a {@link com.googlecode.flickrjandroid.Transport}
+ * to exchange requests with the Flickr servers.<p>
+ *
+ * Implementations must be thread safe, one engine is normally shared by every
+ * transport of the application. The caller must close the returned
+ * {@link HttpResponse} (or read its body to the end) so that the underlying
+ * connection can be reused.
+ *
+ * @see PooledHttpEngine
+ * @see UrlConnectionHttpEngine
+ * @see CachingHttpEngine
+ */
+public interface HttpEngine {
+
+    /**
+     * Execute the given request and return the response once the status line
+     * and the headers have been received.
+     *
+     * @param request The request
+     * @return The response, the body has not been read yet
+     * @throws IOException
+     */
+    HttpResponse execute(HttpRequest request) throws IOException;
+
+    /**
+     * Release all the resources held by this engine, e.g. pooled connections.
+     */
+    void shutdown();
+
+}
@@ -0,0 +1,106 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.http;
+
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A request to be executed by a {@link HttpEngine}.
+ */
+public class HttpRequest {
+    public static final String METHOD_GET = "GET";
+    public static final String METHOD_POST = "POST";
+
+    private final String method;
+    private final URL url;
+    private final Map<String, String> headers = new LinkedHashMap<String, String>();
+    private RequestBody body;
+
+    /**
+     * @param method The request method, GET or POST
+     * @param url The absolute URL
+     */
+    public HttpRequest(String method, URL url) {
+        super();
+        if (method == null || url == null) {
+            throw new IllegalArgumentException("The request method and URL must not be null");
+        }
+        this.method = method;
+        this.url = url;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public URL getUrl() {
+        return url;
+    }
+
+    /**
+     * Set a request header, replacing any previous value with the same name.
+     *
+     * @param name The header name
+     * @param value The header value
+     * @return this request
+     */
+    public HttpRequest setHeader(String name, String value) {
+        headers.put(name, value);
+        return this;
+    }
+
+    public String getHeader(String name) {
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(name)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return the request entity if it was set as an array, otherwise null
+     * @see #getRequestBody()
+     */
+    public byte[] getBody() {
+        return body instanceof RequestBody.ByteArrayBody ? ((RequestBody.ByteArrayBody) body).content : null;
+    }
+
+    /**
+     * @param body The request entity, sent with a Content-Length header
+     * @return this request
+     */
+    public HttpRequest setBody(byte[] body) {
+        this.body = body == null ? null : RequestBody.create(body);
+        return this;
+    }
+
+    public RequestBody getRequestBody() {
+        return body;
+    }
+
+    /**
+     * @param body The request entity, written to the connection by the engine
+     * @return this request
+     */
+    public HttpRequest setBody(RequestBody body) {
+        this.body = body;
+        return this;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return method + " " + url;
+    }
+
+}
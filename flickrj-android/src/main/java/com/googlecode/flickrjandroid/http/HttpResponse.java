@@ -0,0 +1,112 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+
+import com.googlecode.flickrjandroid.util.IOUtilities;
+
+/**
+ * The status, headers and body of a response returned by a {@link HttpEngine}.<p>
+ *
+ * The body must be closed once it is no longer needed, reading it to the end
+ * or calling {@link #close()} hands the connection back to the engine.
+ */
+public class HttpResponse {
+
+    private final int code;
+    private final String message;
+    private final Map<String, String> headers;
+    private final InputStream body;
+
+    /**
+     * @param code The HTTP status code
+     * @param message The reason phrase
+     * @param headers The response headers, keyed by lower case header name
+     * @param body The response body, may be null for responses without entity
+     */
+    public HttpResponse(int code, String message, Map<String, String> headers, InputStream body) {
+        super();
+        this.code = code;
+        this.message = message;
+        this.headers = headers != null ? headers : Collections.<String, String>emptyMap();
+        this.body = body != null ? body : new ByteArrayInputStream(new byte[0]);
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * @param name The case insensitive header name
+     * @return the header value, multiple values are joined with a comma
+     */
+    public String getHeader(String name) {
+        return headers.get(name.toLowerCase(Locale.US));
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public InputStream getBody() {
+        return body;
+    }
+
+    /**
+     * @return the bytes of the body received so far, as sent on the wire,
+     * or -1 if not counted by the engine
+     */
+    public long getWireBytes() {
+        return body instanceof DecodingInputStream ? ((DecodingInputStream) body).getWireBytes() : -1;
+    }
+
+    /**
+     * @return the bytes of the body read so far, after decompression, or -1
+     * if not counted by the engine
+     */
+    public long getDecodedBytes() {
+        return body instanceof DecodingInputStream ? ((DecodingInputStream) body).getDecodedBytes() : -1;
+    }
+
+    /**
+     * Release the response body and its connection.
+     */
+    public void close() {
+        IOUtilities.close(body);
+    }
+
+    /**
+     * Read the entity into a String and close the response.
+     *
+     * @param charset The charset of the entity
+     * @return the entity with line terminators removed
+     * @throws IOException
+     */
+    public String readBody(String charset) throws IOException {
+        try {
+            return IOUtilities.readLines(body, charset);
+        } finally {
+            close();
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "HttpResponse [code=" + code + ", message=" + message + "]";
+    }
+
+}
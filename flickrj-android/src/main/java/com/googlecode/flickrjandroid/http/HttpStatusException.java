@@ -0,0 +1,48 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.http;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the server answers with an unexpected HTTP status code.
+ */
+public class HttpStatusException extends IOException {
+    private static final long serialVersionUID = 4105872294137716829L;
+
+    private final int code;
+    private final long retryAfter;
+
+    public HttpStatusException(int code, String message) {
+        this(code, message, -1);
+    }
+
+    /**
+     * @param code The HTTP status code
+     * @param message The detail message
+     * @param retryAfter The time in milliseconds the server asked to wait
+     * before the next request, -1 if not given
+     */
+    public HttpStatusException(int code, String message, long retryAfter) {
+        super(message);
+        this.code = code;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return the HTTP status code
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * @return the time in milliseconds given by the <code>Retry-After</code>
+     * header, -1 if there was none
+     */
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+
+}
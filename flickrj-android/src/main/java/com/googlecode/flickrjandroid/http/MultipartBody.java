@@ -0,0 +1,351 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.http;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.googlecode.flickrjandroid.util.IOUtilities;
+
+/**
+ * A <code>multipart/form-data</code> entity, whose file parts are read
+ * while the body is written rather than held in memory. The length of the
+ * entity is computed up front from the lengths of the files, so the engines
+ * send it with a Content-Length and no buffering. Only a part from an
+ * InputStream of unknown length makes the body chunked.<p>
+ *
+ * Files and channels are copied through one buffer of
+ * {@link #BUFFER_SIZE} bytes, reusing it for the whole body. With a
+ * {@link #setDigest(MessageDigest) digest}, the content of the file parts is
+ * hashed while it is written.
+ */
+public class MultipartBody extends RequestBody {
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String UTF8 = "UTF-8";
+
+    private final String boundary;
+    private final List<Part> parts = new ArrayList<Part>();
+    private MessageDigest digest;
+
+    /**
+     * @param boundary The boundary, which must not occur in any part
+     */
+    public MultipartBody(String boundary) {
+        super();
+        this.boundary = boundary;
+    }
+
+    /**
+     * @return the Content-Type header of the body
+     */
+    public String getContentType() {
+        return "multipart/form-data; boundary=" + boundary;
+    }
+
+    public MessageDigest getDigest() {
+        return digest;
+    }
+
+    /**
+     * @param digest Updated with the content of the file parts every time the
+     * body is written, after being reset
+     */
+    public void setDigest(MessageDigest digest) {
+        this.digest = digest;
+    }
+
+    /**
+     * @param name The field name
+     * @param value The field value
+     * @return this body
+     */
+    public MultipartBody addText(String name, String value) {
+        parts.add(new BytesPart(header(name, null, "text/plain; charset=UTF-8"), false, toBytes(value)));
+        return this;
+    }
+
+    /**
+     * @param name The field name
+     * @param filename The file name
+     * @param contentType The content type of the file
+     * @param data The file content
+     * @return this body
+     */
+    public MultipartBody addBytes(String name, String filename, String contentType, byte[] data) {
+        parts.add(new BytesPart(header(name, filename, contentType), true, data));
+        return this;
+    }
+
+    /**
+     * Add a file, which is opened when the body is written.
+     *
+     * @param name The field name
+     * @param filename The file name sent
+     * @param contentType The content type of the file
+     * @param file The file
+     * @return this body
+     */
+    public MultipartBody addFile(String name, String filename, String contentType, File file) {
+        parts.add(new FilePart(header(name, filename, contentType), file));
+        return this;
+    }
+
+    /**
+     * Add the content of a channel from its current position to its end.
+     * The position of the channel is not changed, and the channel is not
+     * closed.
+     *
+     * @param name The field name
+     * @param filename The file name sent
+     * @param contentType The content type of the file
+     * @param channel The channel
+     * @return this body
+     * @throws IOException if the size of the channel can not be read
+     */
+    public MultipartBody addChannel(String name, String filename, String contentType, FileChannel channel)
+            throws IOException {
+        long position = channel.position();
+        parts.add(new ChannelPart(header(name, filename, contentType), channel, position, channel.size() - position));
+        return this;
+    }
+
+    /**
+     * Add the content of a stream, which can only be written once.
+     *
+     * @param name The field name
+     * @param filename The file name sent
+     * @param contentType The content type of the file
+     * @param in The stream, read to the end but not closed
+     * @param length The number of bytes of the stream, -1 if not known
+     * @return this body
+     */
+    public MultipartBody addStream(String name, String filename, String contentType, InputStream in, long length) {
+        parts.add(new StreamPart(header(name, filename, contentType), in, length));
+        return this;
+    }
+
+    private byte[] header(String name, String filename, String contentType) {
+        StringBuilder header = new StringBuilder("\r\nContent-Disposition: form-data; name=\"").append(name).append('"');
+        if (filename != null) {
+            header.append("; filename=\"").append(filename).append("\";");
+        }
+        header.append("\r\nContent-Type: ").append(contentType).append("\r\n\r\n");
+        return toBytes(header.toString());
+    }
+
+    private static byte[] toBytes(String value) {
+        try {
+            return value.getBytes(UTF8);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private byte[] separator() {
+        return toBytes("--" + boundary);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.http.RequestBody#getContentLength()
+     */
+    @Override
+    public long getContentLength() {
+        int separator = separator().length;
+        // --boundary ... --\r\n\r\n
+        long length = separator + 6;
+        for (Part part : parts) {
+            long content = part.length();
+            if (content < 0) {
+                return -1;
+            }
+            length += part.header.length + content + 2 + separator;
+        }
+        return length;
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.http.RequestBody#isRepeatable()
+     */
+    @Override
+    public boolean isRepeatable() {
+        for (Part part : parts) {
+            if (part instanceof StreamPart) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.http.RequestBody#writeTo(java.io.OutputStream)
+     */
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        byte[] separator = separator();
+        // the end of a part and the next separator in one write, not one chunk per byte
+        byte[] next = toBytes("\r\n--" + boundary);
+        byte[] buffer = null;
+        OutputStream hashed = out;
+        if (digest != null) {
+            digest.reset();
+            hashed = new DigestOutputStream(out, digest);
+        }
+        out.write(separator);
+        for (Part part : parts) {
+            out.write(part.header);
+            if (part instanceof BytesPart) {
+                (part.file ? hashed : out).write(((BytesPart) part).data);
+            } else {
+                if (buffer == null) {
+                    buffer = new byte[BUFFER_SIZE];
+                }
+                part.writeContent(hashed, buffer);
+            }
+            out.write(next);
+        }
+        out.write(toBytes("--\r\n\r\n"));
+    }
+
+    private static void copy(FileChannel channel, long position, long length, OutputStream out, byte[] buffer)
+            throws IOException {
+        ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+        long end = position + length;
+        while (position < end) {
+            wrapped.clear();
+            if (end - position < buffer.length) {
+                wrapped.limit((int) (end - position));
+            }
+            int count = channel.read(wrapped, position);
+            if (count < 0) {
+                throw new IOException("The file was truncated while it was sent");
+            }
+            out.write(buffer, 0, count);
+            position += count;
+        }
+    }
+
+    private abstract static class Part {
+        final byte[] header;
+        /** false for a text field */
+        final boolean file;
+
+        Part(byte[] header, boolean file) {
+            this.header = header;
+            this.file = file;
+        }
+
+        abstract long length();
+
+        abstract void writeContent(OutputStream out, byte[] buffer) throws IOException;
+    }
+
+    private static final class BytesPart extends Part {
+        final byte[] data;
+
+        BytesPart(byte[] header, boolean file, byte[] data) {
+            super(header, file);
+            this.data = data;
+        }
+
+        @Override
+        long length() {
+            return data.length;
+        }
+
+        @Override
+        void writeContent(OutputStream out, byte[] buffer) throws IOException {
+            out.write(data);
+        }
+    }
+
+    private static final class FilePart extends Part {
+        final File file;
+        final long length;
+
+        FilePart(byte[] header, File file) {
+            super(header, true);
+            this.file = file;
+            this.length = file.length();
+        }
+
+        @Override
+        long length() {
+            return length;
+        }
+
+        @Override
+        void writeContent(OutputStream out, byte[] buffer) throws IOException {
+            FileInputStream in = new FileInputStream(file);
+            try {
+                copy(in.getChannel(), 0, length, out, buffer);
+            } finally {
+                IOUtilities.close(in);
+            }
+        }
+    }
+
+    private static final class ChannelPart extends Part {
+        final FileChannel channel;
+        final long position;
+        final long length;
+
+        ChannelPart(byte[] header, FileChannel channel, long position, long length) {
+            super(header, true);
+            this.channel = channel;
+            this.position = position;
+            this.length = length;
+        }
+
+        @Override
+        long length() {
+            return length;
+        }
+
+        @Override
+        void writeContent(OutputStream out, byte[] buffer) throws IOException {
+            copy(channel, position, length, out, buffer);
+        }
+    }
+
+    private static final class StreamPart extends Part {
+        final InputStream in;
+        final long length;
+
+        StreamPart(byte[] header, InputStream in, long length) {
+            super(header, true);
+            this.in = in;
+            this.length = length;
+        }
+
+        @Override
+        long length() {
+            return length;
+        }
+
+        @Override
+        void writeContent(OutputStream out, byte[] buffer) throws IOException {
+            long written = 0;
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+                written += count;
+            }
+            if (length >= 0 && written != length) {
+                throw new IOException("Expected " + length + " bytes from the stream, got " + written);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.http;
+
+/**
+ * A point in time snapshot of the metrics of a {@link PooledHttpEngine}.
+ */
+public class PoolStats {
+
+    private final int leased;
+    private final int idle;
+    private final long requests;
+    private final long connectionsOpened;
+    private final long handshakesAvoided;
+    private final long sessionsResumed;
+    private final long evicted;
+
+    PoolStats(int leased, int idle, long requests, long connectionsOpened,
+            long handshakesAvoided, long sessionsResumed, long evicted) {
+        super();
+        this.leased = leased;
+        this.idle = idle;
+        this.requests = requests;
+        this.connectionsOpened = connectionsOpened;
+        this.handshakesAvoided = handshakesAvoided;
+        this.sessionsResumed = sessionsResumed;
+        this.evicted = evicted;
+    }
+
+    /**
+     * @return the number of connections currently executing a request
+     */
+    public int getLeased() {
+        return leased;
+    }
+
+    /**
+     * @return the number of open connections waiting in the pool
+     */
+    public int getIdle() {
+        return idle;
+    }
+
+    /**
+     * @return the total number of requests executed by the pool
+     */
+    public long getRequests() {
+        return requests;
+    }
+
+    /**
+     * @return the number of sockets opened, each one paid a TCP (and TLS) handshake
+     */
+    public long getConnectionsOpened() {
+        return connectionsOpened;
+    }
+
+    /**
+     * @return the number of requests sent over an already established connection
+     */
+    public long getHandshakesAvoided() {
+        return handshakesAvoided;
+    }
+
+    /**
+     * @return the number of new TLS connections which resumed a cached session
+     * instead of doing a full handshake
+     */
+    public long getSessionsResumed() {
+        return sessionsResumed;
+    }
+
+    /**
+     * @return the number of idle connections closed because they expired or
+     * the pool was full
+     */
+    public long getEvicted() {
+        return evicted;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "PoolStats [leased=" + leased + ", idle=" + idle + ", requests=" + requests
+                + ", connectionsOpened=" + connectionsOpened + ", handshakesAvoided="
+                + handshakesAvoided + ", sessionsResumed=" + sessionsResumed
+                + ", evicted=" + evicted + "]";
+    }
+
+}
@@ -0,0 +1,131 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.http;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+
+/**
+ * A keep-alive socket owned by a {@link PooledHttpEngine}.
+ */
+final class PooledConnection implements Closeable {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String route;
+    private final Socket socket;
+    private final InputStream in;
+    private final OutputStream out;
+    private long lastUsed;
+    private int requestCount;
+    private AbortSignal abortSignal;
+
+    PooledConnection(String route, Socket socket) throws IOException {
+        super();
+        this.route = route;
+        this.socket = socket;
+        this.in = new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE);
+        this.out = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+        this.lastUsed = System.currentTimeMillis();
+    }
+
+    String getRoute() {
+        return route;
+    }
+
+    Socket getSocket() {
+        return socket;
+    }
+
+    InputStream getInputStream() {
+        return in;
+    }
+
+    OutputStream getOutputStream() {
+        return out;
+    }
+
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    void markUsed() {
+        requestCount++;
+    }
+
+    void markIdle() {
+        lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * @return the number of requests sent over this connection so far
+     */
+    int getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * @param abortSignal The signal of the call this connection is leased to
+     */
+    void setAbortSignal(AbortSignal abortSignal) {
+        this.abortSignal = abortSignal;
+    }
+
+    /**
+     * Detach the connection from the signal of the call it was leased to.
+     */
+    void detachAbortSignal() {
+        if (abortSignal != null) {
+            abortSignal.detach(this);
+            abortSignal = null;
+        }
+    }
+
+    boolean isOpen() {
+        return !socket.isClosed() && !socket.isInputShutdown() && !socket.isOutputShutdown();
+    }
+
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    /**
+     * Read a CRLF terminated header line in ISO-8859-1.
+     *
+     * @return the line without terminator, or null at the end of the stream
+     * @throws IOException
+     */
+    String readLine() throws IOException {
+        StringBuilder line = new StringBuilder(64);
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') {
+                int len = line.length();
+                if (len > 0 && line.charAt(len - 1) == '\r') {
+                    line.setLength(len - 1);
+                }
+                return line.toString();
+            }
+            line.append((char) c);
+        }
+        return line.length() > 0 ? line.toString() : null;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "PooledConnection [route=" + route + ", requests=" + requestCount + "]";
+    }
+
+}
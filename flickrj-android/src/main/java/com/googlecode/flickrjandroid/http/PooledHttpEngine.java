@@ -0,0 +1,695 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.Socket;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link HttpEngine} speaking HTTP/1.1 over a bounded pool of keep-alive
+ * connections per host.<p>
+ *
+ * Connections are handed back to the pool once a response body has been read
+ * to the end or closed, the next request to the same host reuses them without
+ * a new TCP and TLS handshake. New TLS connections share one
+ * {@link SSLSocketFactory} so that cached sessions are resumed. Idle
+ * connections are evicted lazily whenever a connection is leased or released,
+ * or explicitly through {@link #closeIdleConnections()}; no background thread
+ * is started.<p>
+ *
+ * Requests to a host served through a proxy are delegated to a
+ * {@link UrlConnectionHttpEngine}.<p>
+ *
+ * The connection in use is attached to the {@link AbortSignal} of the calling
+ * thread, aborting the signal closes the socket.<p>
+ *
+ * Unless the request sets its own <code>Accept-Encoding</code>, gzip and
+ * deflate compressed responses are accepted and decompressed while the body
+ * is read. The bytes received and decoded are counted by the
+ * {@link #getTransferMeter() transfer meter}.
+ */
+public class PooledHttpEngine implements HttpEngine, ResponseBodyInputStream.Callback {
+    private static final Logger logger = LoggerFactory.getLogger(PooledHttpEngine.class);
+
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 8;
+    public static final long DEFAULT_IDLE_TIMEOUT = 15000L;
+    public static final long DEFAULT_LEASE_TIMEOUT = 30000L;
+
+    private static final int MAX_REDIRECTS = 5;
+    private static final String USER_AGENT = "flickrj-android";
+    private static final String ISO_8859_1 = "ISO-8859-1";
+
+    private static PooledHttpEngine defaultEngine;
+
+    private final Map<String, Route> routes = new HashMap<String, Route>();
+    private final TransferMeter transferMeter = new TransferMeter();
+    private final UrlConnectionHttpEngine proxyEngine = new UrlConnectionHttpEngine(transferMeter);
+    private SSLSocketFactory sslSocketFactory;
+    private HostnameVerifier hostnameVerifier;
+    private int maxConnectionsPerHost = DEFAULT_MAX_CONNECTIONS_PER_HOST;
+    private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    private long leaseTimeout = DEFAULT_LEASE_TIMEOUT;
+    private int connectTimeout = 0;
+    private int readTimeout = 0;
+    private volatile boolean shutdown = false;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong connectionsOpened = new AtomicLong();
+    private final AtomicLong handshakesAvoided = new AtomicLong();
+    private final AtomicLong sessionsResumed = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    /**
+     * The idle connections and lease permits of one scheme, host and port.
+     */
+    private static final class Route {
+        private final Semaphore permits;
+        private final LinkedList<PooledConnection> idle = new LinkedList<PooledConnection>();
+        private int leased;
+
+        Route(int maxConnections) {
+            this.permits = new Semaphore(maxConnections, true);
+        }
+    }
+
+    /**
+     * Signals that a reused connection failed before any part of the response
+     * was received, most likely because the server closed it while idle.
+     */
+    private static final class StaleConnectionException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        StaleConnectionException(IOException cause) {
+            super(cause.getMessage());
+            initCause(cause);
+        }
+    }
+
+    public PooledHttpEngine() {
+        super();
+    }
+
+    /**
+     * @return the engine shared by all transports unless configured otherwise
+     */
+    public static synchronized PooledHttpEngine getDefault() {
+        if (defaultEngine == null) {
+            defaultEngine = new PooledHttpEngine();
+        }
+        return defaultEngine;
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.http.HttpEngine#execute(com.googlecode.flickrjandroid.http.HttpRequest)
+     */
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        if (shutdown) {
+            throw new IOException("The HTTP engine has been shut down");
+        }
+        if (isProxied(request.getUrl())) {
+            return proxyEngine.execute(request);
+        }
+        HttpRequest current = request;
+        boolean decode = request.getHeader("Accept-Encoding") == null;
+        if (decode) {
+            current = new HttpRequest(request.getMethod(), request.getUrl());
+            current.getHeaders().putAll(request.getHeaders());
+            current.setHeader("Accept-Encoding", DecodingInputStream.ACCEPT_ENCODING);
+            current.setBody(request.getRequestBody());
+        }
+        for (int redirects = 0;; redirects++) {
+            HttpResponse response = executeOnce(current);
+            int code = response.getCode();
+            boolean redirect = code == 301 || code == 302 || code == 303 || code == 307;
+            String location = response.getHeader("location");
+            if (!redirect || location == null || redirects >= MAX_REDIRECTS
+                    || !HttpRequest.METHOD_GET.equals(current.getMethod())) {
+                return decode ? DecodingInputStream.decode(response, transferMeter, request) : response;
+            }
+            response.close();
+            HttpRequest redirected = new HttpRequest(HttpRequest.METHOD_GET, new URL(current.getUrl(), location));
+            redirected.getHeaders().putAll(current.getHeaders());
+            if (logger.isDebugEnabled()) {
+                logger.debug("Follow redirect to {}", redirected.getUrl());
+            }
+            current = redirected;
+        }
+    }
+
+    private HttpResponse executeOnce(HttpRequest request) throws IOException {
+        URL url = request.getUrl();
+        String key = getRouteKey(url);
+        Route route = getRoute(key);
+        acquire(route, key);
+        requests.incrementAndGet();
+        AbortSignal signal = AbortSignal.current();
+        boolean leased = false;
+        try {
+            while (true) {
+                PooledConnection connection = pollIdle(route);
+                boolean reused = connection != null;
+                if (connection == null) {
+                    connection = connect(key, url, signal);
+                }
+                try {
+                    if (signal != null) {
+                        signal.attach(connection);
+                        connection.setAbortSignal(signal);
+                    }
+                    HttpResponse response = exchange(connection, request, reused);
+                    if (reused) {
+                        handshakesAvoided.incrementAndGet();
+                    }
+                    leased = true;
+                    return response;
+                } catch (StaleConnectionException e) {
+                    logger.debug("Discard stale pooled connection {}: {}", connection, e.getMessage());
+                    connection.detachAbortSignal();
+                    connection.close();
+                    if (signal != null && signal.isAborted()) {
+                        throw e;
+                    }
+                } catch (IOException e) {
+                    connection.detachAbortSignal();
+                    connection.close();
+                    throw e;
+                } catch (RuntimeException e) {
+                    connection.detachAbortSignal();
+                    connection.close();
+                    throw e;
+                }
+            }
+        } finally {
+            if (!leased) {
+                synchronized (routes) {
+                    route.leased--;
+                }
+                route.permits.release();
+            }
+        }
+    }
+
+    private void acquire(Route route, String key) throws IOException {
+        try {
+            if (leaseTimeout > 0) {
+                if (!route.permits.tryAcquire(leaseTimeout, TimeUnit.MILLISECONDS)) {
+                    throw new IOException("Timed out waiting for a connection to " + key);
+                }
+            } else {
+                route.permits.acquire();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a connection to " + key);
+        }
+        synchronized (routes) {
+            route.leased++;
+        }
+    }
+
+    private HttpResponse exchange(PooledConnection connection, HttpRequest request, boolean reused)
+            throws IOException {
+        connection.markUsed();
+        connection.getSocket().setSoTimeout(readTimeout);
+        URL url = request.getUrl();
+        RequestBody body = request.getRequestBody();
+        String statusLine;
+        try {
+            OutputStream out = connection.getOutputStream();
+            out.write(buildRequestHead(request).getBytes(ISO_8859_1));
+            if (body != null) {
+                if (body.getContentLength() < 0) {
+                    ChunkedOutputStream chunked = new ChunkedOutputStream(out);
+                    body.writeTo(chunked);
+                    chunked.finish();
+                } else {
+                    body.writeTo(out);
+                }
+            }
+            out.flush();
+            statusLine = connection.readLine();
+            if (statusLine == null) {
+                throw new IOException("Connection closed by " + url.getHost());
+            }
+        } catch (IOException e) {
+            // a body which can not be written again is not retried
+            if (reused && (body == null || body.isRepeatable())) {
+                throw new StaleConnectionException(e);
+            }
+            throw e;
+        }
+
+        Map<String, String> headers = readHeaders(connection);
+        int code = parseStatusCode(statusLine);
+        while (code >= 100 && code < 200) {
+            // skip interim responses
+            statusLine = connection.readLine();
+            if (statusLine == null) {
+                throw new IOException("Connection closed by " + url.getHost());
+            }
+            headers = readHeaders(connection);
+            code = parseStatusCode(statusLine);
+        }
+        String message = "";
+        int messageIndex = statusLine.indexOf(' ', statusLine.indexOf(' ') + 1);
+        if (messageIndex > 0) {
+            message = statusLine.substring(messageIndex + 1);
+        }
+
+        String connectionHeader = headers.get("connection");
+        boolean keepAlive = statusLine.startsWith("HTTP/1.1")
+                ? !containsToken(connectionHeader, "close")
+                : containsToken(connectionHeader, "keep-alive");
+        boolean chunked = false;
+        long length = -1;
+        if (code == 204 || code == 304) {
+            length = 0;
+        } else if (containsToken(headers.get("transfer-encoding"), "chunked")) {
+            chunked = true;
+        } else if (headers.get("content-length") != null) {
+            try {
+                length = Long.parseLong(headers.get("content-length").trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid Content-Length: " + headers.get("content-length"));
+            }
+        }
+        ResponseBodyInputStream in = new ResponseBodyInputStream(connection, length, chunked,
+                keepAlive && !shutdown, this);
+        return new HttpResponse(code, message, headers, in);
+    }
+
+    private String buildRequestHead(HttpRequest request) {
+        URL url = request.getUrl();
+        StringBuilder head = new StringBuilder(256);
+        String file = url.getFile();
+        head.append(request.getMethod()).append(' ').append(file.length() > 0 ? file : "/")
+                .append(" HTTP/1.1\r\n");
+        head.append("Host: ").append(url.getHost());
+        if (url.getPort() != -1 && url.getPort() != url.getDefaultPort()) {
+            head.append(':').append(url.getPort());
+        }
+        head.append("\r\n");
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            String name = header.getKey();
+            if ("Host".equalsIgnoreCase(name) || "Content-Length".equalsIgnoreCase(name)
+                    || "Transfer-Encoding".equalsIgnoreCase(name)
+                    || "Connection".equalsIgnoreCase(name) || header.getValue() == null) {
+                continue;
+            }
+            head.append(name).append(": ").append(header.getValue()).append("\r\n");
+        }
+        if (request.getHeader("User-Agent") == null) {
+            head.append("User-Agent: ").append(USER_AGENT).append("\r\n");
+        }
+        if (request.getHeader("Accept") == null) {
+            head.append("Accept: */*\r\n");
+        }
+        RequestBody body = request.getRequestBody();
+        if (body != null && body.getContentLength() < 0) {
+            head.append("Transfer-Encoding: chunked\r\n");
+        } else if (body != null) {
+            head.append("Content-Length: ").append(body.getContentLength()).append("\r\n");
+        } else if (HttpRequest.METHOD_POST.equals(request.getMethod())) {
+            head.append("Content-Length: 0\r\n");
+        }
+        head.append("\r\n");
+        return head.toString();
+    }
+
+    private Map<String, String> readHeaders(PooledConnection connection) throws IOException {
+        Map<String, String> headers = new HashMap<String, String>();
+        String line;
+        while ((line = connection.readLine()) != null && line.length() > 0) {
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String name = line.substring(0, colon).trim().toLowerCase(Locale.US);
+            String value = line.substring(colon + 1).trim();
+            String previous = headers.get(name);
+            headers.put(name, previous == null ? value : previous + ", " + value);
+        }
+        return headers;
+    }
+
+    private static int parseStatusCode(String statusLine) throws IOException {
+        // HTTP/1.1 200 OK
+        int start = statusLine.indexOf(' ');
+        if (!statusLine.startsWith("HTTP/") || start < 0 || statusLine.length() < start + 4) {
+            throw new IOException("Invalid HTTP status line: " + statusLine);
+        }
+        try {
+            return Integer.parseInt(statusLine.substring(start + 1, start + 4));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid HTTP status line: " + statusLine);
+        }
+    }
+
+    private static boolean containsToken(String header, String token) {
+        if (header == null) {
+            return false;
+        }
+        for (String value : header.split(",")) {
+            if (value.trim().equalsIgnoreCase(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private PooledConnection connect(String key, URL url, AbortSignal signal) throws IOException {
+        String host = url.getHost();
+        int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+        long start = System.currentTimeMillis();
+        final Socket rawSocket = new Socket();
+        Closeable connecting = new Closeable() {
+            @Override
+            public void close() throws IOException {
+                rawSocket.close();
+            }
+        };
+        Socket socket = rawSocket;
+        try {
+            if (signal != null) {
+                signal.attach(connecting);
+            }
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(host, port), connectTimeout);
+            socket.setSoTimeout(readTimeout);
+            if ("https".equalsIgnoreCase(url.getProtocol())) {
+                SSLSocket sslSocket = (SSLSocket) getSSLSocketFactory().createSocket(socket, host, port, true);
+                socket = sslSocket;
+                boolean identified = enableEndpointIdentification(sslSocket);
+                sslSocket.startHandshake();
+                SSLSession session = sslSocket.getSession();
+                if (!identified && !getHostnameVerifier().verify(host, session)) {
+                    throw new SSLPeerUnverifiedException("Hostname " + host + " not verified");
+                }
+                if (session.getCreationTime() < start) {
+                    sessionsResumed.incrementAndGet();
+                }
+            }
+            connectionsOpened.incrementAndGet();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Opened connection to {}", key);
+            }
+            return new PooledConnection(key, socket);
+        } catch (IOException e) {
+            try {
+                socket.close();
+            } catch (IOException ignore) {
+                // ignore
+            }
+            throw e;
+        } finally {
+            if (signal != null) {
+                signal.detach(connecting);
+            }
+        }
+    }
+
+    /**
+     * Let the TLS layer check the server certificate against the host name,
+     * which is only available from Java 7.
+     */
+    private static boolean enableEndpointIdentification(SSLSocket socket) {
+        try {
+            SSLParameters parameters = socket.getSSLParameters();
+            Method method = SSLParameters.class.getMethod("setEndpointIdentificationAlgorithm", String.class);
+            method.invoke(parameters, "HTTPS");
+            socket.setSSLParameters(parameters);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private boolean isProxied(URL url) {
+        ProxySelector selector = ProxySelector.getDefault();
+        if (selector == null) {
+            return false;
+        }
+        try {
+            List<Proxy> proxies = selector.select(url.toURI());
+            for (Proxy proxy : proxies) {
+                if (proxy.type() != Proxy.Type.DIRECT) {
+                    return true;
+                }
+            }
+        } catch (URISyntaxException e) {
+            // let the connection fail later
+        }
+        return false;
+    }
+
+    private static String getRouteKey(URL url) {
+        int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+        return url.getProtocol().toLowerCase(Locale.US) + "://"
+                + url.getHost().toLowerCase(Locale.US) + ":" + port;
+    }
+
+    private Route getRoute(String key) {
+        synchronized (routes) {
+            Route route = routes.get(key);
+            if (route == null) {
+                route = new Route(maxConnectionsPerHost);
+                routes.put(key, route);
+            }
+            return route;
+        }
+    }
+
+    private PooledConnection pollIdle(Route route) {
+        synchronized (routes) {
+            evictExpired(route, System.currentTimeMillis());
+            while (!route.idle.isEmpty()) {
+                // most recently used first, it is the least likely to be closed by the server
+                PooledConnection connection = route.idle.removeFirst();
+                if (connection.isOpen()) {
+                    return connection;
+                }
+                connection.close();
+            }
+            return null;
+        }
+    }
+
+    private void evictExpired(Route route, long now) {
+        Iterator<PooledConnection> it = route.idle.iterator();
+        while (it.hasNext()) {
+            PooledConnection connection = it.next();
+            if (now - connection.getLastUsed() > idleTimeout || !connection.isOpen()) {
+                it.remove();
+                connection.close();
+                evicted.incrementAndGet();
+            }
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.http.ResponseBodyInputStream.Callback#released(com.googlecode.flickrjandroid.http.PooledConnection, boolean)
+     */
+    @Override
+    public void released(PooledConnection connection, boolean reusable) {
+        connection.detachAbortSignal();
+        Route route = getRoute(connection.getRoute());
+        synchronized (routes) {
+            route.leased--;
+            if (reusable && !shutdown && connection.isOpen()) {
+                connection.markIdle();
+                route.idle.addFirst(connection);
+                while (route.idle.size() > maxConnectionsPerHost) {
+                    route.idle.removeLast().close();
+                    evicted.incrementAndGet();
+                }
+                evictExpired(route, System.currentTimeMillis());
+            } else {
+                connection.close();
+            }
+        }
+        route.permits.release();
+    }
+
+    /**
+     * Close the idle connections which exceeded the idle timeout.
+     */
+    public void closeExpiredConnections() {
+        long now = System.currentTimeMillis();
+        synchronized (routes) {
+            for (Route route : routes.values()) {
+                evictExpired(route, now);
+            }
+        }
+    }
+
+    /**
+     * Close all the idle connections, leased connections are closed when released.
+     */
+    public void closeIdleConnections() {
+        synchronized (routes) {
+            for (Route route : routes.values()) {
+                for (PooledConnection connection : route.idle) {
+                    connection.close();
+                    evicted.incrementAndGet();
+                }
+                route.idle.clear();
+            }
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.http.HttpEngine#shutdown()
+     */
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        closeIdleConnections();
+    }
+
+    /**
+     * @return a snapshot of the pool metrics
+     */
+    public PoolStats getStats() {
+        int leased = 0;
+        int idle = 0;
+        synchronized (routes) {
+            for (Route route : routes.values()) {
+                leased += route.leased;
+                idle += route.idle.size();
+            }
+        }
+        return new PoolStats(leased, idle, requests.get(), connectionsOpened.get(),
+                handshakesAvoided.get(), sessionsResumed.get(), evicted.get());
+    }
+
+    /**
+     * @return the bytes of the response bodies received and decoded
+     */
+    public TransferMeter getTransferMeter() {
+        return transferMeter;
+    }
+
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    /**
+     * @param maxConnectionsPerHost The maximum number of concurrent connections
+     * to one host, requests beyond it wait for a connection to be released.
+     * Applies to hosts contacted after the change.
+     */
+    public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+        if (maxConnectionsPerHost < 1) {
+            throw new IllegalArgumentException("maxConnectionsPerHost must be positive");
+        }
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * @param idleTimeout The time in milliseconds an unused connection is kept open
+     */
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public long getLeaseTimeout() {
+        return leaseTimeout;
+    }
+
+    /**
+     * @param leaseTimeout The time in milliseconds to wait for a free connection
+     * when the host limit is reached before an IOException is thrown, 0 waits
+     * forever. A response body which is neither read to the end nor closed
+     * holds its connection until then.
+     */
+    public void setLeaseTimeout(long leaseTimeout) {
+        this.leaseTimeout = leaseTimeout;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * @param connectTimeout The connect timeout in milliseconds, 0 waits forever
+     */
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    /**
+     * @param readTimeout The socket read timeout in milliseconds, 0 waits forever
+     */
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public synchronized SSLSocketFactory getSSLSocketFactory() {
+        if (sslSocketFactory == null) {
+            sslSocketFactory = HttpsURLConnection.getDefaultSSLSocketFactory();
+        }
+        return sslSocketFactory;
+    }
+
+    /**
+     * @param sslSocketFactory The factory of all the TLS connections, its
+     * session cache is what allows sessions to be resumed
+     */
+    public synchronized void setSSLSocketFactory(SSLSocketFactory sslSocketFactory) {
+        this.sslSocketFactory = sslSocketFactory;
+    }
+
+    public synchronized HostnameVerifier getHostnameVerifier() {
+        if (hostnameVerifier == null) {
+            hostnameVerifier = HttpsURLConnection.getDefaultHostnameVerifier();
+        }
+        return hostnameVerifier;
+    }
+
+    /**
+     * @param hostnameVerifier Used to check the server certificate on platforms
+     * without TLS endpoint identification
+     */
+    public synchronized void setHostnameVerifier(HostnameVerifier hostnameVerifier) {
+        this.hostnameVerifier = hostnameVerifier;
+    }
+
+}
@@ -0,0 +1,65 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The entity of a {@link HttpRequest}, written to the connection by the
+ * engine. Bodies with a known length are sent with a Content-Length header,
+ * the others with the chunked transfer coding.
+ *
+ * @see MultipartBody
+ */
+public abstract class RequestBody {
+
+    /**
+     * @return the length of the entity in bytes, or -1 if not known up front
+     */
+    public abstract long getContentLength();
+
+    /**
+     * Write the entity.
+     *
+     * @param out The stream of the connection, not to be closed
+     * @throws IOException
+     */
+    public abstract void writeTo(OutputStream out) throws IOException;
+
+    /**
+     * @return true if the entity can be written more than once, e.g. to send
+     * it again on a fresh connection
+     */
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    /**
+     * @param content The entity
+     * @return a body sending the array
+     */
+    public static RequestBody create(final byte[] content) {
+        return new ByteArrayBody(content);
+    }
+
+    static final class ByteArrayBody extends RequestBody {
+        final byte[] content;
+
+        ByteArrayBody(byte[] content) {
+            this.content = content;
+        }
+
+        @Override
+        public long getContentLength() {
+            return content.length;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            out.write(content);
+        }
+    }
+
+}
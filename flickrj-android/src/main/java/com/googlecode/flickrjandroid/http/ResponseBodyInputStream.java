@@ -0,0 +1,221 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads one response entity off a pooled connection, framed either by a
+ * Content-Length, the chunked transfer coding or the end of the stream.<p>
+ *
+ * Once the entity has been read to the end the connection is handed back to
+ * the engine, as soon as its last byte is read when the end of the entity is
+ * already known, as readers often do not ask past it. Closing the stream
+ * early drains a small remainder or discards the connection.
+ */
+final class ResponseBodyInputStream extends InputStream {
+    /** The amount of unread data we are willing to skip to keep a connection alive. */
+    private static final long MAX_DRAIN = 16 * 1024;
+    /** The end of a chunk followed by the last chunk, without trailers */
+    private static final byte[] LAST_CHUNK = {'\r', '\n', '0', '\r', '\n', '\r', '\n'};
+
+    interface Callback {
+        void released(PooledConnection connection, boolean reusable);
+    }
+
+    private final PooledConnection connection;
+    private final InputStream in;
+    private final Callback callback;
+    private final boolean chunked;
+    private final boolean reusable;
+    /** remaining bytes of the entity or of the current chunk, -1 when unknown. */
+    private long remaining;
+    private boolean chunkStarted;
+    private boolean eof;
+    private boolean released;
+
+    /**
+     * @param connection The connection the entity is read from
+     * @param length The Content-Length, or -1 if the entity is delimited otherwise
+     * @param chunked Whether the chunked transfer coding is used
+     * @param reusable Whether the connection may be reused after the entity
+     * @param callback Notified once the connection is released
+     */
+    ResponseBodyInputStream(PooledConnection connection, long length, boolean chunked,
+            boolean reusable, Callback callback) {
+        super();
+        this.connection = connection;
+        this.in = connection.getInputStream();
+        this.callback = callback;
+        this.chunked = chunked;
+        this.reusable = reusable && (chunked || length >= 0);
+        this.remaining = chunked ? 0 : length;
+        if (!chunked && length == 0) {
+            finish();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int n = read(b, 0, 1);
+        return n == -1 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (eof) {
+            return -1;
+        }
+        if (released) {
+            throw new IOException("Response body already closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (chunked && remaining == 0) {
+            if (!nextChunk()) {
+                return -1;
+            }
+        }
+        int toRead = remaining >= 0 ? (int) Math.min(len, remaining) : len;
+        int n;
+        try {
+            n = in.read(b, off, toRead);
+        } catch (IOException e) {
+            abort();
+            throw e;
+        }
+        if (n == -1) {
+            if (remaining > 0) {
+                abort();
+                throw new IOException("Premature end of the response body, "
+                        + remaining + " bytes missing");
+            }
+            finish();
+            return -1;
+        }
+        if (remaining > 0) {
+            remaining -= n;
+            if (remaining == 0 && !chunked) {
+                finish();
+            } else if (remaining == 0 && isLastChunkBuffered()) {
+                // the reader may never ask past the last byte, release now
+                nextChunk();
+            }
+        }
+        return n;
+    }
+
+    /**
+     * @return true if the end of the current chunk and the last, empty chunk
+     * without trailers have already been received, so that reading them does
+     * not block
+     */
+    private boolean isLastChunkBuffered() throws IOException {
+        if (in.available() < LAST_CHUNK.length) {
+            return false;
+        }
+        byte[] next = new byte[LAST_CHUNK.length];
+        in.mark(next.length);
+        int n = 0;
+        try {
+            int read;
+            while (n < next.length && (read = in.read(next, n, next.length - n)) > 0) {
+                n += read;
+            }
+        } finally {
+            in.reset();
+        }
+        return n == next.length && Arrays.equals(next, LAST_CHUNK);
+    }
+
+    private boolean nextChunk() throws IOException {
+        try {
+            if (chunkStarted) {
+                // the CRLF terminating the previous chunk
+                connection.readLine();
+            }
+            chunkStarted = true;
+            String line = connection.readLine();
+            if (line == null) {
+                throw new IOException("Premature end of the chunked response body");
+            }
+            int ext = line.indexOf(';');
+            if (ext >= 0) {
+                line = line.substring(0, ext);
+            }
+            long size = Long.parseLong(line.trim(), 16);
+            if (size == 0) {
+                // skip the trailers
+                String trailer;
+                while ((trailer = connection.readLine()) != null && trailer.length() > 0) {
+                    // ignore
+                }
+                finish();
+                return false;
+            }
+            remaining = size;
+            return true;
+        } catch (NumberFormatException e) {
+            abort();
+            throw new IOException("Invalid chunk size: " + e.getMessage());
+        } catch (IOException e) {
+            abort();
+            throw e;
+        }
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (eof || released) {
+            return 0;
+        }
+        int available = in.available();
+        return remaining >= 0 ? (int) Math.min(available, remaining) : available;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (eof || released) {
+            return;
+        }
+        if (reusable) {
+            // try to drain a small remainder so that the connection can be reused
+            byte[] buffer = new byte[4096];
+            long drained = 0;
+            try {
+                int n;
+                while (!eof && drained < MAX_DRAIN && (n = read(buffer, 0, buffer.length)) != -1) {
+                    drained += n;
+                }
+            } catch (IOException e) {
+                // already aborted
+            }
+        }
+        if (!eof) {
+            abort();
+        }
+    }
+
+    private void finish() {
+        eof = true;
+        release(reusable);
+    }
+
+    private void abort() {
+        eof = true;
+        release(false);
+    }
+
+    private void release(boolean reuse) {
+        if (!released) {
+            released = true;
+            callback.released(connection, reuse);
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.http;
+
+/**
+ * Counts the bytes of the response bodies received by an engine, as sent
+ * on the wire and after they were decompressed, to measure the saving of
+ * the compressed responses.
+ *
+ * @see HttpResponse#getWireBytes()
+ */
+public class TransferMeter {
+    private long responses = 0;
+    private long compressedResponses = 0;
+    private long wireBytes = 0;
+    private long decodedBytes = 0;
+
+    /**
+     * Record a response body once it was read or closed.
+     *
+     * @param wire The bytes received
+     * @param decoded The bytes after decompression
+     * @param compressed True if the body was compressed
+     */
+    public synchronized void record(long wire, long decoded, boolean compressed) {
+        responses++;
+        if (compressed) {
+            compressedResponses++;
+        }
+        wireBytes += wire;
+        decodedBytes += decoded;
+    }
+
+    /**
+     * @return the number of response bodies
+     */
+    public synchronized long getResponses() {
+        return responses;
+    }
+
+    /**
+     * @return the number of compressed response bodies
+     */
+    public synchronized long getCompressedResponses() {
+        return compressedResponses;
+    }
+
+    /**
+     * @return the bytes received on the wire
+     */
+    public synchronized long getWireBytes() {
+        return wireBytes;
+    }
+
+    /**
+     * @return the bytes read by the callers, after decompression
+     */
+    public synchronized long getDecodedBytes() {
+        return decodedBytes;
+    }
+
+    /**
+     * @return the bytes not sent thanks to the compression
+     */
+    public synchronized long getSavedBytes() {
+        return decodedBytes - wireBytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "TransferMeter [responses=" + responses + ", compressedResponses=" + compressedResponses
+            + ", wireBytes=" + wireBytes + ", decodedBytes=" + decodedBytes + "]";
+    }
+
+}
@@ -0,0 +1,175 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.http;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.googlecode.flickrjandroid.util.IOUtilities;
+
+/**
+ * {@link HttpEngine} delegating to {@link HttpURLConnection}.<p>
+ *
+ * Connections are never disconnected explicitly, so the keep-alive cache of
+ * the platform can reuse them once the body has been consumed. This engine
+ * honours the <code>http.proxyHost</code> family of system properties and is
+ * used by {@link PooledHttpEngine} whenever a proxy is configured. Aborting
+ * the {@link AbortSignal} of the calling thread disconnects the connection.<p>
+ *
+ * As the {@link PooledHttpEngine}, this engine accepts compressed responses
+ * unless the request sets its own <code>Accept-Encoding</code>, rather than
+ * relying on the platform to decompress them.
+ */
+public class UrlConnectionHttpEngine implements HttpEngine {
+    private static final Logger logger = LoggerFactory.getLogger(UrlConnectionHttpEngine.class);
+
+    private final TransferMeter transferMeter;
+
+    public UrlConnectionHttpEngine() {
+        this(new TransferMeter());
+    }
+
+    /**
+     * @param transferMeter Counts the bytes of the response bodies
+     */
+    UrlConnectionHttpEngine(TransferMeter transferMeter) {
+        super();
+        this.transferMeter = transferMeter;
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.http.HttpEngine#execute(com.googlecode.flickrjandroid.http.HttpRequest)
+     */
+    @Override
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Execute request: {}", request);
+        }
+        final HttpURLConnection conn = (HttpURLConnection) request.getUrl().openConnection();
+        final AbortSignal signal = AbortSignal.current();
+        final Closeable inFlight = new Closeable() {
+            @Override
+            public void close() throws IOException {
+                conn.disconnect();
+            }
+        };
+        if (signal != null) {
+            signal.attach(inFlight);
+        }
+        try {
+            return execute(conn, request, signal, inFlight);
+        } catch (IOException e) {
+            if (signal != null) {
+                signal.detach(inFlight);
+            }
+            throw e;
+        }
+    }
+
+    private HttpResponse execute(HttpURLConnection conn, HttpRequest request,
+            final AbortSignal signal, final Closeable inFlight) throws IOException {
+        conn.setRequestMethod(request.getMethod());
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            conn.setRequestProperty(header.getKey(), header.getValue());
+        }
+        boolean decode = request.getHeader("Accept-Encoding") == null;
+        if (decode) {
+            conn.setRequestProperty("Accept-Encoding", DecodingInputStream.ACCEPT_ENCODING);
+        }
+        RequestBody body = request.getRequestBody();
+        conn.setDoInput(true);
+        if (body != null) {
+            conn.setDoOutput(true);
+            long length = body.getContentLength();
+            if (length >= 0 && length <= Integer.MAX_VALUE) {
+                conn.setFixedLengthStreamingMode((int) length);
+            } else {
+                conn.setChunkedStreamingMode(MultipartBody.BUFFER_SIZE);
+            }
+        }
+        conn.connect();
+        if (body != null) {
+            OutputStream out = conn.getOutputStream();
+            try {
+                body.writeTo(out);
+                out.flush();
+            } finally {
+                IOUtilities.close(out);
+            }
+        }
+
+        int code;
+        try {
+            code = conn.getResponseCode();
+        } catch (IOException e) {
+            logger.error("Failed to get the response code", e);
+            if (conn.getErrorStream() == null) {
+                throw e;
+            }
+            code = conn.getResponseCode();
+        }
+        InputStream in = code >= HttpURLConnection.HTTP_BAD_REQUEST ? conn.getErrorStream() : conn.getInputStream();
+        if (signal != null) {
+            if (in == null) {
+                signal.detach(inFlight);
+            } else {
+                in = new FilterInputStream(in) {
+                    @Override
+                    public void close() throws IOException {
+                        signal.detach(inFlight);
+                        super.close();
+                    }
+                };
+            }
+        }
+        HttpResponse response = new HttpResponse(code, conn.getResponseMessage(), getHeaders(conn), in);
+        return decode ? DecodingInputStream.decode(response, transferMeter, request) : response;
+    }
+
+    private Map<String, String> getHeaders(HttpURLConnection conn) {
+        Map<String, String> headers = new HashMap<String, String>();
+        for (Map.Entry<String, List<String>> entry : conn.getHeaderFields().entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                // the status line
+                continue;
+            }
+            StringBuilder value = new StringBuilder();
+            for (String v : entry.getValue()) {
+                if (value.length() > 0) {
+                    value.append(", ");
+                }
+                value.append(v);
+            }
+            headers.put(entry.getKey().toLowerCase(Locale.US), value.toString());
+        }
+        return headers;
+    }
+
+    /**
+     * @return the bytes of the response bodies received and decoded
+     */
+    public TransferMeter getTransferMeter() {
+        return transferMeter;
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.http.HttpEngine#shutdown()
+     */
+    @Override
+    public void shutdown() {
+        // the connections belong to the platform keep-alive cache
+    }
+
+}
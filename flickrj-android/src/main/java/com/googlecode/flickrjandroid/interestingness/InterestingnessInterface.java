@@ -8,8 +8,6 @@ package com.googlecode.flickrjandroid.interestingness;
 import java.io.IOException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -19,11 +17,11 @@ import org.json.JSONException;
 
 import com.googlecode.flickrjandroid.FlickrException;
 import com.googlecode.flickrjandroid.Parameter;
-import com.googlecode.flickrjandroid.Response;
 import com.googlecode.flickrjandroid.Transport;
 import com.googlecode.flickrjandroid.photos.Extras;
 import com.googlecode.flickrjandroid.photos.PhotoList;
 import com.googlecode.flickrjandroid.photos.PhotoUtils;
+import com.googlecode.flickrjandroid.util.FlickrDates;
 import com.googlecode.flickrjandroid.util.StringUtilities;
 
 /**
@@ -42,12 +40,6 @@ public class InterestingnessInterface {
     private static final String KEY_PER_PAGE = "per_page";
     private static final String KEY_PAGE = "page";
 
-    private static final ThreadLocal<SimpleDateFormat> DATE_FORMATS = new ThreadLocal<SimpleDateFormat>() {
-        protected synchronized SimpleDateFormat initialValue() {
-            return new SimpleDateFormat("yyyy-MM-dd");
-        }
-    };
-
     private String apiKey;
     private String sharedSecret;
     private Transport transportAPI;
@@ -100,11 +92,7 @@ public class InterestingnessInterface {
             parameters.add(new Parameter(KEY_PAGE, String.valueOf(page)));
         }
 
-        Response response = transportAPI.get(transportAPI.getPath(), parameters);
-        if (response.isError()) {
-            throw new FlickrException(response.getErrorCode(), response.getErrorMessage());
-        }
-        return PhotoUtils.createPhotoList(response.getData());
+        return transportAPI.get(transportAPI.getPath(), parameters, PhotoUtils.PHOTO_LIST_HANDLER);
     }
 
     /**
@@ -125,8 +113,7 @@ public class InterestingnessInterface {
       throws FlickrException, IOException, InvalidKeyException, NoSuchAlgorithmException, JSONException {
         String dateString = null;
         if (date != null) {
-            DateFormat df = (DateFormat)DATE_FORMATS.get();
-            dateString = df.format(date);
+            dateString = FlickrDates.formatDate(date);
         }
         return getList(dateString, extras, perPage, page);
     }
@@ -0,0 +1,207 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.oauth;
+
+import java.io.UnsupportedEncodingException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+import com.googlecode.flickrjandroid.Parameter;
+import com.googlecode.flickrjandroid.uploader.ImageParameter;
+
+/**
+ * Builds the OAuth signature base string of a request in one pass into a
+ * buffer which every thread reuses.<p>
+ *
+ * The base string is the request method, the encoded URL and the encoded,
+ * sorted parameters, whose names and values are encoded twice. The percent
+ * encoding of RFC 3986 only leaves unreserved characters, so the second
+ * encoding merely turns every <code>%</code> into <code>%25</code>, and both
+ * are written at once. The result is always ASCII and is written as bytes,
+ * ready to be signed.<p>
+ *
+ * The parameters are sorted by insertion into an array, leaving the list of
+ * the caller untouched. The sort is quick on runs which are in order
+ * already, such as the <code>oauth_*</code> parameters, which
+ * {@link OAuthUtils#addBasicOAuthParams(List)} adds sorted.
+ */
+final class BaseStringBuilder {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_RETAINED_CAPACITY = 16 * 1024;
+    private static final byte[] HEX = {'0', '1', '2', '3', '4', '5', '6', '7',
+        '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'};
+
+    private static final ThreadLocal<BaseStringBuilder> BUILDERS = new ThreadLocal<BaseStringBuilder>() {
+        @Override
+        protected BaseStringBuilder initialValue() {
+            return new BaseStringBuilder();
+        }
+    };
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int length;
+    private String[] names = new String[16];
+    private String[] values = new String[16];
+
+    private BaseStringBuilder() {
+        super();
+    }
+
+    /**
+     * @param requestMethod The HTTP method
+     * @param url The request URL, without query
+     * @param parameters The parameters to sign, parameters carrying an image
+     * are left out
+     * @return the builder of the current thread holding the base string, valid
+     * until the thread builds the next one
+     */
+    static BaseStringBuilder build(String requestMethod, String url, List<Parameter> parameters) {
+        BaseStringBuilder builder = BUILDERS.get();
+        builder.reset();
+        builder.appendAscii(requestMethod);
+        builder.append('&');
+        builder.appendEncoded(url, false);
+        builder.append('&');
+        int count = builder.sort(parameters);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.appendAscii("%26");
+            }
+            builder.appendEncoded(builder.names[i], true);
+            builder.appendAscii("%3D");
+            builder.appendEncoded(builder.values[i], true);
+            builder.names[i] = null;
+            builder.values[i] = null;
+        }
+        return builder;
+    }
+
+    /**
+     * @return the HMAC-SHA1 signature of the base string
+     */
+    String sign(String consumerSecret, String tokenSecret)
+            throws NoSuchAlgorithmException, InvalidKeyException {
+        return OAuthSigner.sign(buffer, 0, length, consumerSecret, tokenSecret);
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        try {
+            return new String(buffer, 0, length, "US-ASCII");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void reset() {
+        if (buffer.length > MAX_RETAINED_CAPACITY) {
+            buffer = new byte[INITIAL_CAPACITY];
+        }
+        length = 0;
+    }
+
+    /**
+     * Insertion sort of the names and values by name, then value.
+     *
+     * @return the number of parameters
+     */
+    private int sort(List<Parameter> parameters) {
+        if (names.length < parameters.size()) {
+            names = new String[parameters.size()];
+            values = new String[parameters.size()];
+        }
+        int count = 0;
+        for (Parameter parameter : parameters) {
+            if (parameter instanceof ImageParameter) {
+                continue;
+            }
+            String name = parameter.getName();
+            String value = String.valueOf(parameter.getValue());
+            int i = count++;
+            while (i > 0 && compare(names[i - 1], values[i - 1], name, value) > 0) {
+                names[i] = names[i - 1];
+                values[i] = values[i - 1];
+                i--;
+            }
+            names[i] = name;
+            values[i] = value;
+        }
+        return count;
+    }
+
+    private static int compare(String name1, String value1, String name2, String value2) {
+        int result = name1.compareTo(name2);
+        return result != 0 ? result : value1.compareTo(value2);
+    }
+
+    /**
+     * Percent encode the UTF-8 bytes of the value as in RFC 3986.
+     *
+     * @param twice True to encode the encoded value once more
+     */
+    private void appendEncoded(String value, boolean twice) {
+        for (int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '.' || c == '_' || c == '~') {
+                append(c);
+            } else if (c < 0x80) {
+                appendEscaped(c, twice);
+            } else if (c < 0x800) {
+                appendEscaped(0xC0 | (c >> 6), twice);
+                appendEscaped(0x80 | (c & 0x3F), twice);
+            } else if (Character.isHighSurrogate(c) && i + 1 < n
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                appendEscaped(0xF0 | (codePoint >> 18), twice);
+                appendEscaped(0x80 | ((codePoint >> 12) & 0x3F), twice);
+                appendEscaped(0x80 | ((codePoint >> 6) & 0x3F), twice);
+                appendEscaped(0x80 | (codePoint & 0x3F), twice);
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                // unpaired surrogate, replaced like String.getBytes does
+                appendEscaped('?', twice);
+            } else {
+                appendEscaped(0xE0 | (c >> 12), twice);
+                appendEscaped(0x80 | ((c >> 6) & 0x3F), twice);
+                appendEscaped(0x80 | (c & 0x3F), twice);
+            }
+        }
+    }
+
+    private void appendEscaped(int b, boolean twice) {
+        ensureCapacity(twice ? 5 : 3);
+        buffer[length++] = '%';
+        if (twice) {
+            buffer[length++] = '2';
+            buffer[length++] = '5';
+        }
+        buffer[length++] = HEX[(b >> 4) & 0x0F];
+        buffer[length++] = HEX[b & 0x0F];
+    }
+
+    private void appendAscii(String s) {
+        ensureCapacity(s.length());
+        for (int i = 0, n = s.length(); i < n; i++) {
+            buffer[length++] = (byte) s.charAt(i);
+        }
+    }
+
+    private void append(char c) {
+        ensureCapacity(1);
+        buffer[length++] = (byte) c;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            byte[] grown = new byte[Math.max(buffer.length * 2, length + extra)];
+            System.arraycopy(buffer, 0, grown, 0, length);
+            buffer = grown;
+        }
+    }
+
+}
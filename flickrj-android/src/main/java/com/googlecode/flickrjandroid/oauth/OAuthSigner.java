@@ -0,0 +1,107 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.oauth;
+
+import java.io.UnsupportedEncodingException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.googlecode.flickrjandroid.util.Base64;
+
+/**
+ * Computes the HMAC-SHA1 signatures of OAuth requests.<p>
+ *
+ * Looking up a {@link Mac} and initialising it with a key costs more than
+ * signing a request, so every thread keeps its initialised instances, one
+ * per pair of consumer secret and token secret, for the last
+ * {@link #MAX_KEYS_PER_THREAD} pairs it has used. The instances are never
+ * shared between threads, so signing threads do not contend on any lock.
+ */
+public final class OAuthSigner {
+    public static final int MAX_KEYS_PER_THREAD = 8;
+
+    private static final String HMAC_SHA1 = "HmacSHA1";
+
+    private static final ThreadLocal<Map<String, Mac>> MACS = new ThreadLocal<Map<String, Mac>>() {
+        @Override
+        protected Map<String, Mac> initialValue() {
+            return new LinkedHashMap<String, Mac>(MAX_KEYS_PER_THREAD * 2, 0.75f, true) {
+                private static final long serialVersionUID = -2475271371432361541L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Mac> eldest) {
+                    return size() > MAX_KEYS_PER_THREAD;
+                }
+            };
+        }
+    };
+
+    private OAuthSigner() {
+        super();
+    }
+
+    /**
+     * @param data The signature base string
+     * @param consumerSecret The shared secret of the API key
+     * @param tokenSecret The secret of the access token, null or empty
+     * before a token has been issued
+     * @return the Base64 encoded signature
+     * @throws NoSuchAlgorithmException
+     * @throws InvalidKeyException
+     * @throws UnsupportedEncodingException
+     */
+    public static String sign(String data, String consumerSecret, String tokenSecret)
+            throws NoSuchAlgorithmException, InvalidKeyException, UnsupportedEncodingException {
+        byte[] bytes = data.getBytes(OAuthUtils.ENC);
+        return sign(bytes, 0, bytes.length, consumerSecret, tokenSecret);
+    }
+
+    /**
+     * @param data The buffer holding the UTF-8 encoded signature base string
+     * @param offset The start of the base string in the buffer
+     * @param length The length of the base string
+     * @param consumerSecret The shared secret of the API key
+     * @param tokenSecret The secret of the access token, null or empty
+     * before a token has been issued
+     * @return the Base64 encoded signature
+     * @throws NoSuchAlgorithmException
+     * @throws InvalidKeyException
+     */
+    public static String sign(byte[] data, int offset, int length, String consumerSecret, String tokenSecret)
+            throws NoSuchAlgorithmException, InvalidKeyException {
+        String key = consumerSecret + "&" + (tokenSecret == null ? "" : tokenSecret);
+        Map<String, Mac> macs = MACS.get();
+        Mac mac = macs.get(key);
+        if (mac == null) {
+            mac = Mac.getInstance(HMAC_SHA1);
+            mac.init(new SecretKeySpec(getBytes(key), HMAC_SHA1));
+            macs.put(key, mac);
+        }
+        mac.update(data, offset, length);
+        // doFinal resets the Mac for the next signature with the same key
+        return toAscii(Base64.encode(mac.doFinal()));
+    }
+
+    private static String toAscii(byte[] bytes) {
+        char[] chars = new char[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i] = (char) bytes[i];
+        }
+        return new String(chars);
+    }
+
+    private static byte[] getBytes(String key) {
+        try {
+            return key.getBytes(OAuthUtils.ENC);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
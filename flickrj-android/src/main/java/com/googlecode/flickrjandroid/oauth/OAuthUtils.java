@@ -6,14 +6,9 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -21,7 +16,6 @@ import com.googlecode.flickrjandroid.FlickrException;
 import com.googlecode.flickrjandroid.Parameter;
 import com.googlecode.flickrjandroid.RequestContext;
 import com.googlecode.flickrjandroid.uploader.ImageParameter;
-import com.googlecode.flickrjandroid.util.Base64;
 import com.googlecode.flickrjandroid.util.UrlUtilities;
 
 /**
@@ -38,8 +32,6 @@ public class OAuthUtils {
     /** Default charsets */
     public static final String DEFAULT_CONTENT_CHARSET = "ISO-8859-1";
 
-    private static final String HMAC_SHA1 = "HmacSHA1";
-    
     public static final String REQUEST_METHOD_GET = "GET";
     public static final String REQUEST_METHOD_POST = "POST";
     
@@ -89,23 +81,26 @@ public class OAuthUtils {
         return oauth.getToken() != null;
     }
     
+    /**
+     * Add the parameters every OAuth request carries, in sorted order.
+     */
     public static void addBasicOAuthParams(List<Parameter> parameters) {
         OAuthUtils.addOAuthNonce(parameters);
-        OAuthUtils.addOAuthTimestamp(parameters);
         OAuthUtils.addOAuthSignatureMethod(parameters);
+        OAuthUtils.addOAuthTimestamp(parameters);
         OAuthUtils.addOAuthVersion(parameters);
     }
     
     public static String getSignature(String requestMethod, String url, List<Parameter> parameters
             , String apiSecret, String tokenSecret)
     throws FlickrException {
-        String baseString;
-        try {
-            baseString = getRequestBaseString(requestMethod, url.toLowerCase(Locale.US), parameters);
+        BaseStringBuilder baseString = BaseStringBuilder.build(
+                requestMethod, url.toLowerCase(Locale.US), parameters);
+        if (logger.isDebugEnabled()) {
             logger.debug("Generated OAuth Base String: {}", baseString);
-            return hmacsha1(baseString, apiSecret, tokenSecret);
-        } catch (UnsupportedEncodingException e) {
-            throw new FlickrException(e);
+        }
+        try {
+            return baseString.sign(apiSecret, tokenSecret);
         } catch (InvalidKeyException e) {
             throw new FlickrException(e);
         } catch (IllegalStateException e) {
@@ -121,47 +116,15 @@ public class OAuthUtils {
         return getSignature(REQUEST_METHOD_GET, url, parameters, apiSecret, tokenSecret);
     }
     
+    /**
+     * Build the signature base string, the list of parameters is not changed.
+     */
     public static String getRequestBaseString(String oauth_request_method, String url, List<Parameter> parameters) throws UnsupportedEncodingException {
-        StringBuffer result = new StringBuffer();
-        result.append(oauth_request_method);
-        result.append(PARAMETER_SEPARATOR);
-        result.append(UrlUtilities.encode(url));
-        result.append(PARAMETER_SEPARATOR);
-        
-        Collections.sort(parameters, new Comparator<Parameter>() {
-
-            @Override
-            public int compare(Parameter o1, Parameter o2) {
-                if (o1 instanceof ImageParameter && (o2 instanceof ImageParameter) == false) {
-                    return 1;
-                }
-                if (o2 instanceof ImageParameter && (o1 instanceof ImageParameter) == false) {
-                    return -1;
-                }
-                
-                int result = o1.getName().compareTo(o2.getName());
-                if (result == 0) {
-                    result = o1.getValue().toString().compareTo(o2.getValue().toString());
-                }
-                return result;
-            }
-            
-        });
-        
-        return result.append(UrlUtilities.encode(format(parameters, ENC))).toString();
+        return BaseStringBuilder.build(oauth_request_method, url, parameters).toString();
     }
     
     public static String hmacsha1(String data, String key, String tokenSecret) throws IllegalStateException, UnsupportedEncodingException, NoSuchAlgorithmException, InvalidKeyException {
-        byte[] byteHMAC = null;
-        Mac mac = Mac.getInstance(HMAC_SHA1);
-        if (tokenSecret == null) {
-            tokenSecret = "";
-        }
-        SecretKeySpec spec = new SecretKeySpec((key + PARAMETER_SEPARATOR + tokenSecret).getBytes(), HMAC_SHA1);
-        mac.init(spec);
-        byteHMAC = mac.doFinal(data.getBytes(ENC));
-
-        return new String(Base64.encode(byteHMAC));
+        return OAuthSigner.sign(data, key, tokenSecret);
     }
 
     /**
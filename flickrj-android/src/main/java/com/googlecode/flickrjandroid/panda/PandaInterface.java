@@ -108,10 +108,6 @@ public class PandaInterface {
             parameters.add(new Parameter("page", page));
         }
 
-        Response response = transportAPI.get(transportAPI.getPath(), parameters);
-        if (response.isError()) {
-            throw new FlickrException(response.getErrorCode(), response.getErrorMessage());
-        }
-        return PhotoUtils.createPhotoList(response.getData());
+        return transportAPI.get(transportAPI.getPath(), parameters, PhotoUtils.PHOTO_LIST_HANDLER);
     }
 }
@@ -13,14 +13,21 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import com.googlecode.flickrjandroid.AsyncFlickr;
 import com.googlecode.flickrjandroid.FlickrException;
+import com.googlecode.flickrjandroid.PageFetchException;
+import com.googlecode.flickrjandroid.PageFetcher;
+import com.googlecode.flickrjandroid.PageHarvester;
+import com.googlecode.flickrjandroid.PagedIterable;
 import com.googlecode.flickrjandroid.Parameter;
 import com.googlecode.flickrjandroid.Response;
+import com.googlecode.flickrjandroid.SearchResultList;
 import com.googlecode.flickrjandroid.Transport;
 import com.googlecode.flickrjandroid.groups.Group;
 import com.googlecode.flickrjandroid.oauth.OAuthInterface;
 import com.googlecode.flickrjandroid.oauth.OAuthUtils;
 import com.googlecode.flickrjandroid.photos.Extras;
+import com.googlecode.flickrjandroid.photos.Photo;
 import com.googlecode.flickrjandroid.photos.PhotoList;
 import com.googlecode.flickrjandroid.photos.PhotoUtils;
 import com.googlecode.flickrjandroid.util.JSONUtils;
@@ -237,11 +244,7 @@ public class PeopleInterface {
             parameters.add(new Parameter(Extras.KEY_EXTRAS, StringUtilities.join(extras, ",")));
         }
 
-        Response response = transportAPI.get(transportAPI.getPath(), parameters);
-        if (response.isError()) {
-            throw new FlickrException(response.getErrorCode(), response.getErrorMessage());
-        }
-        return PhotoUtils.createPhotoList(response.getData());
+        return transportAPI.get(transportAPI.getPath(), parameters, PhotoUtils.PHOTO_LIST_HANDLER);
     }
 
     /**
@@ -322,12 +325,60 @@ public class PeopleInterface {
         }
         OAuthUtils.addOAuthToken(parameters);
 
-        Response response = transportAPI
-                .postJSON(sharedSecret, parameters);
-        if (response.isError()) {
-            throw new FlickrException(response.getErrorCode(), response
-                    .getErrorMessage());
-        }
-        return PhotoUtils.createPhotoList(response.getData());
+        return transportAPI
+                .postJSON(sharedSecret, parameters, PhotoUtils.PHOTO_LIST_HANDLER);
+    }
+
+    /**
+     * Iterate over the photos of the given user's photostream, the pages are
+     * fetched as the iteration advances.
+     * 
+     * @param userId
+     * @param extras
+     * @param perPage The number of photos to fetch per page
+     * @return The photos of all pages
+     * @see PagedIterable
+     */
+    public PagedIterable<Photo> iteratePhotos(String userId, Set<String> extras, int perPage) {
+        return new PagedIterable<Photo>(getPhotosFetcher(userId, extras, perPage));
+    }
+
+    /**
+     * Fetch all photos of the given user's photostream, the pages after the
+     * first one are fetched concurrently and duplicates are dropped.
+     * 
+     * @param userId
+     * @param extras
+     * @param perPage The number of photos to fetch per page
+     * @param async Runs the requests for the pages after the first one
+     * @param parallelism The maximum number of pages requested concurrently
+     * @return The photos of all pages, in page order
+     * @throws PageFetchException if a page could not be fetched
+     * @see PageHarvester
+     */
+    public PhotoList harvestPhotos(String userId, Set<String> extras, int perPage,
+            AsyncFlickr async, int parallelism) {
+        PageHarvester<Photo> harvester = new PageHarvester<Photo>(
+                getPhotosFetcher(userId, extras, perPage), async);
+        harvester.setParallelism(parallelism);
+        harvester.setKeyExtractor(PhotoUtils.PHOTO_ID);
+        return harvester.harvest(new PhotoList());
+    }
+
+    /**
+     * @param userId
+     * @param extras
+     * @param perPage The number of photos to fetch per page
+     * @return fetches the pages of {@link #getPhotos(String, Set, int, int)}
+     */
+    public PageFetcher<Photo> getPhotosFetcher(final String userId,
+            final Set<String> extras, final int perPage) {
+        return new PageFetcher<Photo>() {
+            @Override
+            public SearchResultList<Photo> getPage(int page)
+                    throws IOException, FlickrException, JSONException {
+                return getPhotos(userId, extras, perPage, page);
+            }
+        };
     }
 }
@@ -6,13 +6,12 @@ package com.googlecode.flickrjandroid.people;
 import java.io.Serializable;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.text.DateFormat;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.regex.Matcher;
 
 import com.googlecode.flickrjandroid.util.BuddyIconable;
+import com.googlecode.flickrjandroid.util.FlickrDates;
 import com.googlecode.flickrjandroid.util.StringUtilities;
 import com.googlecode.flickrjandroid.util.UrlUtilities;
 
@@ -23,12 +22,6 @@ import com.googlecode.flickrjandroid.util.UrlUtilities;
 public class User implements Serializable, BuddyIconable {
     private static final long serialVersionUID = 12L;
 
-    private static final ThreadLocal<DateFormat> DATE_FORMATS = new ThreadLocal<DateFormat>() {
-        protected synchronized DateFormat initialValue() {
-            return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-        }
-    };
-
     private String id;
     private String username;
     private boolean admin;
@@ -193,8 +186,12 @@ public class User implements Serializable, BuddyIconable {
     public void setPhotosFirstDateTaken(String photosFirstDateTaken) {
         if (photosFirstDateTaken != null) {
             try {
-                setPhotosFirstDateTaken(((DateFormat) DATE_FORMATS.get())
-                        .parse(photosFirstDateTaken));
+                long time = FlickrDates.parseDateTime(photosFirstDateTaken);
+                if (time == FlickrDates.NO_DATE) {
+                    // an empty value, which did not parse either
+                    throw new ParseException(photosFirstDateTaken, 0);
+                }
+                setPhotosFirstDateTaken(new Date(time));
             } catch (ParseException e) {
 //				throw new RuntimeException(e);
                 setPhotosFirstDateTaken(new Date()); //why throws out runtime exception?
@@ -0,0 +1,759 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.photos;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.googlecode.flickrjandroid.people.User;
+
+/**
+ * A page of photos held column by column in primitive arrays, for the
+ * lists too large to hold as {@link Photo}s or even {@link CompactPhoto}s:
+ * ids, dates, views and geo data are primitive columns, the owners are
+ * indexes into a dictionary of the distinct owners, and the secrets are
+ * packed into longs.<p>
+ *
+ * The photos are read through a {@link Cursor}, one instance moved from
+ * photo to photo:
+ *
+ * <pre>
+ * ColumnarPhotoList photos = photosInterface.searchColumnar(params, 500, 1);
+ * ColumnarPhotoList.Cursor photo = photos.cursor();
+ * while (photo.next()) {
+ *     if (photo.getViews() &gt; 100) {
+ *         photo.appendUrl(builder, Size.MEDIUM);
+ *     }
+ * }
+ * </pre>
+ *
+ * Filtering, sorting and aggregating work on arrays of photo indexes,
+ * without creating an object per photo:
+ *
+ * <pre>
+ * int[] geotagged = photos.select(new ColumnarPhotoList.Filter() {
+ *     public boolean accept(ColumnarPhotoList.Cursor photo) {
+ *         return photo.hasGeoData();
+ *     }
+ * });
+ * photos.sort(geotagged, ColumnarPhotoList.VIEWS, true);
+ * </pre>
+ *
+ * A list is filled by the parser and is not modified afterwards.
+ */
+public class ColumnarPhotoList {
+    /** The photo id */
+    public static final int ID = 0;
+    /** The time taken in milliseconds, {@link CompactPhoto#NO_DATE} if not returned */
+    public static final int DATE_TAKEN = 1;
+    /** The time posted in milliseconds, {@link CompactPhoto#NO_DATE} if not returned */
+    public static final int DATE_POSTED = 2;
+    /** The time of the last update in milliseconds, {@link CompactPhoto#NO_DATE} if not returned */
+    public static final int LAST_UPDATE = 3;
+    /** The number of views, -1 if not returned */
+    public static final int VIEWS = 4;
+    /** The latitude, NaN if not geotagged */
+    public static final int LATITUDE = 5;
+    /** The longitude, NaN if not geotagged */
+    public static final int LONGITUDE = 6;
+    /** The license id, -1 if not returned */
+    public static final int LICENSE = 7;
+    /** The index of the owner, see {@link #getOwnerId(int)} */
+    public static final int OWNER = 8;
+
+    private static final int DEFAULT_CAPACITY = 100;
+
+    private static final byte PUBLIC = 1;
+    private static final byte FRIEND = 1 << 1;
+    private static final byte FAMILY = 1 << 2;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private int page;
+    private int pages;
+    private int perPage;
+    private int total;
+
+    private int size;
+    private long[] ids;
+    private long[] secrets;
+    private int[] farms;
+    private int[] servers;
+    private int[] owners;
+    private byte[] flags;
+    private int[] licenses;
+    private long[] datesTaken;
+    private long[] datesPosted;
+    private long[] lastUpdates;
+    private int[] views;
+    private float[] latitudes;
+    private float[] longitudes;
+    private String[] titles;
+    /** The secrets which do not pack into a long, by photo index */
+    private Map<Integer, String> otherSecrets;
+
+    private final List<String> ownerIds = new ArrayList<String>();
+    private final List<String> ownerNames = new ArrayList<String>();
+    private final Map<String, Integer> ownerIndexes = new HashMap<String, Integer>();
+
+    public ColumnarPhotoList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity The number of photos expected
+     */
+    public ColumnarPhotoList(int capacity) {
+        super();
+        allocate(Math.max(1, capacity));
+    }
+
+    private void allocate(int capacity) {
+        ids = copy(ids, new long[capacity]);
+        secrets = copy(secrets, new long[capacity]);
+        farms = copy(farms, new int[capacity]);
+        servers = copy(servers, new int[capacity]);
+        owners = copy(owners, new int[capacity]);
+        flags = copy(flags, new byte[capacity]);
+        licenses = copy(licenses, new int[capacity]);
+        datesTaken = copy(datesTaken, new long[capacity]);
+        datesPosted = copy(datesPosted, new long[capacity]);
+        lastUpdates = copy(lastUpdates, new long[capacity]);
+        views = copy(views, new int[capacity]);
+        latitudes = copy(latitudes, new float[capacity]);
+        longitudes = copy(longitudes, new float[capacity]);
+        titles = copy(titles, new String[capacity]);
+    }
+
+    private <T> T copy(T from, T to) {
+        if (from != null) {
+            System.arraycopy(from, 0, to, 0, size);
+        }
+        return to;
+    }
+
+    /**
+     * Add a photo of a list, see {@link PhotoUtils#createPhoto(JSONObject)}.
+     *
+     * @param photoElement The photo
+     * @throws JSONException if a required attribute is missing
+     */
+    void add(JSONObject photoElement) throws JSONException {
+        if (size == ids.length) {
+            allocate(size * 2);
+        }
+        int index = size;
+        ids[index] = Long.parseLong(photoElement.getString("id"));
+        String secret = photoElement.getString("secret");
+        secrets[index] = packSecret(secret);
+        if (secrets[index] == 0) {
+            if (otherSecrets == null) {
+                otherSecrets = new HashMap<Integer, String>();
+            }
+            otherSecrets.put(Integer.valueOf(index), secret);
+        }
+        farms[index] = photoElement.optInt("farm", 0);
+        servers[index] = CompactPhoto.parseInt(photoElement.optString("server"), 0);
+        licenses[index] = CompactPhoto.parseInt(photoElement.optString("license"), -1);
+
+        Object owner = photoElement.opt("owner");
+        if (owner instanceof JSONObject) {
+            JSONObject ownerObj = (JSONObject) owner;
+            owners[index] = ownerIndex(ownerObj.getString("nsid"), ownerObj.optString("username", null));
+        } else if (owner != null) {
+            owners[index] = ownerIndex(owner.toString(), photoElement.optString("ownername", null));
+        } else {
+            owners[index] = -1;
+        }
+
+        JSONObject titleObj = photoElement.optJSONObject("title");
+        titles[index] = titleObj != null ? titleObj.optString("_content", null) : photoElement.optString("title", null);
+
+        byte photoFlags = 0;
+        if (photoElement.optInt("ispublic", 0) == 1) {
+            photoFlags |= PUBLIC;
+        }
+        if (photoElement.optInt("isfriend", 0) == 1) {
+            photoFlags |= FRIEND;
+        }
+        if (photoElement.optInt("isfamily", 0) == 1) {
+            photoFlags |= FAMILY;
+        }
+        flags[index] = photoFlags;
+
+        datesTaken[index] = CompactPhoto.parseDateTaken(photoElement.optString("datetaken"));
+        datesPosted[index] = CompactPhoto.parseEpoch(photoElement.optString("dateupload"));
+        lastUpdates[index] = CompactPhoto.parseEpoch(photoElement.optString("lastupdate"));
+        views[index] = photoElement.optInt("views", -1);
+
+        double latitude = photoElement.optDouble("latitude", 0);
+        double longitude = photoElement.optDouble("longitude", 0);
+        if (latitude != 0 || longitude != 0) {
+            latitudes[index] = (float) latitude;
+            longitudes[index] = (float) longitude;
+        } else {
+            latitudes[index] = Float.NaN;
+            longitudes[index] = Float.NaN;
+        }
+        size++;
+    }
+
+    private int ownerIndex(String nsid, String username) {
+        Integer index = ownerIndexes.get(nsid);
+        if (index == null) {
+            index = Integer.valueOf(ownerIds.size());
+            ownerIndexes.put(nsid, index);
+            ownerIds.add(nsid);
+            ownerNames.add(username);
+        }
+        return index.intValue();
+    }
+
+    /**
+     * Pack a secret of up to 15 lowercase hex digits, as Flickr's are, into
+     * the low 60 bits of a long, with the number of digits in the high 4.
+     *
+     * @return the packed secret, or 0 if the secret does not pack
+     */
+    static long packSecret(String secret) {
+        int length = secret.length();
+        if (length == 0 || length > 15) {
+            return 0;
+        }
+        long packed = 0;
+        for (int i = 0; i < length; i++) {
+            char c = secret.charAt(i);
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (c >= 'a' && c <= 'f') {
+                digit = c - 'a' + 10;
+            } else {
+                return 0;
+            }
+            packed = packed << 4 | digit;
+        }
+        return (long) length << 60 | packed;
+    }
+
+    private StringBuilder appendSecret(StringBuilder builder, int index) {
+        long packed = secrets[index];
+        if (packed == 0) {
+            return builder.append(otherSecrets.get(Integer.valueOf(index)));
+        }
+        int length = (int) (packed >>> 60);
+        for (int shift = (length - 1) * 4; shift >= 0; shift -= 4) {
+            builder.append(HEX[(int) (packed >>> shift) & 0xf]);
+        }
+        return builder;
+    }
+
+    /**
+     * Drop the spare capacity once all the photos are added.
+     */
+    void trimToSize() {
+        if (size < ids.length) {
+            allocate(Math.max(1, size));
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getPages() {
+        return pages;
+    }
+
+    public void setPages(int pages) {
+        this.pages = pages;
+    }
+
+    public int getPerPage() {
+        return perPage;
+    }
+
+    public void setPerPage(int perPage) {
+        this.perPage = perPage;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    /**
+     * @return the number of distinct owners
+     */
+    public int getOwnerCount() {
+        return ownerIds.size();
+    }
+
+    /**
+     * @param owner The index of an owner, from 0 to {@link #getOwnerCount()}
+     * @return the id of the owner
+     */
+    public String getOwnerId(int owner) {
+        return ownerIds.get(owner);
+    }
+
+    /**
+     * @param owner The index of an owner, from 0 to {@link #getOwnerCount()}
+     * @return the name of the owner, or null
+     */
+    public String getOwnerName(int owner) {
+        return ownerNames.get(owner);
+    }
+
+    /**
+     * @return a cursor before the first photo
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * @param column A numeric column, such as {@link #VIEWS}
+     * @param index The index of a photo
+     * @return the value of the column for the photo
+     */
+    public double getValue(int column, int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        switch (column) {
+        case ID:
+            return ids[index];
+        case DATE_TAKEN:
+            return datesTaken[index];
+        case DATE_POSTED:
+            return datesPosted[index];
+        case LAST_UPDATE:
+            return lastUpdates[index];
+        case VIEWS:
+            return views[index];
+        case LATITUDE:
+            return latitudes[index];
+        case LONGITUDE:
+            return longitudes[index];
+        case LICENSE:
+            return licenses[index];
+        case OWNER:
+            return owners[index];
+        default:
+            throw new IllegalArgumentException("Unknown column " + column);
+        }
+    }
+
+    /**
+     * @return the indexes of all the photos, in list order
+     */
+    public int[] indexes() {
+        int[] indexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            indexes[i] = i;
+        }
+        return indexes;
+    }
+
+    /**
+     * @param filter Accepts the photos to select, called with the same cursor
+     * moved to each photo
+     * @return the indexes of the photos accepted, in list order
+     */
+    public int[] select(Filter filter) {
+        int[] selected = new int[size];
+        int count = 0;
+        Cursor cursor = new Cursor();
+        for (int i = 0; i < size; i++) {
+            cursor.moveTo(i);
+            if (filter.accept(cursor)) {
+                selected[count++] = i;
+            }
+        }
+        int[] result = new int[count];
+        System.arraycopy(selected, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * Sort photo indexes by a column, keeping the order of equal values. NaN
+     * values, such as the latitude of the photos not geotagged, sort last.
+     *
+     * @param indexes The indexes to sort, sorted in place
+     * @param column A numeric column, such as {@link #VIEWS}
+     * @param descending True to sort from the highest value
+     * @return the indexes
+     */
+    public int[] sort(int[] indexes, int column, boolean descending) {
+        if (column < ID || column > OWNER) {
+            throw new IllegalArgumentException("Unknown column " + column);
+        }
+        int[] buffer = new int[indexes.length];
+        mergeSort(indexes, buffer, 0, indexes.length, column, descending);
+        return indexes;
+    }
+
+    private void mergeSort(int[] indexes, int[] buffer, int from, int to, int column, boolean descending) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(indexes, buffer, from, middle, column, descending);
+        mergeSort(indexes, buffer, middle, to, column, descending);
+        if (compare(indexes[middle - 1], indexes[middle], column, descending) <= 0) {
+            return;
+        }
+        System.arraycopy(indexes, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && compare(buffer[left], buffer[right], column, descending) <= 0)) {
+                indexes[i] = buffer[left++];
+            } else {
+                indexes[i] = buffer[right++];
+            }
+        }
+    }
+
+    private int compare(int a, int b, int column, boolean descending) {
+        double x = getValue(column, a);
+        double y = getValue(column, b);
+        boolean xNaN = Double.isNaN(x);
+        boolean yNaN = Double.isNaN(y);
+        if (xNaN || yNaN) {
+            return xNaN == yNaN ? 0 : xNaN ? 1 : -1;
+        }
+        int result = x < y ? -1 : x > y ? 1 : 0;
+        return descending ? -result : result;
+    }
+
+    /**
+     * @param indexes The indexes of the photos
+     * @param column A numeric column, such as {@link #VIEWS}
+     * @return the sum of the column over the photos, ignoring NaN and
+     * negative values, which mark the values not returned
+     */
+    public double sum(int[] indexes, int column) {
+        double sum = 0;
+        for (int index : indexes) {
+            double value = getValue(column, index);
+            if (isPresent(column, value)) {
+                sum += value;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * @param indexes The indexes of the photos
+     * @param column A numeric column, such as {@link #DATE_TAKEN}
+     * @return the lowest value of the column over the photos, ignoring the
+     * values not returned, or NaN if none
+     */
+    public double min(int[] indexes, int column) {
+        double min = Double.NaN;
+        for (int index : indexes) {
+            double value = getValue(column, index);
+            if (isPresent(column, value) && (Double.isNaN(min) || value < min)) {
+                min = value;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * @param indexes The indexes of the photos
+     * @param column A numeric column, such as {@link #DATE_TAKEN}
+     * @return the highest value of the column over the photos, ignoring the
+     * values not returned, or NaN if none
+     */
+    public double max(int[] indexes, int column) {
+        double max = Double.NaN;
+        for (int index : indexes) {
+            double value = getValue(column, index);
+            if (isPresent(column, value) && (Double.isNaN(max) || value > max)) {
+                max = value;
+            }
+        }
+        return max;
+    }
+
+    private static boolean isPresent(int column, double value) {
+        switch (column) {
+        case LATITUDE:
+        case LONGITUDE:
+            return !Double.isNaN(value);
+        case DATE_TAKEN:
+        case DATE_POSTED:
+        case LAST_UPDATE:
+            return value != CompactPhoto.NO_DATE;
+        default:
+            return value >= 0;
+        }
+    }
+
+    /**
+     * @param indexes The indexes of the photos
+     * @return the number of photos of each owner, by owner index
+     */
+    public int[] countByOwner(int[] indexes) {
+        int[] counts = new int[ownerIds.size()];
+        for (int index : indexes) {
+            if (owners[index] >= 0) {
+                counts[owners[index]]++;
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnarPhotoList [size=" + size + ", owners=" + ownerIds.size() + ", page=" + page + ", pages="
+            + pages + ", total=" + total + "]";
+    }
+
+    /**
+     * Accepts the photos to select, see {@link ColumnarPhotoList#select(Filter)}.
+     */
+    public interface Filter {
+
+        /**
+         * @param photo A cursor on the photo, only valid during the call
+         * @return true to select the photo
+         */
+        boolean accept(Cursor photo);
+    }
+
+    /**
+     * Reads the photo it is moved to. A cursor creates no object, except
+     * for the methods returning a new String, Date or Photo.
+     */
+    public final class Cursor {
+        private int index = -1;
+
+        Cursor() {
+            super();
+        }
+
+        /**
+         * Move to the next photo.
+         *
+         * @return false once past the last photo
+         */
+        public boolean next() {
+            if (index < size) {
+                index++;
+            }
+            return index < size;
+        }
+
+        /**
+         * @param index The index of the photo to read
+         * @return this cursor
+         */
+        public Cursor moveTo(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            this.index = index;
+            return this;
+        }
+
+        /**
+         * @return the index of the photo
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public long getId() {
+            return ids[index];
+        }
+
+        /**
+         * @return the secret, a new String
+         */
+        public String getSecret() {
+            return appendSecret(new StringBuilder(10), index).toString();
+        }
+
+        public int getFarm() {
+            return farms[index];
+        }
+
+        public int getServer() {
+            return servers[index];
+        }
+
+        /**
+         * @return the index of the owner, -1 if not returned
+         * @see ColumnarPhotoList#getOwnerId(int)
+         */
+        public int getOwner() {
+            return owners[index];
+        }
+
+        /**
+         * @return the id of the owner, shared by all the photos of the owner
+         */
+        public String getOwnerId() {
+            return owners[index] < 0 ? null : ownerIds.get(owners[index]);
+        }
+
+        public String getOwnerName() {
+            return owners[index] < 0 ? null : ownerNames.get(owners[index]);
+        }
+
+        public String getTitle() {
+            return titles[index];
+        }
+
+        /**
+         * @return the license id, -1 if not returned
+         */
+        public int getLicense() {
+            return licenses[index];
+        }
+
+        public boolean isPublicFlag() {
+            return (flags[index] & PUBLIC) != 0;
+        }
+
+        public boolean isFriendFlag() {
+            return (flags[index] & FRIEND) != 0;
+        }
+
+        public boolean isFamilyFlag() {
+            return (flags[index] & FAMILY) != 0;
+        }
+
+        /**
+         * @return the time taken in milliseconds, or {@link CompactPhoto#NO_DATE}
+         */
+        public long getDateTaken() {
+            return datesTaken[index];
+        }
+
+        /**
+         * @return the time posted in milliseconds, or {@link CompactPhoto#NO_DATE}
+         */
+        public long getDatePosted() {
+            return datesPosted[index];
+        }
+
+        /**
+         * @return the time of the last update in milliseconds, or
+         * {@link CompactPhoto#NO_DATE}
+         */
+        public long getLastUpdate() {
+            return lastUpdates[index];
+        }
+
+        /**
+         * @return the number of views, -1 if not returned
+         */
+        public int getViews() {
+            return views[index];
+        }
+
+        public boolean hasGeoData() {
+            return !Float.isNaN(latitudes[index]);
+        }
+
+        /**
+         * @return the latitude, NaN if not geotagged
+         */
+        public float getLatitude() {
+            return latitudes[index];
+        }
+
+        /**
+         * @return the longitude, NaN if not geotagged
+         */
+        public float getLongitude() {
+            return longitudes[index];
+        }
+
+        /**
+         * Append the URL of a size of the photo, built as {@link Photo} does.
+         *
+         * @param builder The builder appended to
+         * @param label A size label from {@link Size#THUMB} to
+         * {@link Size#LARGE_2048}, except {@link Size#ORIGINAL}
+         * @return the builder
+         */
+        public StringBuilder appendUrl(StringBuilder builder, int label) {
+            String suffix = CompactPhoto.getUrlSuffix(label);
+            builder.append("https://farm").append(farms[index]).append(".static.flickr.com/")
+                    .append(servers[index]).append('/').append(ids[index]).append('_');
+            return appendSecret(builder, index).append(suffix);
+        }
+
+        /**
+         * @return a photo with the attributes of this one
+         */
+        public Photo toPhoto() {
+            Photo photo = new Photo();
+            photo.setId(Long.toString(ids[index]));
+            photo.setSecret(getSecret());
+            photo.setFarm(Integer.toString(farms[index]));
+            photo.setServer(Integer.toString(servers[index]));
+            photo.setTitle(titles[index]);
+            if (licenses[index] >= 0) {
+                photo.setLicense(Integer.toString(licenses[index]));
+            }
+            photo.setPublicFlag(isPublicFlag());
+            photo.setFriendFlag(isFriendFlag());
+            photo.setFamilyFlag(isFamilyFlag());
+            if (datesTaken[index] != CompactPhoto.NO_DATE) {
+                photo.setDateTaken(datesTaken[index]);
+            }
+            if (datesPosted[index] != CompactPhoto.NO_DATE) {
+                photo.setDatePosted(datesPosted[index]);
+            }
+            if (lastUpdates[index] != CompactPhoto.NO_DATE) {
+                photo.setLastUpdate(lastUpdates[index]);
+            }
+            photo.setViews(views[index]);
+            if (hasGeoData()) {
+                photo.setGeoData(new GeoData(longitudes[index], latitudes[index], 0));
+            }
+            if (owners[index] >= 0) {
+                User owner = new User();
+                owner.setId(getOwnerId());
+                owner.setUsername(getOwnerName());
+                photo.setOwner(owner);
+                photo.setUrl("https://flickr.com/photos/" + owner.getId() + "/" + ids[index]);
+            }
+            return photo;
+        }
+
+        @Override
+        public String toString() {
+            return "Cursor [index=" + index + "]";
+        }
+    }
+
+}
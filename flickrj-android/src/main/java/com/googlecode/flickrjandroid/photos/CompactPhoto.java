@@ -0,0 +1,557 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.photos;
+
+import java.io.Serializable;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.googlecode.flickrjandroid.people.User;
+import com.googlecode.flickrjandroid.tags.Tag;
+import com.googlecode.flickrjandroid.util.FlickrDates;
+
+/**
+ * A photo of a list, holding what search results and the like return in
+ * far less memory than a {@link Photo}: the farm, server, dates and counts
+ * are primitives, the flags are packed into one field, the sizes returned
+ * by the <code>url_*</code> extras are packed into a table instead of one
+ * {@link Size} per label, and the owner and license are shared by all the
+ * photos of a {@link CompactPhotoList}.<p>
+ *
+ * {@link #toPhoto()} converts it for the methods taking a {@link Photo}.
+ *
+ * @see PhotosInterface#searchCompact(SearchParameters, int, int)
+ */
+public class CompactPhoto implements Serializable {
+    private static final long serialVersionUID = 12L;
+
+    /** The value of a date not returned */
+    public static final long NO_DATE = FlickrDates.NO_DATE;
+
+    private static final int PUBLIC = 1;
+    private static final int FRIEND = 1 << 1;
+    private static final int FAMILY = 1 << 2;
+    private static final int FAVORITE = 1 << 3;
+    private static final int PRIMARY = 1 << 4;
+
+    /** The keys of the url_*, width_* and height_* extras, by size label */
+    private static final String[] URL_KEYS = new String[Size.LARGE_2048 + 1];
+    private static final String[] WIDTH_KEYS = new String[Size.LARGE_2048 + 1];
+    private static final String[] HEIGHT_KEYS = new String[Size.LARGE_2048 + 1];
+    /** The suffixes of the generated URLs, by size label */
+    private static final String[] URL_SUFFIXES = new String[Size.LARGE_2048 + 1];
+
+    static {
+        extra(Size.THUMB, "_t", "_t.jpg");
+        extra(Size.SQUARE, "_sq", "_s.jpg");
+        extra(Size.SMALL, "_s", "_m.jpg");
+        extra(Size.MEDIUM, "_m", ".jpg");
+        extra(Size.LARGE, "_l", "_b.jpg");
+        extra(Size.ORIGINAL, "_o", null);
+        extra(Size.LARGE_SQUARE, "_q", "_q.jpg");
+        extra(Size.SMALL_320, "_n", "_n.jpg");
+        extra(Size.MEDIUM_640, "_z", "_z.jpg");
+        extra(Size.MEDIUM_800, "_c", "_c.jpg");
+        extra(Size.LARGE_1600, "_h", "_h.jpg");
+        extra(Size.LARGE_2048, "_k", "_k.jpg");
+    }
+
+    private static void extra(int label, String extraSuffix, String urlSuffix) {
+        URL_KEYS[label] = "url" + extraSuffix;
+        WIDTH_KEYS[label] = "width" + extraSuffix;
+        HEIGHT_KEYS[label] = "height" + extraSuffix;
+        URL_SUFFIXES[label] = urlSuffix;
+    }
+
+    private long id;
+    private User owner;
+    private String secret;
+    private int farm;
+    private int server;
+    private String title;
+    private String license;
+    private int flags;
+    private long dateTaken = NO_DATE;
+    private long datePosted = NO_DATE;
+    private long lastUpdate = NO_DATE;
+    private long dateAdded = NO_DATE;
+    private int views = -1;
+    private int comments = -1;
+    private int favorites = -1;
+    private String originalSecret;
+    private String originalFormat;
+    private String media;
+    private String tags;
+    private boolean geo;
+    private float latitude;
+    private float longitude;
+    private int accuracy;
+    /** One bit per size label returned */
+    private int sizeLabels;
+    /** The width in the high and the height in the low 16 bits, in label order */
+    private int[] sizeDimensions;
+    private String[] sizeSources;
+
+    CompactPhoto() {
+        super();
+    }
+
+    /**
+     * Read a photo of a list, see {@link PhotoUtils#createPhoto(JSONObject)}.
+     *
+     * @param photoElement The photo
+     * @param list The list the photo is added to, sharing its owner and license
+     * @return the photo
+     * @throws JSONException if a required attribute is missing
+     */
+    static CompactPhoto create(JSONObject photoElement, CompactPhotoList list) throws JSONException {
+        CompactPhoto photo = new CompactPhoto();
+        photo.id = Long.parseLong(photoElement.getString("id"));
+        photo.secret = photoElement.getString("secret");
+        photo.server = parseInt(photoElement.optString("server"), 0);
+        photo.farm = photoElement.optInt("farm", 0);
+        String license = photoElement.optString("license", null);
+        photo.license = license == null || license.length() == 0 ? null : list.intern(license);
+        photo.originalSecret = photoElement.optString("originalsecret", null);
+        String originalFormat = photoElement.optString("originalformat", null);
+        photo.originalFormat = originalFormat == null || originalFormat.length() == 0 ? "jpg"
+                : list.intern(originalFormat);
+        photo.media = list.intern(photoElement.optString("media", null));
+
+        Object owner = photoElement.opt("owner");
+        if (owner instanceof JSONObject) {
+            JSONObject ownerObj = (JSONObject) owner;
+            photo.owner = list.getOwner(ownerObj.getString("nsid"), ownerObj.optString("username", null),
+                    ownerObj.optString("iconserver", null), ownerObj.optString("iconfarm", null));
+        } else if (owner != null) {
+            photo.owner = list.getOwner(owner.toString(), photoElement.optString("ownername", null),
+                    photoElement.optString("iconserver", null), photoElement.optString("iconfarm", null));
+        }
+
+        JSONObject titleObj = photoElement.optJSONObject("title");
+        photo.title = titleObj != null ? titleObj.optString("_content", null) : photoElement.optString("title", null);
+        Object tags = photoElement.opt("tags");
+        if (tags instanceof String && ((String) tags).length() > 0) {
+            photo.tags = (String) tags;
+        }
+
+        photo.setFlag(PUBLIC, photoElement.optInt("ispublic", 0) == 1);
+        photo.setFlag(FRIEND, photoElement.optInt("isfriend", 0) == 1);
+        photo.setFlag(FAMILY, photoElement.optInt("isfamily", 0) == 1);
+        photo.setFlag(FAVORITE, "1".equals(photoElement.optString("isfavorite")));
+        photo.setFlag(PRIMARY, "1".equals(photoElement.optString("isprimary")));
+
+        photo.dateTaken = parseDateTaken(photoElement.optString("datetaken"));
+        photo.datePosted = parseEpoch(photoElement.optString("dateupload"));
+        photo.lastUpdate = parseEpoch(photoElement.optString("lastupdate"));
+        photo.dateAdded = parseEpoch(photoElement.optString("dateadded"));
+
+        JSONObject stats = photoElement.optJSONObject("stats");
+        if (stats != null) {
+            photo.views = stats.optInt("views", -1);
+            photo.comments = stats.optInt("comments", -1);
+            photo.favorites = stats.optInt("favorites", -1);
+        } else {
+            photo.views = photoElement.optInt("views", -1);
+        }
+
+        double latitude = photoElement.optDouble("latitude", 0);
+        double longitude = photoElement.optDouble("longitude", 0);
+        if (latitude != 0 || longitude != 0) {
+            photo.geo = true;
+            photo.latitude = (float) latitude;
+            photo.longitude = (float) longitude;
+            photo.accuracy = photoElement.optInt("accuracy", 0);
+        }
+
+        photo.readSizes(photoElement);
+        return photo;
+    }
+
+    private void readSizes(JSONObject photoElement) {
+        int count = 0;
+        for (int label = 0; label < URL_KEYS.length; label++) {
+            if (URL_KEYS[label] != null && photoElement.optString(URL_KEYS[label]).startsWith("http")) {
+                sizeLabels |= 1 << label;
+                count++;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        sizeDimensions = new int[count];
+        sizeSources = new String[count];
+        int index = 0;
+        for (int label = 0; label < URL_KEYS.length; label++) {
+            if ((sizeLabels & (1 << label)) != 0) {
+                sizeSources[index] = photoElement.optString(URL_KEYS[label]);
+                int width = Math.min(0xffff, Math.max(0, photoElement.optInt(WIDTH_KEYS[label], 0)));
+                int height = Math.min(0xffff, Math.max(0, photoElement.optInt(HEIGHT_KEYS[label], 0)));
+                sizeDimensions[index++] = width << 16 | height;
+            }
+        }
+    }
+
+    private void setFlag(int flag, boolean value) {
+        if (value) {
+            flags |= flag;
+        } else {
+            flags &= ~flag;
+        }
+    }
+
+    static int parseInt(String value, int defaultValue) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    static long parseEpoch(String seconds) {
+        try {
+            return FlickrDates.parseEpoch(seconds);
+        } catch (NumberFormatException e) {
+            return NO_DATE;
+        }
+    }
+
+    static long parseDateTaken(String dateTaken) {
+        try {
+            return FlickrDates.parseDateTime(dateTaken);
+        } catch (ParseException e) {
+            return NO_DATE;
+        }
+    }
+
+    public String getId() {
+        return Long.toString(id);
+    }
+
+    /**
+     * @return the id as a number, as photo ids are
+     */
+    public long getIdAsLong() {
+        return id;
+    }
+
+    /**
+     * @return the owner, the same instance for all the photos of the owner
+     * in the list
+     */
+    public User getOwner() {
+        return owner;
+    }
+
+    public String getSecret() {
+        return secret;
+    }
+
+    public int getFarm() {
+        return farm;
+    }
+
+    public int getServer() {
+        return server;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return the license id, the same instance for all the photos of the
+     * list with this license
+     */
+    public String getLicense() {
+        return license;
+    }
+
+    public boolean isPublicFlag() {
+        return (flags & PUBLIC) != 0;
+    }
+
+    public boolean isFriendFlag() {
+        return (flags & FRIEND) != 0;
+    }
+
+    public boolean isFamilyFlag() {
+        return (flags & FAMILY) != 0;
+    }
+
+    public boolean isFavorite() {
+        return (flags & FAVORITE) != 0;
+    }
+
+    public boolean isPrimary() {
+        return (flags & PRIMARY) != 0;
+    }
+
+    /**
+     * @return the time taken in milliseconds, or {@link #NO_DATE}
+     */
+    public long getDateTakenTime() {
+        return dateTaken;
+    }
+
+    public Date getDateTaken() {
+        return FlickrDates.toDate(dateTaken);
+    }
+
+    /**
+     * @return the time posted in milliseconds, or {@link #NO_DATE}
+     */
+    public long getDatePostedTime() {
+        return datePosted;
+    }
+
+    public Date getDatePosted() {
+        return FlickrDates.toDate(datePosted);
+    }
+
+    /**
+     * @return the time of the last update in milliseconds, or
+     * {@link #NO_DATE}
+     */
+    public long getLastUpdateTime() {
+        return lastUpdate;
+    }
+
+    public Date getLastUpdate() {
+        return FlickrDates.toDate(lastUpdate);
+    }
+
+    /**
+     * @return the time added to a group pool in milliseconds, or
+     * {@link #NO_DATE}
+     */
+    public long getDateAddedTime() {
+        return dateAdded;
+    }
+
+    public Date getDateAdded() {
+        return FlickrDates.toDate(dateAdded);
+    }
+
+    public int getViews() {
+        return views;
+    }
+
+    public int getComments() {
+        return comments;
+    }
+
+    public int getFavorites() {
+        return favorites;
+    }
+
+    public String getOriginalSecret() {
+        return originalSecret;
+    }
+
+    public String getOriginalFormat() {
+        return originalFormat;
+    }
+
+    public String getMedia() {
+        return media;
+    }
+
+    /**
+     * @return the tags separated by spaces, or null
+     */
+    public String getTags() {
+        return tags;
+    }
+
+    public boolean hasGeoData() {
+        return geo;
+    }
+
+    public float getLatitude() {
+        return latitude;
+    }
+
+    public float getLongitude() {
+        return longitude;
+    }
+
+    public int getAccuracy() {
+        return accuracy;
+    }
+
+    /**
+     * @return the geo data, a new instance, or null
+     */
+    public GeoData getGeoData() {
+        return geo ? new GeoData(longitude, latitude, accuracy) : null;
+    }
+
+    private int sizeIndex(int label) {
+        if (label < 0 || label >= 32 || (sizeLabels & (1 << label)) == 0) {
+            return -1;
+        }
+        return Integer.bitCount(sizeLabels & ((1 << label) - 1));
+    }
+
+    /**
+     * @param label A size label, such as {@link Size#MEDIUM}
+     * @return true if the URL of the size was returned
+     */
+    public boolean hasSize(int label) {
+        return sizeIndex(label) >= 0;
+    }
+
+    /**
+     * @param label A size label, such as {@link Size#MEDIUM}
+     * @return the width returned for the size, 0 if unknown
+     */
+    public int getWidth(int label) {
+        int index = sizeIndex(label);
+        return index < 0 ? 0 : sizeDimensions[index] >>> 16;
+    }
+
+    /**
+     * @param label A size label, such as {@link Size#MEDIUM}
+     * @return the height returned for the size, 0 if unknown
+     */
+    public int getHeight(int label) {
+        int index = sizeIndex(label);
+        return index < 0 ? 0 : sizeDimensions[index] & 0xffff;
+    }
+
+    /**
+     * @param label A size label, such as {@link Size#MEDIUM}
+     * @return the size returned, a new instance, or null
+     */
+    public Size getSize(int label) {
+        int index = sizeIndex(label);
+        if (index < 0) {
+            return null;
+        }
+        Size size = new Size();
+        size.setLabel(label);
+        size.setSource(sizeSources[index]);
+        size.setWidth(sizeDimensions[index] >>> 16);
+        size.setHeight(sizeDimensions[index] & 0xffff);
+        return size;
+    }
+
+    /**
+     * @return the sizes returned, new instances
+     */
+    public List<Size> getSizes() {
+        List<Size> sizes = new ArrayList<Size>(Integer.bitCount(sizeLabels));
+        for (int label = 0; label < URL_KEYS.length; label++) {
+            if (hasSize(label)) {
+                sizes.add(getSize(label));
+            }
+        }
+        return sizes;
+    }
+
+    /**
+     * @param label A size label from {@link Size#THUMB} to
+     * {@link Size#LARGE_2048}, except {@link Size#ORIGINAL}
+     * @return the URL returned for the size, or else the URL built as
+     * {@link Photo} does
+     */
+    public String getUrl(int label) {
+        int index = sizeIndex(label);
+        if (index >= 0) {
+            return sizeSources[index];
+        }
+        return new StringBuilder(64).append("https://farm").append(farm).append(".static.flickr.com/")
+                .append(server).append('/').append(id).append('_').append(secret).append(getUrlSuffix(label))
+                .toString();
+    }
+
+    /**
+     * @param label A size label
+     * @return the suffix of the URL of the size, as built by {@link Photo}
+     */
+    static String getUrlSuffix(int label) {
+        if (label < 0 || label >= URL_SUFFIXES.length || URL_SUFFIXES[label] == null) {
+            throw new IllegalArgumentException("No URL for size " + label);
+        }
+        return URL_SUFFIXES[label];
+    }
+
+    /**
+     * @return a photo with the attributes of this one
+     */
+    public Photo toPhoto() {
+        Photo photo = new Photo();
+        photo.setId(getId());
+        photo.setOwner(owner);
+        photo.setSecret(secret);
+        photo.setFarm(Integer.toString(farm));
+        photo.setServer(Integer.toString(server));
+        photo.setTitle(title);
+        photo.setLicense(license);
+        photo.setPublicFlag(isPublicFlag());
+        photo.setFriendFlag(isFriendFlag());
+        photo.setFamilyFlag(isFamilyFlag());
+        photo.setFavorite(isFavorite());
+        photo.setPrimary(isPrimary());
+        photo.setDateTaken(dateTaken);
+        photo.setDatePosted(datePosted);
+        photo.setLastUpdate(lastUpdate);
+        photo.setDateAdded(dateAdded);
+        photo.setViews(views);
+        photo.setComments(comments);
+        photo.setFavorites(favorites);
+        photo.setOriginalSecret(originalSecret);
+        photo.setOriginalFormat(originalFormat);
+        photo.setMedia(media);
+        photo.setGeoData(getGeoData());
+        List<Tag> photoTags = new ArrayList<Tag>();
+        if (tags != null) {
+            for (String value : tags.split(" ")) {
+                Tag tag = new Tag();
+                tag.setValue(value);
+                photoTags.add(tag);
+            }
+        }
+        photo.setTags(photoTags);
+        if (owner != null) {
+            photo.setUrl("https://flickr.com/photos/" + owner.getId() + "/" + id);
+        }
+        if (sizeLabels != 0) {
+            photo.setSizes(getSizes());
+        }
+        return photo;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return (int) (id ^ (id >>> 32));
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof CompactPhoto))
+            return false;
+        return id == ((CompactPhoto) obj).id;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactPhoto [id=" + id + ", title=" + title + "]";
+    }
+
+}
@@ -0,0 +1,80 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.photos;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.googlecode.flickrjandroid.SearchResultList;
+import com.googlecode.flickrjandroid.people.User;
+import com.googlecode.flickrjandroid.util.StringDictionary;
+
+/**
+ * A list of {@link CompactPhoto}s with additional meta data. The photos of
+ * the same owner share one {@link User}, and the license ids, media and
+ * formats are shared through a {@link StringDictionary}.
+ *
+ * @see PhotoUtils#createCompactPhotoList(org.json.JSONObject)
+ */
+public class CompactPhotoList extends SearchResultList<CompactPhoto> {
+    private static final long serialVersionUID = 12L;
+
+    private final Map<String, User> owners = new HashMap<String, User>();
+    private transient StringDictionary dictionary;
+
+    public CompactPhotoList() {
+        super();
+    }
+
+    /**
+     * @param dictionary Shares the repeated values of the photos
+     */
+    CompactPhotoList(StringDictionary dictionary) {
+        super();
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * @param nsid The id of the owner
+     * @param username The name of the owner, may be null
+     * @param iconServer The icon server of the owner, may be null
+     * @param iconFarm The icon farm of the owner, may be null
+     * @return the owner, created by the first photo of the owner
+     */
+    User getOwner(String nsid, String username, String iconServer, String iconFarm) {
+        User owner = owners.get(nsid);
+        if (owner == null) {
+            owner = new User();
+            owner.setId(intern(nsid));
+            owner.setUsername(intern(username));
+            if (iconServer != null && iconServer.length() > 0) {
+                owner.setIconServer(iconServer);
+            }
+            if (iconFarm != null && iconFarm.length() > 0) {
+                owner.setIconFarm(iconFarm);
+            }
+            owners.put(nsid, owner);
+        }
+        return owner;
+    }
+
+    /**
+     * @param value A repeated value, may be null
+     * @return the instance of the value shared by the photos
+     */
+    String intern(String value) {
+        if (dictionary == null) {
+            dictionary = new StringDictionary();
+        }
+        return dictionary.intern(value);
+    }
+
+    /**
+     * @return the number of distinct owners of the photos
+     */
+    public int getOwnerCount() {
+        return owners.size();
+    }
+
+}
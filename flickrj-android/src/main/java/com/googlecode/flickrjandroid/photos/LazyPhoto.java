@@ -0,0 +1,1067 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.photos;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectStreamException;
+import java.util.Collection;
+import java.util.Date;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.googlecode.flickrjandroid.FlickrException;
+import com.googlecode.flickrjandroid.people.User;
+import com.googlecode.flickrjandroid.tags.Tag;
+import com.googlecode.flickrjandroid.util.StringDictionary;
+
+/**
+ * A photo which reads only its id, secret, server and farm when created and
+ * keeps the JSON element it was parsed from. The other attributes are read
+ * in groups, e.g. the dates or the tags, the first time one of the group is
+ * accessed, so that a list which is only displayed as thumbnails never
+ * creates the dates, tags, notes and geo data of its photos.<p>
+ *
+ * The JSON element is released once every group has been read, and before
+ * the photo is serialized.
+ *
+ * @see PhotoUtils#createLazyPhoto(JSONObject, StringDictionary)
+ * @see com.googlecode.flickrjandroid.RequestContext#setLazyPhotos(boolean)
+ */
+public class LazyPhoto extends Photo {
+    private static final long serialVersionUID = 12L;
+
+    static final int ATTRIBUTES = 1;
+    static final int DATES = 2;
+    static final int SIZES = 4;
+    static final int OWNER = 8;
+    static final int TEXT = 16;
+    static final int NOTES = 32;
+    static final int TAGS = 64;
+    static final int GEO = 128;
+    static final int ALL = 255;
+
+    private transient JSONObject photoElement;
+    private transient StringDictionary dictionary;
+    private int loaded = 0;
+
+    /**
+     * @param photoElement The JSON element of the photo
+     * @param dictionary Shares the repeated values with the other photos
+     * parsed
+     * @throws JSONException if the id or secret are missing
+     */
+    LazyPhoto(JSONObject photoElement, StringDictionary dictionary) throws JSONException {
+        super();
+        PhotoUtils.readIdentity(this, photoElement, dictionary);
+        this.photoElement = photoElement;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * @param groups The groups of attributes
+     * @return true if all the groups have been read
+     */
+    synchronized boolean isLoaded(int groups) {
+        return (loaded & groups) == groups;
+    }
+
+    /**
+     * Read the groups of attributes not read yet. A group is marked as read
+     * before it is read, so that the setters called by the readers do not
+     * read it again.
+     *
+     * @param groups The groups of attributes
+     */
+    synchronized void ensure(int groups) {
+        int missing = groups & ~loaded;
+        if (missing == 0) {
+            return;
+        }
+        loaded |= missing;
+        try {
+            if ((missing & ATTRIBUTES) != 0) {
+                PhotoUtils.readAttributes(this, photoElement, dictionary);
+            }
+            if ((missing & DATES) != 0) {
+                PhotoUtils.readDates(this, photoElement);
+            }
+            if ((missing & SIZES) != 0) {
+                PhotoUtils.readSizes(this, photoElement);
+            }
+            if ((missing & OWNER) != 0) {
+                PhotoUtils.readOwner(this, photoElement, dictionary);
+            }
+            if ((missing & TEXT) != 0) {
+                PhotoUtils.readText(this, photoElement);
+            }
+            if ((missing & NOTES) != 0) {
+                PhotoUtils.readNotes(this, photoElement);
+            }
+            if ((missing & TAGS) != 0) {
+                PhotoUtils.readTags(this, photoElement, dictionary);
+            }
+            if ((missing & GEO) != 0) {
+                PhotoUtils.readGeoData(this, photoElement);
+            }
+        } catch (JSONException e) {
+            throw new IllegalStateException("Unable to read the photo " + getId() + ": " + e.getMessage(), e);
+        }
+        if (loaded == ALL) {
+            photoElement = null;
+            dictionary = null;
+        }
+    }
+
+    /**
+     * Read every group before the fields of the photo are written, the JSON
+     * element is not serialized.
+     *
+     * @return this photo
+     * @throws ObjectStreamException
+     */
+    private Object writeReplace() throws ObjectStreamException {
+        ensure(ALL);
+        return this;
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#isFavorite()
+     */
+    @Override
+    public boolean isFavorite() {
+        ensure(ATTRIBUTES);
+        return super.isFavorite();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setFavorite(boolean)
+     */
+    @Override
+    public void setFavorite(boolean favorite) {
+        ensure(ATTRIBUTES);
+        super.setFavorite(favorite);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getLicense()
+     */
+    @Override
+    public String getLicense() {
+        ensure(ATTRIBUTES);
+        return super.getLicense();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setLicense(String)
+     */
+    @Override
+    public void setLicense(String license) {
+        ensure(ATTRIBUTES);
+        super.setLicense(license);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#isPrimary()
+     */
+    @Override
+    public boolean isPrimary() {
+        ensure(ATTRIBUTES);
+        return super.isPrimary();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setPrimary(boolean)
+     */
+    @Override
+    public void setPrimary(boolean primary) {
+        ensure(ATTRIBUTES);
+        super.setPrimary(primary);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setPrimary(String)
+     */
+    @Override
+    public void setPrimary(String primary) {
+        ensure(ATTRIBUTES);
+        super.setPrimary(primary);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#isPublicFlag()
+     */
+    @Override
+    public boolean isPublicFlag() {
+        ensure(ATTRIBUTES);
+        return super.isPublicFlag();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setPublicFlag(boolean)
+     */
+    @Override
+    public void setPublicFlag(boolean publicFlag) {
+        ensure(ATTRIBUTES);
+        super.setPublicFlag(publicFlag);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#isFriendFlag()
+     */
+    @Override
+    public boolean isFriendFlag() {
+        ensure(ATTRIBUTES);
+        return super.isFriendFlag();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setFriendFlag(boolean)
+     */
+    @Override
+    public void setFriendFlag(boolean friendFlag) {
+        ensure(ATTRIBUTES);
+        super.setFriendFlag(friendFlag);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#isFamilyFlag()
+     */
+    @Override
+    public boolean isFamilyFlag() {
+        ensure(ATTRIBUTES);
+        return super.isFamilyFlag();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setFamilyFlag(boolean)
+     */
+    @Override
+    public void setFamilyFlag(boolean familyFlag) {
+        ensure(ATTRIBUTES);
+        super.setFamilyFlag(familyFlag);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getComments()
+     */
+    @Override
+    public int getComments() {
+        ensure(ATTRIBUTES);
+        return super.getComments();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setComments(int)
+     */
+    @Override
+    public void setComments(int comments) {
+        ensure(ATTRIBUTES);
+        super.setComments(comments);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setComments(String)
+     */
+    @Override
+    public void setComments(String comments) {
+        ensure(ATTRIBUTES);
+        super.setComments(comments);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setViews(String)
+     */
+    @Override
+    public void setViews(String views) {
+        ensure(ATTRIBUTES);
+        super.setViews(views);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setViews(int)
+     */
+    @Override
+    public void setViews(int views) {
+        ensure(ATTRIBUTES);
+        super.setViews(views);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getViews()
+     */
+    @Override
+    public int getViews() {
+        ensure(ATTRIBUTES);
+        return super.getViews();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getFavorites()
+     */
+    @Override
+    public int getFavorites() {
+        ensure(ATTRIBUTES);
+        return super.getFavorites();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setFavorites(int)
+     */
+    @Override
+    public void setFavorites(int favorites) {
+        ensure(ATTRIBUTES);
+        super.setFavorites(favorites);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setRotation(String)
+     */
+    @Override
+    public void setRotation(String rotation) {
+        ensure(ATTRIBUTES);
+        super.setRotation(rotation);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setRotation(int)
+     */
+    @Override
+    public void setRotation(int rotation) {
+        ensure(ATTRIBUTES);
+        super.setRotation(rotation);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getRotation()
+     */
+    @Override
+    public int getRotation() {
+        ensure(ATTRIBUTES);
+        return super.getRotation();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getIconServer()
+     */
+    @Override
+    public String getIconServer() {
+        ensure(ATTRIBUTES);
+        return super.getIconServer();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setIconServer(String)
+     */
+    @Override
+    public void setIconServer(String iconServer) {
+        ensure(ATTRIBUTES);
+        super.setIconServer(iconServer);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getIconFarm()
+     */
+    @Override
+    public String getIconFarm() {
+        ensure(ATTRIBUTES);
+        return super.getIconFarm();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setIconFarm(String)
+     */
+    @Override
+    public void setIconFarm(String iconFarm) {
+        ensure(ATTRIBUTES);
+        super.setIconFarm(iconFarm);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getOriginalFormat()
+     */
+    @Override
+    public String getOriginalFormat() {
+        ensure(ATTRIBUTES);
+        return super.getOriginalFormat();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setOriginalFormat(String)
+     */
+    @Override
+    public void setOriginalFormat(String originalFormat) {
+        ensure(ATTRIBUTES);
+        super.setOriginalFormat(originalFormat);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getOriginalSecret()
+     */
+    @Override
+    public String getOriginalSecret() {
+        ensure(ATTRIBUTES);
+        return super.getOriginalSecret();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setOriginalSecret(String)
+     */
+    @Override
+    public void setOriginalSecret(String originalSecret) {
+        ensure(ATTRIBUTES);
+        super.setOriginalSecret(originalSecret);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getOriginalAsStream()
+     */
+    @Deprecated
+    @Override
+    public InputStream getOriginalAsStream() throws IOException, FlickrException {
+        ensure(ATTRIBUTES);
+        return super.getOriginalAsStream();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getPlaceId()
+     */
+    @Override
+    public String getPlaceId() {
+        ensure(ATTRIBUTES);
+        return super.getPlaceId();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setPlaceId(String)
+     */
+    @Override
+    public void setPlaceId(String placeId) {
+        ensure(ATTRIBUTES);
+        super.setPlaceId(placeId);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getMedia()
+     */
+    @Override
+    public String getMedia() {
+        ensure(ATTRIBUTES);
+        return super.getMedia();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setMedia(String)
+     */
+    @Override
+    public void setMedia(String media) {
+        ensure(ATTRIBUTES);
+        super.setMedia(media);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getMediaStatus()
+     */
+    @Override
+    public String getMediaStatus() {
+        ensure(ATTRIBUTES);
+        return super.getMediaStatus();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setMediaStatus(String)
+     */
+    @Override
+    public void setMediaStatus(String mediaStatus) {
+        ensure(ATTRIBUTES);
+        super.setMediaStatus(mediaStatus);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getOriginalWidth()
+     */
+    @Override
+    public int getOriginalWidth() {
+        ensure(ATTRIBUTES);
+        return super.getOriginalWidth();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setOriginalWidth(String)
+     */
+    @Override
+    public void setOriginalWidth(String originalWidth) {
+        ensure(ATTRIBUTES);
+        super.setOriginalWidth(originalWidth);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setOriginalWidth(int)
+     */
+    @Override
+    public void setOriginalWidth(int originalWidth) {
+        ensure(ATTRIBUTES);
+        super.setOriginalWidth(originalWidth);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getOriginalHeight()
+     */
+    @Override
+    public int getOriginalHeight() {
+        ensure(ATTRIBUTES);
+        return super.getOriginalHeight();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setOriginalHeight(String)
+     */
+    @Override
+    public void setOriginalHeight(String originalHeight) {
+        ensure(ATTRIBUTES);
+        super.setOriginalHeight(originalHeight);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setOriginalHeight(int)
+     */
+    @Override
+    public void setOriginalHeight(int originalHeight) {
+        ensure(ATTRIBUTES);
+        super.setOriginalHeight(originalHeight);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getPathAlias()
+     */
+    @Override
+    public String getPathAlias() {
+        ensure(ATTRIBUTES);
+        return super.getPathAlias();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setPathAlias(String)
+     */
+    @Override
+    public void setPathAlias(String pathAlias) {
+        ensure(ATTRIBUTES);
+        super.setPathAlias(pathAlias);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getOriginalUrl()
+     */
+    @Override
+    public String getOriginalUrl() throws FlickrException {
+        ensure(ATTRIBUTES | SIZES);
+        return super.getOriginalUrl();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getDateAdded()
+     */
+    @Override
+    public Date getDateAdded() {
+        ensure(DATES);
+        return super.getDateAdded();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getDateAddedTime()
+     */
+    @Override
+    public long getDateAddedTime() {
+        ensure(DATES);
+        return super.getDateAddedTime();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setDateAdded(Date)
+     */
+    @Override
+    public void setDateAdded(Date dateAdded) {
+        ensure(DATES);
+        super.setDateAdded(dateAdded);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setDateAdded(long)
+     */
+    @Override
+    public void setDateAdded(long dateAdded) {
+        ensure(DATES);
+        super.setDateAdded(dateAdded);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setDateAdded(String)
+     */
+    @Override
+    public void setDateAdded(String dateAdded) {
+        ensure(DATES);
+        super.setDateAdded(dateAdded);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getDatePosted()
+     */
+    @Override
+    public Date getDatePosted() {
+        ensure(DATES);
+        return super.getDatePosted();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getDatePostedTime()
+     */
+    @Override
+    public long getDatePostedTime() {
+        ensure(DATES);
+        return super.getDatePostedTime();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setDatePosted(Date)
+     */
+    @Override
+    public void setDatePosted(Date datePosted) {
+        ensure(DATES);
+        super.setDatePosted(datePosted);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setDatePosted(long)
+     */
+    @Override
+    public void setDatePosted(long datePosted) {
+        ensure(DATES);
+        super.setDatePosted(datePosted);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setDatePosted(String)
+     */
+    @Override
+    public void setDatePosted(String datePosted) {
+        ensure(DATES);
+        super.setDatePosted(datePosted);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getDateTaken()
+     */
+    @Override
+    public Date getDateTaken() {
+        ensure(DATES);
+        return super.getDateTaken();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getDateTakenTime()
+     */
+    @Override
+    public long getDateTakenTime() {
+        ensure(DATES);
+        return super.getDateTakenTime();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setDateTaken(Date)
+     */
+    @Override
+    public void setDateTaken(Date dateTaken) {
+        ensure(DATES);
+        super.setDateTaken(dateTaken);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setDateTaken(long)
+     */
+    @Override
+    public void setDateTaken(long dateTaken) {
+        ensure(DATES);
+        super.setDateTaken(dateTaken);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setDateTaken(String)
+     */
+    @Override
+    public void setDateTaken(String dateTaken) {
+        ensure(DATES);
+        super.setDateTaken(dateTaken);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getLastUpdate()
+     */
+    @Override
+    public Date getLastUpdate() {
+        ensure(DATES);
+        return super.getLastUpdate();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getLastUpdateTime()
+     */
+    @Override
+    public long getLastUpdateTime() {
+        ensure(DATES);
+        return super.getLastUpdateTime();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setLastUpdate(Date)
+     */
+    @Override
+    public void setLastUpdate(Date lastUpdate) {
+        ensure(DATES);
+        super.setLastUpdate(lastUpdate);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setLastUpdate(long)
+     */
+    @Override
+    public void setLastUpdate(long lastUpdate) {
+        ensure(DATES);
+        super.setLastUpdate(lastUpdate);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setLastUpdate(String)
+     */
+    @Override
+    public void setLastUpdate(String lastUpdateStr) {
+        ensure(DATES);
+        super.setLastUpdate(lastUpdateStr);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getSmallSquareUrl()
+     */
+    @Override
+    public String getSmallSquareUrl() {
+        ensure(SIZES);
+        return super.getSmallSquareUrl();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getLargeSquareUrl()
+     */
+    @Override
+    public String getLargeSquareUrl() {
+        ensure(SIZES);
+        return super.getLargeSquareUrl();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getThumbnailUrl()
+     */
+    @Override
+    public String getThumbnailUrl() {
+        ensure(SIZES);
+        return super.getThumbnailUrl();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getSmallUrl()
+     */
+    @Override
+    public String getSmallUrl() {
+        ensure(SIZES);
+        return super.getSmallUrl();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getSmall320Url()
+     */
+    @Override
+    public String getSmall320Url() {
+        ensure(SIZES);
+        return super.getSmall320Url();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getMediumUrl()
+     */
+    @Override
+    public String getMediumUrl() {
+        ensure(SIZES);
+        return super.getMediumUrl();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getMedium640Url()
+     */
+    @Override
+    public String getMedium640Url() {
+        ensure(SIZES);
+        return super.getMedium640Url();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getMedium800Url()
+     */
+    @Override
+    public String getMedium800Url() {
+        ensure(SIZES);
+        return super.getMedium800Url();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getLargeUrl()
+     */
+    @Override
+    public String getLargeUrl() {
+        ensure(SIZES);
+        return super.getLargeUrl();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getLarge1600Url()
+     */
+    @Override
+    public String getLarge1600Url() {
+        ensure(SIZES);
+        return super.getLarge1600Url();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getLarge2048Url()
+     */
+    @Override
+    public String getLarge2048Url() {
+        ensure(SIZES);
+        return super.getLarge2048Url();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setSizes(Collection<Size>)
+     */
+    @Override
+    public void setSizes(Collection<Size> sizes) {
+        ensure(SIZES);
+        super.setSizes(sizes);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getSquareSize()
+     */
+    @Override
+    public Size getSquareSize() {
+        ensure(SIZES);
+        return super.getSquareSize();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getSmallSize()
+     */
+    @Override
+    public Size getSmallSize() {
+        ensure(SIZES);
+        return super.getSmallSize();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getThumbnailSize()
+     */
+    @Override
+    public Size getThumbnailSize() {
+        ensure(SIZES);
+        return super.getThumbnailSize();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getMediumSize()
+     */
+    @Override
+    public Size getMediumSize() {
+        ensure(SIZES);
+        return super.getMediumSize();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getLargeSize()
+     */
+    @Override
+    public Size getLargeSize() {
+        ensure(SIZES);
+        return super.getLargeSize();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getLargeSquareSize()
+     */
+    @Override
+    public Size getLargeSquareSize() {
+        ensure(SIZES);
+        return super.getLargeSquareSize();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getOriginalSize()
+     */
+    @Override
+    public Size getOriginalSize() {
+        ensure(SIZES);
+        return super.getOriginalSize();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getOwner()
+     */
+    @Override
+    public User getOwner() {
+        ensure(OWNER);
+        return super.getOwner();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setOwner(User)
+     */
+    @Override
+    public void setOwner(User owner) {
+        ensure(OWNER);
+        super.setOwner(owner);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getUrl()
+     */
+    @Override
+    public String getUrl() {
+        ensure(OWNER);
+        return super.getUrl();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setUrl(String)
+     */
+    @Override
+    public void setUrl(String url) {
+        ensure(OWNER);
+        super.setUrl(url);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getTitle()
+     */
+    @Override
+    public String getTitle() {
+        ensure(TEXT);
+        return super.getTitle();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setTitle(String)
+     */
+    @Override
+    public void setTitle(String title) {
+        ensure(TEXT);
+        super.setTitle(title);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getDescription()
+     */
+    @Override
+    public String getDescription() {
+        ensure(TEXT);
+        return super.getDescription();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setDescription(String)
+     */
+    @Override
+    public void setDescription(String description) {
+        ensure(TEXT);
+        super.setDescription(description);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getNotes()
+     */
+    @Override
+    public Collection<Note> getNotes() {
+        ensure(NOTES);
+        return super.getNotes();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setNotes(Collection<Note>)
+     */
+    @Override
+    public void setNotes(Collection<Note> notes) {
+        ensure(NOTES);
+        super.setNotes(notes);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getTags()
+     */
+    @Override
+    public Collection<Tag> getTags() {
+        ensure(TAGS);
+        return super.getTags();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setTags(Collection<Tag>)
+     */
+    @Override
+    public void setTags(Collection<Tag> tags) {
+        ensure(TAGS);
+        super.setTags(tags);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#getGeoData()
+     */
+    @Override
+    public GeoData getGeoData() {
+        ensure(GEO);
+        return super.getGeoData();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#setGeoData(GeoData)
+     */
+    @Override
+    public void setGeoData(GeoData geoData) {
+        ensure(GEO);
+        super.setGeoData(geoData);
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#hasGeoData()
+     */
+    @Override
+    public boolean hasGeoData() {
+        ensure(GEO);
+        return super.hasGeoData();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        ensure(TEXT | OWNER);
+        return super.hashCode();
+    }
+
+    /* (non-Javadoc)
+     * @see com.googlecode.flickrjandroid.photos.Photo#equals(Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+        ensure(TEXT | OWNER);
+        return super.equals(obj);
+    }
+
+}
@@ -5,12 +5,13 @@ package com.googlecode.flickrjandroid.photos;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.text.DateFormat;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Iterator;
@@ -18,6 +19,7 @@ import java.util.Iterator;
 import com.googlecode.flickrjandroid.FlickrException;
 import com.googlecode.flickrjandroid.people.User;
 import com.googlecode.flickrjandroid.tags.Tag;
+import com.googlecode.flickrjandroid.util.FlickrDates;
 
 /**
  * Class representing metadata about a Flickr photo. Instances do not actually
@@ -31,10 +33,62 @@ import com.googlecode.flickrjandroid.tags.Tag;
 public class Photo implements Serializable {
     public static final long serialVersionUID = 12L;
 
-    private static final ThreadLocal<DateFormat> DATE_FORMATS = new ThreadLocal<DateFormat>() {
-        protected synchronized DateFormat initialValue() {
-            return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-        }
+    /**
+     * The dates are held as times but still written as Date, so that photos
+     * serialized by earlier versions can be read back.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("squareSize", Size.class),
+        new ObjectStreamField("largeSquareSize", Size.class),
+        new ObjectStreamField("thumbnailSize", Size.class),
+        new ObjectStreamField("smallSize", Size.class),
+        new ObjectStreamField("small320Size", Size.class),
+        new ObjectStreamField("mediumSize", Size.class),
+        new ObjectStreamField("medium640Size", Size.class),
+        new ObjectStreamField("medium800Size", Size.class),
+        new ObjectStreamField("largeSize", Size.class),
+        new ObjectStreamField("large1600Size", Size.class),
+        new ObjectStreamField("large2048Size", Size.class),
+        new ObjectStreamField("originalSize", Size.class),
+        new ObjectStreamField("id", String.class),
+        new ObjectStreamField("owner", User.class),
+        new ObjectStreamField("secret", String.class),
+        new ObjectStreamField("farm", String.class),
+        new ObjectStreamField("server", String.class),
+        new ObjectStreamField("favorite", boolean.class),
+        new ObjectStreamField("license", String.class),
+        new ObjectStreamField("primary", boolean.class),
+        new ObjectStreamField("title", String.class),
+        new ObjectStreamField("description", String.class),
+        new ObjectStreamField("publicFlag", boolean.class),
+        new ObjectStreamField("friendFlag", boolean.class),
+        new ObjectStreamField("familyFlag", boolean.class),
+        new ObjectStreamField("dateAdded", Date.class),
+        new ObjectStreamField("datePosted", Date.class),
+        new ObjectStreamField("dateTaken", Date.class),
+        new ObjectStreamField("lastUpdate", Date.class),
+        new ObjectStreamField("takenGranularity", String.class),
+        new ObjectStreamField("permissions", Permissions.class),
+        new ObjectStreamField("editability", Editability.class),
+        new ObjectStreamField("comments", int.class),
+        new ObjectStreamField("views", int.class),
+        new ObjectStreamField("favorites", int.class),
+        new ObjectStreamField("rotation", int.class),
+        new ObjectStreamField("notes", Collection.class),
+        new ObjectStreamField("tags", Collection.class),
+        new ObjectStreamField("urls", Collection.class),
+        new ObjectStreamField("iconServer", String.class),
+        new ObjectStreamField("iconFarm", String.class),
+        new ObjectStreamField("url", String.class),
+        new ObjectStreamField("geoData", GeoData.class),
+        new ObjectStreamField("originalFormat", String.class),
+        new ObjectStreamField("originalSecret", String.class),
+        new ObjectStreamField("placeId", String.class),
+        new ObjectStreamField("media", String.class),
+        new ObjectStreamField("mediaStatus", String.class),
+        new ObjectStreamField("pathAlias", String.class),
+        new ObjectStreamField("originalWidth", int.class),
+        new ObjectStreamField("originalHeight", int.class)
     };
 
     private static final String SMALL_SQUARE_IMAGE_SUFFIX = "_s.jpg";
@@ -76,10 +130,10 @@ public class Photo implements Serializable {
     private boolean publicFlag;
     private boolean friendFlag;
     private boolean familyFlag;
-    private Date dateAdded;
-    private Date datePosted;
-    private Date dateTaken;
-    private Date lastUpdate;
+    private long dateAdded = FlickrDates.NO_DATE;
+    private long datePosted = FlickrDates.NO_DATE;
+    private long dateTaken = FlickrDates.NO_DATE;
+    private long lastUpdate = FlickrDates.NO_DATE;
     private String takenGranularity;
     private Permissions permissions;
     private Editability editability;
@@ -215,51 +269,76 @@ public class Photo implements Serializable {
     }
 
     public Date getDateAdded() {
+        return FlickrDates.toDate(dateAdded);
+    }
+
+    /**
+     * @return the time added in milliseconds, or {@link FlickrDates#NO_DATE}
+     */
+    public long getDateAddedTime() {
         return dateAdded;
     }
 
     public void setDateAdded(Date dateAdded) {
-        this.dateAdded = dateAdded;
+        setDateAdded(FlickrDates.toTime(dateAdded));
     }
 
     public void setDateAdded(long dateAdded) {
-        setDateAdded(new Date(dateAdded));
+        this.dateAdded = dateAdded;
     }
 
     public void setDateAdded(String dateAdded) {
         if (dateAdded == null || "".equals(dateAdded)) return;
-        setDateAdded(Long.parseLong(dateAdded) * (long) 1000);
+        setDateAdded(FlickrDates.parseEpoch(dateAdded));
     }
 
     public Date getDatePosted() {
+        return FlickrDates.toDate(datePosted);
+    }
+
+    /**
+     * @return the time posted in milliseconds, or {@link FlickrDates#NO_DATE}
+     */
+    public long getDatePostedTime() {
         return datePosted;
     }
 
     public void setDatePosted(Date datePosted) {
-        this.datePosted = datePosted;
+        setDatePosted(FlickrDates.toTime(datePosted));
     }
 
     public void setDatePosted(long datePosted) {
-        setDatePosted(new Date(datePosted));
+        this.datePosted = datePosted;
     }
 
     public void setDatePosted(String datePosted) {
         if (datePosted == null || "".equals(datePosted)) return;
-        setDatePosted(Long.parseLong(datePosted) * (long) 1000);
+        setDatePosted(FlickrDates.parseEpoch(datePosted));
     }
 
     public Date getDateTaken() {
+        return FlickrDates.toDate(dateTaken);
+    }
+
+    /**
+     * @return the time taken in milliseconds, or {@link FlickrDates#NO_DATE}
+     */
+    public long getDateTakenTime() {
         return dateTaken;
     }
 
     public void setDateTaken(Date dateTaken) {
+        setDateTaken(FlickrDates.toTime(dateTaken));
+    }
+
+    public void setDateTaken(long dateTaken) {
         this.dateTaken = dateTaken;
     }
 
     public void setDateTaken(String dateTaken) {
         if (dateTaken == null || "".equals(dateTaken)) return;
         try {
-            setDateTaken(((DateFormat)DATE_FORMATS.get()).parse(dateTaken));
+            setDateTaken(FlickrDates.parseDateTime(dateTaken));
         } catch (ParseException e) {
             // TODO: figure out what to do with this error
             e.printStackTrace();
@@ -267,17 +346,28 @@ public class Photo implements Serializable {
     }
 
     public Date getLastUpdate() {
+        return FlickrDates.toDate(lastUpdate);
+    }
+
+    /**
+     * @return the time of the last update in milliseconds, or
+     * {@link FlickrDates#NO_DATE}
+     */
+    public long getLastUpdateTime() {
         return lastUpdate;
     }
 
     public void setLastUpdate(Date lastUpdate) {
+        setLastUpdate(FlickrDates.toTime(lastUpdate));
+    }
+
+    public void setLastUpdate(long lastUpdate) {
         this.lastUpdate = lastUpdate;
     }
 
     public void setLastUpdate(String lastUpdateStr) {
         if (lastUpdateStr == null || "".equals(lastUpdateStr)) return;
-        long unixTime = Long.parseLong(lastUpdateStr);
-        setLastUpdate(new Date(unixTime * 1000L));
+        setLastUpdate(FlickrDates.parseEpoch(lastUpdateStr));
     }
 
     public String getTakenGranularity() {
@@ -879,19 +969,132 @@ public class Photo implements Serializable {
                 return false;
         } else if (!id.equals(other.id))
             return false;
+        // the getters, as a LazyPhoto reads its title and url on demand
+        String otherTitle = other.getTitle();
         if (title == null) {
-            if (other.title != null)
+            if (otherTitle != null)
                 return false;
-        } else if (!title.equals(other.title))
+        } else if (!title.equals(otherTitle))
             return false;
+        String otherUrl = other.getUrl();
         if (url == null) {
-            if (other.url != null)
+            if (otherUrl != null)
                 return false;
-        } else if (!url.equals(other.url))
+        } else if (!url.equals(otherUrl))
             return false;
         return true;
     }
 
-    
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("squareSize", squareSize);
+        fields.put("largeSquareSize", largeSquareSize);
+        fields.put("thumbnailSize", thumbnailSize);
+        fields.put("smallSize", smallSize);
+        fields.put("small320Size", small320Size);
+        fields.put("mediumSize", mediumSize);
+        fields.put("medium640Size", medium640Size);
+        fields.put("medium800Size", medium800Size);
+        fields.put("largeSize", largeSize);
+        fields.put("large1600Size", large1600Size);
+        fields.put("large2048Size", large2048Size);
+        fields.put("originalSize", originalSize);
+        fields.put("id", id);
+        fields.put("owner", owner);
+        fields.put("secret", secret);
+        fields.put("farm", farm);
+        fields.put("server", server);
+        fields.put("favorite", favorite);
+        fields.put("license", license);
+        fields.put("primary", primary);
+        fields.put("title", title);
+        fields.put("description", description);
+        fields.put("publicFlag", publicFlag);
+        fields.put("friendFlag", friendFlag);
+        fields.put("familyFlag", familyFlag);
+        fields.put("dateAdded", FlickrDates.toDate(dateAdded));
+        fields.put("datePosted", FlickrDates.toDate(datePosted));
+        fields.put("dateTaken", FlickrDates.toDate(dateTaken));
+        fields.put("lastUpdate", FlickrDates.toDate(lastUpdate));
+        fields.put("takenGranularity", takenGranularity);
+        fields.put("permissions", permissions);
+        fields.put("editability", editability);
+        fields.put("comments", comments);
+        fields.put("views", views);
+        fields.put("favorites", favorites);
+        fields.put("rotation", rotation);
+        fields.put("notes", notes);
+        fields.put("tags", tags);
+        fields.put("urls", urls);
+        fields.put("iconServer", iconServer);
+        fields.put("iconFarm", iconFarm);
+        fields.put("url", url);
+        fields.put("geoData", geoData);
+        fields.put("originalFormat", originalFormat);
+        fields.put("originalSecret", originalSecret);
+        fields.put("placeId", placeId);
+        fields.put("media", media);
+        fields.put("mediaStatus", mediaStatus);
+        fields.put("pathAlias", pathAlias);
+        fields.put("originalWidth", originalWidth);
+        fields.put("originalHeight", originalHeight);
+        out.writeFields();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        squareSize = (Size) fields.get("squareSize", null);
+        largeSquareSize = (Size) fields.get("largeSquareSize", null);
+        thumbnailSize = (Size) fields.get("thumbnailSize", null);
+        smallSize = (Size) fields.get("smallSize", null);
+        small320Size = (Size) fields.get("small320Size", null);
+        mediumSize = (Size) fields.get("mediumSize", null);
+        medium640Size = (Size) fields.get("medium640Size", null);
+        medium800Size = (Size) fields.get("medium800Size", null);
+        largeSize = (Size) fields.get("largeSize", null);
+        large1600Size = (Size) fields.get("large1600Size", null);
+        large2048Size = (Size) fields.get("large2048Size", null);
+        originalSize = (Size) fields.get("originalSize", null);
+        id = (String) fields.get("id", null);
+        owner = (User) fields.get("owner", null);
+        secret = (String) fields.get("secret", null);
+        farm = (String) fields.get("farm", null);
+        server = (String) fields.get("server", null);
+        favorite = fields.get("favorite", false);
+        license = (String) fields.get("license", null);
+        primary = fields.get("primary", false);
+        title = (String) fields.get("title", null);
+        description = (String) fields.get("description", null);
+        publicFlag = fields.get("publicFlag", false);
+        friendFlag = fields.get("friendFlag", false);
+        familyFlag = fields.get("familyFlag", false);
+        dateAdded = FlickrDates.toTime((Date) fields.get("dateAdded", null));
+        datePosted = FlickrDates.toTime((Date) fields.get("datePosted", null));
+        dateTaken = FlickrDates.toTime((Date) fields.get("dateTaken", null));
+        lastUpdate = FlickrDates.toTime((Date) fields.get("lastUpdate", null));
+        takenGranularity = (String) fields.get("takenGranularity", null);
+        permissions = (Permissions) fields.get("permissions", null);
+        editability = (Editability) fields.get("editability", null);
+        comments = fields.get("comments", 0);
+        views = fields.get("views", 0);
+        favorites = fields.get("favorites", 0);
+        rotation = fields.get("rotation", 0);
+        notes = (Collection<Note>) fields.get("notes", null);
+        tags = (Collection<Tag>) fields.get("tags", null);
+        urls = (Collection<PhotoUrl>) fields.get("urls", null);
+        iconServer = (String) fields.get("iconServer", null);
+        iconFarm = (String) fields.get("iconFarm", null);
+        url = (String) fields.get("url", null);
+        geoData = (GeoData) fields.get("geoData", null);
+        originalFormat = (String) fields.get("originalFormat", null);
+        originalSecret = (String) fields.get("originalSecret", null);
+        placeId = (String) fields.get("placeId", null);
+        media = (String) fields.get("media", null);
+        mediaStatus = (String) fields.get("mediaStatus", null);
+        pathAlias = (String) fields.get("pathAlias", null);
+        originalWidth = fields.get("originalWidth", 0);
+        originalHeight = fields.get("originalHeight", 0);
+    }
 
 }
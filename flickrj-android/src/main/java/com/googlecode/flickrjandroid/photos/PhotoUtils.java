@@ -1,5 +1,6 @@
 package com.googlecode.flickrjandroid.photos;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -7,10 +8,17 @@ import java.util.List;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.googlecode.flickrjandroid.PageHarvester;
+import com.googlecode.flickrjandroid.RequestContext;
+import com.googlecode.flickrjandroid.ResponseHandler;
 import com.googlecode.flickrjandroid.people.User;
 import com.googlecode.flickrjandroid.tags.Tag;
+import com.googlecode.flickrjandroid.util.JSONReader;
 import com.googlecode.flickrjandroid.util.JSONUtils;
+import com.googlecode.flickrjandroid.util.StringDictionary;
 
 /**
  * Utilitiy-methods to transfer requested XML to Photo-objects.
@@ -21,6 +29,8 @@ import com.googlecode.flickrjandroid.util.JSONUtils;
 public final class PhotoUtils {
     public static final long serialVersionUID = 12L;
 
+    private static final Logger logger = LoggerFactory.getLogger(PhotoUtils.class);
+
     private static final String PHOTO_SUFFIX_SQUARE = "_sq";
     private static final String PHOTO_SUFFIX_LARGE_SQUARE = "_q";
     private static final String PHOTO_SUFFIX_THUMB = "_t";
@@ -34,9 +44,74 @@ public final class PhotoUtils {
     private static final String PHOTO_SUFFIX_LARGE_2048 = "_k";
     private static final String PHOTO_SUFFIX_ORIGINAL = "_o";
 
+    /**
+     * Reads the <code>photos</code> member of a streamed response into a
+     * PhotoList, see {@link #createPhotoList(JSONReader)}.
+     */
+    public static final ResponseHandler<PhotoList> PHOTO_LIST_HANDLER = new ResponseHandler<PhotoList>() {
+        @Override
+        public PhotoList handle(String name, JSONReader reader) throws IOException, JSONException {
+            if (!"photos".equals(name)) {
+                reader.skipValue();
+                return null;
+            }
+            return createPhotoList(reader);
+        }
+    };
+
+    /**
+     * Reads the <code>photos</code> member of a streamed response into a
+     * CompactPhotoList, see {@link #createCompactPhotoList(JSONReader)}.
+     */
+    public static final ResponseHandler<CompactPhotoList> COMPACT_PHOTO_LIST_HANDLER = new ResponseHandler<CompactPhotoList>() {
+        @Override
+        public CompactPhotoList handle(String name, JSONReader reader) throws IOException, JSONException {
+            if (!"photos".equals(name)) {
+                reader.skipValue();
+                return null;
+            }
+            return createCompactPhotoList(reader);
+        }
+    };
+
+    /**
+     * Reads the <code>photos</code> member of a streamed response into a
+     * ColumnarPhotoList, see {@link #createColumnarPhotoList(JSONReader)}.
+     */
+    public static final ResponseHandler<ColumnarPhotoList> COLUMNAR_PHOTO_LIST_HANDLER = new ResponseHandler<ColumnarPhotoList>() {
+        @Override
+        public ColumnarPhotoList handle(String name, JSONReader reader) throws IOException, JSONException {
+            if (!"photos".equals(name)) {
+                reader.skipValue();
+                return null;
+            }
+            return createColumnarPhotoList(reader);
+        }
+    };
+
+    /**
+     * Identifies photos by their ID when dropping duplicates, see
+     * {@link PageHarvester}.
+     */
+    public static final PageHarvester.KeyExtractor<Photo> PHOTO_ID = new PageHarvester.KeyExtractor<Photo>() {
+        @Override
+        public Object getKey(Photo photo) {
+            return photo.getId();
+        }
+    };
+
     private PhotoUtils() {
         super();
     }
+
+    /**
+     * @return the dictionary of the {@link RequestContext}, or else a new one
+     * for the response parsed
+     */
+    static StringDictionary dictionary() {
+        StringDictionary dictionary = RequestContext.getRequestContext().getStringDictionary();
+        return dictionary != null ? dictionary : new StringDictionary();
+    }
     
     /**
      * Transfer the Information of a photo context from a JSONObject to a PhotoContext-object.
@@ -86,38 +161,157 @@ public final class PhotoUtils {
      */
     public static final Photo createPhoto(JSONObject photoElement)
             throws JSONException {
+        return createPhoto(photoElement, dictionary());
+    }
+
+    /**
+     * Transfer the Information of a photo from a JSONObject to a
+     * Photo-object, sharing the repeated values through a dictionary.
+     * 
+     * @param photoElement
+     * @param dictionary Shares the owner, server, license, media and
+     * format values, and the tags, with the other photos parsed
+     * @return Photo
+     * @throws JSONException
+     */
+    public static final Photo createPhoto(JSONObject photoElement, StringDictionary dictionary)
+            throws JSONException {
         Photo photo = new Photo();
+        readIdentity(photo, photoElement, dictionary);
+        readAttributes(photo, photoElement, dictionary);
+        readDates(photo, photoElement);
+        readSizes(photo, photoElement);
+        readOwner(photo, photoElement, dictionary);
+        readText(photo, photoElement);
+        readNotes(photo, photoElement);
+        readTags(photo, photoElement, dictionary);
+        readGeoData(photo, photoElement);
+        return photo;
+    }
+
+    /**
+     * Create a photo reading only its id, secret, server and farm, the other
+     * attributes are read on first access, see {@link LazyPhoto}.
+     * 
+     * @param photoElement
+     * @param dictionary Shares the repeated values with the other photos
+     * parsed
+     * @return Photo
+     * @throws JSONException
+     */
+    public static final Photo createLazyPhoto(JSONObject photoElement, StringDictionary dictionary)
+            throws JSONException {
+        return new LazyPhoto(photoElement, dictionary);
+    }
+
+    private static Photo newPhoto(JSONObject photoElement, StringDictionary dictionary, boolean lazy)
+            throws JSONException {
+        return lazy ? createLazyPhoto(photoElement, dictionary) : createPhoto(photoElement, dictionary);
+    }
+
+    static void readIdentity(Photo photo, JSONObject photoElement, StringDictionary dictionary)
+            throws JSONException {
         photo.setId(photoElement.getString("id"));
-        photo.setPlaceId(photoElement.optString("place_id", null));
         photo.setSecret(photoElement.getString("secret"));
-        photo.setServer(photoElement.getString("server"));
-        photo.setFarm(Integer.toString(photoElement.getInt("farm")));
+        photo.setServer(dictionary.intern(photoElement.getString("server")));
+        photo.setFarm(dictionary.intern(Integer.toString(photoElement.getInt("farm"))));
+    }
+
+    static void readAttributes(Photo photo, JSONObject photoElement, StringDictionary dictionary)
+            throws JSONException {
+        photo.setPlaceId(dictionary.intern(photoElement.optString("place_id", null)));
         photo.setRotation(photoElement.optString("rotation", null));
         photo.setFavorite("1".equals(photoElement.optString("isfavorite")));
         photo.setPrimary(photoElement.optString("isprimary", null));
-        photo.setLicense(photoElement.optString("license"));
-        photo.setOriginalFormat(photoElement.optString("originalformat"));
+        photo.setLicense(dictionary.intern(photoElement.optString("license")));
+        photo.setOriginalFormat(dictionary.intern(photoElement.optString("originalformat")));
         photo.setOriginalSecret(photoElement.optString("originalsecret"));
-        photo.setIconServer(photoElement.optString("iconserver", null));
-        photo.setIconFarm(photoElement.optString("iconfarm", null));
+        photo.setIconServer(dictionary.intern(photoElement.optString("iconserver", null)));
+        photo.setIconFarm(dictionary.intern(photoElement.optString("iconfarm", null)));
+        photo.setOriginalWidth(photoElement.optString("o_width"));
+        photo.setOriginalHeight(photoElement.optString("o_height"));
+        photo.setMedia(dictionary.intern(photoElement.optString("media")));
+        photo.setMediaStatus(dictionary.intern(photoElement.optString("media_status")));
+        photo.setPathAlias(dictionary.intern(photoElement.optString("pathalias")));
+
+        if (photo.getOriginalFormat() == null
+                || photo.getOriginalFormat().equals("")) {
+            photo.setOriginalFormat("jpg");
+        }
+
+        // here the flags are set, if the photo is read by getInfo().
+        photo.setPublicFlag(photoElement.optInt("ispublic", 0) == 1);
+        photo.setFriendFlag(photoElement.optInt("isfriend", 0) == 1);
+        photo.setFamilyFlag(photoElement.optInt("isfamily", 0) == 1);
+
+        // Parse either photo by getInfo, or from list
+        /*
+         * try { JSONObject datesElement = photoElement.optJSONObject("dates");
+         * photo.setDatePosted(datesElement.getAttribute("posted"));
+         * photo.setDateTaken(datesElement.getAttribute("taken"));
+         * photo.setTakenGranularity
+         * (datesElement.getAttribute("takengranularity"));
+         * photo.setLastUpdate(datesElement.getAttribute("lastupdate")); } catch
+         * (IndexOutOfBoundsException e) {
+         * photo.setDateTaken(photoElement.getAttribute("datetaken")); } catch
+         * (NullPointerException e) {
+         * photo.setDateTaken(photoElement.getAttribute("datetaken")); }
+         */
+
+        /*
+         * NodeList permissionsNodes =
+         * photoElement.getElementsByTagName("permissions"); if
+         * (permissionsNodes.getLength() > 0) { Element permissionsElement =
+         * (Element) permissionsNodes.item(0); Permissions permissions = new
+         * Permissions();
+         * permissions.setComment(permissionsElement.getAttribute(
+         * "permcomment"));
+         * permissions.setAddmeta(permissionsElement.getAttribute
+         * ("permaddmeta")); }
+         */
+
+        /*
+         * try { Element editabilityElement = (Element)
+         * photoElement.getElementsByTagName("editability").item(0); Editability
+         * editability = new Editability();
+         * editability.setComment("1".equals(editabilityElement
+         * .getAttribute("cancomment")));
+         * editability.setAddmeta("1".equals(editabilityElement
+         * .getAttribute("canaddmeta"))); photo.setEditability(editability); }
+         * catch (IndexOutOfBoundsException e) { } catch (NullPointerException
+         * e) { // nop }
+         */
+
+        if (photoElement.has("comments")) {
+            photo.setComments(JSONUtils.getChildValue(photoElement, "comments"));
+        }
+
+        JSONObject statsElement = photoElement.optJSONObject("stats");
+        if (statsElement != null) {
+            photo.setViews(statsElement.optInt("views", -1));
+            photo.setComments(statsElement.optInt("comments", -1));
+            photo.setFavorites(statsElement.optInt("favorites", -1));
+        } else {
+            photo.setViews(photoElement.optInt("views", -1));
+        }
+    }
+
+    static void readDates(Photo photo, JSONObject photoElement) {
         photo.setDateTaken(photoElement.optString("datetaken"));
         photo.setDatePosted(photoElement.optString("dateupload"));
         photo.setLastUpdate(photoElement.optString("lastupdate"));
         // flickr.groups.pools.getPhotos provides this value!
         photo.setDateAdded(photoElement.optString("dateadded"));
-        photo.setOriginalWidth(photoElement.optString("o_width"));
-        photo.setOriginalHeight(photoElement.optString("o_height"));
-        photo.setMedia(photoElement.optString("media"));
-        photo.setMediaStatus(photoElement.optString("media_status"));
-        photo.setPathAlias(photoElement.optString("pathalias"));
-        
+
         JSONObject dates = photoElement.optJSONObject("dates");
         if (dates != null) {
             photo.setDateTaken(dates.optString("taken"));
             photo.setDatePosted(dates.optString("posted"));
             photo.setLastUpdate(dates.optString("lastupdate"));
         }
+    }
 
+    static void readSizes(Photo photo, JSONObject photoElement) {
         // If the attributes active that contain the image-urls,
         // Size-objects created from them, which are used to override
         // the Url-generation.
@@ -138,32 +332,32 @@ public final class PhotoUtils {
         if (sizes.size() > 0) {
             photo.setSizes(sizes);
         }
+    }
 
-        if (photo.getOriginalFormat() == null
-                || photo.getOriginalFormat().equals("")) {
-            photo.setOriginalFormat("jpg");
-        }
-
+    static void readOwner(Photo photo, JSONObject photoElement, StringDictionary dictionary)
+            throws JSONException {
         User owner = new User();
         if (photoElement.has("owner")) {
             Object obj = photoElement.get("owner");
             if (obj instanceof JSONObject) {
                 JSONObject ownerObj = (JSONObject) obj;
-                owner.setId(ownerObj.getString("nsid"));
-                owner.setUsername(ownerObj.optString("username", null));
-                owner.setRealName(ownerObj.optString("realname", null));
-                owner.setLocation(ownerObj.optString("location", null));
+                owner.setId(dictionary.intern(ownerObj.getString("nsid")));
+                owner.setUsername(dictionary.intern(ownerObj.optString("username", null)));
+                owner.setRealName(dictionary.intern(ownerObj.optString("realname", null)));
+                owner.setLocation(dictionary.intern(ownerObj.optString("location", null)));
                 photo.setOwner(owner);
             } else {
-                owner.setId(photoElement.getString("owner"));
-                owner.setUsername(photoElement.optString("ownername", null));
+                owner.setId(dictionary.intern(photoElement.getString("owner")));
+                owner.setUsername(dictionary.intern(photoElement.optString("ownername", null)));
                 photo.setOwner(owner);
             }
             
             photo.setUrl("https://flickr.com/photos/" + owner.getId() + "/"
                     + photo.getId());
         }
-        
+    }
+
+    static void readText(Photo photo, JSONObject photoElement) throws JSONException {
         JSONObject titleObj = photoElement.optJSONObject("title");
         if (titleObj != null) {
             photo.setTitle(titleObj.getString("_content"));
@@ -173,54 +367,9 @@ public final class PhotoUtils {
 
         photo.setDescription(JSONUtils.getChildValue(photoElement,
                 "description"));
+    }
 
-        // here the flags are set, if the photo is read by getInfo().
-        photo.setPublicFlag(photoElement.optInt("ispublic", 0) == 1);
-        photo.setFriendFlag(photoElement.optInt("isfriend", 0) == 1);
-        photo.setFamilyFlag(photoElement.optInt("isfamily", 0) == 1);
-
-        // Parse either photo by getInfo, or from list
-        /*
-         * try { JSONObject datesElement = photoElement.optJSONObject("dates");
-         * photo.setDatePosted(datesElement.getAttribute("posted"));
-         * photo.setDateTaken(datesElement.getAttribute("taken"));
-         * photo.setTakenGranularity
-         * (datesElement.getAttribute("takengranularity"));
-         * photo.setLastUpdate(datesElement.getAttribute("lastupdate")); } catch
-         * (IndexOutOfBoundsException e) {
-         * photo.setDateTaken(photoElement.getAttribute("datetaken")); } catch
-         * (NullPointerException e) {
-         * photo.setDateTaken(photoElement.getAttribute("datetaken")); }
-         */
-
-        /*
-         * NodeList permissionsNodes =
-         * photoElement.getElementsByTagName("permissions"); if
-         * (permissionsNodes.getLength() > 0) { Element permissionsElement =
-         * (Element) permissionsNodes.item(0); Permissions permissions = new
-         * Permissions();
-         * permissions.setComment(permissionsElement.getAttribute(
-         * "permcomment"));
-         * permissions.setAddmeta(permissionsElement.getAttribute
-         * ("permaddmeta")); }
-         */
-
-        /*
-         * try { Element editabilityElement = (Element)
-         * photoElement.getElementsByTagName("editability").item(0); Editability
-         * editability = new Editability();
-         * editability.setComment("1".equals(editabilityElement
-         * .getAttribute("cancomment")));
-         * editability.setAddmeta("1".equals(editabilityElement
-         * .getAttribute("canaddmeta"))); photo.setEditability(editability); }
-         * catch (IndexOutOfBoundsException e) { } catch (NullPointerException
-         * e) { // nop }
-         */
-
-        if (photoElement.has("comments")) {
-            photo.setComments(JSONUtils.getChildValue(photoElement, "comments"));
-        }
-
+    static void readNotes(Photo photo, JSONObject photoElement) throws JSONException {
         JSONObject notesElement = photoElement.optJSONObject("notes");
         List<Note> notes = new ArrayList<Note>();
         if (notesElement != null) {
@@ -239,7 +388,10 @@ public final class PhotoUtils {
             }
         }
         photo.setNotes(notes);
+    }
 
+    static void readTags(Photo photo, JSONObject photoElement, StringDictionary dictionary)
+            throws JSONException {
         // Tags coming as space-seperated attribute calling
         // InterestingnessInterface#getList().
         // Through PhotoInterface#getInfo() the Photo has a list of
@@ -264,7 +416,7 @@ public final class PhotoUtils {
                 String[] values = tagsAttr.split(" ");
                 for (int i = 0; i < values.length; i++) {
                     Tag tag = new Tag();
-                    tag.setValue(values[i]);
+                    tag.setValue(dictionary.intern(values[i]));
                     tags.add(tag);
                 }
             }
@@ -287,7 +439,9 @@ public final class PhotoUtils {
          * (IndexOutOfBoundsException e) { } catch (NullPointerException e) {
          * photo.setUrls(new ArrayList<PhotoUrl>()); }
          */
+    }
 
+    static void readGeoData(Photo photo, JSONObject photoElement) {
         String longitude = photoElement.optString("longitude", null);
         String latitude = photoElement.optString("latitude", null);
         String accuracy = photoElement.optString("accuracy", null);
@@ -298,17 +452,6 @@ public final class PhotoUtils {
                 photo.setGeoData(new GeoData(longitude, latitude, accuracy));
             }
         }
-        
-        JSONObject statsElement = photoElement.optJSONObject("stats");
-        if (statsElement != null) {
-            photo.setViews(statsElement.optInt("views", -1));
-            photo.setComments(statsElement.optInt("comments", -1));
-            photo.setFavorites(statsElement.optInt("favorites", -1));
-        } else {
-            photo.setViews(photoElement.optInt("views", -1));
-        }
-
-        return photo;
     }
 
     private static void addSize(final List<Size> sizes, final JSONObject photoElement, final String keySuffix, final int sizeLabel) {
@@ -346,12 +489,183 @@ public final class PhotoUtils {
         photos.setPerPage(photosElement.optInt("perpage"));
         photos.setTotal(photosElement.optInt("total"));
 
+        StringDictionary dictionary = dictionary();
+        boolean lazy = RequestContext.getRequestContext().isLazyPhotos();
         JSONArray photoNodes = photosElement.optJSONArray("photo");
         for (int i = 0; photoNodes != null && i < photoNodes.length(); i++) {
             JSONObject photoElement = photoNodes.getJSONObject(i);
-            photos.add(PhotoUtils.createPhoto(photoElement));
+            photos.add(newPhoto(photoElement, dictionary, lazy));
         }
+        logger.debug("Parsed {} photos, {}", Integer.valueOf(photos.size()), dictionary);
+        return photos;
+    }
+
+    /**
+     * Parse a list of Photos from a streamed response, only one photo at a
+     * time is held as a JSONObject.
+     * 
+     * @param reader The reader positioned at the <code>photos</code> object
+     * @return PhotoList
+     * @throws IOException
+     * @throws JSONException
+     */
+    public static final PhotoList createPhotoList(JSONReader reader)
+            throws IOException, JSONException {
+        PhotoList photos = new PhotoList();
+        JSONObject photosElement = readPhotos(reader, photos);
+        photos.setPage(photosElement.optInt("page"));
+        photos.setPages(photosElement.optInt("pages"));
+        photos.setPerPage(photosElement.optInt("perpage"));
+        photos.setTotal(photosElement.optInt("total"));
         return photos;
     }
 
+    /**
+     * Parse a list of compact photos from given Element.
+     * 
+     * @param responseData
+     * @return CompactPhotoList
+     * @throws JSONException
+     */
+    public static final CompactPhotoList createCompactPhotoList(JSONObject responseData)
+            throws JSONException {
+        JSONObject photosElement = responseData.getJSONObject("photos");
+        CompactPhotoList photos = new CompactPhotoList(dictionary());
+        photos.setPage(photosElement.optInt("page"));
+        photos.setPages(photosElement.optInt("pages"));
+        photos.setPerPage(photosElement.optInt("perpage"));
+        photos.setTotal(photosElement.optInt("total"));
+
+        JSONArray photoNodes = photosElement.optJSONArray("photo");
+        for (int i = 0; photoNodes != null && i < photoNodes.length(); i++) {
+            photos.add(CompactPhoto.create(photoNodes.getJSONObject(i), photos));
+        }
+        return photos;
+    }
+
+    /**
+     * Parse a list of compact photos from a streamed response, only one
+     * photo at a time is held as a JSONObject.
+     * 
+     * @param reader The reader positioned at the <code>photos</code> object
+     * @return CompactPhotoList
+     * @throws IOException
+     * @throws JSONException
+     */
+    public static final CompactPhotoList createCompactPhotoList(JSONReader reader)
+            throws IOException, JSONException {
+        CompactPhotoList photos = new CompactPhotoList(dictionary());
+        JSONObject attributes = new JSONObject();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("photo".equals(name) && reader.peek() == JSONReader.Token.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    photos.add(CompactPhoto.create(reader.readObject(), photos));
+                }
+                reader.endArray();
+            } else {
+                attributes.put(name, reader.readValue());
+            }
+        }
+        reader.endObject();
+        photos.setPage(attributes.optInt("page"));
+        photos.setPages(attributes.optInt("pages"));
+        photos.setPerPage(attributes.optInt("perpage"));
+        photos.setTotal(attributes.optInt("total"));
+        return photos;
+    }
+
+    /**
+     * Parse a list of photos into columns from given Element.
+     * 
+     * @param responseData
+     * @return ColumnarPhotoList
+     * @throws JSONException
+     */
+    public static final ColumnarPhotoList createColumnarPhotoList(JSONObject responseData)
+            throws JSONException {
+        JSONObject photosElement = responseData.getJSONObject("photos");
+        JSONArray photoNodes = photosElement.optJSONArray("photo");
+        ColumnarPhotoList photos = new ColumnarPhotoList(photoNodes == null ? 0 : photoNodes.length());
+        photos.setPage(photosElement.optInt("page"));
+        photos.setPages(photosElement.optInt("pages"));
+        photos.setPerPage(photosElement.optInt("perpage"));
+        photos.setTotal(photosElement.optInt("total"));
+
+        for (int i = 0; photoNodes != null && i < photoNodes.length(); i++) {
+            photos.add(photoNodes.getJSONObject(i));
+        }
+        return photos;
+    }
+
+    /**
+     * Parse a list of photos into columns from a streamed response, only one
+     * photo at a time is held as a JSONObject.
+     * 
+     * @param reader The reader positioned at the <code>photos</code> object
+     * @return ColumnarPhotoList
+     * @throws IOException
+     * @throws JSONException
+     */
+    public static final ColumnarPhotoList createColumnarPhotoList(JSONReader reader)
+            throws IOException, JSONException {
+        ColumnarPhotoList photos = new ColumnarPhotoList();
+        JSONObject attributes = new JSONObject();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("photo".equals(name) && reader.peek() == JSONReader.Token.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    photos.add(reader.readObject());
+                }
+                reader.endArray();
+            } else {
+                attributes.put(name, reader.readValue());
+            }
+        }
+        reader.endObject();
+        photos.trimToSize();
+        photos.setPage(attributes.optInt("page"));
+        photos.setPages(attributes.optInt("pages"));
+        photos.setPerPage(attributes.optInt("perpage"));
+        photos.setTotal(attributes.optInt("total"));
+        return photos;
+    }
+
+    /**
+     * Read an object holding a <code>photo</code> array, such as a page of
+     * photos or a photoset, from a streamed response.
+     * 
+     * @param reader The reader positioned at the object
+     * @param photos The list the photos are added to
+     * @return the other members of the object
+     * @throws IOException
+     * @throws JSONException
+     */
+    public static final JSONObject readPhotos(JSONReader reader, List<Photo> photos)
+            throws IOException, JSONException {
+        JSONObject attributes = new JSONObject();
+        StringDictionary dictionary = dictionary();
+        boolean lazy = RequestContext.getRequestContext().isLazyPhotos();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("photo".equals(name) && reader.peek() == JSONReader.Token.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    photos.add(newPhoto(reader.readObject(), dictionary, lazy));
+                }
+                reader.endArray();
+                logger.debug("Parsed {} photos, {}", Integer.valueOf(photos.size()), dictionary);
+            } else {
+                attributes.put(name, reader.readValue());
+            }
+        }
+        reader.endObject();
+        return attributes;
+    }
+
 }
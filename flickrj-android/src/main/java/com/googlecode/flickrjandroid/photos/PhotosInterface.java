@@ -7,8 +7,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
@@ -19,16 +17,27 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import com.googlecode.flickrjandroid.AsyncFlickr;
 import com.googlecode.flickrjandroid.FlickrException;
+import com.googlecode.flickrjandroid.PageFetchException;
+import com.googlecode.flickrjandroid.PageFetcher;
+import com.googlecode.flickrjandroid.PageHarvester;
+import com.googlecode.flickrjandroid.PagedIterable;
 import com.googlecode.flickrjandroid.Parameter;
 import com.googlecode.flickrjandroid.REST;
 import com.googlecode.flickrjandroid.RequestContext;
 import com.googlecode.flickrjandroid.Response;
+import com.googlecode.flickrjandroid.ResponseHandler;
+import com.googlecode.flickrjandroid.SearchResultList;
 import com.googlecode.flickrjandroid.Transport;
+import com.googlecode.flickrjandroid.http.HttpRequest;
+import com.googlecode.flickrjandroid.http.HttpResponse;
+import com.googlecode.flickrjandroid.http.HttpStatusException;
 import com.googlecode.flickrjandroid.oauth.OAuthInterface;
 import com.googlecode.flickrjandroid.oauth.OAuthUtils;
 import com.googlecode.flickrjandroid.people.User;
 import com.googlecode.flickrjandroid.photos.geo.GeoInterface;
+import com.googlecode.flickrjandroid.util.FlickrDates;
 import com.googlecode.flickrjandroid.util.JSONUtils;
 import com.googlecode.flickrjandroid.util.StringUtilities;
 
@@ -69,12 +78,6 @@ public class PhotosInterface {
     public static final String METHOD_SET_TAGS = "flickr.photos.setTags";
     public static final String METHOD_GET_INTERESTINGNESS = "flickr.interestingness.getList";
 
-    private static final ThreadLocal<DateFormat> DATE_FORMATS = new ThreadLocal<DateFormat>() {
-        protected synchronized DateFormat initialValue() {
-            return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-        }
-    };
-
     private GeoInterface geoInterface = null;
 
     private String apiKey;
@@ -261,11 +264,7 @@ public class PhotosInterface {
 
         OAuthUtils.addOAuthToken(parameters);
 
-        Response response = transport.postJSON(sharedSecret, parameters);
-        if (response.isError()) {
-            throw new FlickrException(response.getErrorCode(), response.getErrorMessage());
-        }
-        return PhotoUtils.createPhotoList(response.getData());
+        return transport.postJSON(sharedSecret, parameters, PhotoUtils.PHOTO_LIST_HANDLER);
     }
 
     /**
@@ -314,11 +313,7 @@ public class PhotosInterface {
             parameters.add(new Parameter(Extras.KEY_EXTRAS, StringUtilities.join(extras, ",")));
         }
 
-        Response response = transport.get(transport.getPath(), parameters);
-        if (response.isError()) {
-            throw new FlickrException(response.getErrorCode(), response.getErrorMessage());
-        }
-        return PhotoUtils.createPhotoList(response.getData());
+        return transport.get(transport.getPath(), parameters, PhotoUtils.PHOTO_LIST_HANDLER);
     }
 
     /**
@@ -574,11 +569,7 @@ public class PhotosInterface {
         }
         OAuthUtils.addOAuthToken(parameters);
 
-        Response response = transport.postJSON(sharedSecret, parameters);
-        if (response.isError()) {
-            throw new FlickrException(response.getErrorCode(), response.getErrorMessage());
-        }
-        return PhotoUtils.createPhotoList(response.getData());
+        return transport.postJSON(sharedSecret, parameters, PhotoUtils.PHOTO_LIST_HANDLER);
     }
 
 
@@ -646,11 +637,7 @@ public class PhotosInterface {
             parameters.add(new Parameter("page", page));
         }
 
-        Response response = transport.get(transport.getPath(), parameters);
-        if (response.isError()) {
-            throw new FlickrException(response.getErrorCode(), response.getErrorMessage());
-        }
-        return PhotoUtils.createPhotoList(response.getData());
+        return transport.get(transport.getPath(), parameters, PhotoUtils.PHOTO_LIST_HANDLER);
     }
 
     /**
@@ -742,11 +729,7 @@ public class PhotosInterface {
         }
         OAuthUtils.addOAuthToken(parameters);
 
-        Response response = transport.postJSON(sharedSecret, parameters);
-        if (response.isError()) {
-            throw new FlickrException(response.getErrorCode(), response.getErrorMessage());
-        }
-        return PhotoUtils.createPhotoList(response.getData());
+        return transport.postJSON(sharedSecret, parameters, PhotoUtils.PHOTO_LIST_HANDLER);
     }
 
 
@@ -817,11 +800,7 @@ public class PhotosInterface {
         }
         OAuthUtils.addOAuthToken(parameters);
 
-        Response response = transport.postJSON(sharedSecret, parameters);
-        if (response.isError()) {
-            throw new FlickrException(response.getErrorCode(), response.getErrorMessage());
-        }
-        return PhotoUtils.createPhotoList(response.getData());
+        return transport.postJSON(sharedSecret, parameters, PhotoUtils.PHOTO_LIST_HANDLER);
     }
 
 
@@ -888,11 +867,7 @@ public class PhotosInterface {
         }
         OAuthUtils.addOAuthToken(parameters);
 
-        Response response = transport.postJSON(sharedSecret, parameters);
-        if (response.isError()) {
-            throw new FlickrException(response.getErrorCode(), response.getErrorMessage());
-        }
-        return PhotoUtils.createPhotoList(response.getData());
+        return transport.postJSON(sharedSecret, parameters, PhotoUtils.PHOTO_LIST_HANDLER);
     }
 
 
@@ -930,11 +905,7 @@ public class PhotosInterface {
         }
         OAuthUtils.addOAuthToken(parameters);
 
-        Response response = transport.postJSON(sharedSecret, parameters);
-        if (response.isError()) {
-            throw new FlickrException(response.getErrorCode(), response.getErrorMessage());
-        }
-        return PhotoUtils.createPhotoList(response.getData());
+        return transport.postJSON(sharedSecret, parameters, PhotoUtils.PHOTO_LIST_HANDLER);
     }
 
     /**
@@ -973,6 +944,47 @@ public class PhotosInterface {
      * @throws JSONException 
      */
     public PhotoList search(SearchParameters params, int perPage, int page)
+        throws IOException, FlickrException, JSONException {
+        return search(params, perPage, page, PhotoUtils.PHOTO_LIST_HANDLER);
+    }
+
+    /**
+     * Search for photos which match the given search parameters, as compact
+     * photos taking far less memory for large lists.
+     *
+     * @param params The search parameters
+     * @param perPage The number of photos to show per page
+     * @param page The page offset
+     * @return A CompactPhotoList
+     * @throws IOException
+     * @throws FlickrException
+     * @throws JSONException 
+     * @see CompactPhoto
+     */
+    public CompactPhotoList searchCompact(SearchParameters params, int perPage, int page)
+        throws IOException, FlickrException, JSONException {
+        return search(params, perPage, page, PhotoUtils.COMPACT_PHOTO_LIST_HANDLER);
+    }
+
+    /**
+     * Search for photos which match the given search parameters, held in
+     * columns for filtering, sorting and aggregating large pages.
+     *
+     * @param params The search parameters
+     * @param perPage The number of photos to show per page
+     * @param page The page offset
+     * @return A ColumnarPhotoList
+     * @throws IOException
+     * @throws FlickrException
+     * @throws JSONException 
+     * @see ColumnarPhotoList
+     */
+    public ColumnarPhotoList searchColumnar(SearchParameters params, int perPage, int page)
+        throws IOException, FlickrException, JSONException {
+        return search(params, perPage, page, PhotoUtils.COLUMNAR_PHOTO_LIST_HANDLER);
+    }
+
+    private <T> T search(SearchParameters params, int perPage, int page, ResponseHandler<T> handler)
         throws IOException, FlickrException, JSONException {
         List<Parameter> parameters = new ArrayList<Parameter>();
         parameters.add(new Parameter("method", METHOD_SEARCH));
@@ -993,12 +1005,56 @@ public class PhotosInterface {
             parameters.add(new Parameter("page", "" + page));
         }
 
-        Response response = sign ? transport.postJSON(sharedSecret, parameters) 
-                : transport.get(transport.getPath(), parameters);
-        if (response.isError()) {
-            throw new FlickrException(response.getErrorCode(), response.getErrorMessage());
-        }
-        return PhotoUtils.createPhotoList(response.getData());
+        return sign ? transport.postJSON(sharedSecret, parameters, handler) 
+                : transport.get(transport.getPath(), parameters, handler);
+    }
+
+    /**
+     * Iterate over all photos matching the given search parameters, the
+     * pages are fetched as the iteration advances.
+     *
+     * @param params The search parameters
+     * @param perPage The number of photos to fetch per page
+     * @return The photos of all pages
+     * @see PagedIterable
+     */
+    public PagedIterable<Photo> iterateSearch(SearchParameters params, int perPage) {
+        return new PagedIterable<Photo>(getSearchFetcher(params, perPage));
+    }
+
+    /**
+     * Fetch all photos matching the given search parameters, the pages after
+     * the first one are fetched concurrently and duplicates are dropped.
+     *
+     * @param params The search parameters
+     * @param perPage The number of photos to fetch per page
+     * @param async Runs the requests for the pages after the first one
+     * @param parallelism The maximum number of pages requested concurrently
+     * @return The photos of all pages, in page order
+     * @throws PageFetchException if a page could not be fetched
+     * @see PageHarvester
+     */
+    public PhotoList harvestSearch(SearchParameters params, int perPage,
+            AsyncFlickr async, int parallelism) {
+        PageHarvester<Photo> harvester = new PageHarvester<Photo>(getSearchFetcher(params, perPage), async);
+        harvester.setParallelism(parallelism);
+        harvester.setKeyExtractor(PhotoUtils.PHOTO_ID);
+        return harvester.harvest(new PhotoList());
+    }
+
+    /**
+     * @param params The search parameters
+     * @param perPage The number of photos to fetch per page
+     * @return fetches the pages of {@link #search(SearchParameters, int, int)}
+     */
+    public PageFetcher<Photo> getSearchFetcher(final SearchParameters params, final int perPage) {
+        return new PageFetcher<Photo>() {
+            @Override
+            public SearchResultList<Photo> getPage(int page)
+                    throws IOException, FlickrException, JSONException {
+                return search(params, perPage, page);
+            }
+        };
     }
 
     /**
@@ -1122,7 +1178,7 @@ public class PhotosInterface {
         }
 
         if (dateTaken != null) {
-            parameters.add(new Parameter("date_taken", ((DateFormat)DATE_FORMATS.get()).format(dateTaken)));
+            parameters.add(new Parameter("date_taken", FlickrDates.formatDateTime(dateTaken)));
         }
 
         if (dateTakenGranularity != null) {
@@ -1335,17 +1391,22 @@ public class PhotosInterface {
         } else {
             throw new FlickrException("0", "Unknown Photo-size");
         }
-        URL url = new URL(urlStr);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        HttpRequest request = new HttpRequest(HttpRequest.METHOD_GET, new URL(urlStr));
         if (transport instanceof REST) {
             if (((REST) transport).isProxyAuth()) {
-                conn.setRequestProperty(
+                request.setHeader(
                     "Proxy-Authorization",
                     "Basic " + ((REST) transport).getProxyCredentials()
                 );
             }
         }
-        conn.connect();
-        return conn.getInputStream();
+        // through the engine of the transport, so a CachingHttpEngine keeps the image
+        HttpResponse response = transport.getHttpEngine().execute(request);
+        if (response.getCode() != HttpURLConnection.HTTP_OK) {
+            response.close();
+            throw new HttpStatusException(response.getCode(), "Cannot get image " + urlStr
+                    + ", Response Code: " + response.getCode() + ", Response Message: " + response.getMessage());
+        }
+        return response.getBody();
     }
 }
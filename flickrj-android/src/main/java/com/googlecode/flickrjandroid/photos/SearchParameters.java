@@ -13,6 +13,7 @@ import java.util.Set;
 
 import com.googlecode.flickrjandroid.FlickrException;
 import com.googlecode.flickrjandroid.Parameter;
+import com.googlecode.flickrjandroid.util.FlickrDates;
 import com.googlecode.flickrjandroid.util.StringUtilities;
 
 /**
@@ -50,12 +51,20 @@ public class SearchParameters {
     private boolean hasGeo = false;
     private boolean inCommons = false;
 
+    /**
+     * @deprecated Use {@link FlickrDates#formatDate(Date)}
+     */
+    @Deprecated
     public static final ThreadLocal<DateFormat> DATE_FORMATS = new ThreadLocal<DateFormat>() {
         protected synchronized DateFormat initialValue() {
             return new SimpleDateFormat("yyyy-MM-dd");
         }
     };
 
+    /**
+     * @deprecated Use {@link FlickrDates#formatDateTime(Date)}
+     */
+    @Deprecated
     public static final ThreadLocal<DateFormat> MYSQL_DATE_FORMATS = new ThreadLocal<DateFormat>() {
         protected synchronized DateFormat initialValue() {
             return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
@@ -519,12 +528,12 @@ public class SearchParameters {
 
         Date minTakenDate = getMinTakenDate();
         if (minTakenDate != null) {
-            parameters.add(new Parameter("min_taken_date", ((DateFormat)MYSQL_DATE_FORMATS.get()).format(minTakenDate)));
+            parameters.add(new Parameter("min_taken_date", FlickrDates.formatDateTime(minTakenDate)));
         }
 
         Date maxTakenDate = getMaxTakenDate();
         if (maxTakenDate != null) {
-            parameters.add(new Parameter("max_taken_date", ((DateFormat)MYSQL_DATE_FORMATS.get()).format(maxTakenDate)));
+            parameters.add(new Parameter("max_taken_date", FlickrDates.formatDateTime(maxTakenDate)));
         }
 
         String license = getLicense();
@@ -534,7 +543,7 @@ public class SearchParameters {
 
         Date intrestingnessDate = getInterestingnessDate();
         if (intrestingnessDate != null) {
-            parameters.add(new Parameter("date", ((DateFormat)DATE_FORMATS.get()).format(intrestingnessDate)));
+            parameters.add(new Parameter("date", FlickrDates.formatDate(intrestingnessDate)));
         }
 
         String[] bbox = getBBox();
@@ -245,10 +245,6 @@ public class CommentsInterface {
         }
         OAuthUtils.addOAuthToken(parameters);
 
-        Response response = transportAPI.postJSON(sharedSecret, parameters);
-        if (response.isError()) {
-            throw new FlickrException(response.getErrorCode(), response.getErrorMessage());
-        }
-        return PhotoUtils.createPhotoList(response.getData());
+        return transportAPI.postJSON(sharedSecret, parameters, PhotoUtils.PHOTO_LIST_HANDLER);
     }
 }
@@ -320,11 +320,7 @@ public class GeoInterface {
         parameters.add(new Parameter("lon", location.getLongitude()));
         parameters.add(new Parameter("accuracy", location.getAccuracy()));
         OAuthUtils.addOAuthToken(parameters);
-        Response response = transport.postJSON(sharedSecret, parameters);
-        if (response.isError()) {
-            throw new FlickrException(response.getErrorCode(), response.getErrorMessage());
-        }
-        return PhotoUtils.createPhotoList(response.getData());
+        return transport.postJSON(sharedSecret, parameters, PhotoUtils.PHOTO_LIST_HANDLER);
     }
 
     /**
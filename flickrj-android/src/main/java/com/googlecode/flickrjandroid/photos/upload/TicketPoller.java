@@ -0,0 +1,418 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.photos.upload;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.googlecode.flickrjandroid.FlickrCallback;
+import com.googlecode.flickrjandroid.FlickrException;
+import com.googlecode.flickrjandroid.RequestContext;
+
+/**
+ * Tracks the tickets of asynchronous uploads, see
+ * {@link com.googlecode.flickrjandroid.uploader.UploadMetaData#setAsync(boolean)},
+ * until Flickr has processed them:
+ *
+ * <pre>
+ * TicketPoller poller = new TicketPoller(flickr.getUploadInterface());
+ * Future&lt;String&gt; photoId = poller.track(uploader.upload(name, file, metaData));
+ * </pre>
+ *
+ * All the tickets outstanding are checked together, in calls of up to
+ * {@link #getMaxBatchSize()} tickets. The time between two checks follows
+ * the processing time observed: the next check is due when the oldest
+ * ticket outstanding has been processing for as long as the average ticket,
+ * or backs off while no ticket resolves, within
+ * {@link #getMinInterval()} and {@link #getMaxInterval()}.<p>
+ *
+ * The checks run on a daemon thread, with the {@link RequestContext} of the
+ * thread which created the poller.
+ */
+public class TicketPoller {
+    private static final Logger logger = LoggerFactory.getLogger(TicketPoller.class);
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+    public static final long DEFAULT_MIN_INTERVAL = 1000L;
+    public static final long DEFAULT_MAX_INTERVAL = 30000L;
+
+    /** The weight of a new processing time in the average */
+    private static final double SMOOTHING = 0.2;
+
+    private final UploadInterface uploadInterface;
+    private final RequestContext requestContext;
+    private final Map<String, TicketFuture> outstanding = new LinkedHashMap<String, TicketFuture>();
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> nextCheck;
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+    private long minInterval = DEFAULT_MIN_INTERVAL;
+    private long maxInterval = DEFAULT_MAX_INTERVAL;
+    private long backoff = -1;
+    private double averageProcessingTime = -1;
+    private long checks = 0;
+    private long resolved = 0;
+
+    /**
+     * @param uploadInterface Checks the tickets
+     */
+    public TicketPoller(UploadInterface uploadInterface) {
+        super();
+        if (uploadInterface == null) {
+            throw new IllegalArgumentException("UploadInterface must not be null");
+        }
+        this.uploadInterface = uploadInterface;
+        this.requestContext = RequestContext.getRequestContext().copy();
+    }
+
+    public synchronized int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * @param maxBatchSize The maximum number of tickets checked by one call
+     */
+    public synchronized void setMaxBatchSize(int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("The batch size must be at least 1");
+        }
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public synchronized long getMinInterval() {
+        return minInterval;
+    }
+
+    /**
+     * @param minInterval The minimum time in milliseconds between two checks
+     */
+    public synchronized void setMinInterval(long minInterval) {
+        this.minInterval = minInterval;
+    }
+
+    public synchronized long getMaxInterval() {
+        return maxInterval;
+    }
+
+    /**
+     * @param maxInterval The maximum time in milliseconds between two checks
+     */
+    public synchronized void setMaxInterval(long maxInterval) {
+        this.maxInterval = maxInterval;
+    }
+
+    /**
+     * @return the average time in milliseconds from tracking a ticket to its
+     * resolution, -1 until a ticket resolved
+     */
+    public synchronized long getAverageProcessingTime() {
+        return (long) averageProcessingTime;
+    }
+
+    /**
+     * @return the number of checkTickets calls made
+     */
+    public synchronized long getChecks() {
+        return checks;
+    }
+
+    /**
+     * @return the number of tickets resolved
+     */
+    public synchronized long getResolved() {
+        return resolved;
+    }
+
+    /**
+     * @return the number of tickets outstanding
+     */
+    public synchronized int getOutstanding() {
+        return outstanding.size();
+    }
+
+    /**
+     * @param ticketId The ticket of an asynchronous upload
+     * @return the id of the photo once processed
+     */
+    public Future<String> track(String ticketId) {
+        return track(ticketId, null);
+    }
+
+    /**
+     * Track a ticket. The future fails with a {@link FlickrException} if
+     * Flickr failed to process the photo or does not know the ticket.
+     * Tracking a ticket already tracked returns the same future, the
+     * callback is notified as well.
+     *
+     * @param ticketId The ticket of an asynchronous upload
+     * @param callback Notified on the poller thread once the ticket resolves,
+     * may be null. An exception thrown by the callback is logged.
+     * @return the id of the photo once processed
+     */
+    public Future<String> track(String ticketId, FlickrCallback<String> callback) {
+        TicketFuture future;
+        synchronized (this) {
+            future = outstanding.get(ticketId);
+            if (future == null) {
+                future = new TicketFuture(ticketId);
+                outstanding.put(ticketId, future);
+                if (nextCheck == null) {
+                    schedule(System.currentTimeMillis());
+                }
+            }
+        }
+        if (callback != null) {
+            future.addCallback(callback);
+        }
+        return future;
+    }
+
+    /**
+     * Stop checking, the futures outstanding are cancelled.
+     */
+    public void shutdown() {
+        List<TicketFuture> cancelled;
+        synchronized (this) {
+            cancelled = new ArrayList<TicketFuture>(outstanding.values());
+            outstanding.clear();
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+                scheduler = null;
+            }
+            nextCheck = null;
+        }
+        for (TicketFuture future : cancelled) {
+            future.cancel(false);
+        }
+    }
+
+    private synchronized void untrack(TicketFuture future) {
+        if (outstanding.get(future.ticketId) == future) {
+            outstanding.remove(future.ticketId);
+        }
+    }
+
+    private void schedule(long now) {
+        long delay;
+        if (outstanding.isEmpty()) {
+            nextCheck = null;
+            return;
+        }
+        long oldest = outstanding.values().iterator().next().tracked;
+        long expected = averageProcessingTime < 0 ? -1 : oldest + (long) averageProcessingTime - now;
+        if (expected > 0) {
+            delay = expected;
+        } else {
+            // past the usual processing time, or nothing observed yet
+            delay = backoff < 0 ? minInterval : backoff;
+        }
+        delay = Math.max(minInterval, Math.min(maxInterval, delay));
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "flickrj-tickets");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        final ScheduledExecutorService current = scheduler;
+        nextCheck = scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                check(current);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param current The scheduler running the check, the next check is not
+     * scheduled if it was shut down since
+     */
+    private void check(ScheduledExecutorService current) {
+        List<Set<Object>> batches = new ArrayList<Set<Object>>();
+        synchronized (this) {
+            Set<Object> batch = null;
+            for (String ticketId : outstanding.keySet()) {
+                if (batch == null || batch.size() >= maxBatchSize) {
+                    batch = new LinkedHashSet<Object>();
+                    batches.add(batch);
+                }
+                batch.add(ticketId);
+            }
+        }
+        int resolvedNow = 0;
+        RequestContext.setRequestContext(requestContext);
+        try {
+            for (Set<Object> batch : batches) {
+                List<Ticket> tickets;
+                try {
+                    synchronized (this) {
+                        checks++;
+                    }
+                    tickets = uploadInterface.checkTickets(batch);
+                } catch (Exception e) {
+                    logger.warn("Failed to check {} upload tickets", Integer.valueOf(batch.size()), e);
+                    continue;
+                }
+                for (Ticket ticket : tickets) {
+                    if (resolve(ticket)) {
+                        resolvedNow++;
+                    }
+                }
+            }
+        } finally {
+            RequestContext.resetThreadLocals();
+            // whatever went wrong, the tickets left are checked again
+            synchronized (this) {
+                if (scheduler == current) {
+                    if (resolvedNow > 0) {
+                        backoff = -1;
+                    } else {
+                        backoff = Math.min(maxInterval, backoff < 0 ? minInterval * 2 : backoff * 2);
+                    }
+                    schedule(System.currentTimeMillis());
+                }
+            }
+        }
+    }
+
+    private boolean resolve(Ticket ticket) {
+        if (ticket.isBusy() && !ticket.isInvalid()) {
+            return false;
+        }
+        TicketFuture future;
+        synchronized (this) {
+            future = outstanding.remove(ticket.getTicketId());
+            if (future == null) {
+                return false;
+            }
+            resolved++;
+            long processingTime = System.currentTimeMillis() - future.tracked;
+            averageProcessingTime = averageProcessingTime < 0 ? processingTime
+                    : SMOOTHING * processingTime + (1 - SMOOTHING) * averageProcessingTime;
+        }
+        if (ticket.isInvalid()) {
+            future.fail(new FlickrException("invalid", "Invalid upload ticket " + ticket.getTicketId()));
+        } else if (ticket.hasFailed()) {
+            future.fail(new FlickrException("failed", "Upload ticket " + ticket.getTicketId() + " failed"));
+        } else {
+            future.complete(ticket.getPhotoId());
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "TicketPoller [outstanding=" + outstanding.size() + ", checks=" + checks + ", resolved=" + resolved
+            + ", averageProcessingTime=" + (long) averageProcessingTime + "]";
+    }
+
+    /**
+     * The pending photo id of a ticket.
+     */
+    private final class TicketFuture extends FutureTask<String> {
+        final String ticketId;
+        final long tracked = System.currentTimeMillis();
+        private final List<FlickrCallback<String>> callbacks = new ArrayList<FlickrCallback<String>>(1);
+        private boolean notified = false;
+
+        TicketFuture(String ticketId) {
+            super(new Callable<String>() {
+                @Override
+                public String call() {
+                    throw new IllegalStateException("Completed by the poller");
+                }
+            });
+            this.ticketId = ticketId;
+        }
+
+        /**
+         * Notify the callback once done, or now if done already.
+         */
+        void addCallback(FlickrCallback<String> callback) {
+            synchronized (callbacks) {
+                if (!notified) {
+                    callbacks.add(callback);
+                    return;
+                }
+            }
+            notifyCallback(callback);
+        }
+
+        void complete(String photoId) {
+            set(photoId);
+        }
+
+        void fail(Throwable error) {
+            setException(error);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                untrack(this);
+            }
+            return cancelled;
+        }
+
+        @Override
+        protected void done() {
+            List<FlickrCallback<String>> notifying;
+            synchronized (callbacks) {
+                notified = true;
+                notifying = new ArrayList<FlickrCallback<String>>(callbacks);
+                callbacks.clear();
+            }
+            for (FlickrCallback<String> callback : notifying) {
+                notifyCallback(callback);
+            }
+        }
+
+        private void notifyCallback(FlickrCallback<String> callback) {
+            String photoId = null;
+            Throwable error = null;
+            try {
+                photoId = get();
+            } catch (ExecutionException e) {
+                error = e.getCause();
+            } catch (CancellationException e) {
+                error = e;
+            } catch (InterruptedException e) {
+                // done, get does not block
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                if (error == null) {
+                    callback.onSuccess(photoId);
+                } else {
+                    callback.onFailure(error);
+                }
+            } catch (RuntimeException e) {
+                // must not stop the checks of the other tickets
+                logger.warn("Callback of upload ticket {} failed", ticketId, e);
+            }
+        }
+    }
+
+}
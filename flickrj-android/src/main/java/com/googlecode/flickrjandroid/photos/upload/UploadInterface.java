@@ -83,8 +83,9 @@ public class UploadInterface {
         for (int i = 0; ticketNodes != null && i < ticketNodes.length(); i++) {
             JSONObject ticketElement = ticketNodes.getJSONObject(i);
             String id = ticketElement.getString("id");
-            String complete = ticketElement.getString("complete");
-            String photoId = ticketElement.getString("photoid");
+            // pending and failed tickets have no photoid, invalid ones no complete
+            int complete = ticketElement.optInt("complete", Ticket.UNCOMPLETED);
+            String photoId = ticketElement.optString("photoid", null);
             Ticket info = new Ticket();
             info.setTicketId(id);
             if (ticketElement.has("invalid")) {
@@ -92,7 +93,7 @@ public class UploadInterface {
                 boolean invalid = "1".equals(ticketElement.getString("invalid"));
                 info.setInvalid(invalid);
             }
-            info.setStatus(Integer.parseInt(complete));
+            info.setStatus(complete);
             info.setPhotoId(photoId);
             list.add(info);
         }
@@ -15,8 +15,12 @@ import org.json.JSONObject;
 
 import com.googlecode.flickrjandroid.Flickr;
 import com.googlecode.flickrjandroid.FlickrException;
+import com.googlecode.flickrjandroid.PageFetcher;
+import com.googlecode.flickrjandroid.PagedIterable;
 import com.googlecode.flickrjandroid.Parameter;
 import com.googlecode.flickrjandroid.Response;
+import com.googlecode.flickrjandroid.ResponseHandler;
+import com.googlecode.flickrjandroid.SearchResultList;
 import com.googlecode.flickrjandroid.Transport;
 import com.googlecode.flickrjandroid.oauth.OAuthInterface;
 import com.googlecode.flickrjandroid.oauth.OAuthUtils;
@@ -26,6 +30,7 @@ import com.googlecode.flickrjandroid.photos.Photo;
 import com.googlecode.flickrjandroid.photos.PhotoContext;
 import com.googlecode.flickrjandroid.photos.PhotoList;
 import com.googlecode.flickrjandroid.photos.PhotoUtils;
+import com.googlecode.flickrjandroid.util.JSONReader;
 import com.googlecode.flickrjandroid.util.JSONUtils;
 import com.googlecode.flickrjandroid.util.StringUtilities;
 
@@ -492,7 +497,6 @@ public class PhotosetsInterface {
 	public Photoset getPhotos(String photosetId, Set<String> extras,
 			int privacyFilter, int perPage, int page) throws IOException,
 			FlickrException, JSONException {
-		PhotoList photos = new PhotoList();
 		List<Parameter> parameters = new ArrayList<Parameter>();
 		parameters.add(new Parameter("method", METHOD_GET_PHOTOS));
 		boolean signed = OAuthUtils.hasSigned();
@@ -525,35 +529,63 @@ public class PhotosetsInterface {
 			OAuthUtils.addOAuthToken(parameters);
 		}
 
-		Response response = signed ? transportAPI.postJSON(sharedSecret,
-				parameters) : transportAPI.get(transportAPI.getPath(),
-				parameters);
-		if (response.isError()) {
-			throw new FlickrException(response.getErrorCode(),
-					response.getErrorMessage());
-		}
-
-		JSONObject photosetElement = response.getData().getJSONObject(
-				"photoset");
-		Photoset photoset = parsePhotoset(photosetElement);
-		photoset.setPhotoList(photos);
-		JSONArray photoElements = photosetElement.optJSONArray("photo");
-		photos.setPage(photosetElement.getString("page"));
-		photos.setPages(photosetElement.getString("pages"));
-		photos.setPerPage(photosetElement.getString("per_page"));
-		photos.setTotal(photosetElement.getString("total"));
-
-		for (int i = 0; photoElements != null && i < photoElements.length(); i++) {
-			JSONObject photoElement = photoElements.getJSONObject(i);
-			Photo photo = PhotoUtils.createPhoto(photoElement);
-			if (photo.isPrimary()) {
-				photoset.setPrimaryPhoto(photo);
+		ResponseHandler<Photoset> handler = new ResponseHandler<Photoset>() {
+			@Override
+			public Photoset handle(String name, JSONReader reader)
+					throws IOException, JSONException {
+				if (!"photoset".equals(name)) {
+					reader.skipValue();
+					return null;
+				}
+				PhotoList photos = new PhotoList();
+				JSONObject photosetElement = PhotoUtils.readPhotos(reader, photos);
+				Photoset photoset = parsePhotoset(photosetElement);
+				photoset.setPhotoList(photos);
+				photos.setPage(photosetElement.getString("page"));
+				photos.setPages(photosetElement.getString("pages"));
+				photos.setPerPage(photosetElement.getString("per_page"));
+				photos.setTotal(photosetElement.getString("total"));
+
+				for (Photo photo : photos) {
+					if (photo.isPrimary()) {
+						photoset.setPrimaryPhoto(photo);
+					}
+				}
+				photoset.setPhotoCount(photos.getTotal());
+				return photoset;
 			}
-			photos.add(photo);
-		}
-		photoset.setPhotoCount(photos.getTotal());
+		};
+		return signed ? transportAPI.postJSON(sharedSecret, parameters,
+				handler) : transportAPI.get(transportAPI.getPath(),
+				parameters, handler);
+	}
 
-		return photoset;
+	/**
+	 * Iterate over the photos of the specified photoset, the pages are
+	 * fetched as the iteration advances.
+	 * 
+	 * @param photosetId
+	 *            The photoset ID
+	 * @param extras
+	 *            Set of extra-fields
+	 * @param privacyFilter
+	 *            filter value for authenticated calls
+	 * @param perPage
+	 *            The number of photos to fetch per page
+	 * @return The photos of all pages
+	 * @see PagedIterable
+	 */
+	public PagedIterable<Photo> iteratePhotos(final String photosetId,
+			final Set<String> extras, final int privacyFilter,
+			final int perPage) {
+		return new PagedIterable<Photo>(new PageFetcher<Photo>() {
+			@Override
+			public SearchResultList<Photo> getPage(int page)
+					throws IOException, FlickrException, JSONException {
+				return getPhotos(photosetId, extras, privacyFilter, perPage,
+						page).getPhotoList();
+			}
+		});
 	}
 
 	/**
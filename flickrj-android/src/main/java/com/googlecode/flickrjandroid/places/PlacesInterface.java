@@ -1,7 +1,6 @@
 package com.googlecode.flickrjandroid.places;
 
 import java.io.IOException;
-import java.text.DateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -18,6 +17,7 @@ import com.googlecode.flickrjandroid.oauth.OAuthInterface;
 import com.googlecode.flickrjandroid.oauth.OAuthUtils;
 import com.googlecode.flickrjandroid.photos.SearchParameters;
 import com.googlecode.flickrjandroid.tags.Tag;
+import com.googlecode.flickrjandroid.util.FlickrDates;
 import com.googlecode.flickrjandroid.util.StringUtilities;
 
 /**
@@ -430,7 +430,7 @@ public class PlacesInterface {
             parameters.add(new Parameter("woe_id", woeId));
         }
         if (date != null) {
-            parameters.add(new Parameter("date", ((DateFormat) SearchParameters.DATE_FORMATS.get()).format(date)));
+            parameters.add(new Parameter("date", FlickrDates.formatDate(date)));
         }
 
         Response response = transportAPI.get(transportAPI.getPath(), parameters);
@@ -595,10 +595,10 @@ public class PlacesInterface {
             parameters.add(new Parameter("max_upload_date", new Long(maxUploadDate.getTime() / 1000L)));
         }
         if (minTakenDate != null) {
-            parameters.add(new Parameter("min_taken_date", ((DateFormat) SearchParameters.MYSQL_DATE_FORMATS.get()).format(minTakenDate)));
+            parameters.add(new Parameter("min_taken_date", FlickrDates.formatDateTime(minTakenDate)));
         }
         if (maxTakenDate != null) {
-            parameters.add(new Parameter("max_taken_date", ((DateFormat) SearchParameters.MYSQL_DATE_FORMATS.get()).format(maxTakenDate)));
+            parameters.add(new Parameter("max_taken_date", FlickrDates.formatDateTime(maxTakenDate)));
         }
 
         Response response = transportAPI.get(transportAPI.getPath(), parameters);
@@ -654,10 +654,10 @@ public class PlacesInterface {
             parameters.add(new Parameter("max_upload_date", new Long(maxUploadDate.getTime() / 1000L)));
         }
         if (minTakenDate != null) {
-            parameters.add(new Parameter("min_taken_date", ((DateFormat) SearchParameters.MYSQL_DATE_FORMATS.get()).format(minTakenDate)));
+            parameters.add(new Parameter("min_taken_date", FlickrDates.formatDateTime(minTakenDate)));
         }
         if (maxTakenDate != null) {
-            parameters.add(new Parameter("max_taken_date", ((DateFormat) SearchParameters.MYSQL_DATE_FORMATS.get()).format(maxTakenDate)));
+            parameters.add(new Parameter("max_taken_date", FlickrDates.formatDateTime(maxTakenDate)));
         }
 
         OAuthUtils.addOAuthToken(parameters);
@@ -726,10 +726,10 @@ public class PlacesInterface {
             parameters.add(new Parameter("max_upload_date", new Long(maxUploadDate.getTime() / 1000L)));
         }
         if (minTakenDate != null) {
-            parameters.add(new Parameter("min_taken_date", ((DateFormat) SearchParameters.MYSQL_DATE_FORMATS.get()).format(minTakenDate)));
+            parameters.add(new Parameter("min_taken_date", FlickrDates.formatDateTime(minTakenDate)));
         }
         if (maxTakenDate != null) {
-            parameters.add(new Parameter("max_taken_date", ((DateFormat) SearchParameters.MYSQL_DATE_FORMATS.get()).format(maxTakenDate)));
+            parameters.add(new Parameter("max_taken_date", FlickrDates.formatDateTime(maxTakenDate)));
         }
 
         Response response = transportAPI.get(transportAPI.getPath(), parameters);
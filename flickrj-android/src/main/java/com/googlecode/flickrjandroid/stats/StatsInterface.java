@@ -89,11 +89,7 @@ public class StatsInterface {
         }
         parameters.add(new Parameter(OAuthInterface.PARAM_OAUTH_CONSUMER_KEY, apiKey));
         OAuthUtils.addOAuthToken(parameters);
-        Response response = transportAPI.postJSON(sharedSecret, parameters);
-        if (response.isError()) {
-            throw new FlickrException(response.getErrorCode(), response.getErrorMessage());
-        }
-        return PhotoUtils.createPhotoList(response.getData());
+        return transportAPI.postJSON(sharedSecret, parameters, PhotoUtils.PHOTO_LIST_HANDLER);
     }
     
     /**
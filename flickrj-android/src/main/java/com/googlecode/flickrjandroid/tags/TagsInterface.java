@@ -130,13 +130,8 @@ public class TagsInterface {
 		parameters.add(new Parameter("tag", tag));
 		parameters.add(new Parameter("cluster_id", clusterId));
 
-		Response response = transportAPI
-				.get(transportAPI.getPath(), parameters);
-		if (response.isError()) {
-			throw new FlickrException(response.getErrorCode(),
-					response.getErrorMessage());
-		}
-		return PhotoUtils.createPhotoList(response.getData());
+		return transportAPI
+				.get(transportAPI.getPath(), parameters, PhotoUtils.PHOTO_LIST_HANDLER);
 	}
 
 	/**
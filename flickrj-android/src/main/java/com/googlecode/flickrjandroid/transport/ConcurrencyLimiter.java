@@ -0,0 +1,212 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.transport;
+
+import java.net.HttpURLConnection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Adaptive limit on the number of concurrent calls.<p>
+ *
+ * The limit grows by one for every <code>limit</code> calls which succeed
+ * and is multiplied by {@link #getBackoffRatio()} when Flickr signals that
+ * it is overloaded, by HTTP 429 or 503, or by one of the
+ * {@link #getOverloadErrorCodes() overload error codes}. Other failures,
+ * such as timeouts, broken connections or errors of the call itself, leave
+ * the limit unchanged. The limit is lowered at most once per
+ * {@link #getCooldown() cooldown}, so that a burst of failures of calls
+ * which were started together counts once. Callers beyond the limit wait
+ * for a call to complete.
+ */
+public class ConcurrencyLimiter {
+    public static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    /** The call succeeded, the limit grows */
+    public static final int SUCCEEDED = 0;
+    /** Flickr signalled it is overloaded, the limit is lowered */
+    public static final int OVERLOADED = 1;
+    /** The call failed for another reason, the limit is unchanged */
+    public static final int FAILED = 2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private double limit;
+    private double backoffRatio = 0.5;
+    private long cooldown = 1000;
+    private Set<String> overloadErrorCodes = Collections.singleton("105");
+    private int inFlight = 0;
+    private int waiting = 0;
+    private long lastBackoff = 0;
+    private long backoffs = 0;
+
+    /**
+     * A limit starting at 8 concurrent calls, between 1 and 64.
+     */
+    public ConcurrencyLimiter() {
+        this(8, 1, 64);
+    }
+
+    /**
+     * @param initialLimit The initial number of concurrent calls
+     * @param minLimit The lowest limit
+     * @param maxLimit The highest limit
+     */
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        super();
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Invalid limits: " + initialLimit
+                    + " between " + minLimit + " and " + maxLimit);
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Wait until the call may start.
+     *
+     * @throws InterruptedException
+     */
+    public synchronized void acquire() throws InterruptedException {
+        waiting++;
+        try {
+            while (inFlight >= (int) limit) {
+                wait();
+            }
+        } finally {
+            waiting--;
+        }
+        inFlight++;
+    }
+
+    /**
+     * Complete a call started with {@link #acquire()}.
+     *
+     * @param overloaded True if Flickr signalled it is overloaded, false if
+     * the call succeeded
+     */
+    public void release(boolean overloaded) {
+        release(overloaded ? OVERLOADED : SUCCEEDED);
+    }
+
+    /**
+     * Complete a call started with {@link #acquire()}.
+     *
+     * @param outcome {@link #SUCCEEDED}, {@link #OVERLOADED} or
+     * {@link #FAILED}
+     */
+    public synchronized void release(int outcome) {
+        inFlight--;
+        if (outcome == OVERLOADED) {
+            long now = System.currentTimeMillis();
+            if (now - lastBackoff >= cooldown) {
+                lastBackoff = now;
+                backoffs++;
+                limit = Math.max(minLimit, limit * backoffRatio);
+            }
+        } else if (outcome == SUCCEEDED) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+        notifyAll();
+    }
+
+    /**
+     * @param httpStatus The HTTP status of a response
+     * @return true if the status means the server is overloaded
+     */
+    public boolean isOverloadStatus(int httpStatus) {
+        return httpStatus == HTTP_TOO_MANY_REQUESTS || httpStatus == HttpURLConnection.HTTP_UNAVAILABLE;
+    }
+
+    /**
+     * @param errorCode The Flickr error code of a response, may be null
+     * @return true if the error code means the API is overloaded
+     */
+    public boolean isOverloadErrorCode(String errorCode) {
+        return errorCode != null && overloadErrorCodes.contains(errorCode);
+    }
+
+    public Set<String> getOverloadErrorCodes() {
+        return overloadErrorCodes;
+    }
+
+    /**
+     * @param overloadErrorCodes The Flickr error codes which lower the limit,
+     * "105" (service currently unavailable) by default
+     */
+    public void setOverloadErrorCodes(Set<String> overloadErrorCodes) {
+        this.overloadErrorCodes = Collections.unmodifiableSet(new HashSet<String>(overloadErrorCodes));
+    }
+
+    public double getBackoffRatio() {
+        return backoffRatio;
+    }
+
+    /**
+     * @param backoffRatio The factor applied to the limit on overload
+     */
+    public void setBackoffRatio(double backoffRatio) {
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Backoff ratio must be between 0 and 1");
+        }
+        this.backoffRatio = backoffRatio;
+    }
+
+    public long getCooldown() {
+        return cooldown;
+    }
+
+    /**
+     * @param cooldown The minimum time in milliseconds between two reductions
+     * of the limit
+     */
+    public void setCooldown(long cooldown) {
+        this.cooldown = cooldown;
+    }
+
+    /**
+     * @return the current number of concurrent calls allowed
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    /**
+     * @return the number of calls in progress
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return the number of callers waiting for a call to complete
+     */
+    public synchronized int getQueueLength() {
+        return waiting;
+    }
+
+    /**
+     * @return the number of times the limit has been lowered
+     */
+    public synchronized long getBackoffs() {
+        return backoffs;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ConcurrencyLimiter [limit=" + getLimit() + ", inFlight=" + inFlight
+            + ", waiting=" + waiting + ", backoffs=" + backoffs + "]";
+    }
+
+}
@@ -0,0 +1,183 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.transport;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket pacing the calls made with an API key.<p>
+ *
+ * The bucket is refilled at {@link #getRate()} tokens per second and holds
+ * at most {@link #getBurst()} tokens. Every call takes the weight of its
+ * Flickr method, 1 unless configured otherwise with
+ * {@link #setWeight(String, double)}. A caller finding the bucket short of
+ * tokens reserves them anyway and sleeps until they have been refilled, so
+ * waiting callers are served in arrival order.<p>
+ *
+ * Flickr allows 3600 calls per hour and key, when the key is shared by
+ * several processes each one should be given its share of that rate.
+ */
+public class RateLimiter {
+    private final Map<String, Double> weights = new ConcurrentHashMap<String, Double>();
+    private double defaultWeight = 1;
+    private double rate;
+    private double burst;
+    private double tokens;
+    private long lastRefill;
+    private int waiting = 0;
+    private long acquired = 0;
+    private long throttled = 0;
+
+    /**
+     * @param rate The number of tokens refilled per second
+     * @param burst The maximum number of tokens in the bucket
+     */
+    public RateLimiter(double rate, double burst) {
+        super();
+        setRate(rate, burst);
+        this.tokens = burst;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * @param callsPerHour The number of calls of weight 1 allowed per hour
+     * @return a limiter with a burst of one minute worth of calls
+     */
+    public static RateLimiter perHour(double callsPerHour) {
+        double rate = callsPerHour / 3600;
+        return new RateLimiter(rate, Math.max(1, rate * 60));
+    }
+
+    /**
+     * @param rate The number of tokens refilled per second
+     * @param burst The maximum number of tokens in the bucket
+     */
+    public synchronized void setRate(double rate, double burst) {
+        if (rate <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate must be positive and burst at least 1");
+        }
+        refill(System.nanoTime());
+        this.rate = rate;
+        this.burst = burst;
+        this.tokens = Math.min(tokens, burst);
+    }
+
+    /**
+     * @return the number of tokens refilled per second
+     */
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    public synchronized double getBurst() {
+        return burst;
+    }
+
+    /**
+     * @param method The Flickr method, e.g. <code>flickr.photos.search</code>
+     * @param weight The number of tokens a call of the method takes
+     */
+    public void setWeight(String method, double weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight must not be negative");
+        }
+        weights.put(method, Double.valueOf(weight));
+    }
+
+    public double getWeight(String method) {
+        Double weight = method == null ? null : weights.get(method);
+        return weight == null ? defaultWeight : weight.doubleValue();
+    }
+
+    /**
+     * @param defaultWeight The number of tokens taken by the calls of methods
+     * without a weight of their own
+     */
+    public void setDefaultWeight(double defaultWeight) {
+        if (defaultWeight < 0) {
+            throw new IllegalArgumentException("Weight must not be negative");
+        }
+        this.defaultWeight = defaultWeight;
+    }
+
+    /**
+     * Take the tokens for a call, waiting until they are available.
+     *
+     * @param method The Flickr method of the call, may be null
+     * @throws InterruptedException if interrupted while waiting, the tokens
+     * are given back
+     */
+    public void acquire(String method) throws InterruptedException {
+        double weight = getWeight(method);
+        long waitNanos;
+        synchronized (this) {
+            refill(System.nanoTime());
+            tokens -= weight;
+            acquired++;
+            waitNanos = tokens >= 0 ? 0 : (long) (-tokens / rate * TimeUnit.SECONDS.toNanos(1));
+            if (waitNanos > 0) {
+                waiting++;
+                throttled++;
+            }
+        }
+        if (waitNanos > 0) {
+            boolean interrupted = true;
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+                interrupted = false;
+            } finally {
+                synchronized (this) {
+                    waiting--;
+                    if (interrupted) {
+                        tokens += weight;
+                    }
+                }
+            }
+        }
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(burst, tokens + (now - lastRefill) * rate / TimeUnit.SECONDS.toNanos(1));
+        lastRefill = now;
+    }
+
+    /**
+     * @return the number of tokens in the bucket, negative while callers are
+     * waiting for tokens they have reserved
+     */
+    public synchronized double getAvailableTokens() {
+        refill(System.nanoTime());
+        return tokens;
+    }
+
+    /**
+     * @return the number of callers currently waiting for tokens
+     */
+    public synchronized int getQueueLength() {
+        return waiting;
+    }
+
+    /**
+     * @return the number of calls which passed the limiter
+     */
+    public synchronized long getAcquired() {
+        return acquired;
+    }
+
+    /**
+     * @return the number of calls which had to wait for tokens
+     */
+    public synchronized long getThrottled() {
+        return throttled;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "RateLimiter [rate=" + rate + "/s, burst=" + burst + ", tokens=" + tokens
+            + ", waiting=" + waiting + ", acquired=" + acquired + ", throttled=" + throttled + "]";
+    }
+
+}
@@ -0,0 +1,241 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.transport;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.json.JSONException;
+
+import com.googlecode.flickrjandroid.FlickrException;
+import com.googlecode.flickrjandroid.Parameter;
+import com.googlecode.flickrjandroid.RequestContext;
+import com.googlecode.flickrjandroid.http.AbortSignal;
+import com.googlecode.flickrjandroid.util.StringDictionary;
+
+/**
+ * Lets concurrent identical API calls share one request: the first caller
+ * sends it, the callers arriving while it is in flight wait for it and get
+ * the same result, or the same exception. If the first caller is cancelled,
+ * the callers waiting send the request again:
+ *
+ * <pre>
+ * flickr.getTransport().setRequestCoalescer(new RequestCoalescer());
+ * </pre>
+ *
+ * Calls are identical if they have the same path and unsigned parameters,
+ * including the OAuth token, and are read by the same handler with the same
+ * {@link RequestContext#isLazyPhotos() lazy photos} setting and
+ * {@link RequestContext#getStringDictionary() dictionary}. The parsed result
+ * is shared, so callers must not change it.<p>
+ *
+ * By default the read methods are coalesced, as for
+ * {@link RetryPolicy#isRetryable(String)}, other methods only if marked with
+ * {@link #setCoalesced(String, boolean)}.
+ */
+public class RequestCoalescer {
+
+    /**
+     * A call which may be shared.
+     */
+    public interface Call<T> {
+        T run() throws IOException, JSONException, FlickrException;
+    }
+
+    private final Map<String, Boolean> coalesced = new ConcurrentHashMap<String, Boolean>();
+    private final ConcurrentMap<Key, Flight<?>> flights = new ConcurrentHashMap<Key, Flight<?>>();
+    private long requests = 0;
+    private long coalescedRequests = 0;
+
+    /**
+     * @param method The Flickr method, may be null
+     * @return true if concurrent calls of the method share one request
+     */
+    public boolean isCoalesced(String method) {
+        if (method == null) {
+            return false;
+        }
+        Boolean marked = coalesced.get(method);
+        if (marked != null) {
+            return marked.booleanValue();
+        }
+        return RetryPolicy.isReadMethod(method);
+    }
+
+    /**
+     * @param method The Flickr method, e.g. <code>flickr.photos.getInfo</code>
+     * @param coalesced True to share one request between concurrent calls
+     */
+    public void setCoalesced(String method, boolean coalesced) {
+        this.coalesced.put(method, Boolean.valueOf(coalesced));
+    }
+
+    /**
+     * Run a call, or wait for the identical call in flight.
+     *
+     * @param path The request path
+     * @param parameters The unsigned parameters of the call
+     * @param reader The object reading the response, only calls read by
+     * equal objects are shared
+     * @param call Sends the request and reads the response
+     * @return the result of the call
+     * @throws IOException
+     * @throws JSONException
+     * @throws FlickrException
+     */
+    public <T> T execute(String path, List<Parameter> parameters, Object reader, Call<T> call)
+            throws IOException, JSONException, FlickrException {
+        RequestContext context = RequestContext.getRequestContext();
+        Key key = new Key(ResponseCache.createKey(path, parameters), reader, context.isLazyPhotos(),
+                context.getStringDictionary());
+        Flight<T> flight = new Flight<T>();
+        while (true) {
+            @SuppressWarnings("unchecked")
+            Flight<T> current = (Flight<T>) flights.putIfAbsent(key, flight);
+            if (current == null) {
+                break;
+            }
+            synchronized (this) {
+                coalescedRequests++;
+            }
+            current.await();
+            if (!current.aborted) {
+                return current.get();
+            }
+            // cancelled for the caller which sent it only
+            synchronized (this) {
+                coalescedRequests--;
+            }
+        }
+        synchronized (this) {
+            requests++;
+        }
+        try {
+            flight.result = call.run();
+        } catch (IOException e) {
+            // a read timeout is shared, not a cancellation
+            AbortSignal signal = AbortSignal.current();
+            flight.aborted = (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException))
+                || (signal != null && signal.isAborted());
+            flight.failure = e;
+            throw e;
+        } catch (JSONException e) {
+            flight.failure = e;
+            throw e;
+        } catch (FlickrException e) {
+            flight.failure = e;
+            throw e;
+        } catch (RuntimeException e) {
+            flight.failure = e;
+            throw e;
+        } catch (Error e) {
+            flight.failure = e;
+            throw e;
+        } finally {
+            // later calls send a new request
+            flights.remove(key, flight);
+            flight.done.countDown();
+        }
+        return flight.result;
+    }
+
+    /**
+     * @return the number of requests sent
+     */
+    public synchronized long getRequests() {
+        return requests;
+    }
+
+    /**
+     * @return the number of coalesced requests, calls answered by a request
+     * in flight for another caller
+     */
+    public synchronized long getCoalescedRequests() {
+        return coalescedRequests;
+    }
+
+    /**
+     * @return the number of shared requests in flight
+     */
+    public int getInFlight() {
+        return flights.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "RequestCoalescer [requests=" + requests + ", coalescedRequests=" + coalescedRequests
+            + ", inFlight=" + flights.size() + "]";
+    }
+
+    private static final class Key {
+        private final String request;
+        private final Object reader;
+        private final boolean lazyPhotos;
+        /** Compared by identity */
+        private final StringDictionary dictionary;
+
+        Key(String request, Object reader, boolean lazyPhotos, StringDictionary dictionary) {
+            this.request = request;
+            this.reader = reader;
+            this.lazyPhotos = lazyPhotos;
+            this.dictionary = dictionary;
+        }
+
+        @Override
+        public int hashCode() {
+            return (request.hashCode() * 31 + reader.hashCode()) * 31 + System.identityHashCode(dictionary)
+                + (lazyPhotos ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return request.equals(other.request) && reader.equals(other.reader) && lazyPhotos == other.lazyPhotos
+                && dictionary == other.dictionary;
+        }
+    }
+
+    private static final class Flight<T> {
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile T result;
+        volatile Throwable failure;
+        /** True if the request failed because its caller cancelled it */
+        volatile boolean aborted = false;
+
+        void await() throws InterruptedIOException {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a coalesced request");
+            }
+        }
+
+        T get() throws IOException, JSONException, FlickrException {
+            Throwable failure = this.failure;
+            if (failure == null) {
+                return result;
+            } else if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure instanceof JSONException) {
+                throw (JSONException) failure;
+            } else if (failure instanceof FlickrException) {
+                throw (FlickrException) failure;
+            } else if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            throw (Error) failure;
+        }
+    }
+
+}
@@ -0,0 +1,284 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.transport;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.googlecode.flickrjandroid.Parameter;
+
+/**
+ * Keeps the responses of read-only Flickr methods for a time set per method,
+ * so that data which rarely changes is not fetched again:
+ *
+ * <pre>
+ * ResponseCache cache = ResponseCache.createDefault();
+ * cache.setTtl("flickr.photos.getExif", 1, TimeUnit.HOURS);
+ * flickr.getTransport().setResponseCache(cache);
+ * </pre>
+ *
+ * Only the methods given a TTL are cached. The raw response bodies are
+ * kept, every hit is parsed again, so callers never share the objects
+ * created from a response. Error responses are not kept.<p>
+ *
+ * Responses are keyed on the path and the unsigned parameters of the
+ * request, including the API key and the OAuth token, so the private data
+ * of one user is never served to a request made with another token. The
+ * least recently used responses are evicted once there are more than
+ * {@link #getMaxEntries()} of them or they hold more than
+ * {@link #getMaxBytes()} bytes.<p>
+ *
+ * The cache can be replaced by a subclass keeping the responses elsewhere.
+ */
+public class ResponseCache {
+    /** Parameters which are the same for every request, or change on every one */
+    private static final String[] IGNORED_PARAMETERS = {"nojsoncallback", "format",
+        "oauth_nonce", "oauth_timestamp", "oauth_signature", "oauth_signature_method", "oauth_version"};
+
+    private static final Comparator<Parameter> PARAMETER_ORDER = new Comparator<Parameter>() {
+        @Override
+        public int compare(Parameter o1, Parameter o2) {
+            int result = o1.getName().compareTo(o2.getName());
+            return result != 0 ? result : String.valueOf(o1.getValue()).compareTo(String.valueOf(o2.getValue()));
+        }
+    };
+
+    private final Map<String, Long> ttls = new ConcurrentHashMap<String, Long>();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private final int maxEntries;
+    private final long maxBytes;
+    private long bytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * A cache of at most 256 responses and 1 MB.
+     */
+    public ResponseCache() {
+        this(256, 1024 * 1024);
+    }
+
+    /**
+     * @param maxEntries The maximum number of responses kept
+     * @param maxBytes The maximum size of the responses kept
+     */
+    public ResponseCache(int maxEntries, long maxBytes) {
+        super();
+        if (maxEntries < 1 || maxBytes < 1) {
+            throw new IllegalArgumentException("The cache must hold at least one response");
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return a cache of the default size keeping the licenses, the API
+     * methods and the place types for a day, and the people and photo sizes
+     * for an hour
+     */
+    public static ResponseCache createDefault() {
+        ResponseCache cache = new ResponseCache();
+        cache.setTtl("flickr.photos.licenses.getInfo", 1, TimeUnit.DAYS);
+        cache.setTtl("flickr.reflection.getMethods", 1, TimeUnit.DAYS);
+        cache.setTtl("flickr.reflection.getMethodInfo", 1, TimeUnit.DAYS);
+        cache.setTtl("flickr.places.getPlaceTypes", 1, TimeUnit.DAYS);
+        cache.setTtl("flickr.people.getInfo", 1, TimeUnit.HOURS);
+        cache.setTtl("flickr.photos.getSizes", 1, TimeUnit.HOURS);
+        return cache;
+    }
+
+    /**
+     * @param method The Flickr method, e.g. <code>flickr.photos.getSizes</code>
+     * @param ttl The time the responses are kept, 0 to not cache the method
+     * @param unit The unit of the time
+     */
+    public void setTtl(String method, long ttl, TimeUnit unit) {
+        if (ttl <= 0) {
+            ttls.remove(method);
+        } else {
+            ttls.put(method, Long.valueOf(unit.toMillis(ttl)));
+        }
+    }
+
+    /**
+     * @param method The Flickr method, may be null
+     * @return the time in milliseconds the responses of the method are kept,
+     * 0 if they are not cached
+     */
+    public long getTtl(String method) {
+        Long ttl = method == null ? null : ttls.get(method);
+        return ttl == null ? 0 : ttl.longValue();
+    }
+
+    /**
+     * @param method The Flickr method, may be null
+     * @return true if the responses of the method are cached
+     */
+    public boolean isCacheable(String method) {
+        return getTtl(method) > 0;
+    }
+
+    /**
+     * @param path The request path
+     * @param parameters The unsigned parameters of the request
+     * @return the key of the response, the same for any order of the
+     * parameters
+     */
+    public String getKey(String path, List<Parameter> parameters) {
+        return createKey(path, parameters);
+    }
+
+    /**
+     * @see #getKey(String, List)
+     */
+    static String createKey(String path, List<Parameter> parameters) {
+        List<Parameter> sorted = new ArrayList<Parameter>(parameters.size());
+        for (Parameter parameter : parameters) {
+            if (!isIgnored(parameter.getName())) {
+                sorted.add(parameter);
+            }
+        }
+        Collections.sort(sorted, PARAMETER_ORDER);
+        StringBuilder key = new StringBuilder(path);
+        char separator = '?';
+        for (Parameter parameter : sorted) {
+            key.append(separator).append(parameter.getName()).append('=').append(parameter.getValue());
+            separator = '&';
+        }
+        return key.toString();
+    }
+
+    private static boolean isIgnored(String name) {
+        for (String ignored : IGNORED_PARAMETERS) {
+            if (ignored.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param key The key of the response
+     * @return the response body, or null if not cached or expired
+     */
+    public synchronized byte[] get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expires - System.currentTimeMillis() <= 0) {
+            remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.body;
+    }
+
+    /**
+     * Keep a response for the TTL of its method.
+     *
+     * @param key The key of the response
+     * @param method The Flickr method of the request
+     * @param body The response body, which must not be changed afterwards
+     */
+    public synchronized void put(String key, String method, byte[] body) {
+        long ttl = getTtl(method);
+        if (ttl <= 0 || body.length > maxBytes) {
+            return;
+        }
+        remove(key);
+        entries.put(key, new Entry(body, System.currentTimeMillis() + ttl));
+        bytes += body.length;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > maxEntries || bytes > maxBytes) {
+            bytes -= eldest.next().body.length;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            bytes -= entry.body.length;
+        }
+    }
+
+    /**
+     * Drop all responses.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return the number of responses kept
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the size of the responses kept
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the number of requests answered from the cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of requests of cached methods which went to Flickr
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of responses evicted to make room
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ResponseCache [entries=" + entries.size() + ", bytes=" + bytes + ", hits=" + hits
+            + ", misses=" + misses + ", evictions=" + evictions + "]";
+    }
+
+    private static final class Entry {
+        final byte[] body;
+        final long expires;
+
+        Entry(byte[] body, long expires) {
+            this.body = body;
+            this.expires = expires;
+        }
+    }
+
+}
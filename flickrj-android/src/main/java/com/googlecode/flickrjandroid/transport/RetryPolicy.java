@@ -0,0 +1,273 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.transport;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.googlecode.flickrjandroid.FlickrException;
+import com.googlecode.flickrjandroid.http.HttpStatusException;
+
+/**
+ * Decides whether and when a failed API call is retried.<p>
+ *
+ * Only calls of methods which are safe to repeat are retried. By default
+ * these are the read methods, whose name ends with a segment starting with
+ * <code>get</code>, <code>search</code>, <code>find</code>,
+ * <code>lookup</code> or <code>echo</code>, e.g.
+ * <code>flickr.photos.getInfo</code>. Other methods, such as
+ * <code>flickr.photos.delete</code> or <code>flickr.photosets.create</code>,
+ * are retried only if marked with {@link #setRetryable(String, boolean)}.<p>
+ *
+ * A call is retried after I/O errors, timeouts, HTTP 429, 500, 502, 503 and
+ * 504, and the {@link #getRetryableErrorCodes() retryable error codes} of
+ * Flickr. The delay grows exponentially from {@link #getBaseDelay()} up to
+ * {@link #getMaxDelay()}, with a random jitter of up to half the delay, or
+ * follows the <code>Retry-After</code> header of the server.<p>
+ *
+ * Retries are bounded by a budget, so that a failing API is not flooded with
+ * retries: every call deposits {@link #getBudgetRatio()} tokens, up to
+ * {@link #getMaxBudget()}, and every retry takes one token.
+ */
+public class RetryPolicy {
+    private static final String[] READ_PREFIXES = {"get", "search", "find", "lookup", "echo"};
+
+    private final Map<String, Boolean> retryable = new ConcurrentHashMap<String, Boolean>();
+    private final Random random = new Random();
+    private int maxAttempts = 3;
+    private long baseDelay = 250;
+    private long maxDelay = 10000;
+    private Set<String> retryableErrorCodes = Collections.singleton("105");
+    private double budgetRatio = 0.2;
+    private double maxBudget = 20;
+    private double budget;
+    private long retries = 0;
+    private long budgetExhausted = 0;
+
+    public RetryPolicy() {
+        super();
+        this.budget = maxBudget;
+    }
+
+    /**
+     * @param method The Flickr method, may be null
+     * @return true if calls of the method may be repeated
+     */
+    public boolean isRetryable(String method) {
+        if (method == null) {
+            return false;
+        }
+        Boolean marked = retryable.get(method);
+        if (marked != null) {
+            return marked.booleanValue();
+        }
+        return isReadMethod(method);
+    }
+
+    /**
+     * @param method The Flickr method
+     * @return true if the name of the method starts with one of the read
+     * prefixes
+     */
+    static boolean isReadMethod(String method) {
+        String name = method.substring(method.lastIndexOf('.') + 1);
+        for (String prefix : READ_PREFIXES) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param method The Flickr method, e.g. <code>flickr.photos.addTags</code>
+     * @param retryable True if calls of the method may be repeated
+     */
+    public void setRetryable(String method, boolean retryable) {
+        this.retryable.put(method, Boolean.valueOf(retryable));
+    }
+
+    /**
+     * @param failure The failure of an attempt
+     * @return true if the failure may be transient
+     */
+    public boolean isRetryable(Throwable failure) {
+        if (failure instanceof FlickrException) {
+            return isRetryableErrorCode(((FlickrException) failure).getErrorCode());
+        } else if (failure instanceof HttpStatusException) {
+            int code = ((HttpStatusException) failure).getCode();
+            return code == ConcurrencyLimiter.HTTP_TOO_MANY_REQUESTS
+                    || code == HttpURLConnection.HTTP_INTERNAL_ERROR
+                    || code == HttpURLConnection.HTTP_BAD_GATEWAY
+                    || code == HttpURLConnection.HTTP_UNAVAILABLE
+                    || code == HttpURLConnection.HTTP_GATEWAY_TIMEOUT;
+        } else if (failure instanceof SocketTimeoutException) {
+            return true;
+        } else if (failure instanceof InterruptedIOException || failure instanceof UnknownHostException) {
+            // cancelled, or not connected at all
+            return false;
+        }
+        return failure instanceof IOException;
+    }
+
+    /**
+     * @param errorCode The Flickr error code of a response, may be null
+     * @return true if the error may be transient
+     */
+    public boolean isRetryableErrorCode(String errorCode) {
+        return errorCode != null && retryableErrorCodes.contains(errorCode);
+    }
+
+    /**
+     * Take a retry from the budget.
+     *
+     * @return false if the budget is exhausted
+     */
+    public synchronized boolean acquireRetry() {
+        if (budget < 1) {
+            budgetExhausted++;
+            return false;
+        }
+        budget--;
+        retries++;
+        return true;
+    }
+
+    /**
+     * Record a call, which adds to the retry budget.
+     */
+    public synchronized void onCall() {
+        budget = Math.min(maxBudget, budget + budgetRatio);
+    }
+
+    /**
+     * @param attempt The number of the attempt which failed, starting with 1
+     * @param failure The failure of the attempt
+     * @return the time in milliseconds to wait before the next attempt
+     */
+    public long getDelay(int attempt, Throwable failure) {
+        if (failure instanceof HttpStatusException) {
+            long retryAfter = ((HttpStatusException) failure).getRetryAfter();
+            if (retryAfter >= 0) {
+                return Math.min(maxDelay, retryAfter);
+            }
+        }
+        long delay = Math.min(maxDelay, baseDelay << Math.min(attempt - 1, 30));
+        long jitter;
+        synchronized (random) {
+            jitter = (long) (random.nextDouble() * delay / 2);
+        }
+        return delay / 2 + jitter;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @param maxAttempts The maximum number of attempts of a call, including
+     * the first one
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("At least one attempt is required");
+        }
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getBaseDelay() {
+        return baseDelay;
+    }
+
+    /**
+     * @param baseDelay The delay in milliseconds before the first retry
+     */
+    public void setBaseDelay(long baseDelay) {
+        this.baseDelay = baseDelay;
+    }
+
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    /**
+     * @param maxDelay The maximum delay in milliseconds between two attempts
+     */
+    public void setMaxDelay(long maxDelay) {
+        this.maxDelay = maxDelay;
+    }
+
+    public Set<String> getRetryableErrorCodes() {
+        return retryableErrorCodes;
+    }
+
+    /**
+     * @param retryableErrorCodes The Flickr error codes which are retried,
+     * "105" (service currently unavailable) by default
+     */
+    public void setRetryableErrorCodes(Set<String> retryableErrorCodes) {
+        this.retryableErrorCodes = Collections.unmodifiableSet(new HashSet<String>(retryableErrorCodes));
+    }
+
+    public synchronized double getBudgetRatio() {
+        return budgetRatio;
+    }
+
+    /**
+     * @param budgetRatio The number of retries earned by a call, e.g. 0.2
+     * allows one retry for every 5 calls
+     */
+    public synchronized void setBudgetRatio(double budgetRatio) {
+        this.budgetRatio = budgetRatio;
+    }
+
+    public synchronized double getMaxBudget() {
+        return maxBudget;
+    }
+
+    /**
+     * @param maxBudget The maximum number of retries which can be saved up
+     */
+    public synchronized void setMaxBudget(double maxBudget) {
+        this.maxBudget = maxBudget;
+        this.budget = Math.min(budget, maxBudget);
+    }
+
+    /**
+     * @return the number of retries currently available
+     */
+    public synchronized double getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return the number of retries made
+     */
+    public synchronized long getRetries() {
+        return retries;
+    }
+
+    /**
+     * @return the number of retries refused because the budget was exhausted
+     */
+    public synchronized long getBudgetExhausted() {
+        return budgetExhausted;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "RetryPolicy [maxAttempts=" + maxAttempts + ", budget=" + budget
+            + ", retries=" + retries + ", budgetExhausted=" + budgetExhausted + "]";
+    }
+
+}
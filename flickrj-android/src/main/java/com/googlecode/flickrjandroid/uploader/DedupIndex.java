@@ -0,0 +1,275 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.uploader;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.json.JSONException;
+
+import com.googlecode.flickrjandroid.Flickr;
+import com.googlecode.flickrjandroid.FlickrException;
+import com.googlecode.flickrjandroid.photos.PhotoList;
+import com.googlecode.flickrjandroid.photos.SearchParameters;
+import com.googlecode.flickrjandroid.util.ByteUtilities;
+import com.googlecode.flickrjandroid.util.IOUtilities;
+
+/**
+ * Records the SHA-1 hash and the length of the photos uploaded with their
+ * photo id in a file, so that the {@link Uploader} does not upload the same
+ * content twice, see {@link Uploader#setDedupIndex(DedupIndex)}.<p>
+ *
+ * A photo is only hashed before it is sent if a photo of the same length
+ * was uploaded before, otherwise its hash is computed while it is sent.
+ * A transport which can not hash the photo while sending it leaves it to be
+ * hashed once sent. With {@link #setMachineTags(boolean) machine tags},
+ * every photo is hashed before it is sent, to be tagged with
+ * <code>flickrj:sha1=&lt;hash&gt;</code>, so that a photo missing from the
+ * index, e.g. after an interrupted upload, can be found by a
+ * {@link #search(Flickr, String) search} of the tag. The index itself can
+ * not be rebuilt from Flickr, which does not return the length of the
+ * files.
+ */
+public class DedupIndex implements Closeable {
+    public static final String MACHINE_TAG_PREDICATE = "flickrj:sha1";
+
+    private static final String UTF8 = "UTF-8";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final Map<String, String> photoIds = new HashMap<String, String>();
+    private final Set<Long> lengths = new HashSet<Long>();
+    private boolean machineTags = false;
+    private Writer out;
+
+    /**
+     * @param file The index file, read if it exists
+     * @throws IOException if the file can not be read
+     */
+    public DedupIndex(File file) throws IOException {
+        super();
+        this.file = file;
+        if (file.isFile()) {
+            Reader in = new InputStreamReader(new FileInputStream(file), UTF8);
+            try {
+                BufferedReader reader = new BufferedReader(in);
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.split("\t");
+                    // a line cut off by a crash has no photo id
+                    if (fields.length == 3 && fields[2].length() > 0) {
+                        try {
+                            lengths.add(Long.valueOf(fields[1]));
+                            photoIds.put(fields[0], fields[2]);
+                        } catch (NumberFormatException e) {
+                            // ignored
+                        }
+                    }
+                }
+            } finally {
+                IOUtilities.close(in);
+            }
+        }
+    }
+
+    public synchronized boolean isMachineTags() {
+        return machineTags;
+    }
+
+    /**
+     * @param machineTags True to tag every photo uploaded with the machine
+     * tag of its hash
+     */
+    public synchronized void setMachineTags(boolean machineTags) {
+        this.machineTags = machineTags;
+    }
+
+    /**
+     * @param hash The SHA-1 hash of a photo, in hex
+     * @return the id of the photo uploaded with this hash, or null
+     */
+    public synchronized String get(String hash) {
+        return photoIds.get(hash);
+    }
+
+    /**
+     * @param length The length of a photo in bytes
+     * @return true if a photo of this length was uploaded, so the photo must
+     * be hashed to know if it is a duplicate
+     */
+    public synchronized boolean containsLength(long length) {
+        return lengths.contains(Long.valueOf(length));
+    }
+
+    /**
+     * Record a photo uploaded.
+     *
+     * @param hash The SHA-1 hash of the photo, in hex
+     * @param length The length of the photo in bytes
+     * @param photoId The id of the photo
+     * @throws IOException if the file can not be written
+     */
+    public synchronized void put(String hash, long length, String photoId) throws IOException {
+        if (photoId.equals(photoIds.put(hash, photoId))) {
+            return;
+        }
+        lengths.add(Long.valueOf(length));
+        if (out == null) {
+            out = new OutputStreamWriter(new FileOutputStream(file, true), UTF8);
+        }
+        out.write(hash + "\t" + length + "\t" + photoId + "\n");
+        out.flush();
+    }
+
+    /**
+     * @param photo A photo file
+     * @return the id of the same photo uploaded before, or null
+     * @throws IOException if the file can not be read
+     */
+    public String find(File photo) throws IOException {
+        return containsLength(photo.length()) ? get(hash(photo)) : null;
+    }
+
+    /**
+     * @param photo A photo
+     * @return the id of the same photo uploaded before, or null
+     */
+    public String find(byte[] photo) {
+        return containsLength(photo.length) ? get(hash(photo)) : null;
+    }
+
+    /**
+     * @return the number of photos recorded
+     */
+    public synchronized int size() {
+        return photoIds.size();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /* (non-Javadoc)
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public synchronized void close() {
+        IOUtilities.close(out);
+        out = null;
+    }
+
+    /**
+     * @return a new SHA-1 digest
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param photo A photo
+     * @return the SHA-1 hash of the photo, in hex
+     */
+    public static String hash(byte[] photo) {
+        return ByteUtilities.toHexString(newDigest().digest(photo));
+    }
+
+    /**
+     * @param photo A photo file
+     * @return the SHA-1 hash of the photo, in hex
+     * @throws IOException if the file can not be read
+     */
+    public static String hash(File photo) throws IOException {
+        FileInputStream in = new FileInputStream(photo);
+        try {
+            return hash(in.getChannel());
+        } finally {
+            IOUtilities.close(in);
+        }
+    }
+
+    /**
+     * @param channel A photo, hashed from its current position to its end
+     * without moving the position
+     * @return the SHA-1 hash of the photo, in hex
+     * @throws IOException if the channel can not be read
+     */
+    public static String hash(FileChannel channel) throws IOException {
+        return hash(channel, channel.position());
+    }
+
+    /**
+     * @param channel A photo, hashed from a position to its end without
+     * moving the position of the channel
+     * @param position The position of the start of the photo
+     * @return the SHA-1 hash of the photo, in hex
+     * @throws IOException if the channel can not be read
+     */
+    public static String hash(FileChannel channel, long position) throws IOException {
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        int count;
+        while ((count = channel.read(buffer, position)) != -1) {
+            buffer.flip();
+            digest.update(buffer);
+            buffer.clear();
+            position += count;
+        }
+        return ByteUtilities.toHexString(digest.digest());
+    }
+
+    /**
+     * @param hash The SHA-1 hash of a photo, in hex
+     * @return the machine tag of the hash
+     */
+    public static String machineTag(String hash) {
+        return MACHINE_TAG_PREDICATE + "=" + hash;
+    }
+
+    /**
+     * Search the photos of the calling user for the machine tag of a hash,
+     * e.g. for a photo whose upload was interrupted before the response was
+     * received. Flickr adds new photos to the search with some delay, a photo
+     * uploaded moments ago may not be found.
+     *
+     * @param flickr The Flickr instance of the user
+     * @param hash The SHA-1 hash of a photo, in hex
+     * @return the id of a photo tagged with the hash, or null
+     * @throws IOException
+     * @throws FlickrException
+     * @throws JSONException
+     */
+    public static String search(Flickr flickr, String hash) throws IOException, FlickrException, JSONException {
+        SearchParameters parameters = new SearchParameters();
+        parameters.setUserId("me");
+        parameters.setMachineTags(new String[] {machineTag(hash)});
+        PhotoList photos = flickr.getPhotosInterface().search(parameters, 1, 1);
+        return photos.isEmpty() ? null : photos.get(0).getId();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "DedupIndex [file=" + file + ", size=" + photoIds.size() + "]";
+    }
+
+}
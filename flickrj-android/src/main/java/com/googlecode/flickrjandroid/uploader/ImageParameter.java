@@ -3,6 +3,8 @@
  */
 package com.googlecode.flickrjandroid.uploader;
 
+import java.security.MessageDigest;
+
 import com.googlecode.flickrjandroid.Parameter;
 
 /**
@@ -12,6 +14,9 @@ import com.googlecode.flickrjandroid.Parameter;
 public class ImageParameter extends Parameter {
     private String imageName;
     private String imageType = "jpeg";
+    private MessageDigest digest;
+    private boolean digested = false;
+    private String contentHash;
 
     /**
      * @param name
@@ -50,4 +55,46 @@ public class ImageParameter extends Parameter {
         this.imageType = imageType;
     }
 
+    /**
+     * @return the digest of the image, updated while it is sent
+     */
+    public MessageDigest getDigest() {
+        return digest;
+    }
+
+    /**
+     * @param digest Hashes the image while it is sent, null for none
+     */
+    public void setDigest(MessageDigest digest) {
+        this.digest = digest;
+    }
+
+    /**
+     * @return true once the transport has updated the digest with the whole
+     * image while sending it
+     */
+    public boolean isDigested() {
+        return digested;
+    }
+
+    /**
+     * @param digested True if the transport has updated the digest with the
+     * whole image, set by the transports which support a digest
+     */
+    public void setDigested(boolean digested) {
+        this.digested = digested;
+    }
+
+    /**
+     * @return the SHA-1 hash of the image in hex, set by the
+     * {@link Uploader} once uploaded with a {@link DedupIndex}
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
 }
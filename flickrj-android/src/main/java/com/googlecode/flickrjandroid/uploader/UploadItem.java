@@ -0,0 +1,117 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.uploader;
+
+import java.io.File;
+
+/**
+ * A photo added to an {@link UploadQueue}, with its progress as recorded by
+ * the {@link UploadJournal}.
+ */
+public class UploadItem {
+    /** Not sent yet */
+    public static final int PENDING = 0;
+    /** Being sent, or interrupted while it was sent */
+    public static final int UPLOADING = 1;
+    /** Sent, the ticket is being processed by Flickr */
+    public static final int PROCESSING = 2;
+    public static final int COMPLETED = 3;
+    public static final int FAILED = 4;
+
+    private final String id;
+    private final File file;
+    private final UploadMetaData metaData;
+    private int state = PENDING;
+    private String ticketId;
+    private String contentHash;
+    private String photoId;
+    private String error;
+
+    UploadItem(String id, File file, UploadMetaData metaData) {
+        super();
+        this.id = id;
+        this.file = file;
+        this.metaData = metaData;
+    }
+
+    /**
+     * @return the id given when the photo was added, unique within the
+     * journal
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the photo, null for an item completed before the journal was
+     * last opened
+     */
+    public File getFile() {
+        return file;
+    }
+
+    public UploadMetaData getMetaData() {
+        return metaData;
+    }
+
+    public synchronized int getState() {
+        return state;
+    }
+
+    synchronized void setState(int state) {
+        this.state = state;
+    }
+
+    public synchronized String getTicketId() {
+        return ticketId;
+    }
+
+    synchronized void setTicketId(String ticketId) {
+        this.ticketId = ticketId;
+    }
+
+    /**
+     * @return the SHA-1 hash of the photo in hex, if sent with a
+     * {@link DedupIndex}
+     */
+    public synchronized String getContentHash() {
+        return contentHash;
+    }
+
+    synchronized void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * @return the id of the uploaded photo once completed
+     */
+    public synchronized String getPhotoId() {
+        return photoId;
+    }
+
+    synchronized void setPhotoId(String photoId) {
+        this.photoId = photoId;
+    }
+
+    /**
+     * @return the reason of the failure, if failed
+     */
+    public synchronized String getError() {
+        return error;
+    }
+
+    synchronized void setError(String error) {
+        this.error = error;
+    }
+
+    public synchronized boolean isFinished() {
+        return state == COMPLETED || state == FAILED;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "UploadItem [id=" + id + ", state=" + state + ", ticketId=" + ticketId + ", photoId=" + photoId + "]";
+    }
+
+}
@@ -0,0 +1,326 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.uploader;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.googlecode.flickrjandroid.util.IOUtilities;
+
+/**
+ * Records the progress of the photos of an {@link UploadQueue} in a file,
+ * so that the queue resumes after a crash or a restart: the photos not sent
+ * yet are sent, the tickets of the photos sent are checked again, and the
+ * photos completed are not sent twice. Every change is appended to the file
+ * and synced to the disk before the queue goes on, so that it survives a
+ * power loss as well.<p>
+ *
+ * Every line ends with its checksum, a line cut off by a crash is ignored.
+ * The file is rewritten when opened, keeping one line per completed photo.
+ */
+public class UploadJournal implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(UploadJournal.class);
+
+    private static final String UTF8 = "UTF-8";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final String ADDED = "A";
+    private static final String STARTED = "S";
+    private static final String TICKET = "T";
+    private static final String COMPLETED = "C";
+    private static final String FAILED = "F";
+
+    private final File file;
+    private final Map<String, UploadItem> items = new LinkedHashMap<String, UploadItem>();
+    private FileOutputStream stream;
+    private Writer out;
+    /** True while the file is rewritten, synced once at the end */
+    private boolean compacting = false;
+
+    /**
+     * @param file The journal file, read if it exists
+     * @throws IOException if the file can not be read or rewritten
+     */
+    public UploadJournal(File file) throws IOException {
+        super();
+        this.file = file;
+        if (file.isFile()) {
+            Reader in = new InputStreamReader(new FileInputStream(file), UTF8);
+            try {
+                BufferedReader reader = new BufferedReader(in);
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int end = line.lastIndexOf('\t');
+                    if (end < 0 || !line.substring(end + 1).equals(checksum(line.substring(0, end)))) {
+                        // a line cut off by a crash
+                        logger.warn("Ignoring journal line '{}' of {}", line, file);
+                        continue;
+                    }
+                    try {
+                        replay(line.substring(0, end).split("\t", -1));
+                    } catch (RuntimeException e) {
+                        // e.g. of a photo whose line was ignored
+                        logger.warn("Ignoring journal line '{}' of {}", line, file);
+                    }
+                }
+            } finally {
+                IOUtilities.close(in);
+            }
+        }
+        compact();
+    }
+
+    private void replay(String[] fields) throws UnsupportedEncodingException {
+        String record = fields[0];
+        String id = decode(fields[1]);
+        if (ADDED.equals(record)) {
+            items.put(id, new UploadItem(id, new File(decode(fields[2])), decodeMetaData(fields)));
+            return;
+        }
+        UploadItem item = items.get(id);
+        if (item == null && COMPLETED.equals(record)) {
+            item = new UploadItem(id, null, null);
+            items.put(id, item);
+        }
+        if (item == null) {
+            throw new IllegalArgumentException(id);
+        }
+        if (STARTED.equals(record)) {
+            item.setState(UploadItem.UPLOADING);
+        } else if (TICKET.equals(record)) {
+            item.setState(UploadItem.PROCESSING);
+            item.setTicketId(decode(fields[2]));
+            if (fields.length > 3) {
+                item.setContentHash(decode(fields[3]));
+            }
+        } else if (COMPLETED.equals(record)) {
+            item.setState(UploadItem.COMPLETED);
+            item.setPhotoId(decode(fields[2]));
+        } else if (FAILED.equals(record)) {
+            item.setState(UploadItem.FAILED);
+            item.setError(decode(fields[2]));
+        } else {
+            throw new IllegalArgumentException(record);
+        }
+    }
+
+    private void compact() throws IOException {
+        File temp = new File(file.getPath() + TEMP_SUFFIX);
+        open(temp, false);
+        compacting = true;
+        try {
+            for (UploadItem item : items.values()) {
+                if (item.getState() == UploadItem.COMPLETED) {
+                    write(COMPLETED, item.getId(), item.getPhotoId());
+                    continue;
+                }
+                writeAdded(item);
+                if (item.getState() == UploadItem.UPLOADING) {
+                    write(STARTED, item.getId());
+                } else if (item.getState() == UploadItem.PROCESSING) {
+                    write(TICKET, item.getId(), item.getTicketId(), item.getContentHash());
+                } else if (item.getState() == UploadItem.FAILED) {
+                    write(FAILED, item.getId(), item.getError());
+                }
+            }
+            out.flush();
+            stream.getFD().sync();
+        } finally {
+            compacting = false;
+            close();
+        }
+        if (!temp.renameTo(file)) {
+            file.delete();
+            if (!temp.renameTo(file)) {
+                throw new IOException("Can not replace " + file);
+            }
+        }
+    }
+
+    /**
+     * @param id The id of a photo
+     * @return the photo, or null if it was never added
+     */
+    public synchronized UploadItem get(String id) {
+        return items.get(id);
+    }
+
+    /**
+     * @return all the photos, in the order they were added
+     */
+    public synchronized List<UploadItem> getItems() {
+        return new ArrayList<UploadItem>(items.values());
+    }
+
+    /**
+     * @return the number of photos
+     */
+    public synchronized int size() {
+        return items.size();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Add a photo, unless one with the same id was added before and has not
+     * failed.
+     *
+     * @return the photo added, or the one added before
+     */
+    synchronized UploadItem add(String id, File photo, UploadMetaData metaData) throws IOException {
+        UploadItem item = items.get(id);
+        if (item != null && item.getState() != UploadItem.FAILED) {
+            return item;
+        }
+        item = new UploadItem(id, photo, metaData);
+        writeAdded(item);
+        items.put(id, item);
+        return item;
+    }
+
+    synchronized void started(UploadItem item) throws IOException {
+        write(STARTED, item.getId());
+        item.setState(UploadItem.UPLOADING);
+    }
+
+    synchronized void ticket(UploadItem item, String ticketId, String contentHash) throws IOException {
+        write(TICKET, item.getId(), ticketId, contentHash);
+        item.setTicketId(ticketId);
+        item.setContentHash(contentHash);
+        item.setState(UploadItem.PROCESSING);
+    }
+
+    synchronized void completed(UploadItem item, String photoId) throws IOException {
+        write(COMPLETED, item.getId(), photoId);
+        item.setPhotoId(photoId);
+        item.setState(UploadItem.COMPLETED);
+    }
+
+    synchronized void failed(UploadItem item, String error) throws IOException {
+        write(FAILED, item.getId(), error);
+        item.setError(error);
+        item.setState(UploadItem.FAILED);
+    }
+
+    private void writeAdded(UploadItem item) throws IOException {
+        UploadMetaData metaData = item.getMetaData();
+        StringBuilder flags = new StringBuilder(3);
+        flags.append(metaData.isPublicFlag() ? '1' : '0').append(metaData.isFriendFlag() ? '1' : '0')
+                .append(metaData.isFamilyFlag() ? '1' : '0');
+        String hidden = metaData.isHidden() == null ? null : metaData.isHidden().booleanValue() ? "1" : "0";
+        write(ADDED, item.getId(), item.getFile().getPath(), metaData.getTitle(), metaData.getDescription(),
+                encodeTags(metaData.getTags()), flags.toString(), hidden, metaData.getSafetyLevel(),
+                metaData.getContentType());
+    }
+
+    private void write(String record, String... fields) throws IOException {
+        if (out == null) {
+            open(file, true);
+        }
+        StringBuilder line = new StringBuilder(record);
+        for (String field : fields) {
+            line.append('\t').append(encode(field));
+        }
+        String checksum = checksum(line.toString());
+        line.append('\t').append(checksum);
+        out.write(line.append('\n').toString());
+        if (!compacting) {
+            out.flush();
+            stream.getFD().sync();
+        }
+    }
+
+    private void open(File target, boolean append) throws IOException {
+        stream = new FileOutputStream(target, append);
+        out = new OutputStreamWriter(stream, UTF8);
+    }
+
+    private static String checksum(String line) throws UnsupportedEncodingException {
+        CRC32 crc = new CRC32();
+        crc.update(line.getBytes(UTF8));
+        return Long.toHexString(crc.getValue());
+    }
+
+    private static UploadMetaData decodeMetaData(String[] fields) throws UnsupportedEncodingException {
+        UploadMetaData metaData = new UploadMetaData();
+        metaData.setTitle(decode(fields[3]));
+        metaData.setDescription(decode(fields[4]));
+        String tags = decode(fields[5]);
+        if (tags != null) {
+            List<String> list = new ArrayList<String>();
+            for (String tag : tags.split(" ")) {
+                list.add(decode(tag));
+            }
+            metaData.setTags(list);
+        }
+        String flags = fields[6];
+        metaData.setPublicFlag(flags.charAt(0) == '1');
+        metaData.setFriendFlag(flags.charAt(1) == '1');
+        metaData.setFamilyFlag(flags.charAt(2) == '1');
+        String hidden = decode(fields[7]);
+        if (hidden != null) {
+            metaData.setHidden(Boolean.valueOf("1".equals(hidden)));
+        }
+        metaData.setSafetyLevel(decode(fields[8]));
+        metaData.setContentType(decode(fields[9]));
+        metaData.setAsync(true);
+        return metaData;
+    }
+
+    private static String encodeTags(Collection<String> tags) throws UnsupportedEncodingException {
+        if (tags == null || tags.isEmpty()) {
+            return null;
+        }
+        StringBuilder encoded = new StringBuilder();
+        for (String tag : tags) {
+            if (encoded.length() > 0) {
+                encoded.append(' ');
+            }
+            encoded.append(encode(tag));
+        }
+        return encoded.toString();
+    }
+
+    private static String encode(String value) throws UnsupportedEncodingException {
+        // null and the empty string are both written as an empty field
+        return value == null ? "" : URLEncoder.encode(value, UTF8);
+    }
+
+    private static String decode(String value) throws UnsupportedEncodingException {
+        return value.length() == 0 ? null : URLDecoder.decode(value, UTF8);
+    }
+
+    /* (non-Javadoc)
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public synchronized void close() {
+        IOUtilities.close(out);
+        out = null;
+        stream = null;
+    }
+
+}
@@ -0,0 +1,444 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.uploader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import com.googlecode.flickrjandroid.AsyncFlickr;
+import com.googlecode.flickrjandroid.Flickr;
+import com.googlecode.flickrjandroid.FlickrCall;
+import com.googlecode.flickrjandroid.FlickrCallback;
+import com.googlecode.flickrjandroid.FlickrFuture;
+import com.googlecode.flickrjandroid.photos.upload.TicketPoller;
+
+/**
+ * Uploads many photos through an {@link AsyncFlickr}, recording their
+ * progress in an {@link UploadJournal}:
+ *
+ * <pre>
+ * UploadQueue queue = new UploadQueue(asyncFlickr, new UploadJournal(new File(dir, "uploads.journal")));
+ * for (File photo : photos) {
+ *     queue.add(photo.getPath(), photo, metaData);
+ * }
+ * queue.run();
+ * </pre>
+ *
+ * The photos are sent asynchronously, at most {@link #getParallelism()} at a
+ * time, and are completed once their tickets resolve, as checked by the
+ * {@link TicketPoller}.<p>
+ *
+ * A queue created with the journal of a previous run resumes it: the photos
+ * with a ticket are only checked, and the photos completed are not sent
+ * again. A photo whose upload was interrupted before its ticket was
+ * received may have reached Flickr. With a {@link DedupIndex} using
+ * {@link DedupIndex#setMachineTags(boolean) machine tags}, the photos of
+ * the user are searched for the tag of its hash before it is sent again,
+ * otherwise it is sent again as there is no way to know if Flickr got it.<p>
+ *
+ * With a {@link DedupIndex} set on the {@link Uploader} of the Flickr
+ * instance, a photo uploaded before completes right away with the id of
+ * that photo, and the photos completed are added to the index.
+ */
+public class UploadQueue {
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * Receives the outcome of every photo, always on the thread calling
+     * {@link UploadQueue#run()}.
+     */
+    public interface Listener {
+
+        /**
+         * @param item The photo uploaded, with its photo id
+         */
+        void onCompleted(UploadItem item);
+
+        /**
+         * @param item The photo which failed, with the reason
+         */
+        void onFailed(UploadItem item);
+    }
+
+    private final AsyncFlickr async;
+    private final UploadJournal journal;
+    private final LinkedList<UploadItem> pending = new LinkedList<UploadItem>();
+    private final List<UploadItem> resumed = new ArrayList<UploadItem>();
+    /**
+     * The outcomes of the calls of the current run, replaced by every run so
+     * that the calls cancelled by a previous run can not post into it
+     */
+    private volatile BlockingQueue<Outcome> outcomes = new LinkedBlockingQueue<Outcome>();
+    private int parallelism = DEFAULT_PARALLELISM;
+    private TicketPoller ticketPoller;
+    /** True if the poller was created by the queue, and is shut down by it */
+    private boolean ownTicketPoller = false;
+    private Listener listener;
+
+    /**
+     * @param async Sends the photos and checks the tickets
+     * @param journal The journal, whose unfinished photos are resumed
+     */
+    public UploadQueue(AsyncFlickr async, UploadJournal journal) {
+        super();
+        if (async == null || journal == null) {
+            throw new IllegalArgumentException("AsyncFlickr and UploadJournal must not be null");
+        }
+        this.async = async;
+        this.journal = journal;
+        for (UploadItem item : journal.getItems()) {
+            if (item.getState() == UploadItem.PENDING || item.getState() == UploadItem.UPLOADING) {
+                pending.add(item);
+            } else if (item.getState() == UploadItem.PROCESSING) {
+                resumed.add(item);
+            }
+        }
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @param parallelism The maximum number of photos sent concurrently
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return the poller of the tickets, created on first use with the
+     * {@link com.googlecode.flickrjandroid.RequestContext} of the calling
+     * thread. A poller created by the queue is shut down at the end of every
+     * run, and restarts when the next run tracks a ticket.
+     */
+    public synchronized TicketPoller getTicketPoller() {
+        if (ticketPoller == null) {
+            ticketPoller = new TicketPoller(async.getFlickr().getUploadInterface());
+            ownTicketPoller = true;
+        }
+        return ticketPoller;
+    }
+
+    /**
+     * @param ticketPoller Checks the tickets, e.g. shared by several queues.
+     * It is not shut down by the queue.
+     */
+    public synchronized void setTicketPoller(TicketPoller ticketPoller) {
+        this.ticketPoller = ticketPoller;
+        this.ownTicketPoller = false;
+    }
+
+    public Listener getListener() {
+        return listener;
+    }
+
+    /**
+     * @param listener Receives the outcome of every photo, may be null
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public UploadJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Add a photo, which may be done while the queue runs. Adding a photo
+     * with the id of one added before does nothing, unless it failed.
+     *
+     * @param id The id of the photo, e.g. its path
+     * @param photo The photo file
+     * @param metaData The meta data, always sent as async
+     * @return the photo as recorded by the journal
+     * @throws IOException if the journal can not be written
+     */
+    public UploadItem add(String id, File photo, UploadMetaData metaData) throws IOException {
+        metaData.setAsync(true);
+        synchronized (pending) {
+            UploadItem item = journal.add(id, photo, metaData);
+            if (item.getState() == UploadItem.PENDING && !pending.contains(item)) {
+                pending.add(item);
+                outcomes.add(Outcome.WAKE_UP);
+            }
+            return item;
+        }
+    }
+
+    private UploadItem nextPending() {
+        synchronized (pending) {
+            return pending.poll();
+        }
+    }
+
+    /**
+     * Send the pending photos and check their tickets, until every photo of
+     * the journal is completed or failed.
+     *
+     * @return the number of photos completed
+     * @throws InterruptedException if interrupted, the calls in flight are
+     * cancelled and the tickets of the photos already sent are recorded
+     * @throws IOException if the journal can not be written, the calls in
+     * flight are cancelled
+     */
+    public int run() throws InterruptedException, IOException {
+        int completed = 0;
+        BlockingQueue<Outcome> outcomes = new LinkedBlockingQueue<Outcome>();
+        this.outcomes = outcomes;
+        Map<UploadItem, FlickrFuture<Sent>> uploading = new HashMap<UploadItem, FlickrFuture<Sent>>();
+        Map<UploadItem, Future<String>> processing = new HashMap<UploadItem, Future<String>>();
+        for (UploadItem item : resumed) {
+            processing.put(item, track(item, outcomes));
+        }
+        resumed.clear();
+        try {
+            while (true) {
+                while (uploading.size() < parallelism) {
+                    UploadItem item = nextPending();
+                    if (item == null) {
+                        break;
+                    }
+                    boolean interrupted = item.getState() == UploadItem.UPLOADING;
+                    journal.started(item);
+                    uploading.put(item, upload(item, interrupted, outcomes));
+                }
+                if (uploading.isEmpty() && processing.isEmpty()) {
+                    synchronized (pending) {
+                        if (pending.isEmpty()) {
+                            break;
+                        }
+                    }
+                    continue;
+                }
+                Outcome outcome = outcomes.take();
+                if (outcome == Outcome.WAKE_UP) {
+                    continue;
+                }
+                UploadItem item = outcome.item;
+                if (outcome.resolved) {
+                    // a duplicate resolves without a ticket
+                    uploading.remove(item);
+                    processing.remove(item);
+                    if (outcome.error != null) {
+                        fail(item, String.valueOf(outcome.error));
+                    } else {
+                        complete(item, outcome.id, outcome.contentHash);
+                        completed++;
+                    }
+                } else {
+                    uploading.remove(item);
+                    if (outcome.error != null) {
+                        fail(item, String.valueOf(outcome.error));
+                    } else if (outcome.id == null || outcome.id.length() == 0) {
+                        fail(item, "No ticket returned");
+                    } else {
+                        journal.ticket(item, outcome.id, outcome.contentHash);
+                        processing.put(item, track(item, outcomes));
+                    }
+                }
+            }
+        } finally {
+            for (Map.Entry<UploadItem, FlickrFuture<Sent>> entry : uploading.entrySet()) {
+                if (entry.getValue().cancel(true)) {
+                    // sent again by the next run
+                    requeue(entry.getKey());
+                } else if (finished(entry.getKey(), entry.getValue())) {
+                    completed++;
+                }
+            }
+            for (Map.Entry<UploadItem, Future<String>> entry : processing.entrySet()) {
+                // checked again by the next run
+                entry.getValue().cancel(false);
+                resumed.add(entry.getKey());
+            }
+            synchronized (this) {
+                if (ownTicketPoller) {
+                    // stops its thread
+                    ticketPoller.shutdown();
+                }
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * Record the photo of an upload which finished as the run stopped, its
+     * outcome may not be queued yet.
+     *
+     * @return true if the photo completed as a duplicate
+     */
+    private boolean finished(UploadItem item, FlickrFuture<Sent> future) throws IOException {
+        Sent sent;
+        try {
+            sent = future.get();
+        } catch (ExecutionException e) {
+            fail(item, String.valueOf(e.getCause()));
+            return false;
+        } catch (CancellationException e) {
+            // timed out
+            fail(item, String.valueOf(e));
+            return false;
+        } catch (InterruptedException e) {
+            // still completing, left to the next run
+            Thread.currentThread().interrupt();
+            requeue(item);
+            return false;
+        }
+        if (sent.photoId != null) {
+            complete(item, sent.photoId, sent.contentHash);
+            return true;
+        }
+        if (sent.ticketId == null || sent.ticketId.length() == 0) {
+            fail(item, "No ticket returned");
+        } else {
+            // checked by the next run
+            journal.ticket(item, sent.ticketId, sent.contentHash);
+            resumed.add(item);
+        }
+        return false;
+    }
+
+    private void requeue(UploadItem item) {
+        synchronized (pending) {
+            pending.addFirst(item);
+        }
+    }
+
+    private void complete(UploadItem item, String photoId, String contentHash) throws IOException {
+        if (contentHash != null) {
+            item.setContentHash(contentHash);
+        }
+        record(item, photoId);
+        journal.completed(item, photoId);
+        if (listener != null) {
+            listener.onCompleted(item);
+        }
+    }
+
+    private void record(UploadItem item, String photoId) throws IOException {
+        DedupIndex index = async.getFlickr().getUploader().getDedupIndex();
+        if (index != null && item.getContentHash() != null && item.getFile() != null) {
+            index.put(item.getContentHash(), item.getFile().length(), photoId);
+        }
+    }
+
+    private void fail(UploadItem item, String error) throws IOException {
+        journal.failed(item, error);
+        if (listener != null) {
+            listener.onFailed(item);
+        }
+    }
+
+    /**
+     * @param interrupted True if the photo was being sent when a previous run
+     * stopped
+     */
+    private FlickrFuture<Sent> upload(final UploadItem item, final boolean interrupted,
+            final BlockingQueue<Outcome> outcomes) {
+        return async.submit(new FlickrCall<Sent>() {
+            @Override
+            public Sent call(Flickr flickr) throws Exception {
+                Uploader uploader = flickr.getUploader();
+                DedupIndex index = uploader.getDedupIndex();
+                String photoId = index == null ? null : index.find(item.getFile());
+                if (photoId != null) {
+                    return new Sent(null, photoId, null);
+                }
+                if (interrupted && index != null && index.isMachineTags()) {
+                    String hash = DedupIndex.hash(item.getFile());
+                    photoId = DedupIndex.search(flickr, hash);
+                    if (photoId != null) {
+                        return new Sent(null, photoId, hash);
+                    }
+                }
+                ImageParameter image = new ImageParameter(item.getFile().getName(), item.getFile());
+                return new Sent(uploader.upload(image, item.getMetaData()), null, image.getContentHash());
+            }
+        }, new FlickrCallback<Sent>() {
+            @Override
+            public void onSuccess(Sent result) {
+                if (result.photoId != null) {
+                    outcomes.add(new Outcome(item, true, result.photoId, result.contentHash, null));
+                } else {
+                    outcomes.add(new Outcome(item, false, result.ticketId, result.contentHash, null));
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+                // cancelled when the run stops, the photo is sent by the next run
+                if (!(error instanceof CancellationException)) {
+                    outcomes.add(new Outcome(item, false, null, null, error));
+                }
+            }
+        });
+    }
+
+    private Future<String> track(final UploadItem item, final BlockingQueue<Outcome> outcomes) {
+        return getTicketPoller().track(item.getTicketId(), new FlickrCallback<String>() {
+            @Override
+            public void onSuccess(String photoId) {
+                outcomes.add(new Outcome(item, true, photoId, null, null));
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+                if (!(error instanceof CancellationException)) {
+                    outcomes.add(new Outcome(item, true, null, null, error));
+                }
+            }
+        });
+    }
+
+    /**
+     * The result of sending a photo: its ticket, or the id of the photo
+     * uploaded before if a duplicate, with the hash if known.
+     */
+    private static final class Sent {
+        final String ticketId;
+        final String photoId;
+        final String contentHash;
+
+        Sent(String ticketId, String photoId, String contentHash) {
+            this.ticketId = ticketId;
+            this.photoId = photoId;
+            this.contentHash = contentHash;
+        }
+    }
+
+    private static final class Outcome {
+        static final Outcome WAKE_UP = new Outcome(null, false, null, null, null);
+
+        final UploadItem item;
+        /** true for a ticket resolved, false for a photo sent */
+        final boolean resolved;
+        /** The photo id of a ticket resolved, the ticket id of a photo sent */
+        final String id;
+        final String contentHash;
+        final Throwable error;
+
+        Outcome(UploadItem item, boolean resolved, String id, String contentHash, Throwable error) {
+            this.item = item;
+            this.resolved = resolved;
+            this.id = id;
+            this.contentHash = contentHash;
+            this.error = error;
+        }
+    }
+
+}
@@ -4,8 +4,10 @@
 
 package com.googlecode.flickrjandroid.uploader;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -13,6 +15,8 @@ import java.util.Set;
 
 import javax.xml.parsers.ParserConfigurationException;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.xml.sax.SAXException;
 
 import com.googlecode.flickrjandroid.Flickr;
@@ -22,6 +26,7 @@ import com.googlecode.flickrjandroid.REST;
 import com.googlecode.flickrjandroid.Transport;
 import com.googlecode.flickrjandroid.oauth.OAuthInterface;
 import com.googlecode.flickrjandroid.oauth.OAuthUtils;
+import com.googlecode.flickrjandroid.util.ByteUtilities;
 import com.googlecode.flickrjandroid.util.StringUtilities;
 
 
@@ -42,6 +47,8 @@ import com.googlecode.flickrjandroid.util.StringUtilities;
  * @version $Id: Uploader.java,v 1.12 2009/12/15 20:57:49 x-mago Exp $
  */
 public class Uploader {
+    private static final Logger logger = LoggerFactory.getLogger(Uploader.class);
+
     public static final String UPLOAD_PATH = "/services/upload/";
     public static final String URL_UPLOAD = "https://" + Flickr.DEFAULT_API_HOST + UPLOAD_PATH;
     public static final String REPLACE_PATH = "/services/replace/";
@@ -49,6 +56,7 @@ public class Uploader {
     private String apiKey;
     private String sharedSecret;
     private Transport transport;
+    private DedupIndex dedupIndex;
 
     /**
      * Construct an Uploader.
@@ -66,6 +74,39 @@ public class Uploader {
         }
     }
 
+    /**
+     * Construct an Uploader sending the photos through a transport. A
+     * transport which does not hash the photos while sending them, see
+     * {@link ImageParameter#isDigested()}, has them hashed once sent if
+     * there is a {@link #setDedupIndex(DedupIndex) DedupIndex}.
+     *
+     * @param apiKey The API key
+     * @param sharedSecret The shared secret
+     * @param transport The transport, whose responses are UploaderResponses
+     */
+    public Uploader(String apiKey, String sharedSecret, Transport transport) {
+        this.apiKey = apiKey;
+        this.sharedSecret = sharedSecret;
+        this.transport = transport;
+    }
+
+    public DedupIndex getDedupIndex() {
+        return dedupIndex;
+    }
+
+    /**
+     * Skip the photos uploaded before. A synchronous upload of a photo
+     * recorded by the index returns the id of the photo uploaded before
+     * without sending it, and the photos uploaded are recorded. Photos read
+     * from an InputStream are not deduplicated, as their length is not
+     * known.
+     *
+     * @param dedupIndex The index of the photos uploaded, null for none
+     */
+    public void setDedupIndex(DedupIndex dedupIndex) {
+        this.dedupIndex = dedupIndex;
+    }
+
     /**
      * Upload a photo from a byte-array.
      *
@@ -77,6 +118,93 @@ public class Uploader {
      * @throws SAXException
      */
     public String upload(String imageName, byte[] data, UploadMetaData metaData) throws FlickrException, IOException, SAXException {
+        return upload(new ImageParameter(imageName, data), metaData);
+    }
+
+    /**
+     * Upload a photo from an InputStream. The length of the stream is not
+     * known, so it is sent chunked; prefer
+     * {@link #upload(String, File, UploadMetaData)} for a photo on disk.
+     *
+     * @param in
+     * @param metaData
+     * @return photoId for sync mode or ticketId for async mode
+     * @throws IOException
+     * @throws FlickrException
+     * @throws SAXException
+     */
+    public String upload(String imageName, InputStream in, UploadMetaData metaData) throws IOException, FlickrException, SAXException {
+        return upload(new ImageParameter(imageName, in), metaData);
+    }
+
+    /**
+     * Upload a photo from a file, which is streamed to the connection while
+     * the request is sent instead of being read into memory.
+     *
+     * @param imageName
+     * @param file The photo
+     * @param metaData The meta data
+     * @return photoId for sync mode or ticketId for async mode
+     * @throws IOException
+     * @throws FlickrException
+     * @throws SAXException
+     */
+    public String upload(String imageName, File file, UploadMetaData metaData) throws IOException, FlickrException, SAXException {
+        return upload(new ImageParameter(imageName, file), metaData);
+    }
+
+    /**
+     * Upload a photo from a channel, from its current position to its end.
+     * The channel is not closed.
+     *
+     * @param imageName
+     * @param channel The photo
+     * @param metaData The meta data
+     * @return photoId for sync mode or ticketId for async mode
+     * @throws IOException
+     * @throws FlickrException
+     * @throws SAXException
+     */
+    public String upload(String imageName, FileChannel channel, UploadMetaData metaData) throws IOException, FlickrException, SAXException {
+        return upload(new ImageParameter(imageName, channel), metaData);
+    }
+
+    /**
+     * Upload a photo. With a {@link #setDedupIndex(DedupIndex) DedupIndex},
+     * the {@link ImageParameter#getContentHash() hash} of the photo is set
+     * once uploaded.
+     *
+     * @param image The photo
+     * @param metaData The meta data
+     * @return photoId for sync mode or ticketId for async mode
+     * @throws FlickrException
+     * @throws IOException
+     * @throws SAXException
+     */
+    public String upload(ImageParameter image, UploadMetaData metaData) throws FlickrException, IOException, SAXException {
+        DedupIndex index = dedupIndex;
+        long length = index == null ? -1 : lengthOf(image.getValue());
+        // a channel is read from its position at the time of the call
+        long position = image.getValue() instanceof FileChannel ? ((FileChannel) image.getValue()).position() : 0;
+        String hash = null;
+        if (length >= 0) {
+            boolean lookup = !metaData.isAsync() && index.containsLength(length);
+            if (lookup || index.isMachineTags()) {
+                hash = hashOf(image.getValue());
+            }
+            String photoId = lookup ? index.get(hash) : null;
+            if (photoId != null) {
+                logger.info("{} was uploaded before as {}", image.getImageName(), photoId);
+                image.setContentHash(hash);
+                return photoId;
+            }
+            if (hash == null) {
+                // computed while sent, if the transport supports it
+                image.setDigest(DedupIndex.newDigest());
+                image.setDigested(false);
+            }
+        }
+
         List<Parameter> parameters = new ArrayList<Parameter>();
         parameters.add(new Parameter(OAuthInterface.PARAM_OAUTH_CONSUMER_KEY, this.apiKey));
         String title = metaData.getTitle();
@@ -88,6 +216,10 @@ public class Uploader {
             parameters.add(new Parameter("description", description));
 
         Collection<String> tags = metaData.getTags();
+        if (hash != null && index.isMachineTags()) {
+            tags = tags == null ? new ArrayList<String>() : new ArrayList<String>(tags);
+            tags.add(DedupIndex.machineTag(hash));
+        }
         if (tags != null)
             parameters.add(new Parameter("tags", StringUtilities.join(tags, " ")));
 
@@ -95,7 +227,7 @@ public class Uploader {
         parameters.add(new Parameter("is_family", metaData.isFamilyFlag() ? "1" : "0"));
         parameters.add(new Parameter("is_friend", metaData.isFriendFlag() ? "1" : "0"));
 
-        parameters.add(new ImageParameter(imageName, data));
+        parameters.add(image);
 
         if (metaData.isHidden() != null) {
             parameters.add(new Parameter("hidden", metaData.isHidden().booleanValue() ? "1" : "0"));
@@ -122,61 +254,45 @@ public class Uploader {
         } else {
             id = response.getPhotoId();
         }
+        if (length >= 0) {
+            if (hash == null) {
+                hash = image.isDigested() ? ByteUtilities.toHexString(image.getDigest().digest())
+                        : hashOf(image.getValue(), position);
+            }
+            image.setContentHash(hash);
+            if (!metaData.isAsync() && id != null && id.length() > 0) {
+                index.put(hash, length, id);
+            }
+        }
         return id;
     }
 
-    /**
-     * Upload a photo from an InputStream.
-     *
-     * @param in
-     * @param metaData
-     * @return photoId for sync mode or ticketId for async mode
-     * @throws IOException
-     * @throws FlickrException
-     * @throws SAXException
-     */
-    public String upload(String imageName, InputStream in, UploadMetaData metaData) throws IOException, FlickrException, SAXException {
-        List<Parameter> parameters = new ArrayList<Parameter>();
-        parameters.add(new Parameter(OAuthInterface.PARAM_OAUTH_CONSUMER_KEY, this.apiKey));
-
-        String title = metaData.getTitle();
-        if (title != null)
-            parameters.add(new Parameter("title", title));
-
-        String description = metaData.getDescription();
-        if (description != null)
-            parameters.add(new Parameter("description", description));
-
-        Collection<String> tags = metaData.getTags();
-        if (tags != null) {
-            parameters.add(new Parameter("tags", StringUtilities.join(tags, " ")));
-        }
-
-        parameters.add(new Parameter("is_public", metaData.isPublicFlag() ? "1" : "0"));
-        parameters.add(new Parameter("is_family", metaData.isFamilyFlag() ? "1" : "0"));
-        parameters.add(new Parameter("is_friend", metaData.isFriendFlag() ? "1" : "0"));
-        parameters.add(new Parameter("async", metaData.isAsync() ? "1" : "0"));
-        if (metaData.getSafetyLevel() != null) {
-            parameters.add(new Parameter("safety_level", metaData.getSafetyLevel()));
-        }
-        if (metaData.getContentType() != null) {
-            parameters.add(new Parameter("content_type", metaData.getContentType()));
+    private static long lengthOf(Object image) throws IOException {
+        if (image instanceof byte[]) {
+            return ((byte[]) image).length;
+        } else if (image instanceof File) {
+            return ((File) image).length();
+        } else if (image instanceof FileChannel) {
+            FileChannel channel = (FileChannel) image;
+            return channel.size() - channel.position();
         }
+        return -1;
+    }
 
-        parameters.add(new ImageParameter(imageName, in));
-        OAuthUtils.addOAuthToken(parameters);
+    private static String hashOf(Object image) throws IOException {
+        return hashOf(image, image instanceof FileChannel ? ((FileChannel) image).position() : 0);
+    }
 
-        UploaderResponse response = (UploaderResponse) transport.upload(sharedSecret, parameters);
-        if (response.isError()) {
-            throw new FlickrException(response.getErrorCode(), response.getErrorMessage());
-        }
-        String id = "";
-        if (metaData.isAsync()) {
-            id = response.getTicketId();
-        } else {
-            id = response.getPhotoId();
+    /**
+     * @param position The position of a channel to hash from
+     */
+    private static String hashOf(Object image, long position) throws IOException {
+        if (image instanceof byte[]) {
+            return DedupIndex.hash((byte[]) image);
+        } else if (image instanceof File) {
+            return DedupIndex.hash((File) image);
         }
-        return id;
+        return DedupIndex.hash((FileChannel) image, position);
     }
 
     /**
@@ -192,27 +308,9 @@ public class Uploader {
      * @throws SAXException
      * @deprecated This is not working at moment!
      */
+    @Deprecated
     public String replace(String imageName, InputStream in, String photoId, boolean async) throws IOException, FlickrException, SAXException {
-        List<Parameter> parameters = new ArrayList<Parameter>();
-        parameters.add(new Parameter(OAuthInterface.PARAM_OAUTH_CONSUMER_KEY, this.apiKey));
-
-        parameters.add(new Parameter("async", async ? "1" : "0"));
-        parameters.add(new Parameter("photo_id", photoId));
-
-        parameters.add(new ImageParameter(imageName, in));
-        OAuthUtils.addOAuthToken(parameters);
-
-        UploaderResponse response = (UploaderResponse) transport.replace(sharedSecret, parameters);
-        if (response.isError()) {
-            throw new FlickrException(response.getErrorCode(), response.getErrorMessage());
-        }
-        String id = "";
-        if (async) {
-            id = response.getTicketId();
-        } else {
-            id = response.getPhotoId();
-        }
-        return id;
+        return replace(new ImageParameter(imageName, in), photoId, async);
     }
 
     /**
@@ -227,14 +325,34 @@ public class Uploader {
      * @throws SAXException
      * @deprecated This is not working at moment!
      */
+    @Deprecated
     public String replace(String imageName, byte[] data, String photoId, boolean async) throws IOException, FlickrException, SAXException {
+        return replace(new ImageParameter(imageName, data), photoId, async);
+    }
+
+    /**
+     * Replace a photo with a file, streamed while the request is sent.
+     *
+     * @param imageName
+     * @param file
+     * @param photoId
+     * @return photoId for sync mode or ticketId for async mode
+     * @throws IOException
+     * @throws FlickrException
+     * @throws SAXException
+     */
+    public String replace(String imageName, File file, String photoId, boolean async) throws IOException, FlickrException, SAXException {
+        return replace(new ImageParameter(imageName, file), photoId, async);
+    }
+
+    private String replace(ImageParameter image, String photoId, boolean async) throws IOException, FlickrException, SAXException {
         List<Parameter> parameters = new ArrayList<Parameter>();
         parameters.add(new Parameter(OAuthInterface.PARAM_OAUTH_CONSUMER_KEY, this.apiKey));
 
         parameters.add(new Parameter("async", async ? "1" : "0"));
         parameters.add(new Parameter("photo_id", photoId));
 
-        parameters.add(new ImageParameter(imageName, data));;
+        parameters.add(image);
         OAuthUtils.addOAuthToken(parameters);
 
         UploaderResponse response = (UploaderResponse) transport.replace(sharedSecret, parameters);
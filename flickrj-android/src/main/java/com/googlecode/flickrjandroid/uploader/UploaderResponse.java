@@ -4,13 +4,24 @@
 
 package com.googlecode.flickrjandroid.uploader;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
 import java.util.Collection;
 
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Text;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
 
 import com.googlecode.flickrjandroid.Response;
 
@@ -21,6 +32,18 @@ import com.googlecode.flickrjandroid.Response;
  * @version $Id: UploaderResponse.java,v 1.7 2007/11/02 21:46:52 x-mago Exp $
  */
 public class UploaderResponse implements Response {
+    private static final ThreadLocal<SAXParser> PARSERS = new ThreadLocal<SAXParser>() {
+        @Override
+        protected SAXParser initialValue() {
+            try {
+                return SAXParserFactory.newInstance().newSAXParser();
+            } catch (ParserConfigurationException e) {
+                throw new IllegalStateException(e);
+            } catch (SAXException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
 
     private String status;
     private String photoId;
@@ -29,6 +52,31 @@ public class UploaderResponse implements Response {
     private String errorMessage;
     private Element responsePayLoad;
 
+    /**
+     * Parsing the response as it is read, keeping only the status, the ids
+     * and the error. Safe to call from concurrent uploads, each thread
+     * reuses its own parser.<p>
+     * After a successful sychronous upload the photId is set.<br>
+     * After an asychronous upload the ticketId.
+     *
+     * @param in The response body, not closed
+     * @throws IOException
+     * @throws SAXException if the response is not well-formed
+     * @see #getPhotoId()
+     * @see #getTicketId()
+     */
+    public void parse(InputStream in) throws IOException, SAXException {
+        SAXParser parser = PARSERS.get();
+        try {
+            parser.parse(new InputSource(in), new ResponseHandler());
+        } finally {
+            parser.reset();
+        }
+        if (status == null) {
+            throw new SAXException("No rsp element in the upload response");
+        }
+    }
+
     /**
      * Parsing the response.<p>
      * After a successful sychronous upload the photId is set.<br>
@@ -36,7 +84,9 @@ public class UploaderResponse implements Response {
      *
      * @see #getPhotoId()
      * @see #getTicketId()
+     * @deprecated Building the DOM is not needed, use {@link #parse(InputStream)}
      */
+    @Deprecated
     public void parse(Document document) {
         responsePayLoad = document.getDocumentElement();
         status = responsePayLoad.getAttribute("stat");
@@ -85,7 +135,7 @@ public class UploaderResponse implements Response {
     }
 
     /**
-     * @see com.googlecode.flickrjandroid.Response#getPayload()
+     * @return the rsp element, only if parsed with {@link #parse(Document)}
      */
     public Element getPayload() {
         return responsePayLoad;
@@ -122,4 +172,54 @@ public class UploaderResponse implements Response {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Reads the stat attribute of rsp, the text of photoid and ticketid, and
+     * the attributes of err; everything else is skipped.
+     */
+    private final class ResponseHandler extends DefaultHandler {
+        private StringBuilder text;
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if ("rsp".equals(qName)) {
+                status = attributes.getValue("stat");
+            } else if ("photoid".equals(qName) || "ticketid".equals(qName)) {
+                text = new StringBuilder();
+            } else if ("err".equals(qName)) {
+                errorCode = attributes.getValue("code");
+                errorMessage = attributes.getValue("msg");
+                if (errorMessage == null) {
+                    errorMessage = "";
+                }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (text != null) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if (text == null) {
+                return;
+            }
+            if ("photoid".equals(qName)) {
+                photoId = text.toString().trim();
+                text = null;
+            } else if ("ticketid".equals(qName)) {
+                ticketId = text.toString().trim();
+                text = null;
+            }
+        }
+
+        @Override
+        public InputSource resolveEntity(String publicId, String systemId) {
+            // never fetch external entities
+            return new InputSource(new StringReader(""));
+        }
+    }
+
 }
@@ -69,7 +69,11 @@ package com.googlecode.flickrjandroid.util;
  * data. You need the data that you will encode/decode
  * already on a byte array.<p>
  * 
- * This is the latest pre commons-codec version of Base64.
+ * This is the latest pre commons-codec version of Base64.<p>
+ * 
+ * The methods only read the lookup tables, which are filled when the class
+ * is initialised, so they are not synchronized and can be called from any
+ * number of threads at once.
  * 
  * @author Jeffrey Rodriguez
  * @author Sandy Gao
@@ -86,8 +90,8 @@ public final class  Base64 {
     static private final int  SIGN               = -128;
     static private final byte PAD                = ( byte ) '=';
     static private final boolean fDebug          = false;
-    static private byte [] base64Alphabet       = new byte[BASELENGTH];
-    static private byte [] lookUpBase64Alphabet = new byte[LOOKUPLENGTH];
+    static private final byte [] base64Alphabet       = new byte[BASELENGTH];
+    static private final byte [] lookUpBase64Alphabet = new byte[LOOKUPLENGTH];
 
 
     static {
@@ -156,7 +160,7 @@ public final class  Base64 {
      * @param data
      * @return stripped data
      */
-    public static synchronized byte[] removeWhiteSpace( byte[] data ) {
+    public static byte[] removeWhiteSpace( byte[] data ) {
         if (data == null)
             return null;
 
@@ -185,7 +189,7 @@ public final class  Base64 {
 
     }
 
-    public static synchronized boolean isArrayByteBase64( byte[] arrayOctect ) {
+    public static boolean isArrayByteBase64( byte[] arrayOctect ) {
         return(getDecodedDataLength(arrayOctect) >= 0);
     }
 
@@ -195,7 +199,7 @@ public final class  Base64 {
      * @param binaryData Array containing binaryData
      * @return Encoded Base64 array
      */
-    public static synchronized byte[] encode( byte[] binaryData ) {
+    public static byte[] encode( byte[] binaryData ) {
         if (binaryData == null)
             return null;
 
@@ -289,7 +293,7 @@ public final class  Base64 {
      * @param base64Data Byte array containing Base64 data
      * @return Array containind decoded data.
      */
-    public static synchronized byte[] decode( byte[] base64Data ) {
+    public static byte[] decode( byte[] base64Data ) {
 
         if (base64Data == null)
             return null;
@@ -391,7 +395,7 @@ public final class  Base64 {
      * @param base64Data
      * @return         a -1 would be return if not
      */
-    static public synchronized int getDecodedDataLength( byte[] base64Data ) {
+    static public int getDecodedDataLength( byte[] base64Data ) {
 
         if (base64Data == null)
             return -1;
@@ -0,0 +1,275 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.util;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Parses and formats the dates of the Flickr API: the MySQL datetimes
+ * (<code>yyyy-MM-dd HH:mm:ss</code>) in the default time zone, such as the
+ * date a photo was taken, and the unix timestamps in seconds, such as the
+ * date a photo was posted.<p>
+ *
+ * The datetimes are read and written field by field without a
+ * {@link SimpleDateFormat}, which allocates a {@link Date} and a calendar
+ * per value. The values the fast path does not handle, e.g. the
+ * <code>0000-00-00 00:00:00</code> of a photo without a date taken, or a
+ * month 13, and the times close to a daylight saving change are passed to
+ * a lenient {@link SimpleDateFormat} so that they yield the same time as
+ * before.<p>
+ *
+ * The times are milliseconds since the epoch, {@link #NO_DATE} stands for
+ * a date not returned.
+ */
+public final class FlickrDates {
+    /** The time of a date not returned */
+    public static final long NO_DATE = Long.MIN_VALUE;
+
+    private static final String DATE_TIME_PATTERN = "yyyy-MM-dd HH:mm:ss";
+    private static final String DATE_PATTERN = "yyyy-MM-dd";
+    private static final int DATE_TIME_LENGTH = 19;
+    private static final int DATE_LENGTH = 10;
+
+    /**
+     * The calendar switches from julian to gregorian in October 1582, the
+     * fast path handles the years after the switch only.
+     */
+    private static final int MIN_YEAR = 1583;
+    private static final int MAX_YEAR = 9999;
+
+    private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+    /** The days from 0000-03-01 to 1970-01-01, in the proleptic gregorian calendar */
+    private static final long DAYS_0000_TO_1970 = 719468L;
+
+    private static final ThreadLocal<DateFormat> DATE_TIME_FORMATS = new ThreadLocal<DateFormat>() {
+        protected synchronized DateFormat initialValue() {
+            return new SimpleDateFormat(DATE_TIME_PATTERN);
+        }
+    };
+
+    private static final ThreadLocal<DateFormat> DATE_FORMATS = new ThreadLocal<DateFormat>() {
+        protected synchronized DateFormat initialValue() {
+            return new SimpleDateFormat(DATE_PATTERN);
+        }
+    };
+
+    private FlickrDates() {
+        super();
+    }
+
+    /**
+     * @param value A datetime, <code>yyyy-MM-dd HH:mm:ss</code> in the
+     * default time zone, may be null
+     * @return the time in milliseconds, or {@link #NO_DATE} if the value is
+     * null or empty
+     * @throws ParseException if the value is not a datetime
+     */
+    public static long parseDateTime(String value) throws ParseException {
+        if (value == null || value.length() == 0) {
+            return NO_DATE;
+        }
+        if (value.length() == DATE_TIME_LENGTH && value.charAt(4) == '-' && value.charAt(7) == '-'
+                && value.charAt(10) == ' ' && value.charAt(13) == ':' && value.charAt(16) == ':') {
+            int year = digits(value, 0, 4);
+            int month = digits(value, 5, 2);
+            int day = digits(value, 8, 2);
+            int hour = digits(value, 11, 2);
+            int minute = digits(value, 14, 2);
+            int second = digits(value, 17, 2);
+            if (year >= MIN_YEAR && year <= MAX_YEAR && month >= 1 && month <= 12 && day >= 1
+                    && day <= 31 && hour >= 0 && hour <= 23 && minute >= 0 && minute <= 59 && second >= 0
+                    && second <= 59) {
+                long local = daysFromCivil(year, month, day) * MILLIS_PER_DAY
+                    + ((hour * 60 + minute) * 60 + second) * 1000L;
+                long time = toUtc(local, TimeZone.getDefault());
+                if (time != NO_DATE) {
+                    return time;
+                }
+            }
+        }
+        return lenient(DATE_TIME_FORMATS.get()).parse(value).getTime();
+    }
+
+    /**
+     * @param seconds A unix timestamp in seconds, may be null
+     * @return the time in milliseconds, or {@link #NO_DATE} if the value is
+     * null or empty
+     * @throws NumberFormatException if the value is not a number
+     */
+    public static long parseEpoch(String seconds) {
+        if (seconds == null || seconds.length() == 0) {
+            return NO_DATE;
+        }
+        return Long.parseLong(seconds) * 1000L;
+    }
+
+    /**
+     * @param time A time in milliseconds
+     * @return the datetime, <code>yyyy-MM-dd HH:mm:ss</code> in the default
+     * time zone
+     */
+    public static String formatDateTime(long time) {
+        char[] buffer = new char[DATE_TIME_LENGTH];
+        if (!format(time, buffer)) {
+            return lenient(DATE_TIME_FORMATS.get()).format(new Date(time));
+        }
+        return new String(buffer);
+    }
+
+    /**
+     * @param date A date
+     * @return the datetime, <code>yyyy-MM-dd HH:mm:ss</code> in the default
+     * time zone
+     */
+    public static String formatDateTime(Date date) {
+        return formatDateTime(date.getTime());
+    }
+
+    /**
+     * @param time A time in milliseconds
+     * @return the day, <code>yyyy-MM-dd</code> in the default time zone
+     */
+    public static String formatDate(long time) {
+        char[] buffer = new char[DATE_TIME_LENGTH];
+        if (!format(time, buffer)) {
+            return lenient(DATE_FORMATS.get()).format(new Date(time));
+        }
+        return new String(buffer, 0, DATE_LENGTH);
+    }
+
+    /**
+     * @param date A date
+     * @return the day, <code>yyyy-MM-dd</code> in the default time zone
+     */
+    public static String formatDate(Date date) {
+        return formatDate(date.getTime());
+    }
+
+    /**
+     * @param time A time in milliseconds, or {@link #NO_DATE}
+     * @return a new date, or null for {@link #NO_DATE}
+     */
+    public static Date toDate(long time) {
+        return time == NO_DATE ? null : new Date(time);
+    }
+
+    /**
+     * @param date A date, may be null
+     * @return the time of the date, or {@link #NO_DATE} for null
+     */
+    public static long toTime(Date date) {
+        return date == null ? NO_DATE : date.getTime();
+    }
+
+    /**
+     * @return the time of a wall time of the zone, or {@link #NO_DATE} if
+     * the offset of the zone changes in the two days around it, e.g. when
+     * the clocks go from 02:00 to 03:00 and 02:30 does not exist; the
+     * calendar knows best what such a time means
+     */
+    private static long toUtc(long local, TimeZone zone) {
+        int offset = zone.getOffset(local - 2 * MILLIS_PER_DAY);
+        if (offset != zone.getOffset(local + 2 * MILLIS_PER_DAY)) {
+            return NO_DATE;
+        }
+        return local - offset;
+    }
+
+    /**
+     * @return false if the year of the time is not handled by the fast path
+     */
+    private static boolean format(long time, char[] buffer) {
+        long local = time + TimeZone.getDefault().getOffset(time);
+        long days = floorDiv(local, MILLIS_PER_DAY);
+        int millisOfDay = (int) (local - days * MILLIS_PER_DAY);
+
+        // civil from days, see daysFromCivil()
+        long z = days + DAYS_0000_TO_1970;
+        long era = floorDiv(z, 146097);
+        int dayOfEra = (int) (z - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < MIN_YEAR || year > MAX_YEAR) {
+            return false;
+        }
+
+        int seconds = millisOfDay / 1000;
+        write(buffer, 0, (int) year, 4);
+        buffer[4] = '-';
+        write(buffer, 5, month, 2);
+        buffer[7] = '-';
+        write(buffer, 8, day, 2);
+        buffer[10] = ' ';
+        write(buffer, 11, seconds / 3600, 2);
+        buffer[13] = ':';
+        write(buffer, 14, seconds / 60 % 60, 2);
+        buffer[16] = ':';
+        write(buffer, 17, seconds % 60, 2);
+        return true;
+    }
+
+    /**
+     * The days since 1970-01-01 of a day of the proleptic gregorian
+     * calendar, after H. Hinnant's <i>chrono-compatible low-level date
+     * algorithms</i>: the years start in March so that the leap day is the
+     * last day of the year.
+     */
+    static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = y / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * @return the number of the digits, or -1 if one of the chars is not a
+     * digit
+     */
+    private static int digits(String value, int start, int length) {
+        int result = 0;
+        for (int i = start; i < start + length; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    private static void write(char[] buffer, int start, int value, int length) {
+        for (int i = start + length - 1; i >= start; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static long floorDiv(long x, long y) {
+        long result = x / y;
+        if ((x % y != 0) && ((x ^ y) < 0)) {
+            result--;
+        }
+        return result;
+    }
+
+    /**
+     * The formats follow the default time zone at the time of use, like
+     * the fast path, not at the time they were created.
+     */
+    private static DateFormat lenient(DateFormat format) {
+        format.setTimeZone(TimeZone.getDefault());
+        return format;
+    }
+
+}
@@ -3,8 +3,11 @@
  */
 package com.googlecode.flickrjandroid.util;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
@@ -20,6 +23,52 @@ public class IOUtilities {
 
     }
 
+    /**
+     * Read all the lines of the stream into one String, the line terminators
+     * are dropped. The stream is closed afterwards.
+     *
+     * @param in The stream to read
+     * @param charset The charset of the content
+     * @return the content
+     * @throws IOException
+     */
+    public static String readLines(InputStream in, String charset) throws IOException {
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(in, charset));
+            StringBuilder buffer = new StringBuilder();
+            String line = null;
+            while ((line = reader.readLine()) != null) {
+                buffer.append(line);
+            }
+            return buffer.toString();
+        } finally {
+            close(in);
+            close(reader);
+        }
+    }
+
+    /**
+     * Read the whole stream, which is closed afterwards.
+     *
+     * @param in The stream to read
+     * @return the content
+     * @throws IOException
+     */
+    public static byte[] readBytes(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            close(in);
+        }
+    }
+
     public static void close(InputStream s) {
         if (s != null) {
             try {
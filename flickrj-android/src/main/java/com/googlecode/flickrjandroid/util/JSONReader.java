@@ -0,0 +1,482 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Pull parser reading a JSON document token by token from a character
+ * stream, so that a response can be consumed while it is still arriving
+ * from the socket instead of being buffered into a String first.<p>
+ *
+ * Parts of the document can still be materialized with {@link #readObject()},
+ * {@link #readArray()} and {@link #readValue()}, which build the same
+ * <code>org.json</code> types as {@link JSONObject#JSONObject(String)}. This
+ * lets list builders read one element at a time into a small JSONObject
+ * while the list itself is never held in memory as a tree.
+ */
+public class JSONReader implements Closeable {
+
+    /**
+     * The kinds of tokens returned by {@link JSONReader#peek()}.
+     */
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING,
+        NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_OBJECT = 2;
+    private static final int DANGLING_NAME = 3;
+    private static final int NONEMPTY_OBJECT = 4;
+    private static final int EMPTY_ARRAY = 5;
+    private static final int NONEMPTY_ARRAY = 6;
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int pos = 0;
+    private int limit = 0;
+    private long consumed = 0;
+
+    private int[] stack = new int[32];
+    private int stackSize = 0;
+
+    private Token peeked;
+    private String peekedText;
+    private final StringBuilder text = new StringBuilder();
+
+    /**
+     * @param in The source of the document, it is closed by {@link #close()}
+     */
+    public JSONReader(Reader in) {
+        super();
+        if (in == null) {
+            throw new IllegalArgumentException("Reader must not be null");
+        }
+        this.in = in;
+        push(EMPTY_DOCUMENT);
+    }
+
+    /**
+     * @return the kind of the next token, without consuming it
+     * @throws IOException
+     * @throws JSONException if the document is malformed
+     */
+    public Token peek() throws IOException, JSONException {
+        if (peeked != null) {
+            return peeked;
+        }
+        int c;
+        switch (stack[stackSize - 1]) {
+        case EMPTY_ARRAY:
+            stack[stackSize - 1] = NONEMPTY_ARRAY;
+            c = nextNonWhitespace();
+            if (c == ']') {
+                stackSize--;
+                return peeked = Token.END_ARRAY;
+            }
+            pos--;
+            break;
+        case NONEMPTY_ARRAY:
+            c = nextNonWhitespace();
+            if (c == ']') {
+                stackSize--;
+                return peeked = Token.END_ARRAY;
+            } else if (c != ',') {
+                throw syntaxError("Expected ',' or ']'");
+            }
+            break;
+        case EMPTY_OBJECT:
+        case NONEMPTY_OBJECT:
+            boolean empty = stack[stackSize - 1] == EMPTY_OBJECT;
+            stack[stackSize - 1] = DANGLING_NAME;
+            c = nextNonWhitespace();
+            if (c == '}') {
+                stackSize--;
+                return peeked = Token.END_OBJECT;
+            }
+            if (!empty) {
+                if (c != ',') {
+                    throw syntaxError("Expected ',' or '}'");
+                }
+                c = nextNonWhitespace();
+            }
+            if (c != '"') {
+                throw syntaxError("Expected a name");
+            }
+            peekedText = readString();
+            return peeked = Token.NAME;
+        case DANGLING_NAME:
+            stack[stackSize - 1] = NONEMPTY_OBJECT;
+            if (nextNonWhitespace() != ':') {
+                throw syntaxError("Expected ':'");
+            }
+            break;
+        case EMPTY_DOCUMENT:
+            stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+            break;
+        default:
+            c = read();
+            while (c != -1 && isWhitespace(c)) {
+                c = read();
+            }
+            if (c == -1) {
+                return peeked = Token.END_DOCUMENT;
+            }
+            throw syntaxError("Unexpected content after the document");
+        }
+        return peeked = peekValue();
+    }
+
+    private Token peekValue() throws IOException, JSONException {
+        int c = nextNonWhitespace();
+        switch (c) {
+        case '{':
+            push(EMPTY_OBJECT);
+            return Token.BEGIN_OBJECT;
+        case '[':
+            push(EMPTY_ARRAY);
+            return Token.BEGIN_ARRAY;
+        case '"':
+            peekedText = readString();
+            return Token.STRING;
+        default:
+            pos--;
+            peekedText = readLiteral();
+            if (peekedText.length() == 0) {
+                throw syntaxError("Expected a value");
+            } else if ("true".equals(peekedText) || "false".equals(peekedText)) {
+                return Token.BOOLEAN;
+            } else if ("null".equals(peekedText)) {
+                return Token.NULL;
+            }
+            c = peekedText.charAt(0);
+            if (c != '-' && (c < '0' || c > '9')) {
+                throw syntaxError("Unexpected literal " + peekedText);
+            }
+            return Token.NUMBER;
+        }
+    }
+
+    private Token consume(Token expected) throws IOException, JSONException {
+        Token token = peek();
+        if (token != expected) {
+            throw syntaxError("Expected " + expected + " but was " + token);
+        }
+        peeked = null;
+        return token;
+    }
+
+    public void beginObject() throws IOException, JSONException {
+        consume(Token.BEGIN_OBJECT);
+    }
+
+    public void endObject() throws IOException, JSONException {
+        consume(Token.END_OBJECT);
+    }
+
+    public void beginArray() throws IOException, JSONException {
+        consume(Token.BEGIN_ARRAY);
+    }
+
+    public void endArray() throws IOException, JSONException {
+        consume(Token.END_ARRAY);
+    }
+
+    /**
+     * @return true unless the current object or array has no more elements
+     * @throws IOException
+     * @throws JSONException
+     */
+    public boolean hasNext() throws IOException, JSONException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY
+                && token != Token.END_DOCUMENT;
+    }
+
+    public String nextName() throws IOException, JSONException {
+        consume(Token.NAME);
+        return peekedText;
+    }
+
+    /**
+     * @return the next string, number or boolean as text
+     * @throws IOException
+     * @throws JSONException if the next token is not a scalar value
+     */
+    public String nextString() throws IOException, JSONException {
+        Token token = peek();
+        if (token != Token.STRING && token != Token.NUMBER && token != Token.BOOLEAN) {
+            throw syntaxError("Expected a string but was " + token);
+        }
+        peeked = null;
+        return peekedText;
+    }
+
+    /**
+     * @return the next number, or string holding a number, as an int
+     * @throws IOException
+     * @throws JSONException if the value is not an int
+     */
+    public int nextInt() throws IOException, JSONException {
+        String value = nextString();
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            double d;
+            try {
+                d = Double.parseDouble(value);
+            } catch (NumberFormatException e2) {
+                throw syntaxError("Expected an int but was " + value);
+            }
+            if (d != (int) d) {
+                throw syntaxError("Expected an int but was " + value);
+            }
+            return (int) d;
+        }
+    }
+
+    public boolean nextBoolean() throws IOException, JSONException {
+        consume(Token.BOOLEAN);
+        return "true".equals(peekedText);
+    }
+
+    public void nextNull() throws IOException, JSONException {
+        consume(Token.NULL);
+    }
+
+    /**
+     * Skip the next value, including all nested elements.
+     *
+     * @throws IOException
+     * @throws JSONException
+     */
+    public void skipValue() throws IOException, JSONException {
+        int depth = 0;
+        do {
+            Token token = peek();
+            if (token == Token.END_DOCUMENT) {
+                throw syntaxError("Unexpected end of the document");
+            }
+            peeked = null;
+            if (token == Token.BEGIN_OBJECT || token == Token.BEGIN_ARRAY) {
+                depth++;
+            } else if (token == Token.END_OBJECT || token == Token.END_ARRAY) {
+                depth--;
+            }
+        } while (depth > 0);
+    }
+
+    /**
+     * @return the next value as a JSONObject, JSONArray, String, Boolean,
+     * Integer, Long, Double or {@link JSONObject#NULL}
+     * @throws IOException
+     * @throws JSONException
+     */
+    public Object readValue() throws IOException, JSONException {
+        switch (peek()) {
+        case BEGIN_OBJECT:
+            return readObject();
+        case BEGIN_ARRAY:
+            return readArray();
+        case STRING:
+            return nextString();
+        case NUMBER:
+            return toNumber(nextString());
+        case BOOLEAN:
+            return Boolean.valueOf(nextBoolean());
+        case NULL:
+            nextNull();
+            return JSONObject.NULL;
+        default:
+            throw syntaxError("Expected a value but was " + peek());
+        }
+    }
+
+    /**
+     * @return the next object, with all nested elements
+     * @throws IOException
+     * @throws JSONException
+     */
+    public JSONObject readObject() throws IOException, JSONException {
+        JSONObject object = new JSONObject();
+        beginObject();
+        while (hasNext()) {
+            String name = nextName();
+            object.put(name, readValue());
+        }
+        endObject();
+        return object;
+    }
+
+    /**
+     * @return the next array, with all nested elements
+     * @throws IOException
+     * @throws JSONException
+     */
+    public JSONArray readArray() throws IOException, JSONException {
+        JSONArray array = new JSONArray();
+        beginArray();
+        while (hasNext()) {
+            array.put(readValue());
+        }
+        endArray();
+        return array;
+    }
+
+    /* (non-Javadoc)
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        peeked = null;
+        in.close();
+    }
+
+    private static Object toNumber(String literal) {
+        if (literal.indexOf('.') < 0 && literal.indexOf('e') < 0 && literal.indexOf('E') < 0) {
+            try {
+                long l = Long.parseLong(literal);
+                if (l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE) {
+                    return Integer.valueOf((int) l);
+                }
+                return Long.valueOf(l);
+            } catch (NumberFormatException e) {
+                // too large for a long
+            }
+        }
+        try {
+            return Double.valueOf(literal);
+        } catch (NumberFormatException e) {
+            return literal;
+        }
+    }
+
+    private void push(int scope) {
+        if (stackSize == stack.length) {
+            int[] grown = new int[stackSize * 2];
+            System.arraycopy(stack, 0, grown, 0, stackSize);
+            stack = grown;
+        }
+        stack[stackSize++] = scope;
+    }
+
+    private int read() throws IOException {
+        if (pos == limit) {
+            consumed += limit;
+            pos = 0;
+            limit = 0;
+            int count = in.read(buffer, 0, buffer.length);
+            if (count <= 0) {
+                return -1;
+            }
+            limit = count;
+        }
+        return buffer[pos++];
+    }
+
+    private int nextNonWhitespace() throws IOException, JSONException {
+        int c = read();
+        while (c != -1 && isWhitespace(c)) {
+            c = read();
+        }
+        if (c == -1) {
+            throw syntaxError("Unexpected end of the document");
+        }
+        return c;
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private String readLiteral() throws IOException {
+        text.setLength(0);
+        int c = read();
+        while (c != -1) {
+            if (isWhitespace(c) || c == ',' || c == ':' || c == ']' || c == '}'
+                    || c == '[' || c == '{' || c == '"') {
+                pos--;
+                break;
+            }
+            text.append((char) c);
+            c = read();
+        }
+        return text.toString();
+    }
+
+    /**
+     * Read the rest of a string whose opening quote has been consumed.
+     */
+    private String readString() throws IOException, JSONException {
+        text.setLength(0);
+        while (true) {
+            int start = pos;
+            while (pos < limit) {
+                char c = buffer[pos];
+                if (c == '"') {
+                    text.append(buffer, start, pos - start);
+                    pos++;
+                    return text.toString();
+                } else if (c == '\\') {
+                    text.append(buffer, start, pos - start);
+                    pos++;
+                    text.append(readEscape());
+                    start = pos;
+                } else {
+                    pos++;
+                }
+            }
+            text.append(buffer, start, pos - start);
+            if (read() == -1) {
+                throw syntaxError("Unterminated string");
+            }
+            pos--;
+        }
+    }
+
+    private char readEscape() throws IOException, JSONException {
+        int c = read();
+        switch (c) {
+        case 'b':
+            return '\b';
+        case 'f':
+            return '\f';
+        case 'n':
+            return '\n';
+        case 'r':
+            return '\r';
+        case 't':
+            return '\t';
+        case 'u':
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                int digit = Character.digit(read(), 16);
+                if (digit < 0) {
+                    throw syntaxError("Invalid unicode escape");
+                }
+                value = (value << 4) | digit;
+            }
+            return (char) value;
+        case '"':
+        case '\\':
+        case '/':
+            return (char) c;
+        default:
+            throw syntaxError("Invalid escape sequence");
+        }
+    }
+
+    private JSONException syntaxError(String message) {
+        return new JSONException(message + " at character " + (consumed + pos));
+    }
+
+}
@@ -0,0 +1,127 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shares one instance of the values repeated across a response, such as the
+ * owner ids, servers, licenses and media of a page of photos, so that the
+ * photos parsed retain one String per distinct value instead of one per
+ * photo.<p>
+ *
+ * A dictionary holds at most {@link #getMaxSize()} values, the values read
+ * once it is full are returned as they are. The counters tell how well the
+ * values repeat: a dictionary kept for a long time whose
+ * {@link #getDedupRatio()} stays low only costs memory.<p>
+ *
+ * A dictionary is created for every list parsed, unless one is set on the
+ * {@link com.googlecode.flickrjandroid.RequestContext} to be shared by all
+ * the responses parsed for it.
+ */
+public class StringDictionary {
+    public static final int DEFAULT_MAX_SIZE = 4096;
+
+    private final int maxSize;
+    private final Map<String, String> values = new HashMap<String, String>();
+    private long lookups = 0;
+    private long hits = 0;
+    private long savedChars = 0;
+
+    public StringDictionary() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize The maximum number of values held
+     */
+    public StringDictionary(int maxSize) {
+        super();
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The maximum size must be at least 1");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param value A value, may be null
+     * @return the instance of the value held, the value itself if it is
+     * the first of its kind or the dictionary is full
+     */
+    public synchronized String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        lookups++;
+        String shared = values.get(value);
+        if (shared != null) {
+            hits++;
+            savedChars += value.length();
+            return shared;
+        }
+        if (values.size() < maxSize) {
+            values.put(value, value);
+        }
+        return value;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return the number of distinct values held
+     */
+    public synchronized int size() {
+        return values.size();
+    }
+
+    /**
+     * @return the number of values looked up
+     */
+    public synchronized long getLookups() {
+        return lookups;
+    }
+
+    /**
+     * @return the number of values replaced by the instance held
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of chars of the values replaced by the instance
+     * held, i.e. no longer retained twice
+     */
+    public synchronized long getSavedChars() {
+        return savedChars;
+    }
+
+    /**
+     * @return the share of the values looked up replaced by the instance
+     * held, from 0 to 1
+     */
+    public synchronized double getDedupRatio() {
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Drop the values held and reset the counters.
+     */
+    public synchronized void clear() {
+        values.clear();
+        lookups = 0;
+        hits = 0;
+        savedChars = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "StringDictionary [size=" + values.size() + ", lookups=" + lookups + ", hits=" + hits
+            + ", savedChars=" + savedChars + "]";
+    }
+
+}
@@ -0,0 +1,135 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.flickrjandroid.http.HttpRequest;
+import com.googlecode.flickrjandroid.http.HttpResponse;
+import com.googlecode.flickrjandroid.http.PooledHttpEngine;
+import com.googlecode.flickrjandroid.oauth.OAuth;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs asynchronous calls against a local server which never answers.
+ */
+public class AsyncFlickrTest {
+    private HttpServer server;
+    private Flickr flickr;
+    private AsyncFlickr async;
+    private String baseUrl;
+
+    @Before
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/slow", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    // stop
+                }
+                exchange.sendResponseHeaders(200, 0);
+                OutputStream out = exchange.getResponseBody();
+                out.close();
+            }
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        flickr = new Flickr("key", "secret");
+        flickr.getTransport().setHttpEngine(new PooledHttpEngine());
+        async = new AsyncFlickr(flickr, 2);
+    }
+
+    @After
+    public void tearDown() {
+        async.shutdown();
+        flickr.getTransport().getHttpEngine().shutdown();
+        server.stop(0);
+        RequestContext.resetThreadLocals();
+    }
+
+    private FlickrCall<Integer> slowCall() {
+        return new FlickrCall<Integer>() {
+            @Override
+            public Integer call(Flickr f) throws Exception {
+                HttpResponse response = f.getTransport().getHttpEngine().execute(
+                        new HttpRequest(HttpRequest.METHOD_GET, new URL(baseUrl + "/slow")));
+                response.close();
+                return Integer.valueOf(response.getCode());
+            }
+        };
+    }
+
+    @Test
+    public void testTimeoutClosesConnection() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        long start = System.currentTimeMillis();
+        FlickrFuture<Integer> future = async.submit(slowCall(), new FlickrCallback<Integer>() {
+            @Override
+            public void onSuccess(Integer result) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+                failure.set(error);
+                latch.countDown();
+            }
+        }, 200, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(3, TimeUnit.SECONDS));
+        assertTrue(failure.get() instanceof TimeoutException);
+        assertTrue(future.isTimedOut());
+        assertTrue(System.currentTimeMillis() - start < 3000);
+        // the worker thread has been released by closing the socket
+        PooledHttpEngine engine = (PooledHttpEngine) flickr.getTransport().getHttpEngine();
+        for (int i = 0; i < 100 && engine.getStats().getLeased() > 0; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, engine.getStats().getLeased());
+    }
+
+    @Test
+    public void testRequestContextCarriedOver() throws Exception {
+        final OAuth auth = new OAuth();
+        RequestContext.getRequestContext().setOAuth(auth);
+        FlickrFuture<Boolean> future = async.submit(new FlickrCall<Boolean>() {
+            @Override
+            public Boolean call(Flickr f) throws Exception {
+                return Boolean.valueOf(RequestContext.getRequestContext().getOAuth() == auth);
+            }
+        });
+        assertTrue(future.get().booleanValue());
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void testFailurePropagated() throws Exception {
+        async.submit(new FlickrCall<Object>() {
+            @Override
+            public Object call(Flickr f) throws Exception {
+                throw new FlickrException("1", "Photo not found");
+            }
+        }).get();
+    }
+
+}
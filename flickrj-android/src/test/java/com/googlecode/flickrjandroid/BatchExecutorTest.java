@@ -0,0 +1,155 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Runs batches of fake operations, some of which fail.
+ */
+public class BatchExecutorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private AsyncFlickr async;
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+    private final Set<String> executed = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    @Before
+    public void setup() throws Exception {
+        async = new AsyncFlickr(new Flickr("key"), 8);
+    }
+
+    @After
+    public void tearDown() {
+        async.shutdown();
+    }
+
+    private List<BatchOperation> operations(int count, final Set<String> failing) {
+        List<BatchOperation> operations = new ArrayList<BatchOperation>();
+        for (int i = 0; i < count; i++) {
+            final String id = "op" + i;
+            operations.add(new BatchOperation() {
+                @Override
+                public String getId() {
+                    return id;
+                }
+
+                @Override
+                public void execute(Flickr flickr) throws Exception {
+                    int now = running.incrementAndGet();
+                    synchronized (maxRunning) {
+                        if (now > maxRunning.get()) {
+                            maxRunning.set(now);
+                        }
+                    }
+                    try {
+                        Thread.sleep(1);
+                    } finally {
+                        running.decrementAndGet();
+                    }
+                    executed.add(id);
+                    if (failing.contains(id)) {
+                        throw new FlickrException("1", "Photo not found");
+                    }
+                }
+            });
+        }
+        return operations;
+    }
+
+    @Test
+    public void testReportsEveryItem() throws Exception {
+        BatchExecutor executor = new BatchExecutor(async);
+        executor.setParallelism(3);
+        final List<String> failed = new ArrayList<String>();
+        final AtomicInteger succeeded = new AtomicInteger();
+        executor.setListener(new BatchExecutor.Listener() {
+            @Override
+            public void onSuccess(BatchOperation operation) {
+                succeeded.incrementAndGet();
+            }
+
+            @Override
+            public void onFailure(BatchOperation operation, Throwable error) {
+                failed.add(operation.getId());
+            }
+        });
+        BatchExecutor.Report report = executor.run(operations(50, Collections.singleton("op7")));
+        assertEquals(49, report.getSucceeded());
+        assertEquals(49, succeeded.get());
+        assertEquals(Collections.singletonList("op7"), failed);
+        assertFalse(report.isSuccessful());
+        assertTrue(report.getFailures().values().iterator().next() instanceof FlickrException);
+        assertEquals(50, executed.size());
+        assertTrue("ran " + maxRunning.get(), maxRunning.get() <= 3);
+    }
+
+    @Test
+    public void testResumeFromCheckpoint() throws Exception {
+        File file = new File(folder.getRoot(), "tagging.batch");
+        BatchExecutor executor = new BatchExecutor(async);
+        executor.setCheckpoint(new BatchCheckpoint(file));
+        Set<String> failing = Collections.singleton("op3");
+        executor.run(operations(20, failing));
+        executor.getCheckpoint().close();
+
+        executed.clear();
+        executor.setCheckpoint(new BatchCheckpoint(file));
+        BatchExecutor.Report report = executor.run(operations(20, Collections.<String>emptySet()));
+        // only the failed operation is run again
+        assertEquals(Collections.singleton("op3"), executed);
+        assertEquals(19, report.getSkipped());
+        assertEquals(1, report.getSucceeded());
+        assertEquals(20, executor.getCheckpoint().size());
+        executor.getCheckpoint().delete();
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testCheckpointIgnoresLineCutOff() throws Exception {
+        File file = new File(folder.getRoot(), "tagging.batch");
+        BatchCheckpoint checkpoint = new BatchCheckpoint(file);
+        checkpoint.completed("op12");
+        checkpoint.close();
+        // the crash cuts the line to the id of another operation
+        RandomAccessFile cut = new RandomAccessFile(file, "rw");
+        cut.setLength("op1".length());
+        cut.close();
+
+        checkpoint = new BatchCheckpoint(file);
+        assertFalse(checkpoint.isCompleted("op1"));
+        assertEquals(0, checkpoint.size());
+        checkpoint.delete();
+    }
+
+    @Test
+    public void testOperationIds() {
+        assertEquals("flickr.photos.addTags 123 holiday%20beach",
+                BatchOperations.addTags("123", new String[] {"holiday", "beach"}).getId());
+        assertEquals("flickr.photos.addTags 123 %22holiday%20beach%22",
+                BatchOperations.addTags("123", new String[] {"holiday beach"}).getId());
+        assertEquals("flickr.photosets.addPhoto 72157 123",
+                BatchOperations.addToPhotoset("72157", "123").getId());
+    }
+
+}
@@ -0,0 +1,140 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Harvests fake pages of 10 elements each, where every page repeats the
+ * last element of the page before it, as if an element had been added
+ * while paginating.
+ */
+public class PageHarvesterTest {
+    private AsyncFlickr async;
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+    private final AtomicInteger delivered = new AtomicInteger();
+    private final AtomicInteger maxAhead = new AtomicInteger();
+    private int slowPage = -1;
+
+    @Before
+    public void setup() throws Exception {
+        async = new AsyncFlickr(new Flickr("key"), 8);
+    }
+
+    @After
+    public void tearDown() {
+        async.shutdown();
+    }
+
+    private PageFetcher<Integer> fetcher(final int pages, final int failingPage) {
+        return new PageFetcher<Integer>() {
+            @Override
+            public SearchResultList<Integer> getPage(int page)
+                    throws IOException, FlickrException, JSONException {
+                int now = running.incrementAndGet();
+                synchronized (maxRunning) {
+                    if (now > maxRunning.get()) {
+                        maxRunning.set(now);
+                    }
+                    if (page - delivered.get() > maxAhead.get()) {
+                        maxAhead.set(page - delivered.get());
+                    }
+                }
+                try {
+                    // later pages arrive first, or all pages but the slow one
+                    Thread.sleep(slowPage < 0 ? (pages - page) * 5 : page == slowPage ? 300 : 1);
+                } catch (InterruptedException e) {
+                    throw new IOException("interrupted");
+                } finally {
+                    running.decrementAndGet();
+                }
+                if (page == failingPage) {
+                    throw new FlickrException("105", "Service currently unavailable");
+                }
+                SearchResultList<Integer> list = new SearchResultList<Integer>();
+                list.setPage(page);
+                list.setPages(pages);
+                list.setTotal(pages * 10);
+                for (int i = page == 1 ? 0 : -1; i < 10; i++) {
+                    list.add(Integer.valueOf((page - 1) * 10 + i));
+                }
+                return list;
+            }
+        };
+    }
+
+    @Test
+    public void testOrderedMergeWithoutDuplicates() {
+        PageHarvester<Integer> harvester = new PageHarvester<Integer>(fetcher(12, -1), async);
+        harvester.setParallelism(3);
+        SearchResultList<Integer> result = harvester.harvest(new SearchResultList<Integer>());
+        assertEquals(120, result.size());
+        for (int i = 0; i < result.size(); i++) {
+            assertEquals(i, result.get(i).intValue());
+        }
+        assertEquals(12, result.getPages());
+        assertTrue("ran " + maxRunning.get() + " pages concurrently", maxRunning.get() <= 3);
+    }
+
+    @Test
+    public void testOrderedWindow() {
+        slowPage = 2;
+        PageHarvester<Integer> harvester = new PageHarvester<Integer>(fetcher(30, -1), async);
+        harvester.setParallelism(2);
+        harvester.harvest(new PageHarvester.Sink<Integer>() {
+            @Override
+            public void onPage(int page, List<Integer> elements) {
+                assertEquals(delivered.get() + 1, page);
+                delivered.set(page);
+            }
+        }, true);
+        assertEquals(30, delivered.get());
+        assertTrue("requested " + maxAhead.get() + " pages ahead", maxAhead.get() <= 2 * 2);
+    }
+
+    @Test
+    public void testUnorderedSink() {
+        PageHarvester<Integer> harvester = new PageHarvester<Integer>(fetcher(8, -1), async);
+        final List<Integer> received = new ArrayList<Integer>();
+        final List<Integer> pages = new ArrayList<Integer>();
+        harvester.harvest(new PageHarvester.Sink<Integer>() {
+            @Override
+            public void onPage(int page, List<Integer> elements) {
+                pages.add(Integer.valueOf(page));
+                received.addAll(elements);
+            }
+        }, false);
+        assertEquals(8, pages.size());
+        Collections.sort(received);
+        assertEquals(80, received.size());
+        assertEquals(79, received.get(79).intValue());
+    }
+
+    @Test
+    public void testFailure() {
+        PageHarvester<Integer> harvester = new PageHarvester<Integer>(fetcher(6, 4), async);
+        try {
+            harvester.harvest(new SearchResultList<Integer>());
+        } catch (PageFetchException e) {
+            assertEquals(4, e.getPage());
+            assertTrue(e.getCause() instanceof FlickrException);
+            return;
+        }
+        throw new AssertionError("PageFetchException expected");
+    }
+
+}
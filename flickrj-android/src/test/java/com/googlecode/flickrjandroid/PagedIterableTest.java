@@ -0,0 +1,125 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Iterates over fake pages of 10 elements each.
+ */
+public class PagedIterableTest {
+    private AsyncFlickr async;
+    private final List<Integer> fetched = new CopyOnWriteArrayList<Integer>();
+    private final AtomicInteger consumedPage = new AtomicInteger();
+    private final AtomicInteger maxAhead = new AtomicInteger();
+
+    @Before
+    public void setup() throws Exception {
+        async = new AsyncFlickr(new Flickr("key"), 4);
+    }
+
+    @After
+    public void tearDown() {
+        async.shutdown();
+    }
+
+    private PageFetcher<Integer> fetcher(final int pages, final int failingPage) {
+        return new PageFetcher<Integer>() {
+            @Override
+            public SearchResultList<Integer> getPage(int page)
+                    throws IOException, FlickrException, JSONException {
+                fetched.add(Integer.valueOf(page));
+                int ahead = page - consumedPage.get();
+                if (ahead > maxAhead.get()) {
+                    maxAhead.set(ahead);
+                }
+                if (page == failingPage) {
+                    throw new FlickrException("105", "Service currently unavailable");
+                }
+                SearchResultList<Integer> list = new SearchResultList<Integer>();
+                list.setPage(page);
+                list.setPages(pages);
+                for (int i = 0; i < 10; i++) {
+                    list.add(Integer.valueOf((page - 1) * 10 + i));
+                }
+                return list;
+            }
+        };
+    }
+
+    private int consume(PagedIterable.PageIterator<Integer> it, int limit) {
+        int count = 0;
+        while (count < limit && it.hasNext()) {
+            // the page of the element requested is being consumed
+            consumedPage.set(count / 10 + 1);
+            int value = it.next().intValue();
+            assertEquals(count, value);
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void testWithoutPrefetch() {
+        PagedIterable<Integer> iterable = new PagedIterable<Integer>(fetcher(3, -1));
+        assertEquals(30, consume(iterable.iterator(), 100));
+        assertEquals(3, fetched.size());
+    }
+
+    @Test
+    public void testPrefetchDepth() {
+        PagedIterable<Integer> iterable = new PagedIterable<Integer>(fetcher(20, -1));
+        iterable.setPrefetch(async, 3);
+        assertEquals(200, consume(iterable.iterator(), 1000));
+        assertEquals(20, fetched.size());
+        assertTrue("fetched " + maxAhead.get() + " pages ahead", maxAhead.get() <= 3);
+    }
+
+    @Test
+    public void testCloseStopsRequests() throws Exception {
+        PagedIterable<Integer> iterable = new PagedIterable<Integer>(fetcher(100, -1));
+        iterable.setPrefetch(async, 2);
+        PagedIterable.PageIterator<Integer> it = iterable.iterator();
+        assertEquals(15, consume(it, 15));
+        it.close();
+        assertFalse(it.hasNext());
+        Thread.sleep(100);
+        int requested = fetched.size();
+        assertTrue(requested <= 4);
+        Thread.sleep(100);
+        assertEquals(requested, fetched.size());
+    }
+
+    @Test
+    public void testFailure() {
+        PagedIterable<Integer> iterable = new PagedIterable<Integer>(fetcher(5, 3));
+        iterable.setPrefetch(async, 1);
+        PagedIterable.PageIterator<Integer> it = iterable.iterator();
+        try {
+            consume(it, 100);
+        } catch (PageFetchException e) {
+            assertEquals(3, e.getPage());
+            assertTrue(e.getCause() instanceof FlickrException);
+            assertFalse(it.hasNext());
+            Collections.sort(fetched);
+            assertEquals(Integer.valueOf(3), fetched.get(fetched.size() - 1));
+            return;
+        }
+        throw new AssertionError("PageFetchException expected");
+    }
+
+}
@@ -0,0 +1,67 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+import com.googlecode.flickrjandroid.photos.PhotoList;
+import com.googlecode.flickrjandroid.photos.PhotoUtils;
+
+/**
+ * Reads streamed responses without a server.
+ */
+public class StreamingResponseTest {
+
+    private static ByteArrayInputStream stream(String json) throws Exception {
+        return new ByteArrayInputStream(json.getBytes("UTF-8"));
+    }
+
+    @Test
+    public void testPhotoList() throws Exception {
+        String json = "{\"photos\":{\"page\":2,\"pages\":3,\"perpage\":2,\"total\":\"6\",\"photo\":["
+            + "{\"id\":\"1\",\"owner\":\"12@N01\",\"secret\":\"s1\",\"server\":\"7\",\"farm\":8,\"title\":\"one\","
+            + "\"ispublic\":1,\"isfriend\":0,\"isfamily\":0,\"url_sq\":\"https://farm8.staticflickr.com/7/1_s1_s.jpg\"},"
+            + "{\"id\":\"2\",\"owner\":\"12@N01\",\"secret\":\"s2\",\"server\":\"7\",\"farm\":8,\"title\":\"two\","
+            + "\"ispublic\":0,\"isfriend\":1,\"isfamily\":0}]},\"stat\":\"ok\"}";
+        PhotoList photos = new REST().readResponse(stream(json), PhotoUtils.PHOTO_LIST_HANDLER);
+        assertEquals(2, photos.size());
+        assertEquals(2, photos.getPage());
+        assertEquals(3, photos.getPages());
+        assertEquals(6, photos.getTotal());
+        assertEquals("two", photos.get(1).getTitle());
+        assertEquals("12@N01", photos.get(0).getOwner().getId());
+        assertEquals("https://farm8.staticflickr.com/7/1_s1_s.jpg", photos.get(0).getSquareSize().getSource());
+    }
+
+    @Test
+    public void testError() throws Exception {
+        String json = "{\"stat\":\"fail\",\"code\":1,\"message\":\"Photo not found\"}";
+        try {
+            new REST().readResponse(stream(json), PhotoUtils.PHOTO_LIST_HANDLER);
+        } catch (FlickrException e) {
+            assertEquals("1", e.getErrorCode());
+            assertEquals("Photo not found", e.getErrorMessage());
+            return;
+        }
+        throw new AssertionError("FlickrException expected");
+    }
+
+    @Test(expected = JSONException.class)
+    public void testMissingPayload() throws Exception {
+        new REST().readResponse(stream("{\"stat\":\"ok\"}"), PhotoUtils.PHOTO_LIST_HANDLER);
+    }
+
+    @Test
+    public void testRawResponseOptIn() throws Exception {
+        assertNull(new RESTResponse(new org.json.JSONObject("{\"stat\":\"ok\"}")).getRawResponse());
+        assertEquals("{\"stat\":\"ok\"}", new RESTResponse("{\"stat\":\"ok\"}").getRawResponse());
+    }
+
+}
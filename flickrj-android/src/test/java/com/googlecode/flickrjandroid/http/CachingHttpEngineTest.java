@@ -0,0 +1,213 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Caches responses of an engine answering from memory on the disk.
+ */
+public class CachingHttpEngineTest {
+    private static final String IMAGE = "http://farm1.staticflickr.com/2/1418878_1e92283336_m.jpg";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final LinkedList<HttpResponse> responses = new LinkedList<HttpResponse>();
+    private final List<HttpRequest> requests = new ArrayList<HttpRequest>();
+    private final HttpEngine stub = new HttpEngine() {
+        @Override
+        public HttpResponse execute(HttpRequest request) throws IOException {
+            requests.add(request);
+            return responses.removeFirst();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    };
+    private File directory;
+    private CachingHttpEngine engine;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = folder.newFolder("cache");
+        engine = new CachingHttpEngine(stub, new DiskCache(directory, 1024));
+    }
+
+    private static HttpResponse response(int code, String body, String... headers) throws IOException {
+        Map<String, String> map = new HashMap<String, String>();
+        for (int i = 0; i < headers.length; i += 2) {
+            map.put(headers[i].toLowerCase(), headers[i + 1]);
+        }
+        return new HttpResponse(code, "", map, new ByteArrayInputStream(body.getBytes("UTF-8")));
+    }
+
+    private String get(String url, String... headers) throws IOException {
+        HttpRequest request = new HttpRequest(HttpRequest.METHOD_GET, new URL(url));
+        for (int i = 0; i < headers.length; i += 2) {
+            request.setHeader(headers[i], headers[i + 1]);
+        }
+        HttpResponse response = engine.execute(request);
+        assertEquals(200, response.getCode());
+        return response.readBody("UTF-8");
+    }
+
+    @Test
+    public void testFreshHit() throws Exception {
+        responses.add(response(200, "jpeg", "Cache-Control", "max-age=3600", "Content-Type", "image/jpeg"));
+        assertEquals("jpeg", get(IMAGE));
+        assertEquals("jpeg", get(IMAGE));
+        assertEquals(1, requests.size());
+        assertEquals(1, engine.getHits());
+        assertEquals(1, engine.getMisses());
+    }
+
+    @Test
+    public void testRevalidation() throws Exception {
+        responses.add(response(200, "jpeg", "ETag", "\"abc\"", "Last-Modified", "Tue, 15 Nov 1994 12:45:26 GMT",
+                "Cache-Control", "no-cache"));
+        // servers send the freshness of the entry with the 304 again
+        responses.add(response(304, "", "Cache-Control", "no-cache"));
+        assertEquals("jpeg", get(IMAGE));
+        assertEquals("jpeg", get(IMAGE));
+        assertEquals(2, requests.size());
+        assertEquals("\"abc\"", requests.get(1).getHeader("If-None-Match"));
+        assertEquals("Tue, 15 Nov 1994 12:45:26 GMT", requests.get(1).getHeader("If-Modified-Since"));
+        assertEquals(1, engine.getRevalidated());
+
+        // changed on the server
+        responses.add(response(200, "png", "ETag", "\"def\"", "Cache-Control", "no-cache"));
+        assertEquals("png", get(IMAGE));
+        assertEquals("\"def\"", engine.getCache().get(IMAGE).getEtag());
+    }
+
+    @Test
+    public void testNoCacheRequestIsRevalidated() throws Exception {
+        responses.add(response(200, "{}", "ETag", "\"abc\"", "Cache-Control", "max-age=3600"));
+        responses.add(response(304, ""));
+        get(IMAGE, "Cache-Control", "no-cache,max-age=0");
+        assertEquals("{}", get(IMAGE, "Cache-Control", "no-cache,max-age=0"));
+        assertEquals(2, requests.size());
+        // the request of the caller is not changed
+        assertNull(requests.get(0).getHeader("If-None-Match"));
+    }
+
+    @Test
+    public void testNotStored() throws Exception {
+        responses.add(response(200, "{}"));
+        responses.add(response(200, "{}", "ETag", "\"abc\"", "Cache-Control", "no-store"));
+        responses.add(response(404, "not found", "Cache-Control", "max-age=3600"));
+        get(IMAGE);
+        get(IMAGE);
+        assertEquals(404, engine.execute(new HttpRequest(HttpRequest.METHOD_GET, new URL(IMAGE))).getCode());
+        assertEquals(0, engine.getCache().size());
+    }
+
+    @Test
+    public void testIndexSurvivesRestart() throws Exception {
+        responses.add(response(200, "jpeg", "Cache-Control", "max-age=3600", "Content-Type", "image/jpeg"));
+        get(IMAGE);
+        engine.shutdown();
+
+        CachingHttpEngine restarted = new CachingHttpEngine(stub, new DiskCache(directory, 1024));
+        HttpResponse response = restarted.execute(new HttpRequest(HttpRequest.METHOD_GET, new URL(IMAGE)));
+        assertEquals("image/jpeg", response.getHeader("Content-Type"));
+        assertEquals("jpeg", response.readBody("UTF-8"));
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    public void testUnindexedFilesAreDeleted() throws Exception {
+        responses.add(response(200, "jpeg", "Cache-Control", "max-age=3600"));
+        get(IMAGE);
+        // not flushed, as if the process was killed
+        new DiskCache(directory, 1024);
+        assertEquals(0, directory.list().length);
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        DiskCache cache = new DiskCache(folder.newFolder("small"), 10);
+        engine = new CachingHttpEngine(stub, cache);
+        responses.add(response(200, "aaaa", "Cache-Control", "max-age=3600"));
+        responses.add(response(200, "bbbb", "Cache-Control", "max-age=3600"));
+        responses.add(response(200, "cccc", "Cache-Control", "max-age=3600"));
+        get(IMAGE + "?a");
+        get(IMAGE + "?b");
+        get(IMAGE + "?a");
+        get(IMAGE + "?c");
+        // b was used least recently
+        assertNull(cache.get(IMAGE + "?b"));
+        assertTrue(cache.get(IMAGE + "?a") != null);
+        assertEquals(8, cache.getBytes());
+        assertEquals(1, cache.getEvictions());
+        assertFalse(cache.getFile(cache.get(IMAGE + "?a")).length() == 0);
+    }
+
+    @Test
+    public void testTooLargeIsPassedThrough() throws Exception {
+        DiskCache cache = new DiskCache(folder.newFolder("tiny"), 2);
+        engine = new CachingHttpEngine(stub, cache);
+        responses.add(response(200, "jpeg", "Cache-Control", "max-age=3600", "Content-Length", "4"));
+        assertEquals("jpeg", get(IMAGE));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testTooLargeWithoutLengthIsFetchedOnce() throws Exception {
+        DiskCache cache = new DiskCache(folder.newFolder("tiny"), 2);
+        engine = new CachingHttpEngine(stub, cache);
+        responses.add(response(200, "jpeg", "Cache-Control", "max-age=3600"));
+        assertEquals("jpeg", get(IMAGE));
+        assertEquals(1, requests.size());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getDirectory().list().length);
+    }
+
+    @Test
+    public void testEvictionOnOpenRewritesIndex() throws Exception {
+        responses.add(response(200, "aaaa", "Cache-Control", "max-age=3600"));
+        responses.add(response(200, "bbbb", "Cache-Control", "max-age=3600"));
+        get(IMAGE + "?a");
+        get(IMAGE + "?b");
+        engine.shutdown();
+
+        DiskCache smaller = new DiskCache(directory, 6);
+        assertEquals(1, smaller.getEvictions());
+        DiskCache reopened = new DiskCache(directory, 1024);
+        assertEquals(1, reopened.size());
+        assertEquals(4, reopened.getBytes());
+    }
+
+    @Test
+    public void testExpires() {
+        long now = System.currentTimeMillis();
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("expires", "Thu, 01 Dec 2094 16:00:00 GMT");
+        assertTrue(CachingHttpEngine.getExpires(new HttpResponse(200, "", headers, null), null) > now);
+        headers.put("cache-control", "private, max-age=60");
+        long expires = CachingHttpEngine.getExpires(new HttpResponse(200, "", headers, null), null);
+        assertTrue(expires >= now + 60000 && expires < now + 120000);
+    }
+
+}
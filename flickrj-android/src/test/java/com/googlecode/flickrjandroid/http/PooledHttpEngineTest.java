@@ -0,0 +1,267 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.http;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.flickrjandroid.util.IOUtilities;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs the pooled engine against a local server.
+ */
+public class PooledHttpEngineTest {
+    private static final String LISTING;
+    static {
+        StringBuilder listing = new StringBuilder("{\"photos\":[");
+        for (int i = 0; i < 500; i++) {
+            listing.append("{\"id\":\"").append(i).append("\",\"owner\":\"12037949754@N01\",\"ispublic\":1},");
+        }
+        LISTING = listing.append("{}]}").toString();
+    }
+
+    private HttpServer server;
+    private PooledHttpEngine engine;
+    private String baseUrl;
+
+    @Before
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/fixed", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                drain(exchange.getRequestBody());
+                byte[] body = "{\"stat\":\"ok\"}".getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        server.createContext("/chunked", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.sendResponseHeaders(200, 0);
+                OutputStream out = exchange.getResponseBody();
+                for (int i = 0; i < 100; i++) {
+                    out.write("0123456789".getBytes("UTF-8"));
+                    out.flush();
+                }
+                out.close();
+            }
+        });
+        server.createContext("/compressed", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                drain(exchange.getRequestBody());
+                String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+                String query = exchange.getRequestURI().getQuery();
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                OutputStream encoder = body;
+                if (accepted != null && accepted.contains("gzip") && query == null) {
+                    exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                    encoder = new GZIPOutputStream(body);
+                } else if (accepted != null && accepted.contains("deflate") && query != null) {
+                    exchange.getResponseHeaders().set("Content-Encoding", "deflate");
+                    encoder = new DeflaterOutputStream(body, new Deflater(Deflater.DEFAULT_COMPRESSION,
+                            "raw".equals(query)));
+                }
+                encoder.write(LISTING.getBytes("UTF-8"));
+                encoder.close();
+                exchange.sendResponseHeaders(200, body.size());
+                OutputStream out = exchange.getResponseBody();
+                body.writeTo(out);
+                out.close();
+            }
+        });
+        server.createContext("/upload", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                // echo the body and the length it was sent with
+                byte[] body = IOUtilities.readBytes(exchange.getRequestBody());
+                exchange.getResponseHeaders().set("X-Content-Length",
+                        String.valueOf(exchange.getRequestHeaders().getFirst("Content-Length")));
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        engine = new PooledHttpEngine();
+    }
+
+    @After
+    public void tearDown() {
+        engine.shutdown();
+        server.stop(0);
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[1024];
+        while (in.read(buffer) != -1) {
+            // discard
+        }
+        in.close();
+    }
+
+    @Test
+    public void testConnectionReused() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            HttpResponse response = engine.execute(new HttpRequest(HttpRequest.METHOD_GET, new URL(baseUrl + "/fixed")));
+            assertEquals(200, response.getCode());
+            assertEquals("{\"stat\":\"ok\"}", response.readBody("UTF-8"));
+        }
+        PoolStats stats = engine.getStats();
+        assertEquals(3, stats.getRequests());
+        assertEquals(1, stats.getConnectionsOpened());
+        assertEquals(2, stats.getHandshakesAvoided());
+        assertEquals(0, stats.getLeased());
+        assertEquals(1, stats.getIdle());
+    }
+
+    @Test
+    public void testStreamedMultipartBody() throws IOException {
+        File file = File.createTempFile("photo", ".jpg");
+        try {
+            byte[] photo = new byte[200 * 1024];
+            for (int i = 0; i < photo.length; i++) {
+                photo[i] = (byte) ('a' + i % 26);
+            }
+            OutputStream out = new FileOutputStream(file);
+            out.write(photo);
+            out.close();
+
+            MultipartBody body = new MultipartBody("boundary").addText("title", "Beach").addFile("photo", "beach.jpg",
+                    "image/jpeg", file);
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            body.writeTo(expected);
+            assertEquals(expected.size(), body.getContentLength());
+            assertTrue(body.isRepeatable());
+            HttpRequest post = new HttpRequest(HttpRequest.METHOD_POST, new URL(baseUrl + "/upload"));
+            post.setBody(body);
+            HttpResponse response = engine.execute(post);
+            assertEquals(String.valueOf(expected.size()), response.getHeader("X-Content-Length"));
+            assertArrayEquals(expected.toByteArray(), IOUtilities.readBytes(response.getBody()));
+
+            // a stream of unknown length is sent chunked
+            body = new MultipartBody("boundary").addText("title", "Beach").addStream("photo", "beach.jpg",
+                    "image/jpeg", new ByteArrayInputStream(photo), -1);
+            assertEquals(-1, body.getContentLength());
+            assertFalse(body.isRepeatable());
+            post = new HttpRequest(HttpRequest.METHOD_POST, new URL(baseUrl + "/upload"));
+            post.setBody(body);
+            response = engine.execute(post);
+            assertEquals("null", response.getHeader("X-Content-Length"));
+            assertArrayEquals(expected.toByteArray(), IOUtilities.readBytes(response.getBody()));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testChunkedBodyAndPost() throws IOException {
+        HttpResponse response = engine.execute(new HttpRequest(HttpRequest.METHOD_GET, new URL(baseUrl + "/chunked")));
+        assertEquals(1000, IOUtilities.readLines(response.getBody(), "UTF-8").length());
+
+        HttpRequest post = new HttpRequest(HttpRequest.METHOD_POST, new URL(baseUrl + "/fixed"));
+        post.setBody("a=b".getBytes("UTF-8"));
+        response = engine.execute(post);
+        assertEquals("{\"stat\":\"ok\"}", response.readBody("UTF-8"));
+        assertEquals(1, engine.getStats().getConnectionsOpened());
+    }
+
+    @Test
+    public void testCompressedResponses() throws IOException {
+        for (String path : new String[] {"/compressed", "/compressed?zlib", "/compressed?raw"}) {
+            HttpResponse response = engine.execute(new HttpRequest(HttpRequest.METHOD_GET, new URL(baseUrl + path)));
+            assertNull(response.getHeader("Content-Encoding"));
+            assertEquals(LISTING, IOUtilities.readLines(response.getBody(), "UTF-8"));
+            assertEquals(LISTING.length(), response.getDecodedBytes());
+            assertTrue(path, response.getWireBytes() * 5 < response.getDecodedBytes());
+        }
+        TransferMeter meter = engine.getTransferMeter();
+        assertEquals(3, meter.getCompressedResponses());
+        assertEquals(3 * LISTING.length(), meter.getDecodedBytes());
+        // the bodies were read to the end, the connection was reused
+        assertEquals(1, engine.getStats().getConnectionsOpened());
+    }
+
+    @Test
+    public void testOwnAcceptEncodingIsNotDecoded() throws IOException {
+        HttpRequest request = new HttpRequest(HttpRequest.METHOD_GET, new URL(baseUrl + "/compressed"));
+        request.setHeader("Accept-Encoding", "identity");
+        HttpResponse response = engine.execute(request);
+        assertEquals(LISTING, response.readBody("UTF-8"));
+        assertEquals(-1, response.getWireBytes());
+        assertEquals(0, engine.getTransferMeter().getResponses());
+    }
+
+    @Test
+    public void testEarlyCloseReleasesConnection() throws IOException {
+        engine.setMaxConnectionsPerHost(1);
+        engine.setLeaseTimeout(2000);
+        for (int i = 0; i < 3; i++) {
+            HttpResponse response = engine.execute(new HttpRequest(HttpRequest.METHOD_GET, new URL(baseUrl + "/chunked")));
+            response.getBody().read();
+            response.close();
+        }
+        assertEquals(0, engine.getStats().getLeased());
+    }
+
+    @Test
+    public void testLastByteOfChunkedBodyReleasesConnection() throws Exception {
+        engine.setMaxConnectionsPerHost(1);
+        HttpResponse response = engine.execute(new HttpRequest(HttpRequest.METHOD_GET, new URL(baseUrl + "/chunked")));
+        // let the whole body arrive, then read exactly its bytes and no more
+        Thread.sleep(200);
+        InputStream body = response.getBody();
+        byte[] buffer = new byte[1000];
+        int read = 0;
+        while (read < buffer.length) {
+            read += body.read(buffer, read, buffer.length - read);
+        }
+        assertEquals(0, engine.getStats().getLeased());
+    }
+
+    @Test
+    public void testLeakedBodyTimesOut() throws IOException {
+        engine.setMaxConnectionsPerHost(1);
+        engine.setLeaseTimeout(200);
+        assertEquals(PooledHttpEngine.DEFAULT_LEASE_TIMEOUT, new PooledHttpEngine().getLeaseTimeout());
+        engine.execute(new HttpRequest(HttpRequest.METHOD_GET, new URL(baseUrl + "/chunked"))).getBody().read();
+        try {
+            engine.execute(new HttpRequest(HttpRequest.METHOD_GET, new URL(baseUrl + "/fixed")));
+            fail("the body of the first response holds the only connection");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Timed out"));
+        }
+    }
+
+}
@@ -0,0 +1,104 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.oauth;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.googlecode.flickrjandroid.Parameter;
+import com.googlecode.flickrjandroid.uploader.ImageParameter;
+import com.googlecode.flickrjandroid.util.UrlUtilities;
+
+/**
+ * Checks the cached signing keys against the example of the OAuth 1.0
+ * specification, appendix A.5.
+ */
+public class OAuthSignerTest {
+    private static final String BASE_STRING = "GET&http%3A%2F%2Fphotos.example.net%2Fphotos&file%3Dvacation.jpg"
+            + "%26oauth_consumer_key%3Ddpf43f3p2l4k3l03%26oauth_nonce%3Dkllo9940pd9333jh"
+            + "%26oauth_signature_method%3DHMAC-SHA1%26oauth_timestamp%3D1191242096"
+            + "%26oauth_token%3Dnnch734d00sl2jdk%26oauth_version%3D1.0%26size%3Doriginal";
+    private static final String CONSUMER_SECRET = "kd94hf93k423kf44";
+    private static final String TOKEN_SECRET = "pfkkdhi9sl3r4s00";
+    private static final String SIGNATURE = "tR3+Ty81lMeYAr/Fid0kMTYa/WM=";
+
+    @Test
+    public void testSignature() throws Exception {
+        assertEquals(SIGNATURE, OAuthSigner.sign(BASE_STRING, CONSUMER_SECRET, TOKEN_SECRET));
+        // signed again with the cached Mac
+        assertEquals(SIGNATURE, OAuthSigner.sign(BASE_STRING, CONSUMER_SECRET, TOKEN_SECRET));
+        assertEquals("YMt5YbeUuFLRxr4rao1mc/gZBrA=", OAuthSigner.sign("abc", CONSUMER_SECRET, null));
+        assertEquals(SIGNATURE, OAuthUtils.hmacsha1(BASE_STRING, CONSUMER_SECRET, TOKEN_SECRET));
+    }
+
+    @Test
+    public void testBaseString() throws Exception {
+        List<Parameter> parameters = new ArrayList<Parameter>(Arrays.asList(
+                new Parameter("size", "original"),
+                new Parameter("file", "vacation.jpg"),
+                new Parameter("oauth_consumer_key", "dpf43f3p2l4k3l03"),
+                new OAuthTokenParameter("nnch734d00sl2jdk"),
+                new Parameter("oauth_nonce", "kllo9940pd9333jh"),
+                new Parameter("oauth_signature_method", "HMAC-SHA1"),
+                new Parameter("oauth_timestamp", "1191242096"),
+                new Parameter("oauth_version", "1.0"),
+                new ImageParameter("vacation.jpg", new byte[0])));
+        List<Parameter> unchanged = new ArrayList<Parameter>(parameters);
+        assertEquals(BASE_STRING, OAuthUtils.getRequestBaseString("GET", "http://photos.example.net/photos", parameters));
+        assertEquals(unchanged, parameters);
+        assertEquals(SIGNATURE, OAuthUtils.getSignature("GET", "http://photos.example.net/photos",
+                parameters, CONSUMER_SECRET, TOKEN_SECRET));
+    }
+
+    @Test
+    public void testBaseStringEncoding() throws Exception {
+        String value = "a b*c+d~e/\u00fc\u20ac\ud83d\ude00";
+        List<Parameter> parameters = new ArrayList<Parameter>();
+        parameters.add(new Parameter("text", value));
+        parameters.add(new Parameter("tags", "x"));
+        parameters.add(new Parameter("tags", "a"));
+        String expected = "POST&" + UrlUtilities.encode("https://api.flickr.com/services/rest") + "&"
+                + UrlUtilities.encode("tags=a&tags=x&text=" + UrlUtilities.encode(value));
+        assertEquals(expected, OAuthUtils.getRequestBaseString("POST", "https://api.flickr.com/services/rest", parameters));
+    }
+
+    @Test
+    public void testKeysAreEvicted() throws Exception {
+        for (int i = 0; i <= OAuthSigner.MAX_KEYS_PER_THREAD; i++) {
+            OAuthSigner.sign("abc", CONSUMER_SECRET, "token" + i);
+        }
+        assertEquals(SIGNATURE, OAuthSigner.sign(BASE_STRING, CONSUMER_SECRET, TOKEN_SECRET));
+    }
+
+    @Test
+    public void testConcurrentSigning() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < 200; i++) {
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return OAuthSigner.sign(BASE_STRING, CONSUMER_SECRET, TOKEN_SECRET);
+                    }
+                }));
+            }
+            for (Future<String> result : results) {
+                assertEquals(SIGNATURE, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,143 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.photos;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import com.googlecode.flickrjandroid.util.JSONReader;
+
+/**
+ * Reads search results into columns.
+ */
+public class ColumnarPhotoListTest {
+    private static final String JSON = "{\"photos\":{\"page\":1,\"pages\":4,\"perpage\":4,\"total\":\"13\",\"photo\":["
+        + "{\"id\":\"101\",\"owner\":\"21@N00\",\"ownername\":\"one\",\"secret\":\"068cda72b9\",\"server\":\"8000\","
+        + "\"farm\":9,\"title\":\"a\",\"ispublic\":1,\"license\":\"4\",\"views\":\"30\",\"dateupload\":\"1349046000\","
+        + "\"latitude\":37.5,\"longitude\":-121.25,\"accuracy\":\"16\"},"
+        + "{\"id\":\"102\",\"owner\":\"37@N01\",\"ownername\":\"two\",\"secret\":\"Not-Hex\",\"server\":\"8001\","
+        + "\"farm\":9,\"title\":\"b\",\"isfriend\":1,\"views\":\"10\",\"dateupload\":\"1349046060\"},"
+        + "{\"id\":\"103\",\"owner\":\"21@N00\",\"ownername\":\"one\",\"secret\":\"be8e2e9374\",\"server\":\"8002\","
+        + "\"farm\":9,\"title\":\"c\",\"views\":\"30\",\"latitude\":\"-10\",\"longitude\":\"20\"},"
+        + "{\"id\":\"104\",\"owner\":\"21@N00\",\"secret\":\"abc\",\"server\":\"8003\",\"farm\":9,\"title\":\"d\","
+        + "\"views\":\"50\",\"datetaken\":\"2012-02-02 01:01:07\"}]},\"stat\":\"ok\"}";
+
+    private static ColumnarPhotoList photos() throws Exception {
+        return PhotoUtils.createColumnarPhotoList(new JSONObject(JSON));
+    }
+
+    @Test
+    public void testCursor() throws Exception {
+        ColumnarPhotoList photos = photos();
+        assertEquals(4, photos.size());
+        assertEquals(13, photos.getTotal());
+        ColumnarPhotoList.Cursor photo = photos.cursor();
+        assertTrue(photo.next());
+        assertEquals(101L, photo.getId());
+        assertEquals("068cda72b9", photo.getSecret());
+        assertEquals(9, photo.getFarm());
+        assertEquals(8000, photo.getServer());
+        assertEquals("one", photo.getOwnerName());
+        assertEquals(4, photo.getLicense());
+        assertTrue(photo.isPublicFlag());
+        assertEquals(1349046000000L, photo.getDatePosted());
+        assertEquals(CompactPhoto.NO_DATE, photo.getDateTaken());
+        assertEquals(37.5f, photo.getLatitude(), 0f);
+        assertTrue(photo.next());
+        assertEquals("Not-Hex", photo.getSecret());
+        assertTrue(photo.isFriendFlag());
+        assertFalse(photo.hasGeoData());
+        assertEquals(-1, photo.getLicense());
+        assertTrue(photo.next());
+        assertSame(photos.cursor().moveTo(0).getOwnerId(), photo.getOwnerId());
+        assertTrue(photo.next());
+        assertEquals("abc", photo.getSecret());
+        assertEquals("one", photo.getOwnerName());
+        assertFalse(photo.next());
+        assertFalse(photo.next());
+        assertEquals(2, photos.getOwnerCount());
+    }
+
+    @Test
+    public void testPackSecret() {
+        assertEquals(0L, ColumnarPhotoList.packSecret(""));
+        assertEquals(0L, ColumnarPhotoList.packSecret("0123456789abcdef"));
+        assertEquals(0L, ColumnarPhotoList.packSecret("ABC"));
+        assertTrue(ColumnarPhotoList.packSecret("0000000000") != 0L);
+    }
+
+    @Test
+    public void testUrl() throws Exception {
+        ColumnarPhotoList.Cursor photo = photos().cursor().moveTo(0);
+        Photo parsed = PhotoUtils.createPhoto(new JSONObject(JSON).getJSONObject("photos").getJSONArray("photo")
+                .getJSONObject(0));
+        assertEquals(parsed.getMediumUrl(), photo.appendUrl(new StringBuilder(), Size.MEDIUM).toString());
+        assertEquals(parsed.getSmallSquareUrl(), photo.appendUrl(new StringBuilder(), Size.SQUARE).toString());
+        Photo converted = photo.toPhoto();
+        assertEquals(parsed.getUrl(), converted.getUrl());
+        assertEquals(parsed.getDatePosted(), converted.getDatePosted());
+        assertEquals(parsed.getLicense(), converted.getLicense());
+    }
+
+    @Test
+    public void testSelectSortAggregate() throws Exception {
+        ColumnarPhotoList photos = photos();
+        int[] geotagged = photos.select(new ColumnarPhotoList.Filter() {
+            @Override
+            public boolean accept(ColumnarPhotoList.Cursor photo) {
+                return photo.hasGeoData();
+            }
+        });
+        assertArrayEquals(new int[] {0, 2}, geotagged);
+
+        int[] all = photos.indexes();
+        // stable: 0 stays before 2
+        assertArrayEquals(new int[] {3, 0, 2, 1}, photos.sort(all, ColumnarPhotoList.VIEWS, true));
+        assertArrayEquals(new int[] {1, 0, 2, 3}, photos.sort(all, ColumnarPhotoList.VIEWS, false));
+        // not geotagged last, whatever the order
+        assertArrayEquals(new int[] {2, 0, 1, 3}, photos.sort(photos.indexes(), ColumnarPhotoList.LATITUDE, false));
+        assertArrayEquals(new int[] {0, 2, 1, 3}, photos.sort(photos.indexes(), ColumnarPhotoList.LATITUDE, true));
+
+        assertEquals(120d, photos.sum(photos.indexes(), ColumnarPhotoList.VIEWS), 0d);
+        assertEquals(60d, photos.sum(geotagged, ColumnarPhotoList.VIEWS), 0d);
+        assertEquals(1349046000000d, photos.min(photos.indexes(), ColumnarPhotoList.DATE_POSTED), 0d);
+        assertEquals(1349046060000d, photos.max(photos.indexes(), ColumnarPhotoList.DATE_POSTED), 0d);
+        assertTrue(Double.isNaN(photos.max(new int[] {1, 3}, ColumnarPhotoList.LATITUDE)));
+        assertArrayEquals(new int[] {3, 1}, photos.countByOwner(photos.indexes()));
+    }
+
+    @Test
+    public void testStreamed() throws Exception {
+        JSONReader reader = new JSONReader(new StringReader(JSON));
+        reader.beginObject();
+        assertEquals("photos", reader.nextName());
+        ColumnarPhotoList photos = PhotoUtils.createColumnarPhotoList(reader);
+        assertEquals(4, photos.size());
+        assertEquals(4, photos.getPages());
+        assertEquals(104d, photos.getValue(ColumnarPhotoList.ID, 3), 0d);
+        assertEquals("d", photos.cursor().moveTo(3).getTitle());
+    }
+
+    @Test
+    public void testGrow() throws Exception {
+        ColumnarPhotoList photos = new ColumnarPhotoList(1);
+        for (int i = 0; i < 10; i++) {
+            photos.add(new JSONObject("{\"id\":\"" + i + "\",\"secret\":\"ab\",\"server\":\"1\",\"farm\":1}"));
+        }
+        photos.trimToSize();
+        assertEquals(10, photos.size());
+        assertEquals(9L, photos.cursor().moveTo(9).getId());
+        assertEquals("ab", photos.cursor().moveTo(0).getSecret());
+        assertEquals(0, photos.getOwnerCount());
+    }
+
+}
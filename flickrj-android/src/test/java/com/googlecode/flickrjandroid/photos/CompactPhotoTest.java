@@ -0,0 +1,125 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.photos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.text.SimpleDateFormat;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import com.googlecode.flickrjandroid.util.JSONReader;
+
+/**
+ * Reads compact photos from search results.
+ */
+public class CompactPhotoTest {
+    private static final String JSON = "{\"photos\":{\"page\":1,\"pages\":4,\"perpage\":3,\"total\":\"10\",\"photo\":["
+        + "{\"id\":\"8072519587\",\"owner\":\"21@N00\",\"ownername\":\"one\",\"secret\":\"968cda72b9\","
+        + "\"server\":\"8000\",\"farm\":9,\"title\":\"Sunset\",\"ispublic\":1,\"isfriend\":0,\"isfamily\":1,"
+        + "\"license\":\"4\",\"datetaken\":\"2012-02-02 01:01:07\",\"dateupload\":\"1349046000\","
+        + "\"iconserver\":\"4000\",\"iconfarm\":5,\"latitude\":37.5,\"longitude\":-121.25,\"accuracy\":\"16\","
+        + "\"views\":\"42\",\"tags\":\"train dog\","
+        + "\"url_sq\":\"https://farm9.staticflickr.com/8000/8072519587_968cda72b9_s.jpg\",\"height_sq\":75,\"width_sq\":75,"
+        + "\"url_m\":\"https://farm9.staticflickr.com/8000/8072519587_968cda72b9.jpg\",\"height_m\":\"333\",\"width_m\":\"500\"},"
+        + "{\"id\":\"8072511668\",\"owner\":\"21@N00\",\"ownername\":\"one\",\"secret\":\"be8e2e9374\","
+        + "\"server\":\"8001\",\"farm\":9,\"title\":\"Train\",\"ispublic\":1,\"isfriend\":0,\"isfamily\":0,"
+        + "\"license\":\"4\",\"latitude\":0,\"longitude\":0},"
+        + "{\"id\":\"8072511669\",\"owner\":\"37@N01\",\"secret\":\"ab\",\"server\":\"8002\",\"farm\":9,"
+        + "\"title\":\"Dog\",\"license\":\"0\"}]},\"stat\":\"ok\"}";
+
+    @Test
+    public void testCompactPhoto() throws Exception {
+        CompactPhotoList photos = PhotoUtils.createCompactPhotoList(new JSONObject(JSON));
+        assertEquals(3, photos.size());
+        assertEquals(4, photos.getPages());
+        assertEquals(10, photos.getTotal());
+
+        CompactPhoto photo = photos.get(0);
+        assertEquals("8072519587", photo.getId());
+        assertEquals(8072519587L, photo.getIdAsLong());
+        assertEquals(9, photo.getFarm());
+        assertEquals(8000, photo.getServer());
+        assertEquals("Sunset", photo.getTitle());
+        assertTrue(photo.isPublicFlag());
+        assertFalse(photo.isFriendFlag());
+        assertTrue(photo.isFamilyFlag());
+        assertEquals(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").parse("2012-02-02 01:01:07").getTime(),
+                photo.getDateTakenTime());
+        assertEquals(1349046000000L, photo.getDatePosted().getTime());
+        assertEquals(CompactPhoto.NO_DATE, photo.getLastUpdateTime());
+        assertNull(photo.getLastUpdate());
+        assertEquals(42, photo.getViews());
+        assertEquals(-1, photo.getComments());
+        assertTrue(photo.hasGeoData());
+        assertEquals(37.5f, photo.getGeoData().getLatitude(), 0f);
+        assertEquals(16, photo.getAccuracy());
+        assertEquals("jpg", photo.getOriginalFormat());
+        assertEquals(5, photo.getOwner().getIconFarm());
+        assertEquals(4000, photo.getOwner().getIconServer());
+        assertFalse(photos.get(1).hasGeoData());
+    }
+
+    @Test
+    public void testSharedOwnerAndLicense() throws Exception {
+        CompactPhotoList photos = PhotoUtils.createCompactPhotoList(new JSONObject(JSON));
+        assertSame(photos.get(0).getOwner(), photos.get(1).getOwner());
+        assertSame(photos.get(0).getLicense(), photos.get(1).getLicense());
+        assertEquals("one", photos.get(0).getOwner().getUsername());
+        assertEquals("37@N01", photos.get(2).getOwner().getId());
+        assertEquals(2, photos.getOwnerCount());
+    }
+
+    @Test
+    public void testSizes() throws Exception {
+        CompactPhoto photo = PhotoUtils.createCompactPhotoList(new JSONObject(JSON)).get(0);
+        assertTrue(photo.hasSize(Size.SQUARE));
+        assertTrue(photo.hasSize(Size.MEDIUM));
+        assertFalse(photo.hasSize(Size.LARGE));
+        assertEquals(500, photo.getWidth(Size.MEDIUM));
+        assertEquals(333, photo.getHeight(Size.MEDIUM));
+        assertEquals(75, photo.getSize(Size.SQUARE).getWidth());
+        assertNull(photo.getSize(Size.LARGE));
+        assertEquals(2, photo.getSizes().size());
+        assertEquals("https://farm9.staticflickr.com/8000/8072519587_968cda72b9.jpg", photo.getUrl(Size.MEDIUM));
+        assertEquals("https://farm9.static.flickr.com/8000/8072519587_968cda72b9_b.jpg", photo.getUrl(Size.LARGE));
+    }
+
+    @Test
+    public void testToPhoto() throws Exception {
+        CompactPhoto compact = PhotoUtils.createCompactPhotoList(new JSONObject(JSON)).get(0);
+        Photo photo = compact.toPhoto();
+        Photo parsed = PhotoUtils.createPhoto(new JSONObject(JSON).getJSONObject("photos").getJSONArray("photo")
+                .getJSONObject(0));
+        assertEquals(parsed.getId(), photo.getId());
+        assertEquals(parsed.getUrl(), photo.getUrl());
+        assertEquals(parsed.getFarm(), photo.getFarm());
+        assertEquals(parsed.getDateTaken(), photo.getDateTaken());
+        assertEquals(parsed.getDatePosted(), photo.getDatePosted());
+        assertEquals(parsed.getMediumUrl(), photo.getMediumUrl());
+        assertEquals(parsed.getLargeUrl(), photo.getLargeUrl());
+        assertEquals(parsed.getTags().size(), photo.getTags().size());
+        assertEquals(parsed.isFamilyFlag(), photo.isFamilyFlag());
+        assertEquals(parsed, photo);
+    }
+
+    @Test
+    public void testStreamed() throws Exception {
+        JSONReader reader = new JSONReader(new StringReader(JSON));
+        reader.beginObject();
+        assertEquals("photos", reader.nextName());
+        CompactPhotoList photos = PhotoUtils.createCompactPhotoList(reader);
+        assertEquals(3, photos.size());
+        assertEquals(3, photos.getPerPage());
+        assertSame(photos.get(0).getOwner(), photos.get(1).getOwner());
+        assertEquals("Dog", photos.get(2).getTitle());
+    }
+
+}
@@ -0,0 +1,112 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.photos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+
+import com.googlecode.flickrjandroid.RequestContext;
+import com.googlecode.flickrjandroid.util.StringDictionary;
+
+/**
+ * Reads the attributes of a photo on first access.
+ */
+public class LazyPhotoTest {
+    private static final String PHOTO = "{\"id\":\"101\",\"owner\":\"21@N00\",\"ownername\":\"one\","
+        + "\"secret\":\"068cda72b9\",\"server\":\"8000\",\"farm\":9,\"title\":\"a\",\"ispublic\":1,"
+        + "\"license\":\"4\",\"views\":\"30\",\"dateupload\":\"1349046000\",\"datetaken\":\"2012-02-02 01:01:07\","
+        + "\"tags\":\"dog beach\",\"url_m\":\"http://m.jpg\",\"width_m\":\"500\",\"height_m\":\"375\","
+        + "\"latitude\":37.5,\"longitude\":-121.25,\"accuracy\":\"16\"}";
+
+    @After
+    public void tearDown() {
+        RequestContext.resetThreadLocals();
+    }
+
+    private static LazyPhoto lazy() throws Exception {
+        return (LazyPhoto) PhotoUtils.createLazyPhoto(new JSONObject(PHOTO), new StringDictionary());
+    }
+
+    @Test
+    public void testOnDemand() throws Exception {
+        LazyPhoto photo = lazy();
+        assertEquals("101", photo.getId());
+        assertEquals("068cda72b9", photo.getSecret());
+        assertFalse(photo.isLoaded(LazyPhoto.ATTRIBUTES));
+        assertEquals("4", photo.getLicense());
+        assertTrue(photo.isLoaded(LazyPhoto.ATTRIBUTES));
+        assertFalse(photo.isLoaded(LazyPhoto.DATES));
+        assertFalse(photo.isLoaded(LazyPhoto.TAGS));
+        assertEquals(2, photo.getTags().size());
+        assertTrue(photo.isLoaded(LazyPhoto.TAGS));
+        assertFalse(photo.isLoaded(LazyPhoto.GEO));
+    }
+
+    @Test
+    public void testSameAsEager() throws Exception {
+        Photo eager = PhotoUtils.createPhoto(new JSONObject(PHOTO));
+        LazyPhoto photo = lazy();
+        assertEquals(eager.getTitle(), photo.getTitle());
+        assertEquals(eager.getDatePosted(), photo.getDatePosted());
+        assertEquals(eager.getDateTaken(), photo.getDateTaken());
+        assertEquals(eager.getViews(), photo.getViews());
+        assertEquals(eager.isPublicFlag(), photo.isPublicFlag());
+        assertEquals(eager.getOwner().getUsername(), photo.getOwner().getUsername());
+        assertEquals(eager.getUrl(), photo.getUrl());
+        assertEquals(eager.getMediumUrl(), photo.getMediumUrl());
+        assertEquals(eager.getSmallUrl(), photo.getSmallUrl());
+        assertEquals(eager.getGeoData().getLatitude(), photo.getGeoData().getLatitude(), 0f);
+        assertEquals(eager.getOriginalFormat(), photo.getOriginalFormat());
+        assertEquals(eager.hashCode(), photo.hashCode());
+        assertTrue(lazy().equals(eager));
+        assertTrue(eager.equals(lazy()));
+    }
+
+    @Test
+    public void testSetBeforeGet() throws Exception {
+        LazyPhoto photo = lazy();
+        photo.setTitle("b");
+        photo.setGeoData(null);
+        assertEquals("b", photo.getTitle());
+        assertNull(photo.getGeoData());
+        assertFalse(photo.hasGeoData());
+    }
+
+    @Test
+    public void testSerialize() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(lazy());
+        out.close();
+        LazyPhoto photo = (LazyPhoto) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))
+                .readObject();
+        assertTrue(photo.isLoaded(LazyPhoto.ALL));
+        assertEquals("a", photo.getTitle());
+        assertEquals(2, photo.getTags().size());
+    }
+
+    @Test
+    public void testRequestContext() throws Exception {
+        String json = "{\"photos\":{\"page\":1,\"pages\":1,\"perpage\":1,\"total\":\"1\",\"photo\":[" + PHOTO
+            + "]},\"stat\":\"ok\"}";
+        assertFalse(PhotoUtils.createPhotoList(new JSONObject(json)).get(0) instanceof LazyPhoto);
+        RequestContext.getRequestContext().setLazyPhotos(true);
+        assertTrue(RequestContext.getRequestContext().copy().isLazyPhotos());
+        Photo photo = PhotoUtils.createPhotoList(new JSONObject(json)).get(0);
+        assertTrue(photo instanceof LazyPhoto);
+        assertEquals("one", photo.getOwner().getUsername());
+    }
+
+}
@@ -0,0 +1,224 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.photos.upload;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.flickrjandroid.FlickrCallback;
+import com.googlecode.flickrjandroid.FlickrException;
+import com.googlecode.flickrjandroid.Parameter;
+import com.googlecode.flickrjandroid.RESTResponse;
+import com.googlecode.flickrjandroid.RequestContext;
+import com.googlecode.flickrjandroid.Response;
+import com.googlecode.flickrjandroid.Transport;
+import com.googlecode.flickrjandroid.oauth.OAuth;
+import com.googlecode.flickrjandroid.oauth.OAuthToken;
+
+/**
+ * Tracks tickets of a fake upload interface, where a ticket completes on
+ * its third check.
+ */
+public class TicketPollerTest {
+    private final List<Integer> batches = Collections.synchronizedList(new ArrayList<Integer>());
+    private final Map<Object, Integer> checks = new ConcurrentHashMap<Object, Integer>();
+    private TicketPoller poller;
+
+    @Before
+    public void setup() {
+        poller = new TicketPoller(new UploadInterface("key", "secret", null) {
+            @Override
+            public List<Ticket> checkTickets(Set<Object> tickets) {
+                batches.add(Integer.valueOf(tickets.size()));
+                List<Ticket> list = new ArrayList<Ticket>();
+                for (Object id : tickets) {
+                    Integer count = checks.get(id);
+                    count = Integer.valueOf(count == null ? 1 : count.intValue() + 1);
+                    checks.put(id, count);
+                    Ticket ticket = new Ticket();
+                    ticket.setTicketId((String) id);
+                    if ("unknown".equals(id)) {
+                        ticket.setInvalid(true);
+                    } else if (count.intValue() >= 3) {
+                        ticket.setStatus(Ticket.COMPLETED);
+                        ticket.setPhotoId("photo-" + id);
+                    }
+                    list.add(ticket);
+                }
+                return list;
+            }
+        });
+        poller.setMinInterval(5);
+        poller.setMaxInterval(50);
+    }
+
+    @After
+    public void tearDown() {
+        poller.shutdown();
+        RequestContext.resetThreadLocals();
+    }
+
+    @Test
+    public void testBatchesOutstandingTickets() throws Exception {
+        poller.setMaxBatchSize(3);
+        // all tracked before the first check
+        poller.setMinInterval(20);
+        List<Future<String>> futures = new ArrayList<Future<String>>();
+        for (int i = 0; i < 7; i++) {
+            futures.add(poller.track("t" + i));
+        }
+        for (int i = 0; i < 7; i++) {
+            assertEquals("photo-t" + i, futures.get(i).get(5, TimeUnit.SECONDS));
+        }
+        // three rounds of 3 + 3 + 1 tickets
+        assertEquals(9, batches.size());
+        assertEquals(Integer.valueOf(3), batches.get(0));
+        assertEquals(Integer.valueOf(1), batches.get(2));
+        assertEquals(7, poller.getResolved());
+        assertEquals(0, poller.getOutstanding());
+        assertTrue(poller.getAverageProcessingTime() >= 40);
+    }
+
+    @Test
+    public void testInvalidTicketFails() throws Exception {
+        try {
+            poller.track("unknown").get(5, TimeUnit.SECONDS);
+            fail("invalid ticket");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof FlickrException);
+        }
+    }
+
+    @Test
+    public void testChecksResponseOfFlickr() throws Exception {
+        OAuth oauth = new OAuth();
+        oauth.setToken(new OAuthToken("token", "secret"));
+        RequestContext.getRequestContext().setOAuth(oauth);
+        // the pending ticket completes on its second check
+        Transport transport = new Transport() {
+            @Override
+            public Response postJSON(String apiSharedSecret, List<Parameter> parameters) throws JSONException {
+                Integer count = checks.get("pending");
+                checks.put("pending", Integer.valueOf(count == null ? 1 : count.intValue() + 1));
+                String pending = count == null ? "{\"id\":\"pending\",\"complete\":0}"
+                        : "{\"id\":\"pending\",\"complete\":1,\"photoid\":\"22\"}";
+                return new RESTResponse("{\"uploader\":{\"ticket\":["
+                    + "{\"id\":\"complete\",\"complete\":1,\"photoid\":\"11\",\"imported\":\"1349046000\"},"
+                    + pending + ",{\"id\":\"failed\",\"complete\":2},"
+                    + "{\"id\":\"invalid\",\"invalid\":1}]},\"stat\":\"ok\"}");
+            }
+
+            @Override
+            protected Response createResponse(InputStream in) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            protected InputStream getStream(String path, List<Parameter> parameters) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            protected InputStream postStream(String path, List<Parameter> parameters) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            protected Response sendUpload(String path, List<Parameter> parameters) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        poller.shutdown();
+        poller = new TicketPoller(new UploadInterface("key", "secret", transport));
+        // all tracked before the first check
+        poller.setMinInterval(20);
+        poller.setMaxInterval(50);
+        Future<String> complete = poller.track("complete");
+        Future<String> pending = poller.track("pending");
+        Future<String> failed = poller.track("failed");
+        Future<String> invalid = poller.track("invalid");
+        assertEquals("11", complete.get(5, TimeUnit.SECONDS));
+        assertEquals("22", pending.get(5, TimeUnit.SECONDS));
+        for (Future<String> future : Arrays.asList(failed, invalid)) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                fail("ticket not processed");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof FlickrException);
+            }
+        }
+        assertEquals(Integer.valueOf(2), checks.get("pending"));
+    }
+
+    @Test
+    public void testFailingCallbackDoesNotStopChecks() throws Exception {
+        poller.track("t1", new FlickrCallback<String>() {
+            @Override
+            public void onSuccess(String photoId) {
+                throw new IllegalStateException("broken listener");
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+            }
+        });
+        Future<String> later = poller.track("t2");
+        assertEquals("photo-t2", later.get(5, TimeUnit.SECONDS));
+        assertEquals("photo-t3", poller.track("t3").get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testSecondCallbackIsNotified() throws Exception {
+        final CountDownLatch notified = new CountDownLatch(2);
+        FlickrCallback<String> callback = new FlickrCallback<String>() {
+            @Override
+            public void onSuccess(String photoId) {
+                notified.countDown();
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+            }
+        };
+        Future<String> future = poller.track("t1", callback);
+        assertTrue(future == poller.track("t1", callback));
+        assertTrue(notified.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testRestartsAfterShutdown() throws Exception {
+        poller.track("t1");
+        poller.shutdown();
+        assertEquals(0, poller.getOutstanding());
+        assertEquals("photo-t2", poller.track("t2").get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testSameTicketTrackedOnce() throws Exception {
+        Future<String> future = poller.track("t1");
+        assertTrue(future == poller.track("t1"));
+        future.cancel(false);
+        assertEquals(0, poller.getOutstanding());
+    }
+
+}
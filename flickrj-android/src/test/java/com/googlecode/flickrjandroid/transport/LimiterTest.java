@@ -0,0 +1,134 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.transport;
+
+import static com.googlecode.flickrjandroid.transport.StubTransport.call;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+import com.googlecode.flickrjandroid.FlickrException;
+import com.googlecode.flickrjandroid.http.HttpStatusException;
+
+/**
+ * Runs the limiters in front of a transport answering from memory.
+ */
+public class LimiterTest {
+
+    @Test
+    public void testRateLimiterPacesCalls() throws Exception {
+        StubTransport transport = new StubTransport();
+        RateLimiter limiter = new RateLimiter(50, 1);
+        limiter.setWeight("flickr.photos.search", 5);
+        transport.setRateLimiter(limiter);
+        long start = System.nanoTime();
+        transport.get("/", call("flickr.photos.getInfo"));
+        transport.get("/", call("flickr.photos.search"));
+        transport.get("/", call("flickr.photos.getInfo"));
+        long elapsed = (System.nanoTime() - start) / 1000000;
+        // the first call takes the burst, then 5 + 1 tokens at 50/s
+        assertTrue("took " + elapsed + "ms", elapsed >= 100);
+        assertEquals(3, limiter.getAcquired());
+        assertEquals(2, limiter.getThrottled());
+        assertEquals(0, limiter.getQueueLength());
+    }
+
+    @Test
+    public void testConcurrencyLimiterBacksOff() throws Exception {
+        StubTransport transport = new StubTransport();
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(16, 1, 32);
+        limiter.setCooldown(0);
+        transport.setConcurrencyLimiter(limiter);
+
+        transport.bodies.add("503");
+        try {
+            transport.get("/", call("flickr.photos.getInfo"));
+        } catch (HttpStatusException e) {
+            assertEquals(503, e.getCode());
+        }
+        assertEquals(8, limiter.getLimit());
+
+        transport.bodies.add("{\"stat\":\"fail\",\"code\":105,\"message\":\"Service currently unavailable\"}");
+        assertTrue(transport.get("/", call("flickr.photos.getInfo")).isError());
+        assertEquals(4, limiter.getLimit());
+
+        transport.bodies.add("{\"stat\":\"fail\",\"code\":105,\"message\":\"Service currently unavailable\"}");
+        try {
+            transport.get("/", call("flickr.photos.search"), new com.googlecode.flickrjandroid.ResponseHandler<Object>() {
+                @Override
+                public Object handle(String name, com.googlecode.flickrjandroid.util.JSONReader reader)
+                        throws IOException, JSONException {
+                    reader.skipValue();
+                    return null;
+                }
+            });
+        } catch (FlickrException e) {
+            assertEquals("105", e.getErrorCode());
+        }
+        assertEquals(2, limiter.getLimit());
+
+        for (int i = 0; i < 20; i++) {
+            transport.get("/", call("flickr.photos.getInfo"));
+        }
+        assertTrue(limiter.getLimit() > 2);
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(3, limiter.getBackoffs());
+    }
+
+    @Test
+    public void testConcurrencyLimiterIgnoresOtherFailures() throws Exception {
+        StubTransport transport = new StubTransport();
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 1, 32);
+        transport.setConcurrencyLimiter(limiter);
+        for (int i = 0; i < 20; i++) {
+            transport.bodies.add("500");
+            transport.bodies.add("{\"stat\":");
+            transport.bodies.add("{\"stat\":\"fail\",\"code\":1,\"message\":\"Photo not found\"}");
+        }
+        for (int i = 0; i < 60; i++) {
+            try {
+                transport.get("/", call("flickr.photos.getInfo"));
+            } catch (HttpStatusException e) {
+                assertEquals(500, e.getCode());
+            } catch (JSONException e) {
+                // the broken body
+            }
+        }
+        assertEquals(4, limiter.getLimit());
+        assertEquals(0, limiter.getBackoffs());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 2);
+        limiter.acquire();
+        limiter.acquire();
+        Thread waiter = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    limiter.acquire();
+                    limiter.release(false);
+                } catch (InterruptedException e) {
+                    // stop
+                }
+            }
+        };
+        waiter.start();
+        for (int i = 0; i < 100 && limiter.getQueueLength() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, limiter.getQueueLength());
+        limiter.release(false);
+        waiter.join(1000);
+        assertEquals(0, limiter.getQueueLength());
+        assertEquals(1, limiter.getInFlight());
+    }
+
+}
@@ -0,0 +1,215 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.transport;
+
+import static com.googlecode.flickrjandroid.transport.StubTransport.call;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.flickrjandroid.Parameter;
+import com.googlecode.flickrjandroid.RequestContext;
+import com.googlecode.flickrjandroid.Response;
+import com.googlecode.flickrjandroid.http.HttpStatusException;
+import com.googlecode.flickrjandroid.util.StringDictionary;
+
+/**
+ * Shares requests between threads calling a transport which answers from
+ * memory once released.
+ */
+public class RequestCoalescerTest {
+    private static final int CALLERS = 8;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    /** Aborts the next request once released */
+    private final AtomicBoolean abort = new AtomicBoolean(false);
+    private StubTransport transport;
+    private RequestCoalescer coalescer;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        transport = new StubTransport() {
+            @Override
+            protected InputStream getStream(String path, List<Parameter> parameters) throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e.toString());
+                }
+                if (abort.compareAndSet(true, false)) {
+                    throw new InterruptedIOException("The request has been aborted");
+                }
+                synchronized (this) {
+                    return super.getStream(path, parameters);
+                }
+            }
+        };
+        coalescer = new RequestCoalescer();
+        transport.setRequestCoalescer(coalescer);
+        executor = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static List<Parameter> getInfo(String photoId) {
+        List<Parameter> parameters = call("flickr.photos.getInfo");
+        parameters.add(new Parameter("photo_id", photoId));
+        return parameters;
+    }
+
+    private List<Future<Response>> submit(final List<Parameter> parameters, int count) {
+        List<Future<Response>> results = new ArrayList<Future<Response>>();
+        for (int i = 0; i < count; i++) {
+            results.add(submit(parameters, false, null));
+        }
+        return results;
+    }
+
+    private Future<Response> submit(final List<Parameter> parameters, final boolean lazyPhotos,
+            final StringDictionary dictionary) {
+        return executor.submit(new Callable<Response>() {
+            @Override
+            public Response call() throws Exception {
+                RequestContext.getRequestContext().setLazyPhotos(lazyPhotos);
+                RequestContext.getRequestContext().setStringDictionary(dictionary);
+                try {
+                    return transport.get("/", new ArrayList<Parameter>(parameters));
+                } finally {
+                    RequestContext.resetThreadLocals();
+                }
+            }
+        });
+    }
+
+    private void awaitCoalesced(long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (coalescer.getCoalescedRequests() < count) {
+            assertTrue("timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void testConcurrentCallsShareOneRequest() throws Exception {
+        List<Future<Response>> results = submit(getInfo("1"), CALLERS);
+        awaitCoalesced(CALLERS - 1);
+        release.countDown();
+        Response first = results.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<Response> result : results) {
+            assertSame(first, result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, transport.requests.size());
+        assertEquals(1, coalescer.getRequests());
+        assertEquals(CALLERS - 1, coalescer.getCoalescedRequests());
+        assertEquals(0, coalescer.getInFlight());
+
+        // once done, the next call sends a new request
+        transport.get("/", getInfo("1"));
+        assertEquals(2, transport.requests.size());
+    }
+
+    @Test
+    public void testFailureIsShared() throws Exception {
+        transport.bodies.add("500");
+        List<Future<Response>> results = submit(getInfo("1"), 2);
+        awaitCoalesced(1);
+        release.countDown();
+        for (Future<Response> result : results) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+                fail("HTTP 500 expected");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof HttpStatusException);
+            }
+        }
+        assertEquals(1, transport.requests.size());
+    }
+
+    @Test
+    public void testCancelledRequestIsSentAgain() throws Exception {
+        abort.set(true);
+        List<Future<Response>> results = submit(getInfo("1"), 3);
+        awaitCoalesced(2);
+        release.countDown();
+        int aborted = 0;
+        for (Future<Response> result : results) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof InterruptedIOException);
+                aborted++;
+            }
+        }
+        // only the caller whose request was aborted fails
+        assertEquals(1, aborted);
+        // sent again by one or both of the others
+        assertEquals(transport.requests.size() + 1, coalescer.getRequests());
+        assertEquals(0, coalescer.getInFlight());
+    }
+
+    @Test
+    public void testParsingSettingsAreNotShared() throws Exception {
+        List<Future<Response>> results = new ArrayList<Future<Response>>();
+        results.add(submit(getInfo("1"), false, null));
+        results.add(submit(getInfo("1"), true, null));
+        results.add(submit(getInfo("1"), false, new StringDictionary()));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (coalescer.getRequests() < 3) {
+            assertTrue("timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+        release.countDown();
+        for (Future<Response> result : results) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(3, transport.requests.size());
+        assertEquals(0, coalescer.getCoalescedRequests());
+    }
+
+    @Test
+    public void testDifferentCallsAreNotShared() throws Exception {
+        release.countDown();
+        List<Parameter> other = getInfo("1");
+        other.add(new Parameter("secret", "abc"));
+        transport.get("/", getInfo("1"));
+        transport.get("/", other);
+        transport.get("/", call("flickr.photos.delete"));
+        assertEquals(3, transport.requests.size());
+        assertEquals(2, coalescer.getRequests());
+    }
+
+    @Test
+    public void testSwitchedPerMethod() {
+        assertTrue(coalescer.isCoalesced("flickr.photos.getInfo"));
+        assertFalse(coalescer.isCoalesced("flickr.photos.comments.addComment"));
+        coalescer.setCoalesced("flickr.photos.getInfo", false);
+        assertFalse(coalescer.isCoalesced("flickr.photos.getInfo"));
+        assertFalse(coalescer.isCoalesced(null));
+    }
+
+}
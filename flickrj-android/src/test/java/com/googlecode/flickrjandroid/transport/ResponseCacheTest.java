@@ -0,0 +1,131 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.transport;
+
+import static com.googlecode.flickrjandroid.transport.StubTransport.call;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.flickrjandroid.Parameter;
+import com.googlecode.flickrjandroid.Response;
+import com.googlecode.flickrjandroid.oauth.OAuthTokenParameter;
+
+/**
+ * Answers calls from the cache in front of a transport answering from memory.
+ */
+public class ResponseCacheTest {
+    private static final String SIZES = "{\"sizes\":{\"size\":[]},\"stat\":\"ok\"}";
+
+    private StubTransport transport;
+    private ResponseCache cache;
+
+    @Before
+    public void setUp() {
+        transport = new StubTransport();
+        cache = ResponseCache.createDefault();
+        transport.setResponseCache(cache);
+    }
+
+    private List<Parameter> getSizes(String photoId) {
+        List<Parameter> parameters = call("flickr.photos.getSizes");
+        parameters.add(new Parameter("photo_id", photoId));
+        return parameters;
+    }
+
+    @Test
+    public void testHit() throws Exception {
+        transport.bodies.add(SIZES);
+        Response first = transport.get("/", getSizes("1"));
+        Response second = transport.get("/", getSizes("1"));
+        assertEquals(1, transport.requests.size());
+        assertTrue(second.getData().has("sizes"));
+        // every hit is parsed again
+        assertNotSame(first.getData(), second.getData());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        transport.get("/", getSizes("2"));
+        assertEquals(2, transport.requests.size());
+    }
+
+    @Test
+    public void testUncachedMethod() throws Exception {
+        transport.get("/", call("flickr.photos.search"));
+        transport.get("/", call("flickr.photos.search"));
+        assertEquals(2, transport.requests.size());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    public void testErrorIsNotCached() throws Exception {
+        transport.bodies.add("{\"stat\":\"fail\",\"code\":1,\"message\":\"Photo not found\"}");
+        assertTrue(transport.get("/", getSizes("1")).isError());
+        assertFalse(transport.get("/", getSizes("1")).isError());
+        assertEquals(2, transport.requests.size());
+    }
+
+    @Test
+    public void testKeyedPerToken() throws Exception {
+        List<Parameter> alice = getSizes("1");
+        alice.add(new OAuthTokenParameter("alice"));
+        List<Parameter> bob = getSizes("1");
+        bob.add(new OAuthTokenParameter("bob"));
+        transport.postJSON("secret", alice);
+        transport.postJSON("secret", bob);
+        assertEquals(2, transport.requests.size());
+
+        List<Parameter> again = getSizes("1");
+        again.add(new OAuthTokenParameter("alice"));
+        transport.postJSON("secret", again);
+        assertEquals(2, transport.requests.size());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void testKeyIgnoresOrder() {
+        List<Parameter> parameters = getSizes("1");
+        List<Parameter> reversed = call("flickr.photos.getSizes");
+        reversed.add(0, new Parameter("photo_id", "1"));
+        reversed.add(new Parameter("oauth_nonce", "123"));
+        assertEquals(cache.getKey("/", parameters), cache.getKey("/", reversed));
+    }
+
+    @Test
+    public void testExpiry() throws Exception {
+        cache.setTtl("flickr.photos.getSizes", 1, TimeUnit.MILLISECONDS);
+        String key = cache.getKey("/", getSizes("1"));
+        cache.put(key, "flickr.photos.getSizes", new byte[1]);
+        Thread.sleep(5);
+        assertNull(cache.get(key));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testEviction() {
+        ResponseCache small = new ResponseCache(2, 10);
+        small.setTtl("flickr.people.getInfo", 1, TimeUnit.HOURS);
+        small.put("a", "flickr.people.getInfo", new byte[4]);
+        small.put("b", "flickr.people.getInfo", new byte[4]);
+        small.get("a");
+        small.put("c", "flickr.people.getInfo", new byte[4]);
+        // b was used least recently
+        assertNull(small.get("b"));
+        assertEquals(2, small.size());
+        small.put("d", "flickr.people.getInfo", new byte[8]);
+        // over the size limit, only d fits
+        assertEquals(1, small.size());
+        assertEquals(8, small.getBytes());
+        assertEquals(3, small.getEvictions());
+    }
+
+}
@@ -0,0 +1,132 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.transport;
+
+import static com.googlecode.flickrjandroid.transport.StubTransport.call;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.flickrjandroid.FlickrException;
+import com.googlecode.flickrjandroid.Parameter;
+import com.googlecode.flickrjandroid.Response;
+import com.googlecode.flickrjandroid.http.HttpStatusException;
+import com.googlecode.flickrjandroid.oauth.OAuthTokenParameter;
+
+/**
+ * Retries calls against a transport answering from memory.
+ */
+public class RetryTest {
+
+    private StubTransport transport;
+    private RetryPolicy policy;
+
+    @Before
+    public void setUp() {
+        transport = new StubTransport();
+        policy = new RetryPolicy();
+        policy.setBaseDelay(1);
+        transport.setRetryPolicy(policy);
+    }
+
+    private static String getValue(List<Parameter> parameters, String name) {
+        for (Parameter parameter : parameters) {
+            if (name.equals(parameter.getName())) {
+                return String.valueOf(parameter.getValue());
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testIdempotency() {
+        assertTrue(policy.isRetryable("flickr.photos.getInfo"));
+        assertTrue(policy.isRetryable("flickr.photos.search"));
+        assertFalse(policy.isRetryable("flickr.photos.delete"));
+        assertFalse(policy.isRetryable("flickr.photosets.create"));
+        policy.setRetryable("flickr.photos.addTags", true);
+        assertTrue(policy.isRetryable("flickr.photos.addTags"));
+        assertFalse(policy.isRetryable(new HttpStatusException(404, "HTTP 404")));
+        assertTrue(policy.isRetryable(new HttpStatusException(502, "HTTP 502")));
+        assertTrue(policy.isRetryable(new FlickrException("105", "Service currently unavailable")));
+        assertFalse(policy.isRetryable(new FlickrException("1", "Photo not found")));
+    }
+
+    @Test
+    public void testReadIsRetried() throws Exception {
+        transport.bodies.add("503");
+        transport.bodies.add("{\"stat\":\"fail\",\"code\":105,\"message\":\"Service currently unavailable\"}");
+        Response response = transport.get("/", call("flickr.photos.getInfo"));
+        assertFalse(response.isError());
+        assertEquals(3, transport.requests.size());
+        assertEquals(2, policy.getRetries());
+    }
+
+    @Test
+    public void testAttemptsAreLimited() throws Exception {
+        transport.bodies.add("503");
+        transport.bodies.add("503");
+        transport.bodies.add("503");
+        try {
+            transport.get("/", call("flickr.photos.getInfo"));
+            fail("HTTP 503 expected");
+        } catch (HttpStatusException e) {
+            assertEquals(503, e.getCode());
+        }
+        assertEquals(policy.getMaxAttempts(), transport.requests.size());
+    }
+
+    @Test
+    public void testWriteIsNotRetried() throws Exception {
+        transport.bodies.add("503");
+        try {
+            transport.postJSON("secret", call("flickr.photos.delete"));
+            fail("HTTP 503 expected");
+        } catch (HttpStatusException e) {
+            assertEquals(503, e.getCode());
+        }
+        assertEquals(1, transport.requests.size());
+        assertEquals(0, policy.getRetries());
+    }
+
+    @Test
+    public void testRetryIsSignedAgain() throws Exception {
+        List<Parameter> parameters = call("flickr.photos.getInfo");
+        parameters.add(new OAuthTokenParameter("token"));
+        transport.bodies.add("500");
+        transport.postJSON("secret", parameters);
+        assertEquals(2, transport.requests.size());
+        List<Parameter> first = transport.requests.get(0);
+        List<Parameter> second = transport.requests.get(1);
+        assertTrue(getValue(first, "oauth_signature") != null);
+        assertFalse(getValue(first, "oauth_nonce").equals(getValue(second, "oauth_nonce")));
+        assertFalse(getValue(first, "oauth_signature").equals(getValue(second, "oauth_signature")));
+        // the parameters of the caller are not signed
+        assertEquals(null, getValue(parameters, "oauth_signature"));
+    }
+
+    @Test
+    public void testBudgetStopsRetries() throws Exception {
+        policy.setMaxBudget(1);
+        policy.setBudgetRatio(0);
+        transport.bodies.add("503");
+        transport.bodies.add("503");
+        transport.bodies.add("503");
+        try {
+            transport.get("/", call("flickr.photos.getInfo"));
+            fail("HTTP 503 expected");
+        } catch (HttpStatusException e) {
+            assertEquals(503, e.getCode());
+        }
+        assertEquals(2, transport.requests.size());
+        assertEquals(1, policy.getBudgetExhausted());
+    }
+
+}
@@ -0,0 +1,61 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONException;
+
+import com.googlecode.flickrjandroid.Parameter;
+import com.googlecode.flickrjandroid.RESTResponse;
+import com.googlecode.flickrjandroid.Response;
+import com.googlecode.flickrjandroid.Transport;
+import com.googlecode.flickrjandroid.http.HttpStatusException;
+import com.googlecode.flickrjandroid.util.IOUtilities;
+
+/**
+ * Answers every call with the next canned body, or fails with the HTTP
+ * status if the body is a number. The parameters of every request are
+ * recorded.
+ */
+class StubTransport extends Transport {
+    final List<String> bodies = new ArrayList<String>();
+    final List<List<Parameter>> requests = new ArrayList<List<Parameter>>();
+
+    @Override
+    protected InputStream getStream(String path, List<Parameter> parameters) throws IOException {
+        requests.add(new ArrayList<Parameter>(parameters));
+        String body = bodies.isEmpty() ? "{\"stat\":\"ok\"}" : bodies.remove(0);
+        if (body.matches("\\d+")) {
+            throw new HttpStatusException(Integer.parseInt(body), "HTTP " + body);
+        }
+        return new ByteArrayInputStream(body.getBytes("UTF-8"));
+    }
+
+    @Override
+    protected InputStream postStream(String path, List<Parameter> parameters) throws IOException {
+        return getStream(path, parameters);
+    }
+
+    @Override
+    protected Response createResponse(InputStream in) throws IOException, JSONException {
+        return new RESTResponse(IOUtilities.readLines(in, "UTF-8"));
+    }
+
+    @Override
+    protected Response sendUpload(String path, List<Parameter> parameters) {
+        throw new UnsupportedOperationException();
+    }
+
+    static List<Parameter> call(String method) {
+        List<Parameter> parameters = new ArrayList<Parameter>();
+        parameters.add(new Parameter("method", method));
+        return parameters;
+    }
+
+}
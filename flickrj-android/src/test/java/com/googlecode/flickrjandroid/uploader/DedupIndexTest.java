@@ -0,0 +1,160 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.uploader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xml.sax.SAXException;
+
+import com.googlecode.flickrjandroid.Parameter;
+import com.googlecode.flickrjandroid.RequestContext;
+import com.googlecode.flickrjandroid.Response;
+import com.googlecode.flickrjandroid.Transport;
+import com.googlecode.flickrjandroid.http.MultipartBody;
+import com.googlecode.flickrjandroid.oauth.OAuth;
+import com.googlecode.flickrjandroid.oauth.OAuthToken;
+import com.googlecode.flickrjandroid.util.ByteUtilities;
+
+/**
+ * Checks the index of the photos uploaded, without uploading anything.
+ */
+public class DedupIndexTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        RequestContext.resetThreadLocals();
+    }
+
+    private static byte[] photo(int length) {
+        byte[] photo = new byte[length];
+        for (int i = 0; i < length; i++) {
+            photo[i] = (byte) i;
+        }
+        return photo;
+    }
+
+    @Test
+    public void testLookupByLengthThenHash() throws Exception {
+        File file = folder.newFile("uploads.sha1");
+        DedupIndex index = new DedupIndex(file);
+        byte[] photo = photo(1000);
+        assertNull(index.find(photo));
+        index.put(DedupIndex.hash(photo), photo.length, "42");
+        assertEquals("42", index.find(photo));
+        assertTrue(index.containsLength(1000));
+        assertFalse(index.containsLength(999));
+        index.close();
+
+        index = new DedupIndex(file);
+        assertEquals(1, index.size());
+        assertEquals("42", index.find(photo));
+        assertNull(index.find(photo(999)));
+        index.close();
+    }
+
+    @Test
+    public void testHashedWhileSent() throws Exception {
+        byte[] photo = photo(200 * 1024);
+        File file = folder.newFile("photo.jpg");
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(photo);
+        out.close();
+
+        MultipartBody body = new MultipartBody("boundary").addText("title", "Beach").addFile("photo", "photo.jpg",
+                "image/jpeg", file);
+        MessageDigest digest = DedupIndex.newDigest();
+        body.setDigest(digest);
+        // written twice, e.g. on a fresh connection
+        body.writeTo(new ByteArrayOutputStream());
+        body.writeTo(new ByteArrayOutputStream());
+        assertEquals(DedupIndex.hash(photo), ByteUtilities.toHexString(digest.digest()));
+        assertEquals(DedupIndex.hash(file), DedupIndex.hash(photo));
+    }
+
+    @Test
+    public void testSynchronousUploadOfDuplicateIsSkipped() throws Exception {
+        DedupIndex index = new DedupIndex(folder.newFile("uploads.sha1"));
+        byte[] photo = photo(1000);
+        index.put(DedupIndex.hash(photo), photo.length, "42");
+        Uploader uploader = new Uploader("key", "secret");
+        uploader.setDedupIndex(index);
+        // answered from the index, nothing is sent
+        assertEquals("42", uploader.upload("photo.jpg", photo, new UploadMetaData()));
+        index.close();
+    }
+
+    @Test
+    public void testHashedOnceSentByOtherTransport() throws Exception {
+        OAuth oauth = new OAuth();
+        oauth.setToken(new OAuthToken("token", "secret"));
+        RequestContext.getRequestContext().setOAuth(oauth);
+        // sends nothing through the digest
+        Transport transport = new Transport() {
+            @Override
+            public Response upload(String apiSharedSecret, List<Parameter> parameters) throws IOException {
+                UploaderResponse response = new UploaderResponse();
+                try {
+                    response.parse(new ByteArrayInputStream(
+                            "<rsp stat=\"ok\"><photoid>7</photoid></rsp>".getBytes("UTF-8")));
+                } catch (SAXException e) {
+                    throw new IllegalStateException(e);
+                }
+                return response;
+            }
+
+            @Override
+            protected Response createResponse(InputStream in) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            protected InputStream getStream(String path, List<Parameter> parameters) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            protected InputStream postStream(String path, List<Parameter> parameters) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            protected Response sendUpload(String path, List<Parameter> parameters) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        DedupIndex index = new DedupIndex(folder.newFile("uploads.sha1"));
+        Uploader uploader = new Uploader("key", "secret", transport);
+        uploader.setDedupIndex(index);
+        byte[] photo = photo(1000);
+        ImageParameter image = new ImageParameter("photo.jpg", photo);
+        assertEquals("7", uploader.upload(image, new UploadMetaData()));
+        assertFalse(image.isDigested());
+        assertEquals(DedupIndex.hash(photo), image.getContentHash());
+        assertEquals("7", index.find(photo));
+        // another photo of the same length is not a duplicate
+        byte[] other = photo(1000);
+        other[0] = 1;
+        assertNull(index.find(other));
+        index.close();
+    }
+
+}
@@ -0,0 +1,366 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.uploader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.googlecode.flickrjandroid.AsyncFlickr;
+import com.googlecode.flickrjandroid.Flickr;
+import com.googlecode.flickrjandroid.photos.Photo;
+import com.googlecode.flickrjandroid.photos.PhotoList;
+import com.googlecode.flickrjandroid.photos.PhotosInterface;
+import com.googlecode.flickrjandroid.photos.SearchParameters;
+import com.googlecode.flickrjandroid.photos.upload.Ticket;
+import com.googlecode.flickrjandroid.photos.upload.UploadInterface;
+import com.googlecode.flickrjandroid.util.IOUtilities;
+
+/**
+ * Runs queues against a fake uploader whose tickets complete on the second
+ * check.
+ */
+public class UploadQueueTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<String> uploaded = Collections.synchronizedList(new ArrayList<String>());
+    private final Map<String, Integer> checks = new ConcurrentHashMap<String, Integer>();
+    /** The photos found by a search of their machine tag */
+    private final Map<String, String> tagged = new ConcurrentHashMap<String, String>();
+    /** Holds back the uploads while set */
+    private volatile CountDownLatch uploadGate;
+    private AsyncFlickr async;
+
+    @Before
+    public void setup() throws Exception {
+        final Uploader uploader = new Uploader("key", "secret") {
+            @Override
+            public String upload(ImageParameter image, UploadMetaData metaData) {
+                CountDownLatch gate = uploadGate;
+                if (gate != null) {
+                    try {
+                        gate.await();
+                    } catch (InterruptedException e) {
+                        // cancelled, the photo may have been received anyway
+                    }
+                }
+                uploaded.add(image.getImageName());
+                image.setContentHash("hash-" + image.getImageName());
+                return "ticket-" + image.getImageName();
+            }
+        };
+        final UploadInterface uploadInterface = new UploadInterface("key", "secret", null) {
+            @Override
+            public List<Ticket> checkTickets(Set<Object> tickets) {
+                List<Ticket> list = new ArrayList<Ticket>();
+                for (Object id : tickets) {
+                    Integer count = checks.get(id);
+                    checks.put((String) id, Integer.valueOf(count == null ? 1 : count.intValue() + 1));
+                    Ticket ticket = new Ticket();
+                    ticket.setTicketId((String) id);
+                    if (count == null) {
+                        ticket.setStatus(Ticket.UNCOMPLETED);
+                    } else if (id.equals("ticket-bad.jpg")) {
+                        ticket.setStatus(Ticket.FAILED);
+                    } else {
+                        ticket.setStatus(Ticket.COMPLETED);
+                        ticket.setPhotoId("photo-" + id);
+                    }
+                    list.add(ticket);
+                }
+                return list;
+            }
+        };
+        final PhotosInterface photosInterface = new PhotosInterface("key", "secret", null) {
+            @Override
+            public PhotoList search(SearchParameters params, int perPage, int page) {
+                PhotoList list = new PhotoList();
+                String photoId = tagged.get(params.getMachineTags()[0]);
+                if (photoId != null) {
+                    Photo photo = new Photo();
+                    photo.setId(photoId);
+                    list.add(photo);
+                }
+                return list;
+            }
+        };
+        async = new AsyncFlickr(new Flickr("key") {
+            @Override
+            public Uploader getUploader() {
+                return uploader;
+            }
+
+            @Override
+            public PhotosInterface getPhotosInterface() {
+                return photosInterface;
+            }
+
+            @Override
+            public UploadInterface getUploadInterface() {
+                return uploadInterface;
+            }
+        }, 4);
+    }
+
+    @After
+    public void tearDown() {
+        async.shutdown();
+    }
+
+    private UploadQueue queue(File journal) throws IOException {
+        UploadQueue queue = new UploadQueue(async, new UploadJournal(journal));
+        queue.setParallelism(3);
+        queue.getTicketPoller().setMinInterval(5);
+        return queue;
+    }
+
+    @Test
+    public void testUploadsAndChecksTickets() throws Exception {
+        UploadQueue queue = queue(folder.newFile("uploads.journal"));
+        final List<String> failed = new ArrayList<String>();
+        queue.setListener(new UploadQueue.Listener() {
+            @Override
+            public void onCompleted(UploadItem item) {
+                assertEquals("photo-ticket-" + item.getFile().getName(), item.getPhotoId());
+            }
+
+            @Override
+            public void onFailed(UploadItem item) {
+                failed.add(item.getId());
+            }
+        });
+        for (int i = 0; i < 10; i++) {
+            queue.add("photo" + i, new File("photo" + i + ".jpg"), new UploadMetaData());
+        }
+        queue.add("bad", new File("bad.jpg"), new UploadMetaData());
+        assertEquals(10, queue.run());
+        assertEquals(11, uploaded.size());
+        assertEquals(Arrays.asList("bad"), failed);
+        assertEquals(UploadItem.FAILED, queue.getJournal().get("bad").getState());
+        queue.getJournal().close();
+    }
+
+    @Test
+    public void testResumeFromJournal() throws Exception {
+        File file = folder.newFile("uploads.journal");
+        UploadJournal journal = new UploadJournal(file);
+        UploadMetaData metaData = new UploadMetaData();
+        metaData.setTitle("Beach\tday");
+        metaData.setTags(Arrays.asList("holiday", "sea side"));
+        metaData.setHidden(Boolean.TRUE);
+        // the process stops with one photo done, one sent and one being sent
+        UploadItem done = journal.add("done", new File("done.jpg"), metaData);
+        journal.started(done);
+        journal.ticket(done, "ticket-done.jpg", null);
+        journal.completed(done, "42");
+        UploadItem sent = journal.add("sent", new File("sent.jpg"), metaData);
+        journal.started(sent);
+        journal.ticket(sent, "ticket-sent.jpg", "hash-sent.jpg");
+        journal.started(journal.add("sending", new File("sending.jpg"), metaData));
+        journal.close();
+
+        UploadQueue queue = queue(file);
+        UploadJournal resumed = queue.getJournal();
+        assertEquals("42", resumed.get("done").getPhotoId());
+        assertEquals("Beach\tday", resumed.get("sent").getMetaData().getTitle());
+        assertEquals(Arrays.asList("holiday", "sea side"), resumed.get("sent").getMetaData().getTags());
+        assertEquals(Boolean.TRUE, resumed.get("sending").getMetaData().isHidden());
+        assertSame(resumed.get("done"), queue.add("done", new File("done.jpg"), new UploadMetaData()));
+
+        assertEquals(2, queue.run());
+        // only the photo without a ticket is sent again
+        assertEquals(Arrays.asList("sending.jpg"), uploaded);
+        assertEquals("photo-ticket-sent.jpg", resumed.get("sent").getPhotoId());
+        assertEquals("hash-sent.jpg", resumed.get("sent").getContentHash());
+        resumed.close();
+
+        // rewritten with a line per completed photo
+        UploadJournal compacted = new UploadJournal(file);
+        assertEquals(UploadItem.COMPLETED, compacted.get("sending").getState());
+        assertNull(compacted.get("done").getFile());
+        assertEquals(3, compacted.size());
+        compacted.close();
+    }
+
+    @Test
+    public void testIgnoresLineCutOff() throws Exception {
+        File file = folder.newFile("uploads.journal");
+        UploadJournal journal = new UploadJournal(file);
+        UploadItem item = journal.add("cut", new File("cut.jpg"), new UploadMetaData());
+        journal.started(item);
+        journal.ticket(item, "ticket-cut.jpg", null);
+        journal.completed(item, "12345");
+        journal.close();
+        // the crash cuts the last line within the photo id
+        String written = new String(IOUtilities.readBytes(new FileInputStream(file)), "UTF-8");
+        RandomAccessFile cut = new RandomAccessFile(file, "rw");
+        cut.setLength(written.lastIndexOf("12345") + 2);
+        cut.close();
+
+        UploadJournal resumed = new UploadJournal(file);
+        assertEquals(UploadItem.PROCESSING, resumed.get("cut").getState());
+        assertEquals("ticket-cut.jpg", resumed.get("cut").getTicketId());
+        assertNull(resumed.get("cut").getPhotoId());
+        resumed.close();
+    }
+
+    @Test
+    public void testInterruptedRunDoesNotFailNextRun() throws Exception {
+        final UploadQueue queue = queue(folder.newFile("uploads.journal"));
+        final List<String> failed = Collections.synchronizedList(new ArrayList<String>());
+        queue.setListener(new UploadQueue.Listener() {
+            @Override
+            public void onCompleted(UploadItem item) {
+            }
+
+            @Override
+            public void onFailed(UploadItem item) {
+                failed.add(item.getId());
+            }
+        });
+        queue.add("slow", new File("slow.jpg"), new UploadMetaData());
+        uploadGate = new CountDownLatch(1);
+        final AtomicReference<Throwable> stopped = new AtomicReference<Throwable>();
+        Thread runner = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    queue.run();
+                } catch (Throwable e) {
+                    stopped.set(e);
+                }
+            }
+        };
+        runner.start();
+        Thread.sleep(50);
+        runner.interrupt();
+        runner.join(1000);
+        assertTrue(stopped.get() instanceof InterruptedException);
+
+        uploadGate = null;
+        assertEquals(1, queue.run());
+        assertEquals(Collections.emptyList(), failed);
+        assertEquals(UploadItem.COMPLETED, queue.getJournal().get("slow").getState());
+        queue.getJournal().close();
+    }
+
+    @Test
+    public void testInterruptedRunRecordsTicketsReceived() throws Exception {
+        File file = folder.newFile("uploads.journal");
+        UploadJournal journal = new UploadJournal(file);
+        journal.ticket(journal.add("checked", new File("checked.jpg"), new UploadMetaData()), "ticket-checked.jpg",
+                null);
+        journal.close();
+        final UploadQueue queue = queue(file);
+        queue.add("sent", new File("sent.jpg"), new UploadMetaData());
+        uploadGate = new CountDownLatch(1);
+        queue.setListener(new UploadQueue.Listener() {
+            @Override
+            public void onCompleted(UploadItem item) {
+                // the run stops once the upload finished, before reading its ticket
+                uploadGate.countDown();
+                try {
+                    while (!uploaded.contains("sent.jpg")) {
+                        Thread.sleep(5);
+                    }
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    // stops anyway
+                }
+                Thread.currentThread().interrupt();
+            }
+
+            @Override
+            public void onFailed(UploadItem item) {
+            }
+        });
+        try {
+            queue.run();
+            fail("not interrupted");
+        } catch (InterruptedException e) {
+            // expected
+        }
+        assertEquals(UploadItem.PROCESSING, queue.getJournal().get("sent").getState());
+        assertEquals("ticket-sent.jpg", queue.getJournal().get("sent").getTicketId());
+
+        queue.setListener(null);
+        assertEquals(1, queue.run());
+        assertEquals(Arrays.asList("sent.jpg"), uploaded);
+        queue.getJournal().close();
+    }
+
+    @Test
+    public void testInterruptedUploadFoundByMachineTag() throws Exception {
+        File photo = folder.newFile("sending.jpg");
+        FileOutputStream out = new FileOutputStream(photo);
+        out.write(new byte[] {1, 2, 3});
+        out.close();
+        DedupIndex index = new DedupIndex(folder.newFile("uploads.sha1"));
+        index.setMachineTags(true);
+        async.getFlickr().getUploader().setDedupIndex(index);
+        // received by Flickr before the process stopped
+        tagged.put(DedupIndex.machineTag(DedupIndex.hash(photo)), "43");
+
+        File file = folder.newFile("uploads.journal");
+        UploadJournal journal = new UploadJournal(file);
+        journal.started(journal.add("sending", photo, new UploadMetaData()));
+        journal.close();
+
+        UploadQueue queue = queue(file);
+        queue.add("new", new File("new.jpg"), new UploadMetaData());
+        assertEquals(2, queue.run());
+        assertEquals(Arrays.asList("new.jpg"), uploaded);
+        assertEquals("43", queue.getJournal().get("sending").getPhotoId());
+        assertEquals("43", index.get(DedupIndex.hash(photo)));
+        index.close();
+        queue.getJournal().close();
+    }
+
+    @Test
+    public void testSkipsDuplicates() throws Exception {
+        File photo = folder.newFile("copy.jpg");
+        FileOutputStream out = new FileOutputStream(photo);
+        out.write(new byte[] {1, 2, 3});
+        out.close();
+        DedupIndex index = new DedupIndex(folder.newFile("uploads.sha1"));
+        index.put(DedupIndex.hash(photo), 3, "42");
+        async.getFlickr().getUploader().setDedupIndex(index);
+
+        UploadQueue queue = queue(folder.newFile("uploads.journal"));
+        queue.add("copy", photo, new UploadMetaData());
+        queue.add("new", new File("new.jpg"), new UploadMetaData());
+        assertEquals(2, queue.run());
+        assertEquals(Arrays.asList("new.jpg"), uploaded);
+        assertEquals("42", queue.getJournal().get("copy").getPhotoId());
+        // recorded once completed
+        assertEquals("photo-ticket-new.jpg", index.get("hash-new.jpg"));
+        index.close();
+        queue.getJournal().close();
+    }
+
+}
@@ -0,0 +1,79 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.uploader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * Parses the responses of the upload API.
+ */
+public class UploaderResponseTest {
+
+    private static UploaderResponse parse(String xml) throws Exception {
+        UploaderResponse response = new UploaderResponse();
+        response.parse(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+        return response;
+    }
+
+    @Test
+    public void testSynchronousUpload() throws Exception {
+        UploaderResponse response = parse("<?xml version=\"1.0\" encoding=\"utf-8\" ?>\n"
+                + "<rsp stat=\"ok\">\n<photoid>1234</photoid>\n</rsp>\n");
+        assertEquals("ok", response.getStatus());
+        assertEquals("1234", response.getPhotoId());
+        assertNull(response.getTicketId());
+        assertFalse(response.isError());
+    }
+
+    @Test
+    public void testAsynchronousUpload() throws Exception {
+        UploaderResponse response = parse("<rsp stat=\"ok\"><ticketid>1234-5678</ticketid></rsp>");
+        assertEquals("1234-5678", response.getTicketId());
+        assertNull(response.getPhotoId());
+    }
+
+    @Test
+    public void testError() throws Exception {
+        UploaderResponse response = parse("<rsp stat=\"fail\"><err code=\"5\" msg=\"Filetype was not recognised\" /></rsp>");
+        assertTrue(response.isError());
+        assertEquals("5", response.getErrorCode());
+        assertEquals("Filetype was not recognised", response.getErrorMessage());
+    }
+
+    @Test
+    public void testConcurrentParsing() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < 200; i++) {
+                final String id = String.valueOf(i);
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return parse("<rsp stat=\"ok\"><photoid>" + id + "</photoid></rsp>").getPhotoId();
+                    }
+                }));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(String.valueOf(i), results.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
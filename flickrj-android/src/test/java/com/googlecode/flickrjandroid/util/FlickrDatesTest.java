@@ -0,0 +1,125 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.flickrjandroid.photos.Photo;
+
+/**
+ * Parses and formats the dates as SimpleDateFormat does.
+ */
+public class FlickrDatesTest {
+    private TimeZone defaultZone;
+
+    @Before
+    public void setUp() {
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("America/Los_Angeles"));
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultZone);
+    }
+
+    @Test
+    public void testParseDateTime() throws Exception {
+        assertEquals(1328173267000L, FlickrDates.parseDateTime("2012-02-02 01:01:07"));
+        assertEquals(FlickrDates.NO_DATE, FlickrDates.parseDateTime(null));
+        assertEquals(FlickrDates.NO_DATE, FlickrDates.parseDateTime(""));
+
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        String[] values = {"1970-01-01 00:00:00", "2000-02-29 23:59:59", "2012-03-11 02:30:00",
+            "2012-11-04 01:30:00", "0000-00-00 00:00:00", "2012-13-40 25:61:61", "1500-06-01 12:00:00"};
+        for (String value : values) {
+            assertEquals(value, format.parse(value).getTime(), FlickrDates.parseDateTime(value));
+        }
+    }
+
+    @Test(expected = ParseException.class)
+    public void testParseDateTimeInvalid() throws Exception {
+        FlickrDates.parseDateTime("yesterday");
+    }
+
+    @Test
+    public void testFormat() {
+        assertEquals("2012-02-02 01:01:07", FlickrDates.formatDateTime(1328173267000L));
+        assertEquals("2012-02-02", FlickrDates.formatDate(new Date(1328173267000L)));
+
+        SimpleDateFormat dateTime = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        SimpleDateFormat date = new SimpleDateFormat("yyyy-MM-dd");
+        // every 61 hours from 1960 to 2040, across the daylight saving changes
+        for (long time = -315619200000L; time < 2208988800000L; time += 61 * 3600 * 1000L + 1234L) {
+            assertEquals(dateTime.format(new Date(time)), FlickrDates.formatDateTime(time));
+            assertEquals(date.format(new Date(time)), FlickrDates.formatDate(time));
+        }
+        assertEquals(dateTime.format(new Date(-20000000000000L)), FlickrDates.formatDateTime(-20000000000000L));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        for (long time = 0; time < 2000000000000L; time += 7 * 3600 * 1000L + 13000L) {
+            assertEquals(time, FlickrDates.parseDateTime(FlickrDates.formatDateTime(time)), 3600 * 1000L);
+        }
+    }
+
+    @Test
+    public void testParseEpoch() {
+        assertEquals(1349046000000L, FlickrDates.parseEpoch("1349046000"));
+        assertEquals(FlickrDates.NO_DATE, FlickrDates.parseEpoch(""));
+        assertNull(FlickrDates.toDate(FlickrDates.NO_DATE));
+        assertEquals(FlickrDates.NO_DATE, FlickrDates.toTime(null));
+    }
+
+    @Test
+    public void testPhoto() {
+        Photo photo = new Photo();
+        assertNull(photo.getDateTaken());
+        assertEquals(FlickrDates.NO_DATE, photo.getDateTakenTime());
+        photo.setDateTaken("2012-02-02 01:01:07");
+        photo.setDatePosted("1349046000");
+        assertEquals(1328173267000L, photo.getDateTakenTime());
+        assertEquals(new Date(1349046000000L), photo.getDatePosted());
+        photo.setDatePosted((Date) null);
+        assertNull(photo.getDatePosted());
+    }
+
+    @Test
+    public void testPhotoSerialized() throws Exception {
+        ObjectStreamClass stream = ObjectStreamClass.lookup(Photo.class);
+        assertEquals(Date.class, stream.getField("dateTaken").getType());
+        assertEquals(Date.class, stream.getField("lastUpdate").getType());
+
+        Photo photo = new Photo();
+        photo.setId("1");
+        photo.setDateTaken("2012-02-02 01:01:07");
+        photo.setComments(3);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(photo);
+        out.close();
+        photo = (Photo) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+        assertEquals("1", photo.getId());
+        assertEquals(1328173267000L, photo.getDateTakenTime());
+        assertEquals(FlickrDates.NO_DATE, photo.getDatePostedTime());
+        assertEquals(3, photo.getComments());
+    }
+
+}
@@ -0,0 +1,79 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * Compares the pull parser with the org.json tree parser.
+ */
+public class JSONReaderTest {
+    private static final String DOCUMENT = "{\"photos\":{\"page\":1,\"pages\":\"12\",\"total\":1234567890123,"
+        + "\"photo\":[{\"id\":\"42\",\"title\":\"caf\\u00e9 \\\"quoted\\\" a\\/b\\n\",\"latitude\":-33.5,"
+        + "\"ispublic\":true,\"tags\":[],\"description\":{\"_content\":\"\"},\"none\":null}]},\r\n \"stat\":\"ok\"}";
+
+    @Test
+    public void testReadObjectMatchesTreeParser() throws Exception {
+        JSONObject expected = new JSONObject(DOCUMENT);
+        JSONReader reader = new JSONReader(new StringReader(DOCUMENT));
+        JSONObject actual = reader.readObject();
+        assertEquals(JSONReader.Token.END_DOCUMENT, reader.peek());
+        reader.close();
+
+        JSONObject photos = actual.getJSONObject("photos");
+        assertEquals(expected.getJSONObject("photos").get("page"), photos.get("page"));
+        assertEquals(expected.getJSONObject("photos").get("total"), photos.get("total"));
+        JSONObject photo = photos.getJSONArray("photo").getJSONObject(0);
+        JSONObject expectedPhoto = expected.getJSONObject("photos").getJSONArray("photo").getJSONObject(0);
+        assertEquals(expectedPhoto.getString("title"), photo.getString("title"));
+        assertEquals("café \"quoted\" a/b\n", photo.getString("title"));
+        assertEquals(expectedPhoto.get("latitude"), photo.get("latitude"));
+        assertEquals(Boolean.TRUE, photo.get("ispublic"));
+        assertTrue(photo.isNull("none"));
+        assertEquals(0, ((JSONArray) photo.get("tags")).length());
+        assertEquals(12, photos.getInt("pages"));
+    }
+
+    @Test
+    public void testStreaming() throws Exception {
+        JSONReader reader = new JSONReader(new StringReader(DOCUMENT));
+        reader.beginObject();
+        assertEquals("photos", reader.nextName());
+        reader.beginObject();
+        assertEquals("page", reader.nextName());
+        assertEquals(1, reader.nextInt());
+        assertEquals("pages", reader.nextName());
+        assertEquals(12, reader.nextInt());
+        assertEquals("total", reader.nextName());
+        reader.skipValue();
+        assertEquals("photo", reader.nextName());
+        reader.skipValue();
+        assertFalse(reader.hasNext());
+        reader.endObject();
+        assertEquals("stat", reader.nextName());
+        assertEquals("ok", reader.nextString());
+        reader.endObject();
+        assertEquals(JSONReader.Token.END_DOCUMENT, reader.peek());
+    }
+
+    @Test(expected = JSONException.class)
+    public void testMalformed() throws Exception {
+        new JSONReader(new StringReader("{\"a\":1,}")).readObject();
+    }
+
+    @Test(expected = JSONException.class)
+    public void testTruncated() throws Exception {
+        new JSONReader(new StringReader("{\"photos\":{\"photo\":[{\"id\":\"4")).readObject();
+    }
+
+}
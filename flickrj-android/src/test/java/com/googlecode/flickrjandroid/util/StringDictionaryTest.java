@@ -0,0 +1,91 @@
+/**
+ *
+ */
+package com.googlecode.flickrjandroid.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+
+import com.googlecode.flickrjandroid.RequestContext;
+import com.googlecode.flickrjandroid.photos.Photo;
+import com.googlecode.flickrjandroid.photos.PhotoList;
+import com.googlecode.flickrjandroid.photos.PhotoUtils;
+import com.googlecode.flickrjandroid.tags.Tag;
+
+/**
+ * Shares repeated values across parsed photos.
+ */
+public class StringDictionaryTest {
+    private static final String JSON = "{\"photos\":{\"page\":1,\"pages\":1,\"perpage\":2,\"total\":\"2\",\"photo\":["
+        + "{\"id\":\"1\",\"owner\":\"21@N00\",\"ownername\":\"one\",\"secret\":\"a\",\"server\":\"7\",\"farm\":8,"
+        + "\"title\":\"a\",\"license\":\"4\",\"media\":\"photo\",\"tags\":\"dog beach\"},"
+        + "{\"id\":\"2\",\"owner\":\"21@N00\",\"ownername\":\"one\",\"secret\":\"b\",\"server\":\"7\",\"farm\":8,"
+        + "\"title\":\"b\",\"license\":\"4\",\"media\":\"photo\",\"tags\":\"beach\"}]},\"stat\":\"ok\"}";
+
+    @After
+    public void tearDown() {
+        RequestContext.resetThreadLocals();
+    }
+
+    @Test
+    public void testIntern() {
+        StringDictionary dictionary = new StringDictionary();
+        String first = new String("photo");
+        String second = new String("photo");
+        assertSame(first, dictionary.intern(first));
+        assertSame(first, dictionary.intern(second));
+        assertNull(dictionary.intern(null));
+        assertEquals(1, dictionary.size());
+        assertEquals(2, dictionary.getLookups());
+        assertEquals(1, dictionary.getHits());
+        assertEquals(5, dictionary.getSavedChars());
+        assertEquals(0.5d, dictionary.getDedupRatio(), 0d);
+        dictionary.clear();
+        assertEquals(0, dictionary.size());
+        assertEquals(0d, dictionary.getDedupRatio(), 0d);
+    }
+
+    @Test
+    public void testMaxSize() {
+        StringDictionary dictionary = new StringDictionary(1);
+        dictionary.intern("a");
+        String b = new String("b");
+        assertSame(b, dictionary.intern(b));
+        assertNotSame(b, dictionary.intern(new String("b")));
+        assertEquals(1, dictionary.size());
+        assertEquals(0, dictionary.getHits());
+    }
+
+    @Test
+    public void testPhotoList() throws Exception {
+        PhotoList photos = PhotoUtils.createPhotoList(new JSONObject(JSON));
+        Photo first = photos.get(0);
+        Photo second = photos.get(1);
+        assertSame(first.getServer(), second.getServer());
+        assertSame(first.getFarm(), second.getFarm());
+        assertSame(first.getLicense(), second.getLicense());
+        assertSame(first.getMedia(), second.getMedia());
+        assertSame(first.getOwner().getId(), second.getOwner().getId());
+        assertSame(first.getOwner().getUsername(), second.getOwner().getUsername());
+        Tag beach = (Tag) first.getTags().toArray()[1];
+        assertSame(beach.getValue(), ((Tag) second.getTags().iterator().next()).getValue());
+    }
+
+    @Test
+    public void testRequestContext() throws Exception {
+        StringDictionary dictionary = new StringDictionary();
+        RequestContext.getRequestContext().setStringDictionary(dictionary);
+        Photo first = PhotoUtils.createPhotoList(new JSONObject(JSON)).get(0);
+        Photo again = PhotoUtils.createPhotoList(new JSONObject(JSON)).get(0);
+        assertSame(first.getOwner().getId(), again.getOwner().getId());
+        assertSame(dictionary, RequestContext.getRequestContext().copy().getStringDictionary());
+        assertEquals(true, dictionary.getDedupRatio() > 0.7d);
+    }
+
+}